@@ -0,0 +1,122 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.floody.model.FloodyCountingMethod;
+import com.google.floody.model.FloodyList;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.model.SheetRowLocation;
+import java.time.Period;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares the retained heap of a bundle's activities held as {@link SheetFloody} objects and as a
+ * {@link FloodyList}, for activities generated the way the sheet reader builds them: every row
+ * with its own strings and boxed ids.
+ *
+ * <p>Usage: {@code HeapBenchmark [activities]}, run with a heap large enough for both lists.
+ */
+public final class HeapBenchmark {
+
+  private static final int GROUPS = 100;
+  private static final int DEFAULT_TAGS = 500;
+
+  public static void main(String[] args) {
+    int activityCount = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+
+    long objectsBytes =
+        retainedBytes(
+            () -> {
+              var floodies = ImmutableList.<SheetFloody>builder();
+              for (int index = 0; index < activityCount; index++) {
+                floodies.add(buildFloody(index));
+              }
+              return floodies.build();
+            });
+
+    long listBytes =
+        retainedBytes(
+            () -> {
+              var floodies = FloodyList.builder();
+              for (int index = 0; index < activityCount; index++) {
+                floodies.add(buildFloody(index));
+              }
+              return floodies.build();
+            });
+
+    System.out.printf("%d activities%n", activityCount);
+    System.out.printf(
+        "%-12s %10d bytes, %5d bytes per activity%n",
+        "SheetFloody", objectsBytes, objectsBytes / activityCount);
+    System.out.printf(
+        "%-12s %10d bytes, %5d bytes per activity%n",
+        "FloodyList", listBytes, listBytes / activityCount);
+    System.out.printf("reduction    %.1fx%n", (double) objectsBytes / listBytes);
+  }
+
+  /** Returns the heap retained by the built activities, measured after full collections. */
+  private static long retainedBytes(Supplier<List<SheetFloody>> builder) {
+    long before = usedBytes();
+    var floodies = builder.get();
+    long after = usedBytes();
+
+    // Keep the activities reachable until measured.
+    if (floodies.isEmpty()) {
+      System.out.println("no activities");
+    }
+
+    return after - before;
+  }
+
+  private static long usedBytes() {
+    var runtime = Runtime.getRuntime();
+    for (int collection = 0; collection < 5; collection++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static SheetFloody buildFloody(int index) {
+    int group = index % GROUPS;
+
+    return SheetFloody.builder()
+        .setAccountId(1L)
+        .setFloodlightConfigurationId(1234L)
+        .setToBeUpdated(index % 10 == 0)
+        .setGroupName("group " + group)
+        .setGroupTagString("grp" + group)
+        .setTagString(Integer.toString(index, 36))
+        .setId((long) index + 1)
+        .setName("activity " + index)
+        .setCountingMethod(FloodyCountingMethod.COUNTER_STANDARD)
+        .setExpectedUrl("https://www.example.com/page/" + (index % 1000))
+        .setRemarks((index % 10 == 0) ? "Activity updated" : "")
+        .setAutoCreateAudience(index % 5 == 0)
+        .setAudienceLifespan(Period.ofDays(30))
+        .setCustomFloodlightVariables(ImmutableSet.of("U" + 1, "U" + 2))
+        .setDefaultTagIds(
+            ImmutableSet.of((long) index % DEFAULT_TAGS, (long) (index + 1) % DEFAULT_TAGS))
+        .setPublisherTagIds(ImmutableSet.of())
+        .setSheetLocation(SheetRowLocation.create("Activities", index + 2))
+        .build();
+  }
+
+  private HeapBenchmark() {}
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.benchmark;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.api.services.dfareporting.model.FloodlightActivity;
+import com.google.api.services.dfareporting.model.FloodlightActivityDynamicTag;
+import com.google.api.services.dfareporting.model.FloodlightActivityGroup;
+import com.google.common.collect.ImmutableList;
+import com.google.floody.model.FloodyBundle;
+import com.google.floody.model.FloodyGroup;
+import com.google.floody.model.FloodyGroupMap;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.transforms.BundleToFloodlightActivityTransformer;
+import com.google.floody.transforms.FloodlightActivityToBundleTransformer;
+import com.google.floody.transforms.ParallelTransforms;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the sequential and parallel transforms of a generated Floodlight configuration: DCM
+ * activities to a bundle, as read by an export to the spreadsheet, and the bundle's activities to
+ * validated DCM activities, as prepared by an export to DCM.
+ *
+ * <p>Usage: {@code TransformBenchmark [activities] [runs] [parallelism]}, the median of the runs
+ * is reported after as many warm-up runs. The parallel runs use all the available processors
+ * unless a parallelism is given.
+ */
+public final class TransformBenchmark {
+
+  private static final long CONFIGURATION_ID = 1234L;
+  private static final int GROUPS = 100;
+  private static final int DEFAULT_TAGS = 500;
+
+  public static void main(String[] args) {
+    int activityCount = (args.length > 0) ? Integer.parseInt(args[0]) : 100_000;
+    int runs = (args.length > 1) ? Integer.parseInt(args[1]) : 5;
+    int parallelism = (args.length > 2) ? Integer.parseInt(args[2]) : 0;
+
+    var groups = buildGroups();
+    var activities = buildActivities(activityCount);
+
+    System.out.printf(
+        "%d activities, %d processors%n",
+        activityCount, Runtime.getRuntime().availableProcessors());
+
+    // A parallelism of 1 keeps the transforms sequential.
+    for (int poolParallelism : new int[] {1, parallelism}) {
+      ParallelTransforms.setParallelism(poolParallelism);
+      var name = (poolParallelism == 1) ? "sequential" : "parallel";
+
+      long bundleMillis = medianMillis(runs, () -> buildBundle(activities, groups));
+
+      var bundle = buildBundle(activities, groups);
+      var floodies = markedForUpdate(bundle);
+      var transformer =
+          BundleToFloodlightActivityTransformer.forBundle(bundle).buildActivityTransformer();
+      long prepareMillis =
+          medianMillis(
+              runs,
+              () ->
+                  ParallelTransforms.map(
+                      floodies,
+                      floody ->
+                          Optional.ofNullable(
+                              transformer.buildActivityFromFloody(floody, new StringBuilder()))));
+
+      System.out.printf(
+          "%-12s getBundleBuilder %6d ms, prepareWrite %6d ms%n",
+          name, bundleMillis, prepareMillis);
+    }
+  }
+
+  private static FloodyBundle buildBundle(
+      ImmutableList<FloodlightActivity> activities, FloodyGroupMap groups) {
+    return new FloodlightActivityToBundleTransformer()
+        .add(activities)
+        .getBundleBuilder()
+        .setFloodyGroups(groups)
+        .build();
+  }
+
+  /** Returns the bundle's activities marked for update, as the export to DCM only writes those. */
+  private static ImmutableList<SheetFloody> markedForUpdate(FloodyBundle bundle) {
+    return bundle.getFloodies().stream()
+        .map(floody -> floody.toBuilder().setToBeUpdated(true).build())
+        .collect(toImmutableList());
+  }
+
+  private static long medianMillis(int runs, Supplier<?> work) {
+    // Warm up the JIT before measuring, as many times as measured.
+    for (int run = 0; run < runs; run++) {
+      work.get();
+    }
+
+    long[] millis = new long[runs];
+    for (int run = 0; run < runs; run++) {
+      long startNanos = System.nanoTime();
+      work.get();
+      millis[run] = (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+    Arrays.sort(millis);
+    return millis[runs / 2];
+  }
+
+  private static FloodyGroupMap buildGroups() {
+    return FloodyGroupMap.buildFor(
+        IntStream.range(0, GROUPS)
+            .mapToObj(
+                index ->
+                    FloodyGroup.fromFloodlightActivity(
+                        new FloodlightActivityGroup()
+                            .setId((long) index + 1)
+                            .setFloodlightConfigurationId(CONFIGURATION_ID)
+                            .setName("group " + index)
+                            .setTagString("grp" + index)
+                            .setType("COUNTER")))
+            .collect(toImmutableList()));
+  }
+
+  private static ImmutableList<FloodlightActivity> buildActivities(int activityCount) {
+    return IntStream.range(0, activityCount)
+        .mapToObj(
+            index ->
+                new FloodlightActivity()
+                    .setAccountId(1L)
+                    .setFloodlightConfigurationId(CONFIGURATION_ID)
+                    .setFloodlightActivityGroupName("group " + (index % GROUPS))
+                    .setFloodlightActivityGroupTagString("grp" + (index % GROUPS))
+                    .setTagString(Integer.toString(index, 36))
+                    .setId((long) index + 1)
+                    .setName("activity " + index)
+                    .setCountingMethod("STANDARD_COUNTING")
+                    .setExpectedUrl("https://www.example.com/page/" + index)
+                    .setCacheBustingType("JAVASCRIPT")
+                    .setTagFormat("HTML")
+                    .setFloodlightTagType("GLOBAL_SITE_TAG")
+                    .setStatus("ACTIVE")
+                    .setUserDefinedVariableTypes(ImmutableList.of("U1", "U2"))
+                    .setDefaultTags(
+                        ImmutableList.of(
+                            defaultTag(index % DEFAULT_TAGS),
+                            defaultTag((index + 1) % DEFAULT_TAGS))))
+        .collect(toImmutableList());
+  }
+
+  private static FloodlightActivityDynamicTag defaultTag(int index) {
+    return new FloodlightActivityDynamicTag()
+        .setName("tag " + index)
+        .setTag("<script>/* tag " + index + " */</script>");
+  }
+
+  private TransformBenchmark() {}
+}
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import javax.servlet.http.HttpServletRequest;
+import org.joda.time.Duration;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -37,6 +38,9 @@ public final class CronTasksController extends FloodyBaseController {
 
   private static GoogleLogger logger = GoogleLogger.forEnclosingClass();
 
+  /** The schedule of the renewSheetWatches cron job. */
+  private static final Duration SHEET_WATCH_RENEWAL_INTERVAL = Duration.standardHours(6);
+
   @Autowired private FloodyProperties floodyProperties;
 
   @GetMapping(value = "/removeOldFiles")
@@ -52,6 +56,62 @@ public final class CronTasksController extends FloodyBaseController {
     return robotServicesFactory().buildFileDeletor(dryRun).deleteFilesLastAccessed(cutOffDate);
   }
 
+  /**
+   * Tops up the pool of pre-provisioned Floody spreadsheets.
+   *
+   * @return the number of spreadsheets added to the pool
+   */
+  @GetMapping(value = "/refillSpreadsheetPool")
+  public int refillSpreadsheetPool(HttpServletRequest request) throws IOException {
+
+    verifyCaller(request);
+
+    return robotServicesFactory().buildSpreadsheetPool().refill();
+  }
+
+  /**
+   * Releases the sheet leases of sync operations that did not finish in time, e.g. when the
+   * instance was shut down, and removes their sheet protections.
+   *
+   * @return the number of released leases
+   */
+  @GetMapping(value = "/releaseExpiredSheetLeases")
+  public int releaseExpiredSheetLeases(HttpServletRequest request) throws IOException {
+
+    verifyCaller(request);
+
+    return robotServicesFactory().buildSheetLeaseManager().releaseExpired();
+  }
+
+  /**
+   * Stages the activity rows changed in the watched spreadsheets, once their change notifications
+   * have settled.
+   *
+   * @return the number of spreadsheets with newly staged changes
+   */
+  @GetMapping(value = "/stageSheetChanges")
+  public int stageSheetChanges(HttpServletRequest request) throws IOException {
+
+    verifyCaller(request);
+
+    return robotServicesFactory().buildSheetWatchService().stageChanges();
+  }
+
+  /**
+   * Renews the Drive notification channels of the watched spreadsheets before they expire.
+   *
+   * @return the number of renewed channels
+   */
+  @GetMapping(value = "/renewSheetWatches")
+  public int renewSheetWatches(HttpServletRequest request) throws IOException {
+
+    verifyCaller(request);
+
+    return robotServicesFactory()
+        .buildSheetWatchService()
+        .renewChannels(SHEET_WATCH_RENEWAL_INTERVAL);
+  }
+
   private void verifyCaller(HttpServletRequest request) {
     if (!"true".equals(request.getHeader("X-Appengine-Cron"))) {
       throw new UnauthorizedUserException("Unknown caller for secured endpoint");
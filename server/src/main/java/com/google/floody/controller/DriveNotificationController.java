@@ -0,0 +1,53 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.controller;
+
+import com.google.common.flogger.GoogleLogger;
+import java.io.IOException;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Webhook receiving Drive push notifications for watched Floody spreadsheets. Notifications are
+ * authenticated by the channel's secret token.
+ */
+@RestController
+@RequestMapping("/drivenotifications")
+public final class DriveNotificationController extends FloodyBaseController {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  /**
+   * Marks the spreadsheet of the notification's channel for change staging. Always accepts the
+   * notification, so that Drive does not retry it.
+   */
+  @PostMapping("/sheets")
+  public void sheetChanged(
+      @RequestHeader("X-Goog-Channel-ID") String channelId,
+      @RequestHeader(value = "X-Goog-Channel-Token", required = false) String channelToken,
+      @RequestHeader(value = "X-Goog-Resource-ID", required = false) String resourceId,
+      @RequestHeader("X-Goog-Resource-State") String resourceState)
+      throws IOException {
+    logger.atFine().log("notification channel (%s) state (%s)", channelId, resourceState);
+
+    robotServicesFactory()
+        .buildSheetWatchService()
+        .onNotification(channelId, channelToken, resourceId, resourceState);
+  }
+}
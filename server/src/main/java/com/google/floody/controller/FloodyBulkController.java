@@ -0,0 +1,129 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.controller;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.flogger.GoogleLogger;
+import com.google.floody.service.BulkFormat;
+import com.google.floody.service.BulkRecordReader;
+import com.google.floody.service.BulkRecordWriter;
+import com.google.floody.service.DcmReferenceSnapshot;
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Bulk export and upload of Floodlight activities as NDJSON or CSV streams, reading from and
+ * writing to DCM directly without a spreadsheet.
+ */
+@RestController
+@RequestMapping("/floody/bulk")
+public class FloodyBulkController extends FloodyBaseController {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  /**
+   * Streams all the activities, default tags and publisher tags of the Floodlight configuration as
+   * they are read from DCM.
+   *
+   * @param profileId the User's DCM profile Id to be used for the operation.
+   * @param floodlightConfigurationId the Floodlight configuration to export.
+   * @param format the stream format, {@code ndjson} (default) or {@code csv}.
+   * @throws IOException in case of errors in DCM API
+   */
+  @GetMapping("/export/{floodlightConfigurationId}")
+  public ResponseEntity<StreamingResponseBody> export(
+      @RequestHeader(value = "profile") Long profileId,
+      @PathVariable long floodlightConfigurationId,
+      @RequestParam(defaultValue = "ndjson") String format)
+      throws IOException {
+    checkArgument((profileId != null) && profileId > 0, "Invalid profileId (%s)", profileId);
+    logger.atInfo().log(
+        "profileId (%s) bulk export floodlightConfigurationId (%s)",
+        profileId, floodlightConfigurationId);
+
+    var bulkFormat = BulkFormat.forName(format);
+    var bulkService = robotServicesFactory().buildFloodyBulkService();
+    var dcmReader =
+        robotServicesFactory()
+            .buildFloodyService()
+            .readFromDcm(userServicesFactory().buildDcmServiceFactory())
+            .forFloodlightConfiguration(floodlightConfigurationId);
+
+    StreamingResponseBody responseBody =
+        outputStream -> {
+          try (var writer = BulkRecordWriter.create(bulkFormat, outputStream)) {
+            bulkService.export(dcmReader, profileId, writer);
+          }
+        };
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(bulkFormat.contentType()))
+        .body(responseBody);
+  }
+
+  /**
+   * Writes the uploaded activities to DCM and streams back a NDJSON result row for each row. The
+   * request body is read as CSV for {@code text/csv} content type and as NDJSON otherwise.
+   *
+   * @param profileId the User's DCM profile Id to be used for the operation.
+   * @param floodlightConfigurationId the Floodlight configuration to write to.
+   * @param contentType the format of the uploaded rows.
+   * @param requestBody the uploaded rows.
+   * @throws IOException in case of errors loading the DCM reference data
+   */
+  @PostMapping("/upload/{floodlightConfigurationId}")
+  public ResponseEntity<StreamingResponseBody> upload(
+      @RequestHeader(value = "profile") Long profileId,
+      @PathVariable long floodlightConfigurationId,
+      @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+      InputStream requestBody)
+      throws IOException {
+    checkArgument((profileId != null) && profileId > 0, "Invalid profileId (%s)", profileId);
+    logger.atInfo().log(
+        "profileId (%s) bulk upload floodlightConfigurationId (%s)",
+        profileId, floodlightConfigurationId);
+
+    var bulkService = robotServicesFactory().buildFloodyBulkService();
+    var dcmService = userServicesFactory().buildDcmService();
+    var referenceSnapshot =
+        DcmReferenceSnapshot.load(dcmService, profileId, floodlightConfigurationId);
+    var reader = BulkRecordReader.create(BulkFormat.forContentType(contentType), requestBody);
+
+    StreamingResponseBody responseBody =
+        outputStream -> {
+          try (var results = BulkRecordWriter.create(BulkFormat.NDJSON, outputStream)) {
+            bulkService.upload(reader, dcmService, referenceSnapshot, results);
+          }
+        };
+
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(BulkFormat.NDJSON.contentType()))
+        .body(responseBody);
+  }
+}
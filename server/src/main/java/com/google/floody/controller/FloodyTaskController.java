@@ -17,18 +17,35 @@
 package com.google.floody.controller;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_SHEET_NAME;
 import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_NAME;
 import static com.google.floody.model.PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_NAME;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import com.google.common.base.Ascii;
+import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.GoogleLogger;
+import com.google.floody.exceptions.BundleSnapshotNotFoundException;
+import com.google.floody.protobuf.DcmOperations.BundleValidationReport;
+import com.google.floody.protobuf.DcmOperations.DcmWritePlanSummary;
+import com.google.floody.protobuf.DcmOperations.ExportPhase.Phase;
+import com.google.floody.protobuf.DcmOperations.ExportProgressEvent;
+import com.google.floody.protobuf.DcmOperations.ReconciliationReport;
+import com.google.floody.protobuf.SheetObjects.StagedSheetChanges;
+import com.google.floody.service.ExportProgressListener;
+import com.google.floody.service.FloodyExecutors;
+import com.google.floody.service.ServicesFactory;
+import com.google.floody.spreadsheet.GoogleSpreadsheetService;
+import com.googlecode.objectify.ObjectifyService;
 import java.io.IOException;
+import java.time.Duration;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/floody")
@@ -36,6 +53,9 @@ public class FloodyTaskController extends FloodyBaseController {
 
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
 
+  /** Longest time the export events are streamed, matching the Cloud Run request timeout. */
+  private static final Duration EXPORT_EVENTS_TIMEOUT = Duration.ofHours(1);
+
   /**
    * Reads the DCM Floodlight Activities from the Floodlight configuration and writes to the
    * provided spreadsheet Id
@@ -55,28 +75,76 @@ public class FloodyTaskController extends FloodyBaseController {
 
     var spreadsheetService = robotServicesFactory().buildSpreadsheetService(spreadsheetId);
 
-    // Lock the spreadsheet
-    var lockedSheetRanges =
-        spreadsheetService.lockSheets(
-            ACTIVITY_SHEET_NAME, DEFAULT_TAG_SHEET_NAME, PUBLISHER_TAG_SHEET_NAME);
+    // Lease the spreadsheet, fails if another sync is in progress.
+    var leaseManager = robotServicesFactory().buildSheetLeaseManager();
+    var lease =
+        leaseManager.acquire(
+            spreadsheetId, "exportToSheet", lockableSheetNames(spreadsheetService));
 
     try {
-      robotServicesFactory()
-          .buildFloodyService()
-          .readFromDcm(userServicesFactory().buildDcmServiceFactory())
-          .forSpreadsheet(spreadsheetId)
-          .loadFor(profileId)
-          .toSheets(robotServicesFactory().buildSpreadsheetService(spreadsheetId))
+      var dcmBundle =
+          robotServicesFactory()
+              .buildFloodyService()
+              .readFromDcm(userServicesFactory().buildDcmServiceFactory())
+              .forSpreadsheet(spreadsheetId)
+              .loadFor(profileId);
+
+      dcmBundle
+          .toSheets(
+              robotServicesFactory().buildSpreadsheetService(spreadsheetId),
+              robotServicesFactory().buildActivitySheetSharding())
           .sync();
+
+      robotServicesFactory()
+          .buildBundleSnapshotService()
+          .recordSync(dcmBundle.getFloodlightConfigurationId(), dcmBundle.getBundle());
+
+      robotServicesFactory()
+          .buildSheetWatchService()
+          .recordSync(spreadsheetId, dcmBundle.getBundle().getFloodies());
     } finally {
       // unlock the spreadsheet after processing or in case an Exception is thrown.
+      leaseManager.release(lease);
+    }
+  }
 
-      if (lockedSheetRanges != null) {
-        spreadsheetService.unlockSheets(lockedSheetRanges.values());
-      } else {
-        spreadsheetService.unlockSheets(
-            ACTIVITY_SHEET_NAME, DEFAULT_TAG_SHEET_NAME, PUBLISHER_TAG_SHEET_NAME);
-      }
+  /**
+   * Writes the Floodlight Activities of the spreadsheet's configuration as of its last sync to the
+   * spreadsheet, from the stored bundle snapshot without reading DCM.
+   *
+   * @param spreadsheetId the spreadsheet id to update
+   * @throws IOException in case of errors in Sheets API or reading the snapshot
+   */
+  @GetMapping("/restoreFromSnapshot/{spreadsheetId}")
+  public void restoreFromSnapshot(@PathVariable String spreadsheetId) throws IOException {
+    checkArgument(!isBlank(spreadsheetId), "spreadsheetId should not be null or empty");
+
+    verifyUserHasFullAuthOrReturn(spreadsheetId);
+
+    var spreadsheetService = robotServicesFactory().buildSpreadsheetService(spreadsheetId);
+
+    // Lease the spreadsheet, fails if another sync is in progress.
+    var leaseManager = robotServicesFactory().buildSheetLeaseManager();
+    var lease =
+        leaseManager.acquire(
+            spreadsheetId, "restoreFromSnapshot", lockableSheetNames(spreadsheetService));
+
+    try {
+      var snapshotBundle =
+          robotServicesFactory()
+              .buildFloodyService()
+              .readFromSnapshot(spreadsheetId, robotServicesFactory().buildBundleSnapshotService())
+              .orElseThrow(() -> new BundleSnapshotNotFoundException(spreadsheetId));
+
+      snapshotBundle
+          .toSheets(spreadsheetService, robotServicesFactory().buildActivitySheetSharding())
+          .sync();
+
+      robotServicesFactory()
+          .buildSheetWatchService()
+          .recordSync(spreadsheetId, snapshotBundle.getBundle().getFloodies());
+    } finally {
+      leaseManager.release(lease);
     }
   }
 
@@ -94,31 +162,297 @@ public class FloodyTaskController extends FloodyBaseController {
     checkArgument((profileId != null) && profileId > 0, "Invalid profileId");
     logger.atInfo().log("profileId (%s)", profileId);
 
+    exportToDcm(userServicesFactory(), profileId, spreadsheetId, ExportProgressListener.NO_OP);
+  }
+
+  /**
+   * Starts updating the DCM Floodlight Configuration from the provided spreadsheet id and streams
+   * its progress as Server-Sent Events: the phase transitions, the outcome of every activity row as
+   * soon as its DCM batch completes and the rows written back to the spreadsheet. The export runs
+   * in the background and completes even if the client disconnects.
+   *
+   * @param profileId the User's DCM profile Id to be used for the operation.
+   * @param spreadsheetId the spreadsheet id to update from.
+   * @return the stream of {@link ExportProgressEvent}s, named by their event case.
+   */
+  @GetMapping(
+      value = "/exportToDcm/{spreadsheetId}/events",
+      produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter exportToDcmEvents(
+      @RequestHeader(value = "profile") Long profileId, @PathVariable String spreadsheetId) {
+    checkArgument((profileId != null) && profileId > 0, "Invalid profileId");
+    logger.atInfo().log("profileId (%s)", profileId);
+
+    // The user's credentials are bound to the request, resolve them on the request's thread.
+    var userServicesFactory = userServicesFactory();
+    var emitter = new SseEmitter(EXPORT_EVENTS_TIMEOUT.toMillis());
+
+    FloodyExecutors.apiCallExecutor()
+        .execute(
+            () ->
+                ObjectifyService.run(
+                    () ->
+                        streamExportToDcm(userServicesFactory, profileId, spreadsheetId, emitter)));
+
+    return emitter;
+  }
+
+  /** Runs the export reporting to the emitter, and completes the emitter when done. */
+  private Void streamExportToDcm(
+      ServicesFactory userServicesFactory,
+      long profileId,
+      String spreadsheetId,
+      SseEmitter emitter) {
+    var progressListener = new SseProgressListener(emitter);
+
+    try {
+      exportToDcm(userServicesFactory, profileId, spreadsheetId, progressListener);
+    } catch (IOException | RuntimeException exception) {
+      logger.atWarning().withCause(exception).log("error exporting to DCM (%s)", spreadsheetId);
+      progressListener.onFailure(exception);
+    }
+
+    emitter.complete();
+    return null;
+  }
+
+  private void exportToDcm(
+      ServicesFactory userServicesFactory,
+      long profileId,
+      String spreadsheetId,
+      ExportProgressListener progressListener)
+      throws IOException {
+    // Skip reading all sheets when the staged changes show nothing to write.
+    var sheetWatchService = robotServicesFactory().buildSheetWatchService();
+    if (sheetWatchService.isUnchangedSinceSync(spreadsheetId)) {
+      logger.atInfo().log("no activity changes since last sync (%s)", spreadsheetId);
+      progressListener.onPhase(Phase.UNCHANGED, 0);
+      return;
+    }
+
     var spreadsheetService = robotServicesFactory().buildSpreadsheetService(spreadsheetId);
 
-    // Lock the spreadsheet
-    var lockedSheetRanges =
-        spreadsheetService.lockSheets(
-            ACTIVITY_SHEET_NAME, DEFAULT_TAG_SHEET_NAME, PUBLISHER_TAG_SHEET_NAME);
+    // Lease the spreadsheet, fails if another sync is in progress.
+    var leaseManager = robotServicesFactory().buildSheetLeaseManager();
+    var lease =
+        leaseManager.acquire(spreadsheetId, "exportToDcm", lockableSheetNames(spreadsheetService));
 
     try {
+      progressListener.onPhase(Phase.READING_SHEET, 0);
+
+      // Read only the rows flagged for update and the tags they reference.
+      var flaggedBundle =
+          robotServicesFactory()
+              .buildFloodyService()
+              .readFromSheets()
+              .forSpreadsheet(spreadsheetId)
+              .loadFlagged();
+
+      var updatedBundle =
+          flaggedBundle
+              .toDcm(userServicesFactory.buildDcmService())
+              .buildDcmWriter(profileId)
+              .withProgressListener(progressListener)
+              .sync();
+
+      progressListener.onPhase(
+          Phase.WRITING_SHEET, updatedBundle.getBundle().getFloodies().size());
+      var sheetsWriter =
+          updatedBundle
+              .toSheets(spreadsheetService, robotServicesFactory().buildActivitySheetSharding())
+              .withProgressListener(progressListener);
+      sheetsWriter.syncActivityRows();
+      sheetsWriter.syncReferenceSheets();
+
+      progressListener.onPhase(Phase.RECORDING_SYNC, 0);
       robotServicesFactory()
-          .buildFloodyService()
-          .readFromSheets()
-          .forSpreadsheet(spreadsheetId)
-          .load()
-          .toDcm(userServicesFactory().buildDcmService())
-          .buildDcmWriter(profileId)
-          .sync()
-          .toSheets(spreadsheetService)
-          .sync();
+          .buildBundleSnapshotService()
+          .recordActivitiesSync(
+              updatedBundle.getFloodlightConfigurationId(), updatedBundle.getBundle());
+
+      sheetWatchService.recordRowsSync(
+          spreadsheetId,
+          flaggedBundle.getBundle().getFloodies(),
+          updatedBundle.getBundle().getFloodies());
+
+      progressListener.onPhase(Phase.COMPLETED, updatedBundle.getBundle().getFloodies().size());
     } finally {
       // Unlock the spreadsheet after processing
-      if (lockedSheetRanges != null) {
-        spreadsheetService.unlockSheets(lockedSheetRanges.values());
-      } else {
-        spreadsheetService.unlockSheets(
-            ACTIVITY_SHEET_NAME, DEFAULT_TAG_SHEET_NAME, PUBLISHER_TAG_SHEET_NAME);
+      leaseManager.release(lease);
+    }
+  }
+
+  /**
+   * Plans the DCM writes for exporting the provided spreadsheet to DCM, without executing them.
+   *
+   * @param profileId the User's DCM profile Id to be used for the operation.
+   * @param spreadsheetId the spreadsheet id to plan the export for.
+   * @return the number of group, activity and audience writes required for the export.
+   * @throws IOException in case of errors in DCM API or Sheets API
+   */
+  @GetMapping("/plan/{spreadsheetId}")
+  public DcmWritePlanSummary planExportToDcm(
+      @RequestHeader(value = "profile") Long profileId, @PathVariable String spreadsheetId)
+      throws IOException {
+    checkArgument((profileId != null) && profileId > 0, "Invalid profileId");
+    logger.atInfo().log("profileId (%s)", profileId);
+
+    return robotServicesFactory()
+        .buildFloodyService()
+        .readFromSheets()
+        .forSpreadsheet(spreadsheetId)
+        .loadFlagged()
+        .toDcm(userServicesFactory().buildDcmService())
+        .buildDcmWriter(profileId)
+        .plan()
+        .toSummary();
+  }
+
+  /**
+   * Reconciles the spreadsheet with DCM against the snapshot of their last sync: activities changed
+   * in the spreadsheet are written to DCM, activities changed or added in DCM are written to the
+   * spreadsheet and activities changed on both sides are reported as conflicts.
+   *
+   * @param profileId the User's DCM profile Id to be used for the operation.
+   * @param spreadsheetId the spreadsheet id to reconcile.
+   * @param dryRun only classify the activities and count the writes.
+   * @return the number of activities by change, the writes and the conflicts.
+   * @throws IOException in case of errors in DCM API or Sheets API
+   */
+  @GetMapping("/reconcile/{spreadsheetId}")
+  public ReconciliationReport reconcile(
+      @RequestHeader(value = "profile") Long profileId,
+      @PathVariable String spreadsheetId,
+      @RequestParam(required = false, defaultValue = "false") boolean dryRun)
+      throws IOException {
+    checkArgument(!isBlank(spreadsheetId), "spreadsheetId should not be null or empty");
+    checkArgument((profileId != null) && profileId > 0, "Invalid profileId (%s)", profileId);
+    logger.atInfo().log("profileId (%s), dryRun (%s)", profileId, dryRun);
+
+    var spreadsheetService = robotServicesFactory().buildSpreadsheetService(spreadsheetId);
+
+    // A dry run only reads, it doesn't need to hold off other syncs.
+    var leaseManager = robotServicesFactory().buildSheetLeaseManager();
+    var lease =
+        dryRun
+            ? null
+            : leaseManager.acquire(
+                spreadsheetId, "reconcile", lockableSheetNames(spreadsheetService));
+
+    try {
+      var floodyService = robotServicesFactory().buildFloodyService();
+      var sheetBundle = floodyService.readFromSheets().forSpreadsheet(spreadsheetId).loadLocated();
+      var dcmBundle =
+          floodyService
+              .readFromDcm(userServicesFactory().buildDcmServiceFactory())
+              .forFloodlightConfiguration(sheetBundle.getFloodlightConfigurationId())
+              .loadFor(profileId);
+
+      var reconciler =
+          robotServicesFactory()
+              .buildBundleReconciler(
+                  sheetBundle,
+                  dcmBundle,
+                  spreadsheetService,
+                  userServicesFactory().buildDcmService(),
+                  profileId);
+      var report = reconciler.reconcile(dryRun);
+
+      if (!dryRun && report.getSheetRowsWritten() > 0) {
+        robotServicesFactory()
+            .buildSheetWatchService()
+            .recordSync(spreadsheetId, reconciler.getReconciledSheetFloodies());
+      }
+
+      return report;
+    } finally {
+      if (lease != null) {
+        leaseManager.release(lease);
+      }
+    }
+  }
+
+  /**
+   * Validates the activities marked for update in the spreadsheet, including checks across rows,
+   * without calling DCM.
+   *
+   * @param spreadsheetId the spreadsheet id to validate.
+   * @return all the problems found, with the activity of each.
+   * @throws IOException in case of errors in Sheets API
+   */
+  @GetMapping("/validate/{spreadsheetId}")
+  public BundleValidationReport validate(@PathVariable String spreadsheetId) throws IOException {
+    checkArgument(!isBlank(spreadsheetId), "spreadsheetId should not be null or empty");
+
+    verifyUserHasFullAuthOrReturn(spreadsheetId);
+
+    return robotServicesFactory()
+        .buildFloodyService()
+        .readFromSheets()
+        .forSpreadsheet(spreadsheetId)
+        .load()
+        .validate();
+  }
+
+  /**
+   * Returns the activity changes staged from the spreadsheet's change notifications since the last
+   * sync, or an empty message if there are no current staged changes.
+   *
+   * @param spreadsheetId the spreadsheet id to read the staged changes for.
+   */
+  @GetMapping("/stagedChanges/{spreadsheetId}")
+  public StagedSheetChanges stagedChanges(@PathVariable String spreadsheetId) throws IOException {
+    checkArgument(!isBlank(spreadsheetId), "spreadsheetId should not be null or empty");
+
+    verifyUserHasFullAuthOrReturn(spreadsheetId);
+
+    return robotServicesFactory()
+        .buildSheetWatchService()
+        .currentChanges(spreadsheetId)
+        .orElseGet(StagedSheetChanges::getDefaultInstance);
+  }
+
+  /**
+   * Returns the names of all activity shard sheets, default tags and publisher tags sheets to lock
+   * during the processing.
+   */
+  private String[] lockableSheetNames(GoogleSpreadsheetService spreadsheetService)
+      throws IOException {
+    return ImmutableList.<String>builder()
+        .addAll(
+            robotServicesFactory()
+                .buildActivitySheetSharding()
+                .readShardSheetNames(spreadsheetService.metaReader()))
+        .add(DEFAULT_TAG_SHEET_NAME, PUBLISHER_TAG_SHEET_NAME)
+        .build()
+        .toArray(String[]::new);
+  }
+
+  /** Sends the export progress as Server-Sent Events, until the client disconnects. */
+  private static final class SseProgressListener implements ExportProgressListener {
+
+    private final SseEmitter emitter;
+    private volatile boolean disconnected;
+
+    private SseProgressListener(SseEmitter emitter) {
+      this.emitter = emitter;
+    }
+
+    @Override
+    public void onProgress(ExportProgressEvent event) {
+      if (disconnected) {
+        return;
+      }
+
+      try {
+        emitter.send(
+            SseEmitter.event()
+                .name(Ascii.toLowerCase(event.getEventCase().name()))
+                .data(event, MediaType.APPLICATION_JSON));
+      } catch (IOException | IllegalStateException exception) {
+        // The export goes on, the results are written to the spreadsheet all the same.
+        disconnected = true;
+        logger.atInfo().log("export events not delivered: %s", exception.getMessage());
       }
     }
   }
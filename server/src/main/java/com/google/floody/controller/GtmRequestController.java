@@ -30,6 +30,7 @@ import com.google.floody.protobuf.GtmOperations.GtmOperationStatus;
 import com.google.floody.protobuf.GtmOperations.GtmTagOperationAction;
 import com.google.floody.protobuf.GtmOperations.GtmTagOperationResult;
 import com.google.floody.protobuf.GtmOperations.GtmTagOperationResults;
+import com.google.floody.service.GtmExportCache;
 import com.google.floody.service.ObjectifySaverService;
 import com.google.floody.spreadsheet.GoogleSpreadsheetService;
 import com.googlecode.objectify.NotFoundException;
@@ -70,14 +71,15 @@ public final class GtmRequestController extends FloodyBaseController {
           .buildFloodyService()
           .readFromSheets()
           .forSpreadsheet(gtmOperationRequest.getSpreadsheetId())
-          .load()
+          .loadFlagged()
           .toGtmRequestWriter(saverService)
           .forRequest(gtmOperationRequest, requesterEmail)
           .sync()
-          .toSheets(spreadsheetService)
-          .sync();
+          .toSheets(spreadsheetService, robotServicesFactory().buildActivitySheetSharding())
+          .syncActivityRows();
 
       var gtmExport = saverService.getSavedObjects().get(0);
+      GtmExportCache.put(gtmExport);
 
       return GtmExportResponse.newBuilder()
           .setRequest(gtmOperationRequest)
@@ -136,7 +138,7 @@ public final class GtmRequestController extends FloodyBaseController {
                 .build());
       }
       var updated = gtmExport.toBuilder().setGtmTagOperationResults(tagOperationResultSet).build();
-      ofy().save().entity(updated.withApprovalNow(userEmail, authorizerComment)).now();
+      GtmExportCache.save(updated.withApprovalNow(userEmail, authorizerComment));
 
       return GtmTagOperationResults.newBuilder()
           .addAllGtmTagOperationResult(tagOperationResults)
@@ -159,7 +161,7 @@ public final class GtmRequestController extends FloodyBaseController {
       var userEmail = userServicesFactory().getAccountEmail();
       var gtmExport = loadGtmRequestAndCheckUnActioned(requestId, userEmail);
 
-      ofy().save().entity(gtmExport.withRejectionNow(userEmail, authorizerComment)).now();
+      GtmExportCache.save(gtmExport.withRejectionNow(userEmail, authorizerComment));
 
       return GtmTagOperationResults.newBuilder()
           .setAction(GtmTagOperationAction.REJECT)
@@ -179,7 +181,10 @@ public final class GtmRequestController extends FloodyBaseController {
   }
 
   private GtmExport loadGtmRequest(long requestId, String userEmail) {
-    var gtmRequest = ofy().load().type(GtmExport.class).id(requestId).safe();
+    return checkUserAuthorized(GtmExportCache.load(requestId), userEmail);
+  }
+
+  private static GtmExport checkUserAuthorized(GtmExport gtmRequest, String userEmail) {
 
     // Check if requester email
     boolean isUserAuthorizedUser =
@@ -195,7 +200,8 @@ public final class GtmRequestController extends FloodyBaseController {
   }
 
   private GtmExport loadGtmRequestAndCheckUnActioned(long requestId, String userEmail) {
-    var gtmRequest = loadGtmRequest(requestId, userEmail);
+    // Read the stored state, another instance may have actioned the cached request.
+    var gtmRequest = checkUserAuthorized(GtmExportCache.loadFresh(requestId), userEmail);
 
     if (gtmRequest.getActionInformation() != null) {
       throw new IllegalArgumentException(
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** Thrown when no bundle snapshot is stored for the spreadsheet's Floodlight configuration. */
+@ResponseStatus(value = HttpStatus.NOT_FOUND)
+public final class BundleSnapshotNotFoundException extends RuntimeException {
+
+  private final String spreadsheetId;
+
+  public BundleSnapshotNotFoundException(String spreadsheetId) {
+    super(String.format("No bundle snapshot for spreadsheet %s", spreadsheetId));
+    this.spreadsheetId = spreadsheetId;
+  }
+
+  public String getSpreadsheetId() {
+    return spreadsheetId;
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/** Thrown when another request holds the lease on the spreadsheet's sheets. */
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public final class SpreadsheetLockedException extends RuntimeException {
+
+  private final String spreadsheetId;
+
+  public SpreadsheetLockedException(String spreadsheetId, String operation, String expiresAt) {
+    super(
+        String.format(
+            "Spreadsheet %s is being updated by %s, lease expires at %s",
+            spreadsheetId, operation, expiresAt));
+    this.spreadsheetId = spreadsheetId;
+  }
+
+  public String getSpreadsheetId() {
+    return spreadsheetId;
+  }
+}
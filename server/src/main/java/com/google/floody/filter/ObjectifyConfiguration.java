@@ -17,17 +17,20 @@
 package com.google.floody.filter;
 
 import com.google.cloud.datastore.DatastoreOptions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.flogger.GoogleLogger;
 import com.google.floody.service.DatastoreService;
 import com.googlecode.objectify.ObjectifyFactory;
 import com.googlecode.objectify.ObjectifyFilter;
 import com.googlecode.objectify.ObjectifyService;
 import com.googlecode.objectify.impl.translate.opt.joda.JodaTimeTranslators;
-import javax.servlet.ServletContextEvent;
-import javax.servlet.ServletContextListener;
-import javax.servlet.annotation.WebListener;
+import java.io.IOException;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
-import org.springframework.boot.web.servlet.ServletListenerRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -36,50 +39,58 @@ public class ObjectifyConfiguration {
 
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
 
+  /**
+   * Builds the Datastore client and registers the entities once, on the first request using
+   * Datastore instead of at startup, to keep it out of the instances' cold start.
+   */
+  private static final Supplier<ObjectifyFactory> OBJECTIFY_FACTORY =
+      Suppliers.memoize(ObjectifyConfiguration::initObjectify);
+
   @Bean
   public FilterRegistrationBean<ObjectifyFilter> objectifyFilterRegistration() {
     final FilterRegistrationBean<ObjectifyFilter> registration = new FilterRegistrationBean<>();
-    registration.setFilter(new ObjectifyFilter());
-    registration.addUrlPatterns("/gtmrequest/*");
+    registration.setFilter(new LazyObjectifyFilter());
+    registration.addUrlPatterns(
+        "/gtmrequest/*", "/admin/*", "/crontasks/*", "/floody/*", "/drivenotifications/*");
     registration.setOrder(1);
     return registration;
   }
 
-  @Bean
-  public ServletListenerRegistrationBean<ObjectifyListener> listenerRegistrationBean() {
-    ServletListenerRegistrationBean<ObjectifyListener> bean =
-        new ServletListenerRegistrationBean<>();
-    bean.setListener(new ObjectifyListener());
-    return bean;
-  }
+  private static ObjectifyFactory initObjectify() {
+    var startNanos = System.nanoTime();
+    var objectifyFactory = new ObjectifyFactory(buildDatastoreOptions().getService());
+    JodaTimeTranslators.add(objectifyFactory);
 
-  @WebListener
-  public static class ObjectifyListener implements ServletContextListener {
+    ObjectifyService.init(objectifyFactory);
+    DatastoreService.registerEntities();
 
-    @Override
-    public void contextInitialized(ServletContextEvent sce) {
-      var objectifyFactory = new ObjectifyFactory(buildDatastoreOptions().getService());
-      JodaTimeTranslators.add(objectifyFactory);
+    logger.atInfo().log(
+        "initialized Objectify in %s ms", (System.nanoTime() - startNanos) / 1_000_000);
+    return objectifyFactory;
+  }
 
-      ObjectifyService.init(objectifyFactory);
-      DatastoreService.registerEntities();
-    }
+  private static DatastoreOptions buildDatastoreOptions() {
+    var executionEnvironment = System.getenv("EXECUTION_ENVIRONMENT");
 
-    private DatastoreOptions buildDatastoreOptions() {
-      var executionEnvironment = System.getenv("EXECUTION_ENVIRONMENT");
+    logger.atFine().log("Environment: %s", executionEnvironment);
+    if ("local".equals(executionEnvironment)) {
+      var emulatorHost = System.getenv("DATASTORE_EMULATOR_HOST");
+      logger.atInfo().log("using local Datastore emulator: " + emulatorHost);
 
-      logger.atFine().log("Environment: %s", executionEnvironment);
-      if ("local".equals(executionEnvironment)) {
-        var emulatorHost = System.getenv("DATASTORE_EMULATOR_HOST");
-        logger.atInfo().log("using local Datastore emulator: " + emulatorHost);
+      return DatastoreOptions.newBuilder().setHost("http://" + emulatorHost).build();
+    }
 
-        return DatastoreOptions.newBuilder().setHost("http://" + emulatorHost).build();
-      }
+    return DatastoreOptions.getDefaultInstance();
+  }
 
-      return DatastoreOptions.getDefaultInstance();
-    }
+  /** Objectify filter initializing Objectify before the first request's context. */
+  private static final class LazyObjectifyFilter extends ObjectifyFilter {
 
     @Override
-    public void contextDestroyed(ServletContextEvent sce) {}
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+      OBJECTIFY_FACTORY.get();
+      super.doFilter(request, response, chain);
+    }
   }
 }
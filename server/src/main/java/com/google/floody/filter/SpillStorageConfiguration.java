@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.filter;
+
+import com.google.common.base.Strings;
+import com.google.floody.model.FloodyList;
+import com.google.floody.model.FloodyProperties;
+import com.google.floody.model.SpillPolicy;
+import java.nio.file.Paths;
+import java.util.Objects;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/** Sets the thresholds above which bundle activities are spilled to memory-mapped files. */
+@Configuration
+@Lazy(false)
+public class SpillStorageConfiguration {
+
+  private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+
+  public SpillStorageConfiguration(FloodyProperties floodyProperties) {
+    var spillDirectory =
+        Strings.isNullOrEmpty(floodyProperties.getSpillDirectory())
+            ? System.getProperty("java.io.tmpdir")
+            : floodyProperties.getSpillDirectory();
+
+    FloodyList.setSpillPolicy(
+        SpillPolicy.create(
+            Objects.requireNonNullElse(floodyProperties.getSpillThresholdRows(), 0),
+            Objects.requireNonNullElse(floodyProperties.getSpillThresholdMegabytes(), 0)
+                * BYTES_PER_MEGABYTE,
+            Paths.get(spillDirectory)));
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.filter;
+
+import com.google.floody.model.FloodyProperties;
+import com.google.floody.transforms.ParallelTransforms;
+import java.util.Objects;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/** Sizes the shared pool used for transforming and validating bundles. */
+@Configuration
+@Lazy(false)
+public class TransformPoolConfiguration {
+
+  public TransformPoolConfiguration(FloodyProperties floodyProperties) {
+    ParallelTransforms.setParallelism(
+        Objects.requireNonNullElse(floodyProperties.getTransformParallelism(), 0));
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.filter;
+
+import com.google.common.flogger.GoogleLogger;
+import com.google.floody.model.FloodyProperties;
+import com.google.floody.service.FloodyExecutors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.jetty.util.component.ContainerLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.springframework.boot.web.embedded.jetty.JettyServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * Runs the web requests and the Google API calls on virtual threads when the JVM supports them
+ * (Java 21+), so that requests blocked on slow API calls don't exhaust a fixed thread pool.
+ */
+@Configuration
+@Lazy(false)
+public class VirtualThreadConfiguration {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private final boolean virtualThreads;
+
+  public VirtualThreadConfiguration(FloodyProperties floodyProperties) {
+    this.virtualThreads =
+        FloodyExecutors.setUseVirtualThreads(
+            Boolean.TRUE.equals(floodyProperties.getVirtualThreads()));
+    logger.atInfo().log("virtual threads enabled: %s", virtualThreads);
+  }
+
+  @Bean
+  public WebServerFactoryCustomizer<JettyServletWebServerFactory> virtualThreadPoolCustomizer() {
+    return factory -> {
+      if (virtualThreads) {
+        FloodyExecutors.newVirtualThreadPerTaskExecutor()
+            .map(VirtualThreadPool::new)
+            .ifPresent(factory::setThreadPool);
+      }
+    };
+  }
+
+  /**
+   * Jetty thread pool starting a new virtual thread for every task, the executor is shut down when
+   * the server stops.
+   */
+  private static final class VirtualThreadPool extends ContainerLifeCycle implements ThreadPool {
+
+    private final ExecutorService executor;
+    private final CountDownLatch stopped;
+
+    private VirtualThreadPool(ExecutorService executor) {
+      this.executor = executor;
+      this.stopped = new CountDownLatch(1);
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+      try {
+        super.doStop();
+      } finally {
+        executor.shutdown();
+        if (!executor.awaitTermination(getStopTimeout(), TimeUnit.MILLISECONDS)) {
+          logger.atWarning().log(
+              "virtual threads still running (%s) ms after stop", getStopTimeout());
+          executor.shutdownNow();
+        }
+        stopped.countDown();
+      }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+      executor.execute(task);
+    }
+
+    /** Waits until the pool is stopped and its executor terminated. */
+    @Override
+    public void join() throws InterruptedException {
+      stopped.await();
+      executor.awaitTermination(getStopTimeout(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int getThreads() {
+      return 0;
+    }
+
+    @Override
+    public int getIdleThreads() {
+      return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+      return false;
+    }
+  }
+}
@@ -26,4 +26,8 @@ public class ActivityGroupSheetHeaderInformation {
 
   public static final ImmutableList<String> ACTIVITY_GROUP_SHEET_HEADERS =
       ImmutableList.of("tagString", "Name", "type");
+
+  public static final int TAG_STRING_COLUMN = 0;
+  public static final int NAME_COLUMN = 1;
+  public static final int TYPE_COLUMN = 2;
 }
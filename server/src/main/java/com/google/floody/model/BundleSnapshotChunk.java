@@ -0,0 +1,52 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+
+/** A part of the compressed bytes of a {@link BundleSnapshotEntry}'s snapshot. */
+@Entity
+public final class BundleSnapshotChunk {
+
+  @Id private String id;
+
+  private byte[] data;
+
+  public BundleSnapshotChunk(
+      long floodlightConfigurationId, long generation, int index, byte[] data) {
+    this.id = chunkId(floodlightConfigurationId, generation, index);
+    this.data = checkNotNull(data);
+  }
+
+  /** Default Constructor required for Objectify. */
+  private BundleSnapshotChunk() {}
+
+  public static String chunkId(long floodlightConfigurationId, long generation, int index) {
+    return String.format("%d/%d/%d", floodlightConfigurationId, generation, index);
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.MoreObjects;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import com.googlecode.objectify.annotation.Index;
+import org.joda.time.DateTime;
+
+/**
+ * The latest compressed bundle snapshot of a Floodlight configuration. The snapshot bytes are
+ * stored in {@link BundleSnapshotChunk} entities of the same generation, as a snapshot can exceed
+ * the Datastore entity size limit.
+ */
+@Entity
+public final class BundleSnapshotEntry {
+
+  @Id private Long floodlightConfigurationId;
+
+  private long generation;
+
+  private int chunkCount;
+
+  private long byteCount;
+
+  private long contentFingerprint;
+
+  @Index private DateTime createdAt;
+
+  public BundleSnapshotEntry(
+      long floodlightConfigurationId,
+      long generation,
+      int chunkCount,
+      long byteCount,
+      long contentFingerprint,
+      DateTime createdAt) {
+    this.floodlightConfigurationId = floodlightConfigurationId;
+    this.generation = generation;
+    this.chunkCount = chunkCount;
+    this.byteCount = byteCount;
+    this.contentFingerprint = contentFingerprint;
+    this.createdAt = checkNotNull(createdAt);
+  }
+
+  /** Default Constructor required for Objectify. */
+  private BundleSnapshotEntry() {}
+
+  public long getFloodlightConfigurationId() {
+    return floodlightConfigurationId;
+  }
+
+  public long getGeneration() {
+    return generation;
+  }
+
+  public int getChunkCount() {
+    return chunkCount;
+  }
+
+  public long getByteCount() {
+    return byteCount;
+  }
+
+  public long getContentFingerprint() {
+    return contentFingerprint;
+  }
+
+  public DateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("floodlightConfigurationId", floodlightConfigurationId)
+        .add("generation", generation)
+        .add("chunkCount", chunkCount)
+        .add("byteCount", byteCount)
+        .add("contentFingerprint", Long.toHexString(contentFingerprint))
+        .add("createdAt", createdAt)
+        .toString();
+  }
+}
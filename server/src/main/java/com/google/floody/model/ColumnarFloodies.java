@@ -0,0 +1,487 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.ByteArrayOutputStream;
+import java.time.Period;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Activities stored on the heap column by column, to keep large bundles compact.
+ *
+ * <p>Ids are stored in primitive arrays, the strings and audience lifespans are dictionary encoded
+ * and shared between all activities, with the distinct strings packed into a single UTF-8 array.
+ * The account, configuration and tag ids repeat across a bundle's activities and are dictionary
+ * encoded too. The enums are stored as ordinals and the flags as bitsets.
+ * The tag ids and custom variables of all activities are stored in shared arrays indexed by
+ * per-activity offsets. The elements are {@link SheetFloody} views built on access, equal to the
+ * added activities; callers iterating repeatedly over large lists should keep the views they need.
+ */
+public final class ColumnarFloodies extends FloodyList {
+
+  /** Dictionary code of {@code null} values. */
+  private static final int NULL_CODE = -1;
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /** Estimated heap bytes of the fixed size columns of an activity. */
+  private static final int ROW_BYTES = 72;
+
+  /** Estimated heap bytes of a dictionary entry, excluding the value's characters. */
+  private static final int DICTIONARY_ENTRY_BYTES = 64;
+
+  private static final FloodyCountingMethod[] COUNTING_METHODS = FloodyCountingMethod.values();
+  private static final CacheBustingType[] CACHE_BUSTING_TYPES = CacheBustingType.values();
+  private static final TagFormat[] TAG_FORMATS = TagFormat.values();
+  private static final TagType[] TAG_TYPES = TagType.values();
+  private static final FloodlightActivityStatus[] STATUSES = FloodlightActivityStatus.values();
+
+  private final int size;
+
+  private final PackedStrings strings;
+  private final long[] longs;
+  private final Period[] periods;
+
+  private final int[] accountIds;
+  private final int[] floodlightConfigurationIds;
+  private final long[] ids;
+  private final BitSet nullIds;
+
+  private final BitSet toBeUpdated;
+  private final BitSet autoCreateAudience;
+
+  private final int[] groupNames;
+  private final int[] groupTagStrings;
+  private final int[] tagStrings;
+  private final int[] names;
+  private final int[] expectedUrls;
+  private final int[] remarks;
+  private final int[] audienceLifespans;
+
+  private final byte[] countingMethods;
+  private final byte[] cacheBustingMethods;
+  private final byte[] tagFormats;
+  private final byte[] tagTypes;
+  private final byte[] statuses;
+
+  private final int[] customVariableOffsets;
+  private final int[] customVariables;
+
+  private final TagIdSets defaultTagIds;
+  private final TagIdSets publisherTagIds;
+
+  private final int[] sheetNames;
+  private final int[] rowNumbers;
+
+  private ColumnarFloodies(Builder builder) {
+    this.size = builder.size;
+    this.strings = PackedStrings.of(builder.strings.values(String[]::new));
+    this.longs =
+        Arrays.stream(builder.longs.values(Long[]::new)).mapToLong(Long::longValue).toArray();
+    this.periods = builder.periods.values(Period[]::new);
+    this.accountIds = Arrays.copyOf(builder.accountIds, size);
+    this.floodlightConfigurationIds = Arrays.copyOf(builder.floodlightConfigurationIds, size);
+    this.ids = Arrays.copyOf(builder.ids, size);
+    this.nullIds = (BitSet) builder.nullIds.clone();
+    this.toBeUpdated = (BitSet) builder.toBeUpdated.clone();
+    this.autoCreateAudience = (BitSet) builder.autoCreateAudience.clone();
+    this.groupNames = Arrays.copyOf(builder.groupNames, size);
+    this.groupTagStrings = Arrays.copyOf(builder.groupTagStrings, size);
+    this.tagStrings = Arrays.copyOf(builder.tagStrings, size);
+    this.names = Arrays.copyOf(builder.names, size);
+    this.expectedUrls = Arrays.copyOf(builder.expectedUrls, size);
+    this.remarks = Arrays.copyOf(builder.remarks, size);
+    this.audienceLifespans = Arrays.copyOf(builder.audienceLifespans, size);
+    this.countingMethods = Arrays.copyOf(builder.countingMethods, size);
+    this.cacheBustingMethods = Arrays.copyOf(builder.cacheBustingMethods, size);
+    this.tagFormats = Arrays.copyOf(builder.tagFormats, size);
+    this.tagTypes = Arrays.copyOf(builder.tagTypes, size);
+    this.statuses = Arrays.copyOf(builder.statuses, size);
+    this.customVariableOffsets = Arrays.copyOf(builder.customVariableOffsets, size + 1);
+    this.customVariables = Arrays.copyOf(builder.customVariables, builder.customVariableCount);
+    this.defaultTagIds = builder.defaultTagIds.build(size, longs);
+    this.publisherTagIds = builder.publisherTagIds.build(size, longs);
+    this.sheetNames = Arrays.copyOf(builder.sheetNames, size);
+    this.rowNumbers = Arrays.copyOf(builder.rowNumbers, size);
+  }
+
+  static Builder newBuilder() {
+    return new Builder();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /** Returns a {@link SheetFloody} view of the activity at the given index. */
+  @Override
+  public SheetFloody get(int index) {
+    checkElementIndex(index, size);
+
+    return SheetFloody.builder()
+        .setAccountId(longValue(accountIds[index]))
+        .setFloodlightConfigurationId(longValue(floodlightConfigurationIds[index]))
+        .setId(nullIds.get(index) ? null : ids[index])
+        .setToBeUpdated(toBeUpdated.get(index))
+        .setAutoCreateAudience(autoCreateAudience.get(index))
+        .setGroupName(string(groupNames[index]))
+        .setGroupTagString(string(groupTagStrings[index]))
+        .setTagString(string(tagStrings[index]))
+        .setName(string(names[index]))
+        .setExpectedUrl(string(expectedUrls[index]))
+        .setRemarks(string(remarks[index]))
+        .setAudienceLifespan(
+            (audienceLifespans[index] == NULL_CODE) ? null : periods[audienceLifespans[index]])
+        .setCountingMethod(COUNTING_METHODS[countingMethods[index]])
+        .setCacheBustingMethod(CACHE_BUSTING_TYPES[cacheBustingMethods[index]])
+        .setTagFormat(TAG_FORMATS[tagFormats[index]])
+        .setTagType(TAG_TYPES[tagTypes[index]])
+        .setStatus(STATUSES[statuses[index]])
+        .setCustomFloodlightVariables(customVariables(index))
+        .setDefaultTagIds(defaultTagIds.get(index))
+        .setPublisherTagIds(publisherTagIds.get(index))
+        .setSheetLocation(
+            (sheetNames[index] == NULL_CODE)
+                ? null
+                : SheetRowLocation.create(string(sheetNames[index]), rowNumbers[index]))
+        .build();
+  }
+
+  @Override
+  public boolean isToBeUpdated(int index) {
+    checkElementIndex(index, size);
+    return toBeUpdated.get(index);
+  }
+
+  @Override
+  public int countToBeUpdated() {
+    return toBeUpdated.cardinality();
+  }
+
+  @Nullable
+  private Long longValue(int code) {
+    return (code == NULL_CODE) ? null : longs[code];
+  }
+
+  @Nullable
+  private String string(int code) {
+    return (code == NULL_CODE) ? null : strings.get(code);
+  }
+
+  private ImmutableSet<String> customVariables(int index) {
+    var variables = ImmutableSet.<String>builder();
+    for (int position = customVariableOffsets[index];
+        position < customVariableOffsets[index + 1];
+        position++) {
+      variables.add(strings.get(customVariables[position]));
+    }
+
+    return variables.build();
+  }
+
+  /**
+   * The distinct strings of all activities as UTF-8 in a single array, as most are short and a
+   * {@link String} per value would take more heap than its characters.
+   */
+  private static final class PackedStrings {
+
+    private final byte[] bytes;
+    private final int[] offsets;
+
+    private PackedStrings(byte[] bytes, int[] offsets) {
+      this.bytes = bytes;
+      this.offsets = offsets;
+    }
+
+    private static PackedStrings of(String[] values) {
+      var bytes = new ByteArrayOutputStream();
+      var offsets = new int[values.length + 1];
+
+      for (int code = 0; code < values.length; code++) {
+        bytes.writeBytes(values[code].getBytes(UTF_8));
+        offsets[code + 1] = bytes.size();
+      }
+
+      return new PackedStrings(bytes.toByteArray(), offsets);
+    }
+
+    private String get(int code) {
+      return new String(bytes, offsets[code], offsets[code + 1] - offsets[code], UTF_8);
+    }
+  }
+
+  /**
+   * Nullable sets of tag ids of all activities, stored in a single array of the ids' codes in the
+   * shared dictionary of longs.
+   */
+  private static final class TagIdSets {
+
+    private final int[] offsets;
+    private final int[] tagIdCodes;
+    private final long[] longs;
+    private final BitSet nullSets;
+
+    private TagIdSets(int[] offsets, int[] tagIdCodes, long[] longs, BitSet nullSets) {
+      this.offsets = offsets;
+      this.tagIdCodes = tagIdCodes;
+      this.longs = longs;
+      this.nullSets = nullSets;
+    }
+
+    @Nullable
+    private ImmutableSet<Long> get(int index) {
+      if (nullSets.get(index)) {
+        return null;
+      }
+
+      var ids = ImmutableSet.<Long>builder();
+      for (int position = offsets[index]; position < offsets[index + 1]; position++) {
+        ids.add(longs[tagIdCodes[position]]);
+      }
+
+      return ids.build();
+    }
+
+    /** Appends the sets of the activities while building the columns. */
+    private static final class Builder {
+
+      private final Dictionary<Long> longs;
+      private int[] offsets = new int[INITIAL_CAPACITY + 1];
+      private int[] tagIdCodes = new int[INITIAL_CAPACITY];
+      private int tagIdCount;
+      private final BitSet nullSets = new BitSet();
+
+      private Builder(Dictionary<Long> longs) {
+        this.longs = longs;
+      }
+
+      private void add(int index, @Nullable ImmutableSet<Long> ids) {
+        if (ids == null) {
+          nullSets.set(index);
+        } else {
+          tagIdCodes = ensureCapacity(tagIdCodes, tagIdCount + ids.size());
+          for (Long tagId : ids) {
+            tagIdCodes[tagIdCount++] = longs.encode(tagId);
+          }
+        }
+
+        offsets = ensureCapacity(offsets, index + 2);
+        offsets[index + 1] = tagIdCount;
+      }
+
+      private TagIdSets build(int size, long[] longValues) {
+        return new TagIdSets(
+            Arrays.copyOf(offsets, size + 1),
+            Arrays.copyOf(tagIdCodes, tagIdCount),
+            longValues,
+            (BitSet) nullSets.clone());
+      }
+    }
+  }
+
+  /** Assigns a code to each distinct value. */
+  private static final class Dictionary<T> {
+
+    private final Map<T, Integer> codes = new HashMap<>();
+    private long estimatedBytes;
+
+    private int encode(@Nullable T value) {
+      if (value == null) {
+        return NULL_CODE;
+      }
+
+      return codes.computeIfAbsent(
+          value,
+          newValue -> {
+            estimatedBytes += DICTIONARY_ENTRY_BYTES + 2L * newValue.toString().length();
+            return codes.size();
+          });
+    }
+
+    private T[] values(IntFunction<T[]> arrayFactory) {
+      T[] values = arrayFactory.apply(codes.size());
+      codes.forEach((value, code) -> values[code] = value);
+      return values;
+    }
+  }
+
+  private static int[] ensureCapacity(int[] array, int minCapacity) {
+    return (array.length >= minCapacity)
+        ? array
+        : Arrays.copyOf(array, Math.max(minCapacity, array.length * 2));
+  }
+
+  private static long[] ensureCapacity(long[] array, int minCapacity) {
+    return (array.length >= minCapacity)
+        ? array
+        : Arrays.copyOf(array, Math.max(minCapacity, array.length * 2));
+  }
+
+  private static byte[] ensureCapacity(byte[] array, int minCapacity) {
+    return (array.length >= minCapacity)
+        ? array
+        : Arrays.copyOf(array, Math.max(minCapacity, array.length * 2));
+  }
+
+  /** Encodes the activities into the columns as they are added. */
+  static final class Builder {
+
+    private int size;
+
+    private final Dictionary<String> strings = new Dictionary<>();
+    private final Dictionary<Period> periods = new Dictionary<>();
+    private final Dictionary<Long> longs = new Dictionary<>();
+
+    private int[] accountIds = new int[INITIAL_CAPACITY];
+    private int[] floodlightConfigurationIds = new int[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private final BitSet nullIds = new BitSet();
+
+    private final BitSet toBeUpdated = new BitSet();
+    private final BitSet autoCreateAudience = new BitSet();
+
+    private int[] groupNames = new int[INITIAL_CAPACITY];
+    private int[] groupTagStrings = new int[INITIAL_CAPACITY];
+    private int[] tagStrings = new int[INITIAL_CAPACITY];
+    private int[] names = new int[INITIAL_CAPACITY];
+    private int[] expectedUrls = new int[INITIAL_CAPACITY];
+    private int[] remarks = new int[INITIAL_CAPACITY];
+    private int[] audienceLifespans = new int[INITIAL_CAPACITY];
+
+    private byte[] countingMethods = new byte[INITIAL_CAPACITY];
+    private byte[] cacheBustingMethods = new byte[INITIAL_CAPACITY];
+    private byte[] tagFormats = new byte[INITIAL_CAPACITY];
+    private byte[] tagTypes = new byte[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+
+    private int[] customVariableOffsets = new int[INITIAL_CAPACITY + 1];
+    private int[] customVariables = new int[INITIAL_CAPACITY];
+    private int customVariableCount;
+
+    private final TagIdSets.Builder defaultTagIds = new TagIdSets.Builder(longs);
+    private final TagIdSets.Builder publisherTagIds = new TagIdSets.Builder(longs);
+
+    private int[] sheetNames = new int[INITIAL_CAPACITY];
+    private int[] rowNumbers = new int[INITIAL_CAPACITY];
+
+    private Builder() {}
+
+    Builder addAll(Iterable<SheetFloody> floodies) {
+      floodies.forEach(this::add);
+      return this;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /** Returns the estimated heap bytes of the columns built from the added activities. */
+    long estimatedHeapBytes() {
+      return (long) size * ROW_BYTES
+          + strings.estimatedBytes
+          + periods.estimatedBytes
+          + longs.estimatedBytes
+          + 4L * customVariableCount
+          + 4L * (defaultTagIds.tagIdCount + publisherTagIds.tagIdCount);
+    }
+
+    Builder add(SheetFloody floody) {
+      int index = size++;
+      ensureRowCapacity(size);
+
+      accountIds[index] = longs.encode(floody.getAccountId());
+      floodlightConfigurationIds[index] = longs.encode(floody.getFloodlightConfigurationId());
+      putLong(ids, nullIds, index, floody.getId());
+
+      toBeUpdated.set(index, floody.isToBeUpdated());
+      autoCreateAudience.set(index, floody.isAutoCreateAudience());
+
+      groupNames[index] = strings.encode(floody.getGroupName());
+      groupTagStrings[index] = strings.encode(floody.getGroupTagString());
+      tagStrings[index] = strings.encode(floody.getTagString());
+      names[index] = strings.encode(floody.getName());
+      expectedUrls[index] = strings.encode(floody.getExpectedUrl());
+      remarks[index] = strings.encode(floody.getRemarks());
+      audienceLifespans[index] = periods.encode(floody.getAudienceLifespan());
+
+      countingMethods[index] = (byte) floody.getCountingMethod().ordinal();
+      cacheBustingMethods[index] = (byte) floody.getCacheBustingMethod().ordinal();
+      tagFormats[index] = (byte) floody.getTagFormat().ordinal();
+      tagTypes[index] = (byte) floody.getTagType().ordinal();
+      statuses[index] = (byte) floody.getStatus().ordinal();
+
+      var variables = floody.getCustomFloodlightVariables();
+      customVariables = ensureCapacity(customVariables, customVariableCount + variables.size());
+      for (String variable : variables) {
+        customVariables[customVariableCount++] = strings.encode(variable);
+      }
+      customVariableOffsets[index + 1] = customVariableCount;
+
+      defaultTagIds.add(index, floody.getDefaultTagIds());
+      publisherTagIds.add(index, floody.getPublisherTagIds());
+
+      SheetRowLocation location = floody.getSheetLocation();
+      sheetNames[index] = strings.encode((location == null) ? null : location.getSheetName());
+      rowNumbers[index] = (location == null) ? 0 : location.getRowNumber();
+
+      return this;
+    }
+
+    ColumnarFloodies build() {
+      return new ColumnarFloodies(this);
+    }
+
+    private static void putLong(long[] column, BitSet nulls, int index, @Nullable Long value) {
+      if (value == null) {
+        nulls.set(index);
+      } else {
+        column[index] = value;
+      }
+    }
+
+    private void ensureRowCapacity(int rows) {
+      accountIds = ensureCapacity(accountIds, rows);
+      floodlightConfigurationIds = ensureCapacity(floodlightConfigurationIds, rows);
+      ids = ensureCapacity(ids, rows);
+      groupNames = ensureCapacity(groupNames, rows);
+      groupTagStrings = ensureCapacity(groupTagStrings, rows);
+      tagStrings = ensureCapacity(tagStrings, rows);
+      names = ensureCapacity(names, rows);
+      expectedUrls = ensureCapacity(expectedUrls, rows);
+      remarks = ensureCapacity(remarks, rows);
+      audienceLifespans = ensureCapacity(audienceLifespans, rows);
+      countingMethods = ensureCapacity(countingMethods, rows);
+      cacheBustingMethods = ensureCapacity(cacheBustingMethods, rows);
+      tagFormats = ensureCapacity(tagFormats, rows);
+      tagTypes = ensureCapacity(tagTypes, rows);
+      statuses = ensureCapacity(statuses, rows);
+      customVariableOffsets = ensureCapacity(customVariableOffsets, rows + 1);
+      sheetNames = ensureCapacity(sheetNames, rows);
+      rowNumbers = ensureCapacity(rowNumbers, rows);
+    }
+  }
+}
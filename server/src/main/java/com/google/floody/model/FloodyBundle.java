@@ -18,6 +18,7 @@ package com.google.floody.model;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableSet;
+import java.util.Collection;
 
 /**
  * Unified Floodlight bundle which a composition of Floodlight activities, default tags in those
@@ -26,7 +27,8 @@ import com.google.common.collect.ImmutableSet;
 @AutoValue
 public abstract class FloodyBundle {
 
-  public abstract ImmutableSet<SheetFloody> getFloodies();
+  /** The activities, stored column by column or spilled to a mapped file for large bundles. */
+  public abstract FloodyList getFloodies();
 
   public abstract ImmutableSet<SheetDefaultTag> getDefaultTags();
 
@@ -40,7 +42,7 @@ public abstract class FloodyBundle {
     return new AutoValue_FloodyBundle.Builder().setCustomVariables(ImmutableSet.of());
   }
 
-  public FloodyBundle withFloodies(ImmutableSet<SheetFloody> updatedFloodies) {
+  public FloodyBundle withFloodies(Collection<SheetFloody> updatedFloodies) {
     return toBuilder().setFloodies(updatedFloodies).build();
   }
 
@@ -48,13 +50,21 @@ public abstract class FloodyBundle {
     return toBuilder().setFloodyGroups(floodyGroups).build();
   }
 
+  public FloodyBundle withCustomVariables(ImmutableSet<SheetCustomVariable> customVariables) {
+    return toBuilder().setCustomVariables(customVariables).build();
+  }
+
   abstract Builder toBuilder();
 
   /** Convenience Method to build SheetBundle. */
   @AutoValue.Builder
   public abstract static class Builder {
 
-    public abstract Builder setFloodies(ImmutableSet<SheetFloody> sheetFloodies);
+    public abstract Builder setFloodies(FloodyList floodies);
+
+    public Builder setFloodies(Collection<SheetFloody> sheetFloodies) {
+      return setFloodies(FloodyList.copyOf(sheetFloodies));
+    }
 
     public abstract Builder setDefaultTags(ImmutableSet<SheetDefaultTag> defaultTags);
 
@@ -81,10 +81,20 @@ public final class FloodyGroupMap {
 
   /** Returns a FloodyGroup if exists for the given tagString. */
   public FloodyGroup getForFloody(SheetFloody floody) {
+    return getForGroup(floody.getGroupName(), floody.getGroupTagString());
+  }
+
+  /**
+   * Returns the FloodyGroup with the given tagString, or with the given name when the tagString is
+   * blank.
+   *
+   * @throws DuplicateGroupNameRetrievalException when multiple groups have the given name
+   */
+  public FloodyGroup getForGroup(String groupName, String groupTagString) {
 
     // Check through Name If groupTag String is empty (new Group)
-    if (isBlank(floody.getGroupTagString())) {
-      Collection<FloodyGroup> groups = groupMapByName.get(floody.getGroupName());
+    if (isBlank(groupTagString)) {
+      Collection<FloodyGroup> groups = groupMapByName.get(groupName);
 
       // If unique then return else throw Exception.
       switch (groups.size()) {
@@ -93,11 +103,11 @@ public final class FloodyGroupMap {
         case 1:
           return ImmutableList.copyOf(groups).get(0);
         default:
-          throw new DuplicateGroupNameRetrievalException(floody.getGroupName(), groups.size());
+          throw new DuplicateGroupNameRetrievalException(groupName, groups.size());
       }
     }
 
-    return get(floody.getGroupTagString());
+    return get(groupTagString);
   }
 
   public FloodyGroup get(String tagString) {
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import com.google.common.flogger.GoogleLogger;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Immutable list of a bundle's activities. The activities are kept on the heap in columns, or
+ * spilled to a memory-mapped file when they exceed the {@link SpillPolicy}'s thresholds. The
+ * elements are {@link SheetFloody} views built on access.
+ */
+public abstract class FloodyList extends AbstractList<SheetFloody> implements RandomAccess {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private static volatile SpillPolicy spillPolicy = SpillPolicy.disabled();
+
+  FloodyList() {}
+
+  /** Sets the thresholds used by all the lists built from here on. */
+  public static void setSpillPolicy(SpillPolicy policy) {
+    spillPolicy = policy;
+    logger.atInfo().log("activities spill policy %s", policy);
+  }
+
+  public static Builder builder() {
+    return new Builder(spillPolicy);
+  }
+
+  /** Returns the activities as a list, without copying lists. */
+  public static FloodyList copyOf(Collection<SheetFloody> floodies) {
+    if (floodies instanceof FloodyList) {
+      return (FloodyList) floodies;
+    }
+
+    return builder().addAll(floodies).build();
+  }
+
+  /** Returns true if the activity at the given index is marked for update, without a view. */
+  public abstract boolean isToBeUpdated(int index);
+
+  /** Returns the number of activities marked for update, without building views. */
+  public abstract int countToBeUpdated();
+
+  /**
+   * Appends activities to columns on the heap, and moves them to a spill file once the thresholds
+   * are exceeded; later activities are written directly to the file.
+   */
+  public static final class Builder {
+
+    private final SpillPolicy policy;
+
+    private ColumnarFloodies.@Nullable Builder heapBuilder;
+    private MappedFloodies.@Nullable Writer spillWriter;
+
+    private Builder(SpillPolicy policy) {
+      this.policy = policy;
+      this.heapBuilder = ColumnarFloodies.newBuilder();
+    }
+
+    public Builder addAll(Iterable<SheetFloody> floodies) {
+      floodies.forEach(this::add);
+      return this;
+    }
+
+    /**
+     * Adds the activity, the spill file is deleted when the activity can't be added.
+     *
+     * @throws UncheckedIOException when writing the spill file fails
+     */
+    public Builder add(SheetFloody floody) {
+      try {
+        if (spillWriter != null) {
+          spillWriter.add(floody);
+          return this;
+        }
+
+        heapBuilder.add(floody);
+
+        if (policy.shouldSpill(heapBuilder.size(), heapBuilder.estimatedHeapBytes())) {
+          logger.atInfo().log(
+              "spilling (%s) activities, estimated (%s) bytes",
+              heapBuilder.size(), heapBuilder.estimatedHeapBytes());
+
+          spillWriter = MappedFloodies.writer(policy.directory());
+          spillWriter.addAll(heapBuilder.build());
+          heapBuilder = null;
+        }
+
+        return this;
+      } catch (IOException ioexception) {
+        discard();
+        throw new UncheckedIOException(ioexception);
+      } catch (RuntimeException runtimeException) {
+        discard();
+        throw runtimeException;
+      }
+    }
+
+    /**
+     * Abandons the added activities, deleting the spill file if any. Callers that fail before
+     * {@link #build()} must discard the builder, the builder must not be used afterwards.
+     */
+    public void discard() {
+      heapBuilder = null;
+
+      if (spillWriter != null) {
+        spillWriter.discard();
+        spillWriter = null;
+      }
+    }
+
+    /**
+     * Returns the list of the added activities.
+     *
+     * @throws UncheckedIOException when mapping the spill file fails
+     */
+    public FloodyList build() {
+      if (spillWriter == null) {
+        return heapBuilder.build();
+      }
+
+      try {
+        return spillWriter.build();
+      } catch (IOException ioexception) {
+        throw new UncheckedIOException(ioexception);
+      }
+    }
+  }
+}
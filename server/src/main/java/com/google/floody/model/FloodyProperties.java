@@ -35,6 +35,24 @@ public class FloodyProperties {
   private final List<String> logsPiiAttributes;
   private final List<String> analyticsExcludedUris;
   private final String logPiiQueryParam;
+  private final String sheetMetadataActivityShardsKey;
+  private final Integer activitySheetShardRowBudget;
+  private final Boolean spreadsheetTemplateProvisioning;
+  private final Integer spreadsheetPoolSize;
+  private final Integer sheetLeaseDurationMinutes;
+  private final String sheetWatchWebhookUrl;
+  private final Integer sheetWatchDebounceSeconds;
+  private final Integer sheetWatchChannelTtlHours;
+  private final Integer sheetWatchInactiveDays;
+  private final Integer bulkUploadChunkSize;
+  private final Integer transformParallelism;
+  private final Integer spillThresholdRows;
+  private final Integer spillThresholdMegabytes;
+  private final String spillDirectory;
+  private final String bundleSnapshotDirectory;
+  private final Boolean virtualThreads;
+  private final Integer gtmExportCacheSize;
+  private final Integer gtmExportCacheTtlMinutes;
 
   public FloodyProperties(
       String clientId,
@@ -48,7 +66,25 @@ public class FloodyProperties {
       String analyticsPropertyId,
       List<String> logsPiiAttributes,
       List<String> analyticsExcludedUris,
-      String logPiiQueryParam) {
+      String logPiiQueryParam,
+      String sheetMetadataActivityShardsKey,
+      Integer activitySheetShardRowBudget,
+      Boolean spreadsheetTemplateProvisioning,
+      Integer spreadsheetPoolSize,
+      Integer sheetLeaseDurationMinutes,
+      String sheetWatchWebhookUrl,
+      Integer sheetWatchDebounceSeconds,
+      Integer sheetWatchChannelTtlHours,
+      Integer sheetWatchInactiveDays,
+      Integer bulkUploadChunkSize,
+      Integer transformParallelism,
+      Integer spillThresholdRows,
+      Integer spillThresholdMegabytes,
+      String spillDirectory,
+      String bundleSnapshotDirectory,
+      Boolean virtualThreads,
+      Integer gtmExportCacheSize,
+      Integer gtmExportCacheTtlMinutes) {
     this.clientId = clientId;
     this.executionEnvironment = executionEnvironment;
     this.applicationName = applicationName;
@@ -61,6 +97,24 @@ public class FloodyProperties {
     this.logsPiiAttributes = logsPiiAttributes;
     this.analyticsExcludedUris = analyticsExcludedUris;
     this.logPiiQueryParam = logPiiQueryParam;
+    this.sheetMetadataActivityShardsKey = sheetMetadataActivityShardsKey;
+    this.activitySheetShardRowBudget = activitySheetShardRowBudget;
+    this.spreadsheetTemplateProvisioning = spreadsheetTemplateProvisioning;
+    this.spreadsheetPoolSize = spreadsheetPoolSize;
+    this.sheetLeaseDurationMinutes = sheetLeaseDurationMinutes;
+    this.sheetWatchWebhookUrl = sheetWatchWebhookUrl;
+    this.sheetWatchDebounceSeconds = sheetWatchDebounceSeconds;
+    this.sheetWatchChannelTtlHours = sheetWatchChannelTtlHours;
+    this.sheetWatchInactiveDays = sheetWatchInactiveDays;
+    this.bulkUploadChunkSize = bulkUploadChunkSize;
+    this.transformParallelism = transformParallelism;
+    this.spillThresholdRows = spillThresholdRows;
+    this.spillThresholdMegabytes = spillThresholdMegabytes;
+    this.spillDirectory = spillDirectory;
+    this.bundleSnapshotDirectory = bundleSnapshotDirectory;
+    this.virtualThreads = virtualThreads;
+    this.gtmExportCacheSize = gtmExportCacheSize;
+    this.gtmExportCacheTtlMinutes = gtmExportCacheTtlMinutes;
   }
 
   public String getClientId() {
@@ -110,4 +164,76 @@ public class FloodyProperties {
   public String getLogPiiQueryParam() {
     return logPiiQueryParam;
   }
+
+  public String getSheetMetadataActivityShardsKey() {
+    return sheetMetadataActivityShardsKey;
+  }
+
+  public Integer getActivitySheetShardRowBudget() {
+    return activitySheetShardRowBudget;
+  }
+
+  public Boolean getSpreadsheetTemplateProvisioning() {
+    return spreadsheetTemplateProvisioning;
+  }
+
+  public Integer getSpreadsheetPoolSize() {
+    return spreadsheetPoolSize;
+  }
+
+  public Integer getSheetLeaseDurationMinutes() {
+    return sheetLeaseDurationMinutes;
+  }
+
+  public String getSheetWatchWebhookUrl() {
+    return sheetWatchWebhookUrl;
+  }
+
+  public Integer getSheetWatchDebounceSeconds() {
+    return sheetWatchDebounceSeconds;
+  }
+
+  public Integer getSheetWatchChannelTtlHours() {
+    return sheetWatchChannelTtlHours;
+  }
+
+  public Integer getSheetWatchInactiveDays() {
+    return sheetWatchInactiveDays;
+  }
+
+  public Integer getBulkUploadChunkSize() {
+    return bulkUploadChunkSize;
+  }
+
+  public Integer getTransformParallelism() {
+    return transformParallelism;
+  }
+
+  public Integer getSpillThresholdRows() {
+    return spillThresholdRows;
+  }
+
+  public Integer getSpillThresholdMegabytes() {
+    return spillThresholdMegabytes;
+  }
+
+  public String getSpillDirectory() {
+    return spillDirectory;
+  }
+
+  public String getBundleSnapshotDirectory() {
+    return bundleSnapshotDirectory;
+  }
+
+  public Boolean getVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public Integer getGtmExportCacheSize() {
+    return gtmExportCacheSize;
+  }
+
+  public Integer getGtmExportCacheTtlMinutes() {
+    return gtmExportCacheTtlMinutes;
+  }
 }
@@ -0,0 +1,309 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.GoogleLogger;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Period;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Activities spilled to a memory-mapped temporary file, keeping only the record offsets and the
+ * update flags on the heap.
+ *
+ * <p>Each activity is a binary record: a byte of flags for the booleans and the present optional
+ * fields, the ids, length-prefixed UTF-8 strings, the enum ordinals, then the custom variables,
+ * tag ids and sheet location. The file is deleted once mapped, the mapping keeps its content
+ * until the list is garbage collected.
+ */
+final class MappedFloodies extends FloodyList {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private static final int TO_BE_UPDATED = 1;
+  private static final int AUTO_CREATE_AUDIENCE = 1 << 1;
+  private static final int HAS_ACCOUNT_ID = 1 << 2;
+  private static final int HAS_FLOODLIGHT_CONFIGURATION_ID = 1 << 3;
+  private static final int HAS_ID = 1 << 4;
+  private static final int HAS_DEFAULT_TAG_IDS = 1 << 5;
+  private static final int HAS_PUBLISHER_TAG_IDS = 1 << 6;
+  private static final int HAS_SHEET_LOCATION = 1 << 7;
+
+  private static final int NULL_STRING_LENGTH = -1;
+
+  private static final FloodyCountingMethod[] COUNTING_METHODS = FloodyCountingMethod.values();
+  private static final CacheBustingType[] CACHE_BUSTING_TYPES = CacheBustingType.values();
+  private static final TagFormat[] TAG_FORMATS = TagFormat.values();
+  private static final TagType[] TAG_TYPES = TagType.values();
+  private static final FloodlightActivityStatus[] STATUSES = FloodlightActivityStatus.values();
+
+  private final MappedByteBuffer records;
+  private final int[] offsets;
+  private final BitSet toBeUpdated;
+
+  private MappedFloodies(MappedByteBuffer records, int[] offsets, BitSet toBeUpdated) {
+    this.records = records;
+    this.offsets = offsets;
+    this.toBeUpdated = toBeUpdated;
+  }
+
+  /** Creates a writer for a new spill file in the given directory. */
+  static Writer writer(Path directory) throws IOException {
+    return new Writer(Files.createTempFile(directory, "floody-spill-", ".bin"));
+  }
+
+  @Override
+  public int size() {
+    return offsets.length;
+  }
+
+  @Override
+  public SheetFloody get(int index) {
+    checkElementIndex(index, offsets.length);
+
+    // Read through a duplicate, the views may be built concurrently.
+    ByteBuffer record = records.duplicate().position(offsets[index]);
+    int flags = record.get();
+
+    var floodyBuilder =
+        SheetFloody.builder()
+            .setToBeUpdated((flags & TO_BE_UPDATED) != 0)
+            .setAutoCreateAudience((flags & AUTO_CREATE_AUDIENCE) != 0)
+            .setAccountId(((flags & HAS_ACCOUNT_ID) != 0) ? record.getLong() : null)
+            .setFloodlightConfigurationId(
+                ((flags & HAS_FLOODLIGHT_CONFIGURATION_ID) != 0) ? record.getLong() : null)
+            .setId(((flags & HAS_ID) != 0) ? record.getLong() : null)
+            .setGroupName(readString(record))
+            .setGroupTagString(readString(record))
+            .setTagString(readString(record))
+            .setName(readString(record))
+            .setExpectedUrl(readString(record))
+            .setRemarks(readString(record));
+
+    String audienceLifespan = readString(record);
+    floodyBuilder
+        .setAudienceLifespan((audienceLifespan == null) ? null : Period.parse(audienceLifespan))
+        .setCountingMethod(COUNTING_METHODS[record.get()])
+        .setCacheBustingMethod(CACHE_BUSTING_TYPES[record.get()])
+        .setTagFormat(TAG_FORMATS[record.get()])
+        .setTagType(TAG_TYPES[record.get()])
+        .setStatus(STATUSES[record.get()]);
+
+    var customVariables = ImmutableSet.<String>builder();
+    for (int count = record.getInt(); count > 0; count--) {
+      customVariables.add(readString(record));
+    }
+    floodyBuilder.setCustomFloodlightVariables(customVariables.build());
+
+    floodyBuilder
+        .setDefaultTagIds(((flags & HAS_DEFAULT_TAG_IDS) != 0) ? readTagIds(record) : null)
+        .setPublisherTagIds(((flags & HAS_PUBLISHER_TAG_IDS) != 0) ? readTagIds(record) : null);
+
+    if ((flags & HAS_SHEET_LOCATION) != 0) {
+      floodyBuilder.setSheetLocation(
+          SheetRowLocation.create(readString(record), record.getInt()));
+    }
+
+    return floodyBuilder.build();
+  }
+
+  @Override
+  public boolean isToBeUpdated(int index) {
+    checkElementIndex(index, offsets.length);
+    return toBeUpdated.get(index);
+  }
+
+  @Override
+  public int countToBeUpdated() {
+    return toBeUpdated.cardinality();
+  }
+
+  @Nullable
+  private static String readString(ByteBuffer record) {
+    int length = record.getInt();
+    if (length == NULL_STRING_LENGTH) {
+      return null;
+    }
+
+    var bytes = new byte[length];
+    record.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static ImmutableSet<Long> readTagIds(ByteBuffer record) {
+    var tagIds = ImmutableSet.<Long>builder();
+    for (int count = record.getInt(); count > 0; count--) {
+      tagIds.add(record.getLong());
+    }
+
+    return tagIds.build();
+  }
+
+  /** Appends activity records to the spill file, and maps the file once complete. */
+  static final class Writer {
+
+    private final Path file;
+    private final DataOutputStream output;
+    private final BitSet toBeUpdated;
+    private int[] offsets;
+    private int size;
+
+    private Writer(Path file) throws IOException {
+      this.file = file;
+      this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+      this.toBeUpdated = new BitSet();
+      this.offsets = new int[1024];
+    }
+
+    void addAll(Collection<SheetFloody> floodies) throws IOException {
+      for (SheetFloody floody : floodies) {
+        add(floody);
+      }
+    }
+
+    void add(SheetFloody floody) throws IOException {
+      // The stream's byte counter stops at Integer.MAX_VALUE, as do the mapped buffer positions.
+      checkState(output.size() < Integer.MAX_VALUE, "spill file (%s) exceeds 2GB", file);
+
+      if (size == offsets.length) {
+        offsets = Arrays.copyOf(offsets, size * 2);
+      }
+      offsets[size] = output.size();
+      toBeUpdated.set(size, floody.isToBeUpdated());
+      size++;
+
+      SheetRowLocation location = floody.getSheetLocation();
+      output.writeByte(
+          (floody.isToBeUpdated() ? TO_BE_UPDATED : 0)
+              | (floody.isAutoCreateAudience() ? AUTO_CREATE_AUDIENCE : 0)
+              | ((floody.getAccountId() != null) ? HAS_ACCOUNT_ID : 0)
+              | ((floody.getFloodlightConfigurationId() != null)
+                  ? HAS_FLOODLIGHT_CONFIGURATION_ID
+                  : 0)
+              | ((floody.getId() != null) ? HAS_ID : 0)
+              | ((floody.getDefaultTagIds() != null) ? HAS_DEFAULT_TAG_IDS : 0)
+              | ((floody.getPublisherTagIds() != null) ? HAS_PUBLISHER_TAG_IDS : 0)
+              | ((location != null) ? HAS_SHEET_LOCATION : 0));
+
+      writeLongIfPresent(floody.getAccountId());
+      writeLongIfPresent(floody.getFloodlightConfigurationId());
+      writeLongIfPresent(floody.getId());
+
+      writeString(floody.getGroupName());
+      writeString(floody.getGroupTagString());
+      writeString(floody.getTagString());
+      writeString(floody.getName());
+      writeString(floody.getExpectedUrl());
+      writeString(floody.getRemarks());
+      writeString(
+          (floody.getAudienceLifespan() == null) ? null : floody.getAudienceLifespan().toString());
+
+      output.writeByte(floody.getCountingMethod().ordinal());
+      output.writeByte(floody.getCacheBustingMethod().ordinal());
+      output.writeByte(floody.getTagFormat().ordinal());
+      output.writeByte(floody.getTagType().ordinal());
+      output.writeByte(floody.getStatus().ordinal());
+
+      output.writeInt(floody.getCustomFloodlightVariables().size());
+      for (String variable : floody.getCustomFloodlightVariables()) {
+        writeString(variable);
+      }
+
+      writeTagIdsIfPresent(floody.getDefaultTagIds());
+      writeTagIdsIfPresent(floody.getPublisherTagIds());
+
+      if (location != null) {
+        writeString(location.getSheetName());
+        output.writeInt(location.getRowNumber());
+      }
+    }
+
+    /** Completes the file and maps it, the file is deleted and must not be written anymore. */
+    MappedFloodies build() throws IOException {
+      try {
+        output.close();
+
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          MappedByteBuffer records = channel.map(MapMode.READ_ONLY, 0, channel.size());
+          return new MappedFloodies(records, Arrays.copyOf(offsets, size), toBeUpdated);
+        }
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    /** Abandons the file when the list will not be built, the file is closed and deleted. */
+    void discard() {
+      try {
+        output.close();
+      } catch (IOException ioexception) {
+        logger.atWarning().withCause(ioexception).log("error closing spill file (%s)", file);
+      }
+
+      try {
+        Files.deleteIfExists(file);
+      } catch (IOException ioexception) {
+        logger.atWarning().withCause(ioexception).log("error deleting spill file (%s)", file);
+      }
+    }
+
+    private void writeLongIfPresent(@Nullable Long value) throws IOException {
+      if (value != null) {
+        output.writeLong(value);
+      }
+    }
+
+    private void writeString(@Nullable String value) throws IOException {
+      if (value == null) {
+        output.writeInt(NULL_STRING_LENGTH);
+        return;
+      }
+
+      byte[] bytes = value.getBytes(UTF_8);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+
+    private void writeTagIdsIfPresent(@Nullable ImmutableSet<Long> tagIds) throws IOException {
+      if (tagIds == null) {
+        return;
+      }
+
+      output.writeInt(tagIds.size());
+      for (long tagId : tagIds) {
+        output.writeLong(tagId);
+      }
+    }
+  }
+}
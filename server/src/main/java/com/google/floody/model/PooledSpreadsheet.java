@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import com.google.common.base.MoreObjects;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import com.googlecode.objectify.annotation.Index;
+import org.joda.time.DateTime;
+
+/**
+ * A pre-provisioned, unassigned Floody spreadsheet owned by the robot account. The entity is
+ * deleted when the spreadsheet is claimed for a new Floodlight configuration.
+ */
+@Entity
+public final class PooledSpreadsheet {
+
+  @Id private String spreadsheetId;
+
+  private String link;
+
+  @Index private String templateVersion;
+
+  @Index private DateTime createdAt;
+
+  public PooledSpreadsheet(
+      String spreadsheetId, String link, String templateVersion, DateTime createdAt) {
+    checkArgument(isNotBlank(spreadsheetId), "spreadsheetId should not be blank");
+
+    this.spreadsheetId = spreadsheetId;
+    this.link = link;
+    this.templateVersion = checkNotNull(templateVersion);
+    this.createdAt = checkNotNull(createdAt);
+  }
+
+  /** Default Constructor required for Objectify. */
+  private PooledSpreadsheet() {}
+
+  public String getSpreadsheetId() {
+    return spreadsheetId;
+  }
+
+  public String getLink() {
+    return link;
+  }
+
+  public String getTemplateVersion() {
+    return templateVersion;
+  }
+
+  public DateTime getCreatedAt() {
+    return createdAt;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("spreadsheetId", spreadsheetId)
+        .add("link", link)
+        .add("templateVersion", templateVersion)
+        .add("createdAt", createdAt)
+        .toString();
+  }
+}
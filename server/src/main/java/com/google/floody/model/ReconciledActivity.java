@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import com.google.auto.value.AutoValue;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An activity's versions in the spreadsheet, in DCM and in the snapshot of the last sync, with
+ * the side that changed it since the sync.
+ */
+@AutoValue
+public abstract class ReconciledActivity {
+
+  /** Where an activity changed since the last sync. */
+  public enum State {
+    /** Same in the spreadsheet and DCM. */
+    UNCHANGED,
+    /** Edited in the spreadsheet only, to be written to DCM. */
+    SHEET_MODIFIED,
+    /** New row without an activity id in the spreadsheet, to be created in DCM. */
+    SHEET_ADDED,
+    /** Synced activity whose row was removed from the spreadsheet, DCM is left as-is. */
+    SHEET_REMOVED,
+    /** Edited in DCM only, to be written to the spreadsheet row. */
+    DCM_MODIFIED,
+    /** New activity in DCM, to be appended to the spreadsheet. */
+    DCM_ADDED,
+    /** The row's activity id is not in the DCM configuration. */
+    DCM_REMOVED,
+    /** Edited differently on both sides, or differing without a snapshot to compare with. */
+    CONFLICT
+  }
+
+  public abstract State getState();
+
+  @Nullable
+  public abstract SheetFloody getSheetFloody();
+
+  @Nullable
+  public abstract SheetFloody getDcmFloody();
+
+  @Nullable
+  public abstract SheetFloody getBaselineFloody();
+
+  public static ReconciledActivity create(
+      State state,
+      @Nullable SheetFloody sheetFloody,
+      @Nullable SheetFloody dcmFloody,
+      @Nullable SheetFloody baselineFloody) {
+    return new AutoValue_ReconciledActivity(state, sheetFloody, dcmFloody, baselineFloody);
+  }
+}
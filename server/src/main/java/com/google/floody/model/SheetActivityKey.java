@@ -0,0 +1,61 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import com.google.auto.value.AutoValue;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The attributes of an activity row which must be unique across the spreadsheet, read for the
+ * rows not marked for update so that the marked rows are validated against the whole sheet.
+ */
+@AutoValue
+public abstract class SheetActivityKey {
+
+  @Nullable
+  public abstract Long getId();
+
+  @Nullable
+  public abstract String getName();
+
+  @Nullable
+  public abstract String getTagString();
+
+  @Nullable
+  public abstract String getGroupName();
+
+  @Nullable
+  public abstract String getGroupTagString();
+
+  public static SheetActivityKey create(
+      @Nullable Long id,
+      @Nullable String name,
+      @Nullable String tagString,
+      @Nullable String groupName,
+      @Nullable String groupTagString) {
+    return new AutoValue_SheetActivityKey(id, name, tagString, groupName, groupTagString);
+  }
+
+  public static SheetActivityKey of(SheetFloody floody) {
+    return create(
+        floody.getId(),
+        floody.getName(),
+        floody.getTagString(),
+        floody.getGroupName(),
+        floody.getGroupTagString());
+  }
+}
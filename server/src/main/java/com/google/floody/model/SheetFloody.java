@@ -78,6 +78,10 @@ public abstract class SheetFloody {
 
   public abstract FloodlightActivityStatus getStatus();
 
+  /** The sheet row the floody was read from, set only when the rows are read selectively. */
+  @Nullable
+  public abstract SheetRowLocation getSheetLocation();
+
   public static Builder builder() {
     return new AutoValue_SheetFloody.Builder()
         .setToBeUpdated(false)
@@ -150,6 +154,8 @@ public abstract class SheetFloody {
 
     public abstract Builder setStatus(FloodlightActivityStatus status);
 
+    public abstract Builder setSheetLocation(@Nullable SheetRowLocation sheetLocation);
+
     public Builder setStatus(String activityStatus) {
       return setStatus(FloodlightActivityStatus.valueOf(activityStatus));
     }
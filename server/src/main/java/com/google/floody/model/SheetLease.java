@@ -0,0 +1,111 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import com.googlecode.objectify.annotation.Index;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.joda.time.DateTime;
+
+/**
+ * Exclusive, time-limited ownership of a Floody spreadsheet's sheets during a sync. The entity
+ * records the protected ranges added to the sheets, so that they can be removed by any instance
+ * once the lease is released or has expired.
+ */
+@Entity
+public final class SheetLease {
+
+  @Id private String spreadsheetId;
+
+  private String owner;
+
+  private String operation;
+
+  @Index private DateTime expiresAt;
+
+  private List<Integer> protectedRangeIds;
+
+  public SheetLease(String spreadsheetId, String owner, String operation, DateTime expiresAt) {
+    checkArgument(isNotBlank(spreadsheetId), "spreadsheetId should not be blank");
+    checkArgument(isNotBlank(owner), "owner should not be blank");
+
+    this.spreadsheetId = spreadsheetId;
+    this.owner = owner;
+    this.operation = operation;
+    this.expiresAt = checkNotNull(expiresAt);
+    this.protectedRangeIds = new ArrayList<>();
+  }
+
+  /** Default Constructor required for Objectify. */
+  private SheetLease() {}
+
+  public String getSpreadsheetId() {
+    return spreadsheetId;
+  }
+
+  public String getOwner() {
+    return owner;
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public DateTime getExpiresAt() {
+    return expiresAt;
+  }
+
+  public SheetLease setExpiresAt(DateTime expiresAt) {
+    this.expiresAt = checkNotNull(expiresAt);
+    return this;
+  }
+
+  public boolean isExpired(DateTime now) {
+    return !expiresAt.isAfter(now);
+  }
+
+  public ImmutableList<Integer> getProtectedRangeIds() {
+    return (protectedRangeIds == null)
+        ? ImmutableList.of()
+        : ImmutableList.copyOf(protectedRangeIds);
+  }
+
+  public SheetLease setProtectedRangeIds(Collection<Integer> protectedRangeIds) {
+    this.protectedRangeIds = new ArrayList<>(protectedRangeIds);
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("spreadsheetId", spreadsheetId)
+        .add("owner", owner)
+        .add("operation", operation)
+        .add("expiresAt", expiresAt)
+        .add("protectedRangeIds", protectedRangeIds)
+        .toString();
+  }
+}
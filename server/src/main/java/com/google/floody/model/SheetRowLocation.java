@@ -0,0 +1,36 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.auto.value.AutoValue;
+
+/** The position of a row in a spreadsheet, used to write a read row back in place. */
+@AutoValue
+public abstract class SheetRowLocation {
+
+  public abstract String getSheetName();
+
+  /** The 1-based row number in the sheet. */
+  public abstract int getRowNumber();
+
+  public static SheetRowLocation create(String sheetName, int rowNumber) {
+    checkArgument(rowNumber > 0, "invalid row number (%s)", rowNumber);
+    return new AutoValue_SheetRowLocation(sheetName, rowNumber);
+  }
+}
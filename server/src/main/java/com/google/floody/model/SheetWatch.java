@@ -0,0 +1,223 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.floody.protobuf.SheetObjects.SheetRowFingerprints;
+import com.google.floody.protobuf.SheetObjects.StagedSheetChanges;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import com.googlecode.objectify.annotation.Index;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.DateTime;
+
+/**
+ * A Drive push notification channel watching a Floody spreadsheet, along with the fingerprints of
+ * the activity rows written by the last sync and the changes staged since.
+ *
+ * <p>The fingerprints grow with the spreadsheet's rows, so the serialized baseline and staged
+ * changes are stored in {@link SheetWatchChunk} entities within the Datastore entity size limit.
+ * The watch only keeps the generation and number of chunks of each.
+ */
+@Entity
+public final class SheetWatch {
+
+  @Id private String spreadsheetId;
+
+  @Index private String channelId;
+
+  private String resourceId;
+
+  private String channelToken;
+
+  @Index private DateTime channelExpiration;
+
+  /** Set by notifications, cleared once the changes are staged. */
+  @Index private boolean pending;
+
+  private DateTime lastNotificationAt;
+
+  @Index private DateTime lastSyncAt;
+
+  /**
+   * Chunks generation of the {@link SheetRowFingerprints} of the activities written by the last
+   * sync, or {@code null} without a baseline.
+   */
+  private Long baselineGeneration;
+
+  private int baselineChunkCount;
+
+  /** The baseline's activities marked for update, read without loading the baseline. */
+  private int markedForUpdateCount;
+
+  /**
+   * Chunks generation of the {@link StagedSheetChanges}, or {@code null} if not staged since the
+   * last sync.
+   */
+  private Long stagedChangesGeneration;
+
+  private int stagedChangesChunkCount;
+
+  public SheetWatch(String spreadsheetId) {
+    checkArgument(isNotBlank(spreadsheetId), "spreadsheetId should not be blank");
+    this.spreadsheetId = spreadsheetId;
+  }
+
+  /** Default Constructor required for Objectify. */
+  private SheetWatch() {}
+
+  public String getSpreadsheetId() {
+    return spreadsheetId;
+  }
+
+  public String getChannelId() {
+    return channelId;
+  }
+
+  public String getResourceId() {
+    return resourceId;
+  }
+
+  public String getChannelToken() {
+    return channelToken;
+  }
+
+  public DateTime getChannelExpiration() {
+    return channelExpiration;
+  }
+
+  public boolean hasChannel() {
+    return channelId != null;
+  }
+
+  public SheetWatch setChannel(
+      String channelId, String resourceId, String channelToken, DateTime channelExpiration) {
+    this.channelId = channelId;
+    this.resourceId = resourceId;
+    this.channelToken = channelToken;
+    this.channelExpiration = channelExpiration;
+    return this;
+  }
+
+  public SheetWatch clearChannel() {
+    return setChannel(null, null, null, null);
+  }
+
+  public boolean isPending() {
+    return pending;
+  }
+
+  public @Nullable DateTime getLastNotificationAt() {
+    return lastNotificationAt;
+  }
+
+  public SheetWatch markPending(DateTime notifiedAt) {
+    this.pending = true;
+    this.lastNotificationAt = notifiedAt;
+    return this;
+  }
+
+  public @Nullable DateTime getLastSyncAt() {
+    return lastSyncAt;
+  }
+
+  public boolean hasBaseline() {
+    return baselineGeneration != null;
+  }
+
+  public @Nullable Long getBaselineGeneration() {
+    return baselineGeneration;
+  }
+
+  /** Returns the ids of the baseline's chunks, empty without a baseline. */
+  public ImmutableList<String> baselineChunkIds() {
+    return (baselineGeneration == null)
+        ? ImmutableList.of()
+        : SheetWatchChunk.chunkIds(spreadsheetId, baselineGeneration, baselineChunkCount);
+  }
+
+  public int getMarkedForUpdateCount() {
+    return markedForUpdateCount;
+  }
+
+  /**
+   * Switches to the chunks of the activities written by a sync, discarding the staged changes.
+   * The chunks of the previous baseline and staged changes are left to the caller to delete.
+   */
+  public SheetWatch setBaseline(
+      long generation, int chunkCount, int markedForUpdateCount, DateTime syncedAt) {
+    this.baselineGeneration = generation;
+    this.baselineChunkCount = chunkCount;
+    this.markedForUpdateCount = markedForUpdateCount;
+    this.lastSyncAt = syncedAt;
+    this.stagedChangesGeneration = null;
+    this.stagedChangesChunkCount = 0;
+    this.pending = false;
+    return this;
+  }
+
+  /** Drops the baseline and the staged changes, so no changes are staged until the next sync. */
+  public SheetWatch clearBaseline() {
+    this.baselineGeneration = null;
+    this.baselineChunkCount = 0;
+    this.markedForUpdateCount = 0;
+    this.stagedChangesGeneration = null;
+    this.stagedChangesChunkCount = 0;
+    return this;
+  }
+
+  public boolean hasStagedChanges() {
+    return stagedChangesGeneration != null;
+  }
+
+  /** Returns the ids of the staged changes' chunks, empty if there are no staged changes. */
+  public ImmutableList<String> stagedChangesChunkIds() {
+    return (stagedChangesGeneration == null)
+        ? ImmutableList.of()
+        : SheetWatchChunk.chunkIds(spreadsheetId, stagedChangesGeneration, stagedChangesChunkCount);
+  }
+
+  /** Switches to the chunks of new staged changes, the previous chunks are left to delete. */
+  public SheetWatch setStagedChanges(long generation, int chunkCount) {
+    this.stagedChangesGeneration = generation;
+    this.stagedChangesChunkCount = chunkCount;
+    return this;
+  }
+
+  public SheetWatch clearPending() {
+    this.pending = false;
+    return this;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("spreadsheetId", spreadsheetId)
+        .add("channelId", channelId)
+        .add("channelExpiration", channelExpiration)
+        .add("pending", pending)
+        .add("lastNotificationAt", lastNotificationAt)
+        .add("lastSyncAt", lastSyncAt)
+        .add("baselineGeneration", baselineGeneration)
+        .add("stagedChangesGeneration", stagedChangesGeneration)
+        .toString();
+  }
+}
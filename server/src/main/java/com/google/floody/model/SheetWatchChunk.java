@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.googlecode.objectify.annotation.Entity;
+import com.googlecode.objectify.annotation.Id;
+import java.util.stream.IntStream;
+
+/**
+ * A part of the serialized baseline or staged changes of a {@link SheetWatch}. The chunks of a
+ * value share a random generation, so that a new value is written before the watch switches to it.
+ */
+@Entity
+public final class SheetWatchChunk {
+
+  @Id private String id;
+
+  private byte[] data;
+
+  public SheetWatchChunk(String spreadsheetId, long generation, int index, byte[] data) {
+    this.id = chunkId(spreadsheetId, generation, index);
+    this.data = checkNotNull(data);
+  }
+
+  /** Default Constructor required for Objectify. */
+  private SheetWatchChunk() {}
+
+  public static String chunkId(String spreadsheetId, long generation, int index) {
+    return String.format("%s/%d/%d", spreadsheetId, generation, index);
+  }
+
+  /** Returns the ids of all the chunks of a value, in order. */
+  public static ImmutableList<String> chunkIds(
+      String spreadsheetId, long generation, int chunkCount) {
+    return IntStream.range(0, chunkCount)
+        .mapToObj(index -> chunkId(spreadsheetId, generation, index))
+        .collect(toImmutableList());
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public byte[] getData() {
+    return data;
+  }
+}
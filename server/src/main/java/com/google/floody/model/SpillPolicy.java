@@ -0,0 +1,54 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.model;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.auto.value.AutoValue;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/** Thresholds above which a bundle's activities are spilled from the heap to a mapped file. */
+@AutoValue
+public abstract class SpillPolicy {
+
+  /** Maximum number of activities kept on the heap, {@code 0} for no limit. */
+  public abstract int maxHeapRows();
+
+  /** Maximum estimated heap bytes of the activities, {@code 0} for no limit. */
+  public abstract long maxHeapBytes();
+
+  /** The directory to create the spill files in. */
+  public abstract Path directory();
+
+  public static SpillPolicy create(int maxHeapRows, long maxHeapBytes, Path directory) {
+    checkArgument(maxHeapRows >= 0, "maxHeapRows (%s) should not be negative", maxHeapRows);
+    checkArgument(maxHeapBytes >= 0, "maxHeapBytes (%s) should not be negative", maxHeapBytes);
+    return new AutoValue_SpillPolicy(maxHeapRows, maxHeapBytes, directory);
+  }
+
+  /** Returns a policy keeping all activities on the heap. */
+  public static SpillPolicy disabled() {
+    return create(0, 0, Paths.get(System.getProperty("java.io.tmpdir")));
+  }
+
+  /** Returns true if the activities should be moved to a spill file. */
+  public boolean shouldSpill(int heapRows, long heapBytes) {
+    return (maxHeapRows() > 0 && heapRows > maxHeapRows())
+        || (maxHeapBytes() > 0 && heapBytes > maxHeapBytes());
+  }
+}
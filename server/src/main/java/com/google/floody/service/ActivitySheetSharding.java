@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_SHEET_NAME;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import com.google.floody.model.FloodyProperties;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.spreadsheet.SpreadsheetMetaReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Splits the Floodlight activities across multiple activity sheets, so that large configurations
+ * stay within the per-request limits of Google Sheets and each write stays small.
+ *
+ * <p>Activities of the same group are kept on the same sheet, unless the group alone exceeds the
+ * row budget. The first shard is always the {@code Activities} sheet, so a configuration within
+ * the budget is stored exactly as before. The names of the shard sheets are stored in the
+ * spreadsheet's developer metadata.
+ *
+ * <p>The shards are sheets of the same spreadsheet, so together they remain within the
+ * spreadsheet's cell limit. The shard sheets are trimmed to their rows to not waste the limit on
+ * empty cells, but sharding does not raise the number of activities a spreadsheet can hold.
+ */
+@AutoValue
+public abstract class ActivitySheetSharding {
+
+  private static final String SHARD_NAME_SEPARATOR = "\n";
+
+  /** The maximum number of activities per sheet, no sharding if not positive. */
+  public abstract int rowBudget();
+
+  /** The developer metadata key storing the shard sheet names. */
+  public abstract String shardMapMetadataKey();
+
+  public static ActivitySheetSharding create(int rowBudget, String shardMapMetadataKey) {
+    checkArgument(shardMapMetadataKey != null, "provide shard map metadata key");
+    return new AutoValue_ActivitySheetSharding(rowBudget, shardMapMetadataKey);
+  }
+
+  public static ActivitySheetSharding fromProperties(FloodyProperties floodyProperties) {
+    return create(
+        Objects.requireNonNullElse(floodyProperties.getActivitySheetShardRowBudget(), 0),
+        floodyProperties.getSheetMetadataActivityShardsKey());
+  }
+
+  /** Returns the sheet name of the shard at the zero-based index. */
+  public static String shardSheetName(int shardIndex) {
+    return (shardIndex == 0)
+        ? ACTIVITY_SHEET_NAME
+        : String.format("%s (%d)", ACTIVITY_SHEET_NAME, shardIndex + 1);
+  }
+
+  /**
+   * Returns the activity sheet names recorded in the spreadsheet's metadata, or only the {@code
+   * Activities} sheet for un-sharded spreadsheets. The shard map changes as activities are added,
+   * so it is always read from the spreadsheet rather than the metadata cache.
+   */
+  public ImmutableList<String> readShardSheetNames(SpreadsheetMetaReader metaReader)
+      throws IOException {
+    return parseShardMap(metaReader.uncached().readMetadata(shardMapMetadataKey()));
+  }
+
+  /** Returns the shard sheet names from the stored metadata values. */
+  public static ImmutableList<String> parseShardMap(@Nullable Collection<String> metadataValues) {
+    if (metadataValues == null || metadataValues.isEmpty()) {
+      return ImmutableList.of(ACTIVITY_SHEET_NAME);
+    }
+
+    var shardNames =
+        ImmutableList.copyOf(
+            Splitter.on(SHARD_NAME_SEPARATOR)
+                .omitEmptyStrings()
+                .split(Iterables.getLast(metadataValues)));
+
+    return shardNames.isEmpty() ? ImmutableList.of(ACTIVITY_SHEET_NAME) : shardNames;
+  }
+
+  /** Returns the metadata value to store for the shard sheet names. */
+  public static String toShardMap(List<String> shardSheetNames) {
+    return Joiner.on(SHARD_NAME_SEPARATOR).join(shardSheetNames);
+  }
+
+  /**
+   * Distributes the activities into shards, returns a single shard when sharding is disabled or
+   * all activities fit in one sheet.
+   *
+   * <p>The shards are views over the given list holding only the activities' indexes, so that
+   * spilled activities are not copied onto the heap.
+   */
+  public ImmutableList<List<SheetFloody>> partition(List<SheetFloody> floodies) {
+    if (rowBudget() <= 0 || floodies.size() <= rowBudget()) {
+      return ImmutableList.of(floodies);
+    }
+
+    var indexesByGroup = new LinkedHashMap<String, List<Integer>>();
+    for (int index = 0; index < floodies.size(); index++) {
+      indexesByGroup
+          .computeIfAbsent(
+              Objects.toString(floodies.get(index).getGroupName(), ""),
+              group -> new ArrayList<>())
+          .add(index);
+    }
+
+    var shards = new ArrayList<int[]>();
+    var currentShard = new ArrayList<Integer>();
+
+    for (var groupIndexes : indexesByGroup.values()) {
+      if (!currentShard.isEmpty() && currentShard.size() + groupIndexes.size() > rowBudget()) {
+        shards.add(Ints.toArray(currentShard));
+        currentShard = new ArrayList<>();
+      }
+
+      // A group larger than the budget is spread over consecutive shards.
+      for (var index : groupIndexes) {
+        if (currentShard.size() == rowBudget()) {
+          shards.add(Ints.toArray(currentShard));
+          currentShard = new ArrayList<>();
+        }
+        currentShard.add(index);
+      }
+    }
+
+    if (!currentShard.isEmpty()) {
+      shards.add(Ints.toArray(currentShard));
+    }
+
+    return shards.stream()
+        .map(shardIndexes -> Lists.transform(Ints.asList(shardIndexes), floodies::get))
+        .collect(toImmutableList());
+  }
+}
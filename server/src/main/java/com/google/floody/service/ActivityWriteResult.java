@@ -0,0 +1,47 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import com.google.api.services.dfareporting.model.FloodlightActivity;
+import com.google.auto.value.AutoValue;
+import com.google.floody.model.SheetFloody;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/** Outcome of writing a single floody to DCM, used by the batched writers. */
+@AutoValue
+abstract class ActivityWriteResult {
+
+  /** The floody updated with DCM information and the operation remarks. */
+  abstract SheetFloody floody();
+
+  /** The activity as returned by DCM, {@code null} if the write failed or was skipped. */
+  @Nullable
+  abstract FloodlightActivity activity();
+
+  static ActivityWriteResult create(SheetFloody floody, @Nullable FloodlightActivity activity) {
+    return new AutoValue_ActivityWriteResult(floody, activity);
+  }
+
+  static ActivityWriteResult notWritten(SheetFloody floody) {
+    return create(floody, null);
+  }
+
+  /** Returns true if the activity was written to DCM. */
+  boolean isWritten() {
+    return activity() != null;
+  }
+}
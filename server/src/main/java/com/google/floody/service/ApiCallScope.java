@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.base.Throwables;
+import com.google.floody.service.FloodyExecutors.ApiCall;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Runs independent Google API calls as subtasks of the calling thread, in the manner of the Java
+ * 21 {@code StructuredTaskScope.ShutdownOnFailure}: the first failing subtask interrupts all the
+ * other subtasks, and {@link #join()} rethrows its exception. Closing the scope cancels any
+ * subtask still running, so no API call outlives the block that started it.
+ *
+ * <pre>{@code
+ * try (var scope = new ApiCallScope()) {
+ *   var profiles = scope.fork(() -> dcmUserAccessService.listUserProfilesForAccount(accountId));
+ *   var sheetAccess = scope.fork(() -> userSpreadsheetRoleChecker.isUserAccess(spreadsheetId));
+ *   scope.join();
+ *   ...
+ * }
+ * }</pre>
+ *
+ * <p>The scope must only be used by the thread that created it.
+ */
+public final class ApiCallScope implements AutoCloseable {
+
+  private final List<Future<?>> subtaskFutures = new ArrayList<>();
+  private @Nullable Throwable failure;
+  private boolean joined;
+
+  /** Starts the API call on the {@link FloodyExecutors#apiCallExecutor()}. */
+  public <T> Subtask<T> fork(ApiCall<T> apiCall) {
+    checkState(!joined, "scope already joined");
+    var subtask = new Subtask<T>();
+
+    synchronized (this) {
+      if (failure == null) {
+        subtaskFutures.add(
+            FloodyExecutors.apiCallExecutor()
+                .submit(
+                    () -> {
+                      try {
+                        subtask.result = apiCall.call();
+                      } catch (Throwable throwable) {
+                        shutdown(throwable);
+                      }
+                      return null;
+                    }));
+      }
+    }
+
+    return subtask;
+  }
+
+  /**
+   * Waits for all the subtasks to complete.
+   *
+   * @throws IOException the exception of the first failed subtask, or an {@link
+   *     InterruptedIOException} when the waiting thread is interrupted
+   */
+  public void join() throws IOException {
+    checkState(!joined, "scope already joined");
+    joined = true;
+
+    for (var future : subtaskFutures) {
+      try {
+        future.get();
+      } catch (CancellationException cancelled) {
+        // Cancelled by a failing subtask, reported below.
+      } catch (ExecutionException executionException) {
+        shutdown(executionException.getCause());
+      } catch (InterruptedException interruptedException) {
+        Thread.currentThread().interrupt();
+        shutdown(interruptedException);
+        throw new InterruptedIOException("interrupted waiting for API calls");
+      }
+    }
+
+    Throwable firstFailure;
+    synchronized (this) {
+      firstFailure = failure;
+    }
+
+    if (firstFailure != null) {
+      Throwables.throwIfInstanceOf(firstFailure, IOException.class);
+      Throwables.throwIfUnchecked(firstFailure);
+      throw new IOException(firstFailure);
+    }
+  }
+
+  /** Cancels the subtasks still running. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      subtaskFutures.forEach(future -> future.cancel(/*mayInterruptIfRunning=*/ true));
+    }
+  }
+
+  /** Records the first failure and interrupts the remaining subtasks. */
+  private synchronized void shutdown(Throwable throwable) {
+    if (failure != null) {
+      // Subtasks fail with interruptions after the first failure, keep the original cause.
+      return;
+    }
+
+    failure = throwable;
+    subtaskFutures.forEach(future -> future.cancel(/*mayInterruptIfRunning=*/ true));
+  }
+
+  /** The result of an API call forked in the scope. */
+  public final class Subtask<T> {
+
+    private volatile T result;
+
+    private Subtask() {}
+
+    /** Returns the API call result, only available once the scope was successfully joined. */
+    public T get() {
+      checkState(joined, "scope not joined");
+      synchronized (ApiCallScope.this) {
+        checkState(failure == null, "scope failed");
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.util.Locale;
+
+/** The wire formats of the bulk export and upload streams. */
+public enum BulkFormat {
+
+  /**
+   * Newline delimited JSON, one object per row keyed by the sheet headers with a {@code type} field
+   * identifying the activity, default tag and publisher tag rows.
+   */
+  NDJSON("application/x-ndjson"),
+
+  /**
+   * Comma separated values with the activity sheet headers as the first row. The stream contains
+   * only the activities, the default and publisher tag rows are not part of the format.
+   */
+  CSV("text/csv");
+
+  private final String contentType;
+
+  BulkFormat(String contentType) {
+    this.contentType = contentType;
+  }
+
+  public String contentType() {
+    return contentType;
+  }
+
+  /** Returns the format by name, case insensitive, e.g. {@code ndjson} or {@code csv}. */
+  public static BulkFormat forName(String name) {
+    return valueOf(name.toUpperCase(Locale.ROOT));
+  }
+
+  /**
+   * Returns the format of the request body, {@code text/csv} is read as CSV and all the other
+   * content types as NDJSON.
+   */
+  public static BulkFormat forContentType(String contentType) {
+    return (!isBlank(contentType) && contentType.toLowerCase(Locale.ROOT).startsWith("text/csv"))
+        ? CSV
+        : NDJSON;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_SHEET_HEADERS;
+import static com.google.floody.model.ActivitySheetHeaderInformation.REMARKS_COLUMN;
+import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_HEADERS;
+import static com.google.floody.model.PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_HEADERS;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A single row of a bulk stream: an activity, a default tag or a publisher tag in the cell layout
+ * of its spreadsheet tab, so that the sheet row transformers can be used for both the directions.
+ */
+@AutoValue
+public abstract class BulkRecord {
+
+  /** The kind of the row, identifying the headers of the cells. */
+  public enum Type {
+    ACTIVITY("activity", ACTIVITY_SHEET_HEADERS),
+    DEFAULT_TAG("defaultTag", DEFAULT_TAG_SHEET_HEADERS),
+    PUBLISHER_TAG("publisherTag", PUBLISHER_TAG_SHEET_HEADERS);
+
+    private final String key;
+    private final ImmutableList<String> headers;
+
+    Type(String key, ImmutableList<String> headers) {
+      this.key = key;
+      this.headers = headers;
+    }
+
+    /** The value of the {@code type} field of the NDJSON rows. */
+    public String key() {
+      return key;
+    }
+
+    public ImmutableList<String> headers() {
+      return headers;
+    }
+
+    public static Type forKey(String key) {
+      return Arrays.stream(values())
+          .filter(type -> type.key.equals(key))
+          .findFirst()
+          .orElseThrow(() -> new IllegalArgumentException("unknown record type (" + key + ")"));
+    }
+  }
+
+  public abstract Type type();
+
+  /** The cell values in the order of the type's headers, trailing empty cells are dropped. */
+  public abstract ImmutableList<Object> cells();
+
+  /** The row number in the uploaded stream, {@code 0} for the exported rows. */
+  public abstract long line();
+
+  public static BulkRecord create(Type type, List<Object> cells) {
+    return create(type, cells, 0);
+  }
+
+  public static BulkRecord create(Type type, List<Object> cells, long line) {
+    checkArgument(
+        cells.size() <= type.headers().size(),
+        "too many cells (%s) for %s record",
+        cells.size(),
+        type.key());
+    return new AutoValue_BulkRecord(type, trimTrailingEmptyCells(cells), line);
+  }
+
+  /** Returns an activity result row carrying only the error message in the remarks cell. */
+  public static BulkRecord rowError(long line, String message) {
+    var cells = new Object[REMARKS_COLUMN + 1];
+    Arrays.fill(cells, "");
+    cells[REMARKS_COLUMN] = message;
+    return create(Type.ACTIVITY, Arrays.asList(cells), line);
+  }
+
+  /** Drops trailing empty cells, the same way the Sheets API returns the rows. */
+  private static ImmutableList<Object> trimTrailingEmptyCells(List<Object> cells) {
+    int size = cells.size();
+    while (size > 0 && isEmptyCell(cells.get(size - 1))) {
+      size--;
+    }
+
+    return cells.subList(0, size).stream()
+        .map(cell -> (cell == null) ? "" : cell)
+        .collect(toImmutableList());
+  }
+
+  private static boolean isEmptyCell(Object cell) {
+    return cell == null || cell.toString().isEmpty();
+  }
+}
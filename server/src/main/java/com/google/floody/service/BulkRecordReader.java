@@ -0,0 +1,242 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.ImmutableList;
+import com.google.floody.service.BulkRecord.Type;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reads {@link BulkRecord} rows from an input stream one at a time, so that the uploads are
+ * processed without holding the whole stream in memory.
+ */
+public abstract class BulkRecordReader {
+
+  /**
+   * Reads the next row from the stream.
+   *
+   * @return the next record or {@code null} at the end of the stream
+   * @throws IllegalArgumentException when the row is malformed, the reader moves past the row so
+   *     that the reading can continue with the next row
+   * @throws IOException in case of errors reading the stream
+   */
+  @Nullable
+  public abstract BulkRecord next() throws IOException;
+
+  /** Returns the row number of the last read row, starting at 1. */
+  public abstract long currentLine();
+
+  /**
+   * Returns a reader for the given format.
+   *
+   * @param format the wire format of the rows
+   * @param inputStream the stream to read the rows from
+   */
+  public static BulkRecordReader create(BulkFormat format, InputStream inputStream) {
+    var reader = new BufferedReader(new InputStreamReader(inputStream, UTF_8));
+
+    switch (format) {
+      case NDJSON:
+        return new NdjsonRecordReader(reader);
+      case CSV:
+        return new CsvRecordReader(reader);
+    }
+
+    throw new IllegalArgumentException("unsupported bulk format " + format);
+  }
+
+  /** Maps the cells to the type's header positions, unknown headers are ignored. */
+  private static BulkRecord buildRecord(
+      Type type, List<String> headers, List<String> values, long line) {
+    var cells = new Object[type.headers().size()];
+    Arrays.fill(cells, "");
+
+    for (int index = 0; index < headers.size() && index < values.size(); index++) {
+      int column = type.headers().indexOf(headers.get(index));
+      if (column >= 0) {
+        cells[column] = values.get(index);
+      }
+    }
+
+    return BulkRecord.create(type, Arrays.asList(cells), line);
+  }
+
+  /** Reads one JSON object per line, blank lines are skipped. */
+  private static final class NdjsonRecordReader extends BulkRecordReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final BufferedReader reader;
+    private long line;
+
+    private NdjsonRecordReader(BufferedReader reader) {
+      this.reader = reader;
+      this.line = 0;
+    }
+
+    @Override
+    public BulkRecord next() throws IOException {
+      String text;
+      do {
+        text = reader.readLine();
+        if (text == null) {
+          return null;
+        }
+        line++;
+      } while (text.isBlank());
+
+      try (var parser = JSON_FACTORY.createParser(text)) {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+          throw new IllegalArgumentException("expected a JSON object");
+        }
+
+        var type = Type.ACTIVITY;
+        var headers = new ArrayList<String>();
+        var values = new ArrayList<String>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String field = parser.getCurrentName();
+          JsonToken value = parser.nextToken();
+
+          if (value.isStructStart()) {
+            throw new IllegalArgumentException("nested value for field (" + field + ")");
+          }
+
+          String cellValue = (value == JsonToken.VALUE_NULL) ? "" : parser.getText();
+          if (field.equals("type")) {
+            type = Type.forKey(cellValue);
+          } else {
+            headers.add(field);
+            values.add(cellValue);
+          }
+        }
+
+        return buildRecord(type, headers, values, line);
+      } catch (JsonParseException jsonParseException) {
+        throw new IllegalArgumentException(
+            "invalid JSON: " + jsonParseException.getOriginalMessage(), jsonParseException);
+      }
+    }
+
+    @Override
+    public long currentLine() {
+      return line;
+    }
+  }
+
+  /**
+   * Reads CSV activity rows, the first row provides the headers which can be in any order. Quoted
+   * cells can span lines, blank rows are skipped; the row numbers count the header as row 1.
+   */
+  private static final class CsvRecordReader extends BulkRecordReader {
+
+    private final BufferedReader reader;
+    private ImmutableList<String> headers;
+    private long line;
+
+    private CsvRecordReader(BufferedReader reader) {
+      this.reader = reader;
+      this.line = 0;
+    }
+
+    @Override
+    public BulkRecord next() throws IOException {
+      if (headers == null) {
+        List<String> headerRow = readRow();
+        if (headerRow == null) {
+          return null;
+        }
+        headers = ImmutableList.copyOf(headerRow);
+      }
+
+      List<String> row;
+      do {
+        row = readRow();
+        if (row == null) {
+          return null;
+        }
+      } while (row.size() == 1 && row.get(0).isEmpty());
+
+      return buildRecord(Type.ACTIVITY, headers, row, line);
+    }
+
+    @Override
+    public long currentLine() {
+      return line;
+    }
+
+    /** Reads the cells of the next row following RFC 4180, returns null at end of stream. */
+    @Nullable
+    private List<String> readRow() throws IOException {
+      int ch = reader.read();
+      if (ch == -1) {
+        return null;
+      }
+      line++;
+
+      var cells = new ArrayList<String>();
+      var cell = new StringBuilder();
+      boolean quoted = false;
+
+      while (ch != -1) {
+        if (quoted) {
+          if (ch == '"') {
+            reader.mark(1);
+            if (reader.read() == '"') {
+              cell.append('"');
+            } else {
+              reader.reset();
+              quoted = false;
+            }
+          } else {
+            cell.append((char) ch);
+          }
+        } else if (ch == '"') {
+          quoted = true;
+        } else if (ch == ',') {
+          cells.add(cell.toString());
+          cell.setLength(0);
+        } else if (ch == '\n') {
+          break;
+        } else if (ch != '\r') {
+          cell.append((char) ch);
+        }
+
+        ch = reader.read();
+      }
+
+      if (quoted) {
+        throw new IllegalArgumentException("unterminated quoted cell");
+      }
+
+      cells.add(cell.toString());
+      return cells;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.ImmutableList;
+import com.google.floody.service.BulkRecord.Type;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes {@link BulkRecord} rows to an output stream one at a time, the records are never
+ * collected in memory.
+ */
+public abstract class BulkRecordWriter implements Closeable, Flushable {
+
+  /** Writes a single row to the stream. */
+  public abstract void write(BulkRecord record) throws IOException;
+
+  /**
+   * Returns a writer for the given format, closing the writer does not close the output stream.
+   *
+   * @param format the wire format of the rows
+   * @param outputStream the stream to write the rows to
+   */
+  public static BulkRecordWriter create(BulkFormat format, OutputStream outputStream)
+      throws IOException {
+    switch (format) {
+      case NDJSON:
+        return new NdjsonRecordWriter(outputStream);
+      case CSV:
+        return new CsvRecordWriter(outputStream);
+    }
+
+    throw new IllegalArgumentException("unsupported bulk format " + format);
+  }
+
+  /** Writes each record as a JSON object on its own line. */
+  private static final class NdjsonRecordWriter extends BulkRecordWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final JsonGenerator generator;
+
+    private NdjsonRecordWriter(OutputStream outputStream) throws IOException {
+      this.generator =
+          JSON_FACTORY
+              .createGenerator(outputStream)
+              .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+              .setRootValueSeparator(null);
+    }
+
+    @Override
+    public void write(BulkRecord record) throws IOException {
+      ImmutableList<String> headers = record.type().headers();
+
+      generator.writeStartObject();
+      generator.writeStringField("type", record.type().key());
+
+      if (record.line() > 0) {
+        generator.writeNumberField("line", record.line());
+      }
+
+      for (int column = 0; column < record.cells().size(); column++) {
+        generator.writeStringField(headers.get(column), record.cells().get(column).toString());
+      }
+
+      generator.writeEndObject();
+      generator.writeRaw('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+      generator.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      generator.close();
+    }
+  }
+
+  /** Writes the activity records as CSV rows following a header row. */
+  private static final class CsvRecordWriter extends BulkRecordWriter {
+
+    private final Writer writer;
+    private boolean headerWritten;
+
+    private CsvRecordWriter(OutputStream outputStream) {
+      this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+      this.headerWritten = false;
+    }
+
+    /** Writes the activity rows, the tag rows are skipped as CSV holds a single table. */
+    @Override
+    public void write(BulkRecord record) throws IOException {
+      if (!record.type().equals(Type.ACTIVITY)) {
+        return;
+      }
+
+      if (!headerWritten) {
+        writeRow(Type.ACTIVITY.headers());
+        headerWritten = true;
+      }
+
+      writeRow(record.cells());
+    }
+
+    private void writeRow(ImmutableList<?> cells) throws IOException {
+      for (int column = 0; column < cells.size(); column++) {
+        if (column > 0) {
+          writer.write(',');
+        }
+        writer.write(escape(cells.get(column).toString()));
+      }
+      writer.write("\r\n");
+    }
+
+    /** Quotes the value if it contains a separator, a quote or a line break. */
+    private static String escape(String value) {
+      if (value.chars().noneMatch(ch -> ch == ',' || ch == '"' || ch == '\n' || ch == '\r')) {
+        return value;
+      }
+
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void flush() throws IOException {
+      writer.flush();
+    }
+
+    /** Flushes the pending rows, the underlying stream is left open. */
+    @Override
+    public void close() throws IOException {
+      writer.flush();
+    }
+  }
+}
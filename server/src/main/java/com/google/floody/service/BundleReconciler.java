@@ -0,0 +1,512 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_RANGE;
+import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_SHEET_NAME;
+import static java.util.function.Predicate.not;
+
+import com.google.api.services.dfareporting.Dfareporting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.GoogleLogger;
+import com.google.floody.model.FloodyBundle;
+import com.google.floody.model.FloodyList;
+import com.google.floody.model.ReconciledActivity;
+import com.google.floody.model.ReconciledActivity.State;
+import com.google.floody.model.SheetDefaultTag;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.model.SheetPublisherTag;
+import com.google.floody.model.SheetRowLocation;
+import com.google.floody.protobuf.DcmOperations.ActivityConflict;
+import com.google.floody.protobuf.DcmOperations.ReconciliationReport;
+import com.google.floody.spreadsheet.GoogleSpreadsheetService;
+import com.google.floody.transforms.ActivityReconciler;
+import java.io.IOException;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Reconciles a spreadsheet and its DCM Floodlight configuration against the snapshot of their
+ * last sync, writing only the activities changed on one side to the other side.
+ *
+ * <p>Activities edited in the spreadsheet are written to DCM and back to their rows. Activities
+ * edited in DCM are written to their rows, and new DCM activities are appended to the last
+ * activity sheet, rolling over to new shard sheets at the row budget. Conflicting rows are left
+ * as-is with a remark. The default and publisher tag sheets are only rewritten when DCM activities
+ * refer to tags missing from them. A new snapshot is recorded once the writes are done, keeping
+ * the conflicts' previous version so they remain conflicts until resolved.
+ */
+public final class BundleReconciler {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private final FloodyBundleManager sheetBundle;
+  private final FloodyBundleManager dcmBundle;
+  @Nullable private final FloodyBundle baselineBundle;
+  private final GoogleSpreadsheetService spreadsheetService;
+  private final ActivitySheetSharding activitySheetSharding;
+  private final Dfareporting dcmService;
+  private final long dcmProfileId;
+  private final Period defaultAudienceLifespan;
+  private final BundleSnapshotService snapshotService;
+
+  private FloodyList reconciledSheetFloodies;
+
+  /**
+   * @param sheetBundle the spreadsheet's bundle, with the activities' sheet locations
+   * @param dcmBundle the configuration's bundle read from DCM
+   * @param baselineBundle the bundle of the last sync's snapshot, if any
+   */
+  public BundleReconciler(
+      FloodyBundleManager sheetBundle,
+      FloodyBundleManager dcmBundle,
+      Optional<FloodyBundle> baselineBundle,
+      GoogleSpreadsheetService spreadsheetService,
+      ActivitySheetSharding activitySheetSharding,
+      Dfareporting dcmService,
+      long dcmProfileId,
+      Period defaultAudienceLifespan,
+      BundleSnapshotService snapshotService) {
+    this.sheetBundle = sheetBundle;
+    this.dcmBundle = dcmBundle;
+    this.baselineBundle = baselineBundle.orElse(null);
+    this.spreadsheetService = spreadsheetService;
+    this.activitySheetSharding = activitySheetSharding;
+    this.dcmService = dcmService;
+    this.dcmProfileId = dcmProfileId;
+    this.defaultAudienceLifespan = defaultAudienceLifespan;
+    this.snapshotService = snapshotService;
+    this.reconciledSheetFloodies = sheetBundle.getBundle().getFloodies();
+  }
+
+  /**
+   * Classifies the activities and, unless a dry run, executes the writes in both directions.
+   *
+   * @param dryRun only count the writes without executing them
+   * @return the number of activities per state, the writes and the conflicts
+   * @throws IOException when there is an error in the Sheets or DCM APIs
+   */
+  public ReconciliationReport reconcile(boolean dryRun) throws IOException {
+    ImmutableList<ReconciledActivity> activities =
+        new ActivityReconciler(defaultAudienceLifespan)
+            .reconcile(
+                (baselineBundle == null) ? ImmutableList.of() : baselineBundle.getFloodies(),
+                sheetBundle.getBundle().getFloodies(),
+                dcmBundle.getBundle().getFloodies());
+
+    var report =
+        ReconciliationReport.newBuilder()
+            .setDryRun(dryRun)
+            .setBaselinePresent(baselineBundle != null);
+
+    var activitiesByState = new LinkedHashMap<String, Integer>();
+    for (var activity : activities) {
+      activitiesByState.merge(activity.getState().name(), 1, Integer::sum);
+
+      var message = conflictMessage(activity);
+      if (message != null) {
+        var conflict =
+            ActivityConflict.newBuilder()
+                .setActivityName(activity.getSheetFloody().getName())
+                .setMessage(message);
+        Optional.ofNullable(activity.getSheetFloody().getId()).ifPresent(conflict::setActivityId);
+        Optional.ofNullable(activity.getSheetFloody().getSheetLocation())
+            .ifPresent(
+                location ->
+                    conflict
+                        .setSheetName(location.getSheetName())
+                        .setRowNumber(location.getRowNumber()));
+        report.addConflicts(conflict);
+      }
+    }
+    report.putAllActivitiesByState(activitiesByState);
+
+    FloodyList dcmWrites =
+        toFloodyList(
+            activities.stream()
+                .filter(activity -> isWrittenToDcm(activity.getState()))
+                .map(activity -> activity.getSheetFloody().toBuilder())
+                .map(builder -> builder.setToBeUpdated(true).build()));
+
+    if (dryRun) {
+      return report
+          .setDcmActivitiesWritten(dcmWrites.size())
+          .setSheetRowsWritten(dcmWrites.size() + sheetRowWrites(activities).size())
+          .build();
+    }
+
+    // The DCM writes first, their outcome is written back to the rows with the DCM changes.
+    FloodyBundle writtenBundle = null;
+    if (!dcmWrites.isEmpty()) {
+      writtenBundle =
+          FloodyBundleManager.builder()
+              .setBundle(sheetBundle.getBundle().withFloodies(dcmWrites))
+              .setProfileId(dcmProfileId)
+              .setFloodlightConfigurationId(sheetBundle.getFloodlightConfigurationId())
+              .build()
+              .toDcm(dcmService)
+              .buildDcmWriter(dcmProfileId)
+              .sync()
+              .getBundle();
+    }
+
+    FloodyList writtenFloodies =
+        (writtenBundle == null)
+            ? FloodyList.copyOf(ImmutableList.of())
+            : writtenBundle.getFloodies();
+
+    FloodyList sheetWrites =
+        FloodyList.builder().addAll(writtenFloodies).addAll(sheetRowWrites(activities)).build();
+
+    writeSheetRows(sheetWrites, writtenBundle);
+    recordSnapshot(activities, writtenFloodies, writtenBundle);
+
+    return report
+        .setDcmActivitiesWritten(dcmWrites.size())
+        .setSheetRowsWritten(sheetWrites.size())
+        .build();
+  }
+
+  /** Returns the spreadsheet's activities after the last {@link #reconcile(boolean)}. */
+  public FloodyList getReconciledSheetFloodies() {
+    return reconciledSheetFloodies;
+  }
+
+  private static boolean isWrittenToDcm(State state) {
+    return state.equals(State.SHEET_MODIFIED) || state.equals(State.SHEET_ADDED);
+  }
+
+  /**
+   * Returns the rows to write for the DCM changes and the conflicts, the DCM activities appended
+   * after the last non-empty row of the last activity sheet and onto new shard sheets once it
+   * reaches the row budget.
+   */
+  private FloodyList sheetRowWrites(ImmutableList<ReconciledActivity> activities)
+      throws IOException {
+    var rowWrites = FloodyList.builder();
+    try {
+      addSheetRowWrites(activities, rowWrites);
+    } catch (IOException | RuntimeException exception) {
+      rowWrites.discard();
+      throw exception;
+    }
+
+    return rowWrites.build();
+  }
+
+  private void addSheetRowWrites(
+      ImmutableList<ReconciledActivity> activities, FloodyList.Builder rowWrites)
+      throws IOException {
+    var appendedFloodies = new ArrayList<SheetFloody>();
+
+    for (var activity : activities) {
+      var sheetFloody = activity.getSheetFloody();
+
+      switch (activity.getState()) {
+        case DCM_MODIFIED:
+          rowWrites.add(
+              activity.getDcmFloody().toBuilder()
+                  .setSheetLocation(sheetFloody.getSheetLocation())
+                  .build());
+          break;
+
+        case DCM_ADDED:
+          appendedFloodies.add(activity.getDcmFloody());
+          break;
+
+        case CONFLICT:
+        case DCM_REMOVED:
+          // Only remark rows not remarked yet, to keep repeated runs free of writes.
+          String message = conflictMessage(activity);
+          if (!Objects.equals(message, sheetFloody.getRemarks())) {
+            rowWrites.add(sheetFloody.toBuilder().setRemarks(message).build());
+          }
+          break;
+
+        default:
+          break;
+      }
+    }
+
+    if (!appendedFloodies.isEmpty()) {
+      var shardNames =
+          activitySheetSharding.readShardSheetNames(spreadsheetService.metaReader());
+      int shardIndex = shardNames.size() - 1;
+      String sheetName = shardNames.get(shardIndex);
+
+      // Rows which do not parse are not in the bundle, so use the sheet's own last row.
+      int lastRowNumber = Math.max(spreadsheetService.findLastRowNumber(sheetName), 1);
+
+      for (var floody : appendedFloodies) {
+        if (activitySheetSharding.rowBudget() > 0
+            && lastRowNumber - 1 >= activitySheetSharding.rowBudget()) {
+          sheetName = ActivitySheetSharding.shardSheetName(++shardIndex);
+          lastRowNumber = 1;
+        }
+
+        rowWrites.add(
+            floody.toBuilder()
+                .setSheetLocation(SheetRowLocation.create(sheetName, ++lastRowNumber))
+                .build());
+      }
+    }
+  }
+
+  @Nullable
+  private static String conflictMessage(ReconciledActivity activity) {
+    switch (activity.getState()) {
+      case CONFLICT:
+        if (activity.getDcmFloody() == null) {
+          return "reconcile: activity id repeated from an earlier row";
+        }
+        return (activity.getBaselineFloody() == null)
+            ? "reconcile: differs from DCM and there is no snapshot of the last sync"
+            : "reconcile: changed in both the spreadsheet and DCM since the last sync";
+
+      case DCM_REMOVED:
+        return "reconcile: activity id not found in the DCM Floodlight configuration";
+
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Writes the rows in place, along with the tag sheets when the rows refer to missing tags and
+   * the reference sheets when DCM activities were written or added.
+   */
+  private void writeSheetRows(FloodyList sheetWrites, @Nullable FloodyBundle writtenBundle)
+      throws IOException {
+    if (sheetWrites.isEmpty()) {
+      logger.atInfo().log("no sheet rows to reconcile");
+      return;
+    }
+
+    var referenceBundle = (writtenBundle != null) ? writtenBundle : dcmBundle.getBundle();
+    var sheetTags = sheetBundle.getBundle();
+    ImmutableSet<SheetDefaultTag> defaultTags =
+        mergeById(
+            SheetDefaultTag::getId,
+            sheetTags.getDefaultTags(),
+            dcmBundle.getBundle().getDefaultTags(),
+            referenceBundle.getDefaultTags());
+    ImmutableSet<SheetPublisherTag> publisherTags =
+        mergeById(
+            SheetPublisherTag::getId,
+            sheetTags.getPublisherTags(),
+            dcmBundle.getBundle().getPublisherTags(),
+            referenceBundle.getPublisherTags());
+
+    var sheetsWriter =
+        FloodyBundleManager.builder()
+            .setBundle(
+                FloodyBundle.builder()
+                    .setFloodies(sheetWrites)
+                    .setDefaultTags(defaultTags)
+                    .setPublisherTags(publisherTags)
+                    .setCustomVariables(dcmBundle.getBundle().getCustomVariables())
+                    .setFloodyGroups(referenceBundle.getFloodyGroups())
+                    .build())
+            .setFloodlightConfigurationId(sheetBundle.getFloodlightConfigurationId())
+            .setDefaultAudienceLifespan(defaultAudienceLifespan)
+            .build()
+            .toSheets(spreadsheetService, activitySheetSharding);
+
+    addShardSheets(sheetWrites);
+    sheetsWriter.syncActivityRows();
+
+    if (defaultTags.size() > sheetTags.getDefaultTags().size()
+        || publisherTags.size() > sheetTags.getPublisherTags().size()) {
+      sheetsWriter.syncTagSheets();
+    }
+
+    // Only the written rows are held by location, the other rows are copied in order.
+    var writesByLocation = new LinkedHashMap<SheetRowLocation, SheetFloody>();
+    sheetWrites.forEach(floody -> writesByLocation.put(floody.getSheetLocation(), floody));
+
+    var reconciledFloodies = FloodyList.builder();
+    try {
+      for (SheetFloody floody : reconciledSheetFloodies) {
+        SheetFloody writtenFloody = writesByLocation.remove(floody.getSheetLocation());
+        reconciledFloodies.add((writtenFloody != null) ? writtenFloody : floody);
+      }
+    } catch (RuntimeException runtimeException) {
+      reconciledFloodies.discard();
+      throw runtimeException;
+    }
+
+    // The writes left over are the appended rows.
+    boolean rowsAppended = !writesByLocation.isEmpty();
+    writesByLocation.values().forEach(reconciledFloodies::add);
+    reconciledSheetFloodies = reconciledFloodies.build();
+
+    // Appended rows add locations, the new DCM activities may also be in new groups.
+    if (writtenBundle != null || rowsAppended) {
+      sheetsWriter.syncReferenceSheets();
+    }
+  }
+
+  /**
+   * Adds the shard sheets which the appended rows rolled over to, and records them in the
+   * spreadsheet's shard map.
+   */
+  private void addShardSheets(FloodyList sheetWrites) throws IOException {
+    var shardNames = activitySheetSharding.readShardSheetNames(spreadsheetService.metaReader());
+
+    ImmutableList<String> newShardNames =
+        sheetWrites.stream()
+            .map(SheetFloody::getSheetLocation)
+            .filter(Objects::nonNull)
+            .map(SheetRowLocation::getSheetName)
+            .distinct()
+            .filter(not(shardNames::contains))
+            .collect(toImmutableList());
+
+    if (newShardNames.isEmpty()) {
+      return;
+    }
+
+    // Copies of the Activities sheet retain its validations and format, but not its rows. The
+    // copies are trimmed to the header and grow as the rows are written.
+    spreadsheetService.duplicateSheet(ACTIVITY_SHEET_NAME, newShardNames);
+    spreadsheetService.resizeSheetRows(
+        newShardNames.stream().collect(toImmutableMap(sheetName -> sheetName, sheetName -> 2)));
+    for (var sheetName : newShardNames) {
+      spreadsheetService.clearData(sheetName, ACTIVITY_RANGE);
+    }
+
+    spreadsheetService
+        .metaWriter()
+        .replaceMetadata(
+            activitySheetSharding.shardMapMetadataKey(),
+            ActivitySheetSharding.toShardMap(
+                ImmutableList.<String>builder()
+                    .addAll(shardNames)
+                    .addAll(newShardNames)
+                    .build()));
+  }
+
+  /**
+   * Records the DCM state after the writes as the new snapshot. Conflicts keep their previous
+   * snapshot version, and activities failing to write keep DCM's version so that they are written
+   * again by the next reconcile.
+   */
+  private void recordSnapshot(
+      ImmutableList<ReconciledActivity> activities,
+      FloodyList writtenFloodies,
+      @Nullable FloodyBundle writtenBundle) {
+    var writtenById = new HashMap<Long, SheetFloody>();
+    writtenFloodies.stream()
+        .filter(floody -> floody.getId() != null && !floody.isToBeUpdated())
+        .forEach(floody -> writtenById.put(floody.getId(), withoutSheetState(floody)));
+
+    var baselineFloodies = FloodyList.builder();
+    var baselineIds = new HashSet<Long>();
+    try {
+      for (var activity : activities) {
+        switch (activity.getState()) {
+          case CONFLICT:
+            if (activity.getDcmFloody() != null && activity.getBaselineFloody() != null) {
+              baselineFloodies.add(activity.getBaselineFloody());
+              baselineIds.add(activity.getBaselineFloody().getId());
+            }
+            break;
+
+          case DCM_REMOVED:
+          case SHEET_ADDED:
+            break;
+
+          default:
+            var dcmFloody = activity.getDcmFloody();
+            if (dcmFloody != null) {
+              baselineFloodies.add(writtenById.getOrDefault(dcmFloody.getId(), dcmFloody));
+              baselineIds.add(dcmFloody.getId());
+            }
+            break;
+        }
+      }
+
+      // Created activities have no DCM version yet.
+      writtenById.values().stream()
+          .filter(floody -> !baselineIds.contains(floody.getId()))
+          .forEach(baselineFloodies::add);
+    } catch (RuntimeException runtimeException) {
+      baselineFloodies.discard();
+      throw runtimeException;
+    }
+
+    var referenceBundle = (writtenBundle != null) ? writtenBundle : dcmBundle.getBundle();
+    snapshotService.recordSync(
+        dcmBundle.getFloodlightConfigurationId(),
+        FloodyBundle.builder()
+            .setFloodies(baselineFloodies.build())
+            .setDefaultTags(
+                mergeById(
+                    SheetDefaultTag::getId,
+                    dcmBundle.getBundle().getDefaultTags(),
+                    referenceBundle.getDefaultTags()))
+            .setPublisherTags(
+                mergeById(
+                    SheetPublisherTag::getId,
+                    dcmBundle.getBundle().getPublisherTags(),
+                    referenceBundle.getPublisherTags()))
+            .setCustomVariables(dcmBundle.getBundle().getCustomVariables())
+            .setFloodyGroups(referenceBundle.getFloodyGroups())
+            .build());
+  }
+
+  /** Collects the activities through a {@link FloodyList.Builder}, following the spill policy. */
+  private static FloodyList toFloodyList(Stream<SheetFloody> floodies) {
+    var builder = FloodyList.builder();
+    try {
+      floodies.forEach(builder::add);
+    } catch (RuntimeException runtimeException) {
+      builder.discard();
+      throw runtimeException;
+    }
+
+    return builder.build();
+  }
+
+  private static SheetFloody withoutSheetState(SheetFloody floody) {
+    return floody.toBuilder().setRemarks(null).setSheetLocation(null).build();
+  }
+
+  /** Returns the items of all the collections, the first item of each id is kept. */
+  @SafeVarargs
+  private static <T> ImmutableSet<T> mergeById(
+      Function<T, Long> idFunction, Collection<T>... collections) {
+    var itemsById = new LinkedHashMap<Long, T>();
+    for (var collection : collections) {
+      collection.forEach(item -> itemsById.putIfAbsent(idFunction.apply(item), item));
+    }
+
+    return ImmutableSet.copyOf(itemsById.values());
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.flogger.GoogleLogger;
+import com.google.floody.model.FloodyBundle;
+import com.google.floody.protobuf.BundleSnapshots.ActivityGroupSnapshot;
+import com.google.floody.protobuf.BundleSnapshots.ActivitySnapshot;
+import com.google.floody.protobuf.BundleSnapshots.BundleSnapshot;
+import com.google.floody.protobuf.BundleSnapshots.DefaultTagSnapshot;
+import com.google.floody.protobuf.BundleSnapshots.PublisherTagSnapshot;
+import com.google.floody.transforms.BundleSnapshotTransformer;
+import com.google.protobuf.util.Timestamps;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps a compressed snapshot of each Floodlight configuration's bundle as of its last sync, to
+ * serve as a baseline for change detection and to re-populate spreadsheets without reading DCM.
+ *
+ * <p>Recording is best-effort: failures are logged, as the snapshots are an optimization and the
+ * synced data is already stored in DCM and the spreadsheet.
+ */
+public final class BundleSnapshotService {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private final BundleSnapshotStore snapshotStore;
+
+  public BundleSnapshotService(BundleSnapshotStore snapshotStore) {
+    this.snapshotStore = snapshotStore;
+  }
+
+  /**
+   * Stores the snapshot of a complete bundle synced between DCM and a spreadsheet, unless the
+   * stored snapshot has the same content.
+   *
+   * @param floodlightConfigurationId the synced Floodlight configuration
+   * @param bundle all the configuration's activities, tags, custom variables and groups
+   * @return true if the bundle changed since the stored snapshot or there is no stored snapshot
+   */
+  public boolean recordSync(long floodlightConfigurationId, FloodyBundle bundle) {
+    try {
+      var snapshot = BundleSnapshotTransformer.toSnapshot(floodlightConfigurationId, bundle);
+      var storedFingerprint = snapshotStore.readContentFingerprint(floodlightConfigurationId);
+
+      if (storedFingerprint.isPresent()
+          && storedFingerprint.getAsLong() == snapshot.getContentFingerprint()) {
+        logger.atInfo().log("bundle unchanged since snapshot (%s)", floodlightConfigurationId);
+        return false;
+      }
+
+      write(snapshot);
+      return true;
+    } catch (IOException | RuntimeException exception) {
+      logger.atWarning().withCause(exception).log(
+          "error recording snapshot of %s", floodlightConfigurationId);
+      return true;
+    }
+  }
+
+  /**
+   * Updates the stored snapshot with the activities and tags written to DCM by a selective sync.
+   * Written activities replace the snapshot's activities with the same id, and newly created
+   * activities are appended. Activities without an id after the sync were not created, and
+   * activities still marked for update failed to write or validate; both are left out so the
+   * snapshot keeps DCM's version. Configurations without a snapshot are left without one until a
+   * complete sync.
+   *
+   * @param floodlightConfigurationId the synced Floodlight configuration
+   * @param writtenBundle the activities written to DCM, with the tags they refer to
+   */
+  public void recordActivitiesSync(long floodlightConfigurationId, FloodyBundle writtenBundle) {
+    try {
+      var storedSnapshot = loadSnapshot(floodlightConfigurationId);
+
+      if (storedSnapshot.isEmpty()) {
+        logger.atInfo().log("no snapshot to update for %s", floodlightConfigurationId);
+        return;
+      }
+
+      var writtenFloodies =
+          writtenBundle.getFloodies().stream()
+              .filter(floody -> floody.getId() != null && !floody.isToBeUpdated())
+              .collect(toImmutableList());
+
+      write(
+          merge(
+              storedSnapshot.get(),
+              BundleSnapshotTransformer.toSnapshot(
+                  floodlightConfigurationId, writtenBundle.withFloodies(writtenFloodies))));
+    } catch (IOException | RuntimeException exception) {
+      logger.atWarning().withCause(exception).log(
+          "error updating snapshot of %s", floodlightConfigurationId);
+    }
+  }
+
+  /** Returns the configuration's stored snapshot, or empty if there is none. */
+  public Optional<BundleSnapshot> loadSnapshot(long floodlightConfigurationId)
+      throws IOException {
+    var compressedSnapshot = snapshotStore.read(floodlightConfigurationId);
+
+    if (compressedSnapshot.isEmpty()) {
+      return Optional.empty();
+    }
+
+    try (var input = new GZIPInputStream(new ByteArrayInputStream(compressedSnapshot.get()))) {
+      return Optional.of(BundleSnapshot.parseFrom(input));
+    }
+  }
+
+  /** Returns the bundle of the configuration's stored snapshot, or empty if there is none. */
+  public Optional<FloodyBundle> load(long floodlightConfigurationId) throws IOException {
+    return loadSnapshot(floodlightConfigurationId).map(BundleSnapshotTransformer::toBundle);
+  }
+
+  private void write(BundleSnapshot snapshot) throws IOException {
+    var timestampedSnapshot =
+        snapshot.toBuilder()
+            .setCreatedAt(Timestamps.fromMillis(System.currentTimeMillis()))
+            .build();
+
+    var compressedSnapshot = new ByteArrayOutputStream();
+    try (var output = new GZIPOutputStream(compressedSnapshot)) {
+      timestampedSnapshot.writeTo(output);
+    }
+
+    logger.atInfo().log(
+        "snapshot of %s: activities (%s), bytes (%s), compressed (%s)",
+        snapshot.getFloodlightConfigurationId(),
+        snapshot.getActivitiesCount(),
+        timestampedSnapshot.getSerializedSize(),
+        compressedSnapshot.size());
+
+    snapshotStore.write(
+        snapshot.getFloodlightConfigurationId(),
+        snapshot.getContentFingerprint(),
+        compressedSnapshot.toByteArray());
+  }
+
+  private static BundleSnapshot merge(BundleSnapshot stored, BundleSnapshot written) {
+    var writtenActivities = new LinkedHashMap<Long, ActivitySnapshot>();
+    written.getActivitiesList().stream()
+        .filter(ActivitySnapshot::hasId)
+        .forEach(activity -> writtenActivities.put(activity.getId().getValue(), activity));
+
+    var merged = stored.toBuilder().clearActivities();
+    for (var activity : stored.getActivitiesList()) {
+      var writtenActivity =
+          activity.hasId() ? writtenActivities.remove(activity.getId().getValue()) : null;
+      merged.addActivities((writtenActivity != null) ? writtenActivity : activity);
+    }
+    merged.addAllActivities(writtenActivities.values());
+
+    var defaultTags = new LinkedHashMap<Long, DefaultTagSnapshot>();
+    stored.getDefaultTagsList().forEach(tag -> defaultTags.put(tag.getId(), tag));
+    written.getDefaultTagsList().forEach(tag -> defaultTags.put(tag.getId(), tag));
+
+    var publisherTags = new LinkedHashMap<Long, PublisherTagSnapshot>();
+    stored.getPublisherTagsList().forEach(tag -> publisherTags.put(tag.getId(), tag));
+    written.getPublisherTagsList().forEach(tag -> publisherTags.put(tag.getId(), tag));
+
+    var groups = new LinkedHashMap<String, ActivityGroupSnapshot>();
+    stored.getActivityGroupsList().forEach(group -> groups.put(group.getTagString(), group));
+    written.getActivityGroupsList().forEach(group -> groups.put(group.getTagString(), group));
+
+    merged
+        .clearDefaultTags()
+        .addAllDefaultTags(defaultTags.values())
+        .clearPublisherTags()
+        .addAllPublisherTags(publisherTags.values())
+        .clearActivityGroups()
+        .addAllActivityGroups(groups.values());
+
+    if (written.getCustomVariablesCount() > 0) {
+      merged.clearCustomVariables().addAllCustomVariables(written.getCustomVariablesList());
+    }
+
+    return BundleSnapshotTransformer.withContentFingerprint(merged.build());
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.floody.service.DatastoreService.ofy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.GoogleLogger;
+import com.google.floody.model.BundleSnapshotChunk;
+import com.google.floody.model.BundleSnapshotEntry;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/** Stores the latest compressed bundle snapshot of each Floodlight configuration. */
+public interface BundleSnapshotStore {
+
+  /**
+   * Returns the content fingerprint of the stored snapshot without reading the snapshot, or empty
+   * if there is no snapshot for the configuration.
+   */
+  OptionalLong readContentFingerprint(long floodlightConfigurationId) throws IOException;
+
+  /** Returns the compressed snapshot, or empty if there is no complete snapshot stored. */
+  Optional<byte[]> read(long floodlightConfigurationId) throws IOException;
+
+  /** Replaces the configuration's snapshot. */
+  void write(long floodlightConfigurationId, long contentFingerprint, byte[] compressedSnapshot)
+      throws IOException;
+
+  /**
+   * Store splitting the snapshots into chunks within the Datastore entity size limit. The chunks
+   * of a new snapshot are written before the entry switches to them, and the previous chunks are
+   * deleted after, so that readers always see a complete snapshot.
+   */
+  final class DatastoreBundleSnapshotStore implements BundleSnapshotStore {
+
+    private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+    /** Leaves room for the key and property names within the 1MiB entity limit. */
+    private static final int MAX_CHUNK_BYTES = 1000 * 1000;
+
+    @Override
+    public OptionalLong readContentFingerprint(long floodlightConfigurationId) {
+      var entry = ofy().load().type(BundleSnapshotEntry.class).id(floodlightConfigurationId).now();
+
+      return (entry == null)
+          ? OptionalLong.empty()
+          : OptionalLong.of(entry.getContentFingerprint());
+    }
+
+    @Override
+    public Optional<byte[]> read(long floodlightConfigurationId) {
+      var entry = ofy().load().type(BundleSnapshotEntry.class).id(floodlightConfigurationId).now();
+
+      if (entry == null) {
+        return Optional.empty();
+      }
+
+      var chunkIds = chunkIds(entry);
+      var chunks = ofy().load().type(BundleSnapshotChunk.class).ids(chunkIds);
+
+      var snapshot = new ByteArrayOutputStream((int) entry.getByteCount());
+      for (var chunkId : chunkIds) {
+        var chunk = chunks.get(chunkId);
+
+        if (chunk == null) {
+          // Replaced by a concurrent write since the entry was read.
+          logger.atWarning().log("missing snapshot chunk %s of %s", chunkId, entry);
+          return Optional.empty();
+        }
+
+        snapshot.writeBytes(chunk.getData());
+      }
+
+      return Optional.of(snapshot.toByteArray());
+    }
+
+    @Override
+    public void write(
+        long floodlightConfigurationId, long contentFingerprint, byte[] compressedSnapshot) {
+      // Random generations keep concurrent writers from overwriting each other's chunks.
+      long generation = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+
+      var chunks = new ArrayList<BundleSnapshotChunk>();
+      for (int offset = 0; offset < compressedSnapshot.length; offset += MAX_CHUNK_BYTES) {
+        chunks.add(
+            new BundleSnapshotChunk(
+                floodlightConfigurationId,
+                generation,
+                chunks.size(),
+                Arrays.copyOfRange(
+                    compressedSnapshot,
+                    offset,
+                    Math.min(compressedSnapshot.length, offset + MAX_CHUNK_BYTES))));
+      }
+      ofy().save().entities(chunks).now();
+
+      var entry =
+          new BundleSnapshotEntry(
+              floodlightConfigurationId,
+              generation,
+              chunks.size(),
+              compressedSnapshot.length,
+              contentFingerprint,
+              DateTime.now(DateTimeZone.UTC));
+
+      BundleSnapshotEntry previousEntry =
+          ofy()
+              .transact(
+                  () -> {
+                    var currentEntry =
+                        ofy()
+                            .load()
+                            .type(BundleSnapshotEntry.class)
+                            .id(floodlightConfigurationId)
+                            .now();
+                    ofy().save().entity(entry).now();
+                    return currentEntry;
+                  });
+
+      if (previousEntry != null) {
+        ofy().delete().type(BundleSnapshotChunk.class).ids(chunkIds(previousEntry)).now();
+      }
+
+      logger.atInfo().log("stored snapshot %s", entry);
+    }
+
+    private static ImmutableList<String> chunkIds(BundleSnapshotEntry entry) {
+      return IntStream.range(0, entry.getChunkCount())
+          .mapToObj(
+              index ->
+                  BundleSnapshotChunk.chunkId(
+                      entry.getFloodlightConfigurationId(), entry.getGeneration(), index))
+          .collect(toImmutableList());
+    }
+  }
+
+  /**
+   * Stand-in for local runs, storing each snapshot as a file prefixed with its content
+   * fingerprint. Files are replaced atomically.
+   */
+  final class LocalBundleSnapshotStore implements BundleSnapshotStore {
+
+    private final Path directory;
+
+    public LocalBundleSnapshotStore(Path directory) {
+      this.directory = directory;
+    }
+
+    @Override
+    public OptionalLong readContentFingerprint(long floodlightConfigurationId)
+        throws IOException {
+      try (var input =
+          new DataInputStream(Files.newInputStream(snapshotFile(floodlightConfigurationId)))) {
+        return OptionalLong.of(input.readLong());
+      } catch (NoSuchFileException noFileException) {
+        return OptionalLong.empty();
+      }
+    }
+
+    @Override
+    public Optional<byte[]> read(long floodlightConfigurationId) throws IOException {
+      try (var input =
+          new DataInputStream(Files.newInputStream(snapshotFile(floodlightConfigurationId)))) {
+        input.readLong();
+        return Optional.of(input.readAllBytes());
+      } catch (NoSuchFileException noFileException) {
+        return Optional.empty();
+      }
+    }
+
+    @Override
+    public void write(
+        long floodlightConfigurationId, long contentFingerprint, byte[] compressedSnapshot)
+        throws IOException {
+      Files.createDirectories(directory);
+      var tempFile = Files.createTempFile(directory, "floody-snapshot-", ".tmp");
+
+      try {
+        try (var output = new DataOutputStream(Files.newOutputStream(tempFile))) {
+          output.writeLong(contentFingerprint);
+          output.write(compressedSnapshot);
+        }
+
+        Files.move(
+            tempFile,
+            snapshotFile(floodlightConfigurationId),
+            StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(tempFile);
+      }
+    }
+
+    private Path snapshotFile(long floodlightConfigurationId) {
+      return directory.resolve(
+          String.format("floodlight-configuration-%d.snapshot", floodlightConfigurationId));
+    }
+  }
+}
@@ -18,7 +18,13 @@ package com.google.floody.service;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.floody.model.BundleSnapshotChunk;
+import com.google.floody.model.BundleSnapshotEntry;
 import com.google.floody.model.GtmExport;
+import com.google.floody.model.PooledSpreadsheet;
+import com.google.floody.model.SheetLease;
+import com.google.floody.model.SheetWatch;
+import com.google.floody.model.SheetWatchChunk;
 import com.googlecode.objectify.Objectify;
 import com.googlecode.objectify.ObjectifyFactory;
 import com.googlecode.objectify.ObjectifyService;
@@ -30,7 +36,13 @@ public final class DatastoreService {
   }
 
   public static void registerEntities() {
+    ObjectifyService.register(BundleSnapshotChunk.class);
+    ObjectifyService.register(BundleSnapshotEntry.class);
     ObjectifyService.register(GtmExport.class);
+    ObjectifyService.register(PooledSpreadsheet.class);
+    ObjectifyService.register(SheetLease.class);
+    ObjectifyService.register(SheetWatch.class);
+    ObjectifyService.register(SheetWatchChunk.class);
   }
 
   /**
@@ -18,22 +18,39 @@ package com.google.floody.service;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
 import com.google.api.services.dfareporting.Dfareporting;
 import com.google.api.services.dfareporting.model.FloodlightActivityGroup;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Streams;
 import com.google.common.flogger.GoogleLogger;
 import com.google.floody.model.FloodyGroup;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public final class DcmActivityGroupWriter {
 
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
   private static final String VALID_GROUP_TAG_STRING_PATTERN = "^[A-Za-z0-9-_]{1,8}$";
 
+  /** Number of group inserts sent in a single batch request. */
+  private static final int MAX_GROUPS_PER_BATCH = 50;
+
   private final long profileId;
   private final long floodlightConfigurationId;
   private final Dfareporting dcmService;
@@ -55,9 +72,88 @@ public final class DcmActivityGroupWriter {
     this.floodlightConfigurationId = floodlightConfigurationId;
   }
 
+  /**
+   * Creates all the given groups in DCM using batched requests, the batches are sent concurrently.
+   *
+   * @param groupsToCreate the groups to create in the Floodlight configuration
+   * @return the groups with DCM assigned ids or creation remarks, in the same order as input.
+   */
   public ImmutableSet<FloodyGroup> createBulkActivityGroups(
       ImmutableSet<FloodyGroup> groupsToCreate) {
-    return groupsToCreate.stream().map(this::createNewActivityGroup).collect(toImmutableSet());
+    return createBulkActivityGroupsAsync(groupsToCreate, FloodyExecutors.apiCallExecutor()).join();
+  }
+
+  /**
+   * Starts creating the given groups in DCM and returns without waiting for DCM to respond. This
+   * allows callers to write activities of existing groups while the new groups are being created.
+   *
+   * @param groupsToCreate the groups to create in the Floodlight configuration
+   * @param executor the executor to send the batch requests on
+   * @return future that completes when all groups are processed, the groups in the result are in
+   *     the same order as input.
+   */
+  public CompletableFuture<ImmutableSet<FloodyGroup>> createBulkActivityGroupsAsync(
+      ImmutableSet<FloodyGroup> groupsToCreate, Executor executor) {
+
+    ImmutableList<CompletableFuture<ImmutableMap<FloodyGroup, FloodyGroup>>> batchFutures =
+        Streams.stream(Iterables.partition(groupsToCreate, MAX_GROUPS_PER_BATCH))
+            .map(batch -> CompletableFuture.supplyAsync(() -> createGroupsBatch(batch), executor))
+            .collect(toImmutableList());
+
+    return CompletableFuture.allOf(batchFutures.toArray(CompletableFuture[]::new))
+        .thenApply(
+            unused -> {
+              var createdGroups = new HashMap<FloodyGroup, FloodyGroup>();
+              batchFutures.forEach(future -> createdGroups.putAll(future.join()));
+
+              return groupsToCreate.stream().map(createdGroups::get).collect(toImmutableSet());
+            });
+  }
+
+  /**
+   * Sends a single batch request to create all the valid groups.
+   *
+   * @return map of the input groups to the processed groups.
+   */
+  private ImmutableMap<FloodyGroup, FloodyGroup> createGroupsBatch(List<FloodyGroup> groups) {
+    var processedGroups = new LinkedHashMap<FloodyGroup, FloodyGroup>();
+    var batchRequest = dcmService.batch();
+
+    for (FloodyGroup floodyGroup : groups) {
+      StringBuilder remarksBuilder = new StringBuilder();
+
+      if (!isValidFloodyGroup(floodyGroup, remarksBuilder)) {
+        processedGroups.put(
+            floodyGroup,
+            floodyGroup.toBuilder().creationRemarks(remarksBuilder.toString()).build());
+        continue;
+      }
+
+      try {
+        dcmService
+            .floodlightActivityGroups()
+            .insert(profileId, buildDcmGroup(floodyGroup))
+            .queue(batchRequest, new GroupInsertCallback(floodyGroup, processedGroups));
+      } catch (IOException ioexception) {
+        processedGroups.put(floodyGroup, withCreationError(floodyGroup, ioexception.getMessage()));
+      }
+    }
+
+    try {
+      if (batchRequest.size() > 0) {
+        batchRequest.execute();
+      }
+    } catch (IOException ioexception) {
+      logger.atSevere().withCause(ioexception).log("error creating groups batch: %s", groups);
+
+      groups.stream()
+          .filter(group -> !processedGroups.containsKey(group))
+          .forEach(
+              group ->
+                  processedGroups.put(group, withCreationError(group, ioexception.getMessage())));
+    }
+
+    return ImmutableMap.copyOf(processedGroups);
   }
 
   public FloodyGroup createNewActivityGroup(FloodyGroup floodyGroup) {
@@ -65,12 +161,7 @@ public final class DcmActivityGroupWriter {
     FloodyGroup.Builder groupBuilder = floodyGroup.toBuilder();
 
     if (isValidFloodyGroup(floodyGroup, remarksBuilder)) {
-      FloodlightActivityGroup group =
-          new FloodlightActivityGroup()
-              .setFloodlightConfigurationId(floodlightConfigurationId)
-              .setName(extractGroupName(floodyGroup))
-              .setTagString(floodyGroup.tagString())
-              .setType(floodyGroup.type().name());
+      FloodlightActivityGroup group = buildDcmGroup(floodyGroup);
 
       try {
 
@@ -85,6 +176,49 @@ public final class DcmActivityGroupWriter {
     return groupBuilder.creationRemarks(remarksBuilder.toString()).build();
   }
 
+  private FloodlightActivityGroup buildDcmGroup(FloodyGroup floodyGroup) {
+    return new FloodlightActivityGroup()
+        .setFloodlightConfigurationId(floodlightConfigurationId)
+        .setName(extractGroupName(floodyGroup))
+        .setTagString(floodyGroup.tagString())
+        .setType(floodyGroup.type().name());
+  }
+
+  private static FloodyGroup withCreationError(FloodyGroup floodyGroup, String errorMessage) {
+    return floodyGroup.toBuilder().creationRemarks(errorMessage + "\n").build();
+  }
+
+  /** Receives the batch API response and records the created group against the input group. */
+  private static final class GroupInsertCallback
+      extends JsonBatchCallback<FloodlightActivityGroup> {
+
+    private final FloodyGroup floodyGroup;
+    private final Map<FloodyGroup, FloodyGroup> processedGroups;
+
+    GroupInsertCallback(FloodyGroup floodyGroup, Map<FloodyGroup, FloodyGroup> processedGroups) {
+      this.floodyGroup = floodyGroup;
+      this.processedGroups = processedGroups;
+    }
+
+    @Override
+    public void onSuccess(FloodlightActivityGroup group, HttpHeaders responseHeaders) {
+      processedGroups.put(
+          floodyGroup,
+          floodyGroup.toBuilder()
+              .id(group.getId())
+              .name(group.getName())
+              .tagString(group.getTagString())
+              .creationRemarks("")
+              .build());
+    }
+
+    @Override
+    public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+      logger.atSevere().log("error Creating Group: %s\n%s", floodyGroup, error);
+      processedGroups.put(floodyGroup, withCreationError(floodyGroup, error.getMessage()));
+    }
+  }
+
   /** Returns the ActivityGroup's name or a random name for Activity Group. */
   private static String extractGroupName(FloodyGroup floodyGroup) {
     return isBlank(floodyGroup.name())
@@ -16,31 +16,63 @@
 
 package com.google.floody.service;
 
+import static com.google.common.base.Strings.nullToEmpty;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.http.HttpHeaders;
 import com.google.api.services.dfareporting.Dfareporting;
+import com.google.api.services.dfareporting.DfareportingRequest;
 import com.google.api.services.dfareporting.model.FloodlightActivity;
 import com.google.api.services.dfareporting.model.RemarketingList;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.flogger.GoogleLogger;
 import com.google.floody.model.SheetFloody;
 import com.google.floody.transforms.FloodyToActivityTransformer;
+import com.google.floody.transforms.ParallelTransforms;
 import java.io.IOException;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Micro Service to Create/Update Floodlight Activity in DCM. */
 public final class DcmActivityWriter {
 
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
 
+  /** Number of activity or audience writes sent in a single batch request. */
+  private static final int MAX_OPERATIONS_PER_BATCH = 50;
+
   private final Dfareporting dcmService;
   private final long profileId;
   private final FloodyToActivityTransformer transformer;
+  private final ExportProgressListener progressListener;
 
   public DcmActivityWriter(
       long profileId, Dfareporting dcmService, FloodyToActivityTransformer transformer) {
+    this(profileId, dcmService, transformer, ExportProgressListener.NO_OP);
+  }
+
+  /**
+   * Builds a writer reporting the outcome of each batched write as soon as its batch completes.
+   */
+  public DcmActivityWriter(
+      long profileId,
+      Dfareporting dcmService,
+      FloodyToActivityTransformer transformer,
+      ExportProgressListener progressListener) {
     this.dcmService = dcmService;
     this.profileId = profileId;
     this.transformer = transformer;
+    this.progressListener = progressListener;
   }
 
   public SheetFloody update(SheetFloody floody) {
@@ -59,34 +91,8 @@ public final class DcmActivityWriter {
           transformer.buildActivityFromFloody(floody, remarksBuilder);
 
       if (updatedActivity != null) {
-        if (floody.getId() == null) {
-          // Create New Floodlight Activity
-          updatedActivity =
-              dcmService.floodlightActivities().insert(profileId, updatedActivity).execute();
-        } else {
-          // Update activity
-          updatedActivity =
-              dcmService
-                  .floodlightActivities()
-                  .patch(profileId, floody.getId(), updatedActivity)
-                  .execute();
-        }
-
-        // Update the SheetFloody with current information
-        floodyBuilder
-            .setId(updatedActivity.getId())
-            .setToBeUpdated(false) // Flip to false if successfully updated DCM
-            .setAccountId(updatedActivity.getAccountId())
-            .setFloodlightConfigurationId(updatedActivity.getFloodlightConfigurationId())
-            .setGroupName(updatedActivity.getFloodlightActivityGroupName())
-            .setGroupTagString(updatedActivity.getFloodlightActivityGroupTagString())
-            .setTagString(updatedActivity.getTagString());
-
-        // Update remarks
-        remarksBuilder
-            .append("updated by Floody on ")
-            .append(
-                ZonedDateTime.now(ZoneOffset.UTC).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        updatedActivity = buildWriteRequest(floody, updatedActivity).execute();
+        applyWrittenActivity(floodyBuilder, remarksBuilder, updatedActivity);
 
         // Create Audience if requested by user.
         if (floody.isAutoCreateAudience()) {
@@ -94,22 +100,313 @@ public final class DcmActivityWriter {
               new DcmAudienceService(dcmService, profileId)
                   .createAudienceListForActivity(updatedActivity, floody.getAudienceLifespan());
 
-          remarksBuilder
-              .append("\nAudience List created (")
-              .append(remarketingList.getId())
-              .append(", membership: ")
-              .append(remarketingList.getLifeSpan())
-              .append(" days")
-              .append(")\n");
+          appendAudienceRemarks(remarksBuilder, remarketingList);
         }
       }
     } catch (IOException ioexception) {
       logger.atSevere().withCause(ioexception).log(
           "error creating activity: {src: %s, tagString: %s, groupId: %s}\n",
           floody.getFloodlightConfigurationId(), floody.getTagString(), floody.getGroupTagString());
-      remarksBuilder.append("\nActivity Writing had an error: ").append(ioexception.getMessage());
+      appendErrorRemarks(remarksBuilder, ioexception.getMessage());
     }
 
     return floodyBuilder.setRemarks(remarksBuilder.toString()).build();
   }
+
+  /**
+   * Writes the floodies to DCM using batch requests, the batches are sent concurrently. The
+   * floodies not marked for update are returned as-is.
+   *
+   * @param floodies the floodies to insert or patch in DCM
+   * @param executor the executor to send the batch requests on
+   * @return future with results in the same order as the input floodies
+   */
+  CompletableFuture<ImmutableList<ActivityWriteResult>> writeAllAsync(
+      List<SheetFloody> floodies, Executor executor) {
+    // Transform and validate all the floodies first, the batches then only send the requests.
+    ImmutableList<PreparedWrite> preparedWrites =
+        ParallelTransforms.map(floodies, this::prepareWrite);
+
+    return runBatchesAsync(preparedWrites, this::writeBatch, executor);
+  }
+
+  /**
+   * Creates audience lists for the written activities that requested an audience, using batch
+   * requests.
+   *
+   * @param writeResults the results of the activity writes
+   * @param executor the executor to send the batch requests on
+   * @return future with the updated results in the same order as input
+   */
+  CompletableFuture<ImmutableList<ActivityWriteResult>> createAudiencesAsync(
+      List<ActivityWriteResult> writeResults, Executor executor) {
+    return runBatchesAsync(writeResults, this::createAudiencesBatch, executor);
+  }
+
+  private static <T> CompletableFuture<ImmutableList<ActivityWriteResult>> runBatchesAsync(
+      List<T> items,
+      Function<List<T>, ImmutableList<ActivityWriteResult>> batchProcessor,
+      Executor executor) {
+    ImmutableList<CompletableFuture<ImmutableList<ActivityWriteResult>>> batchFutures =
+        Lists.partition(items, MAX_OPERATIONS_PER_BATCH).stream()
+            .map(
+                batch -> CompletableFuture.supplyAsync(() -> batchProcessor.apply(batch), executor))
+            .collect(toImmutableList());
+
+    return CompletableFuture.allOf(batchFutures.toArray(CompletableFuture[]::new))
+        .thenApply(
+            unused ->
+                batchFutures.stream()
+                    .map(CompletableFuture::join)
+                    .flatMap(ImmutableList::stream)
+                    .collect(toImmutableList()));
+  }
+
+  private PreparedWrite prepareWrite(SheetFloody floody) {
+    if (!floody.isToBeUpdated()) {
+      return PreparedWrite.done(ActivityWriteResult.notWritten(floody));
+    }
+
+    var remarksBuilder = new StringBuilder();
+
+    try {
+      FloodlightActivity activity = transformer.buildActivityFromFloody(floody, remarksBuilder);
+
+      if (activity == null) {
+        return PreparedWrite.done(
+            ActivityWriteResult.notWritten(withRemarks(floody, remarksBuilder)));
+      }
+
+      return PreparedWrite.toWrite(floody, activity, remarksBuilder);
+    } catch (RuntimeException exception) {
+      appendErrorRemarks(remarksBuilder, exception.getMessage());
+      return PreparedWrite.done(
+          ActivityWriteResult.notWritten(withRemarks(floody, remarksBuilder)));
+    }
+  }
+
+  private ImmutableList<ActivityWriteResult> writeBatch(List<PreparedWrite> preparedWrites) {
+    var results = new ActivityWriteResult[preparedWrites.size()];
+    var batchRequest = dcmService.batch();
+
+    for (int index = 0; index < preparedWrites.size(); index++) {
+      var preparedWrite = preparedWrites.get(index);
+
+      if (preparedWrite.result != null) {
+        results[index] = preparedWrite.result;
+        continue;
+      }
+
+      var floody = preparedWrite.floody;
+      var remarksBuilder = preparedWrite.remarksBuilder;
+
+      try {
+        final int resultIndex = index;
+        buildWriteRequest(floody, preparedWrite.activity)
+            .queue(
+                batchRequest,
+                new JsonBatchCallback<FloodlightActivity>() {
+                  @Override
+                  public void onSuccess(FloodlightActivity written, HttpHeaders responseHeaders) {
+                    var floodyBuilder = floody.toBuilder();
+                    applyWrittenActivity(floodyBuilder, remarksBuilder, written);
+                    results[resultIndex] =
+                        ActivityWriteResult.create(
+                            floodyBuilder.setRemarks(remarksBuilder.toString()).build(), written);
+                  }
+
+                  @Override
+                  public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                    logger.atSevere().log(
+                        "error creating activity: {src: %s, tagString: %s, groupId: %s}\n%s",
+                        floody.getFloodlightConfigurationId(),
+                        floody.getTagString(),
+                        floody.getGroupTagString(),
+                        error);
+                    appendErrorRemarks(remarksBuilder, error.getMessage());
+                    results[resultIndex] =
+                        ActivityWriteResult.notWritten(withRemarks(floody, remarksBuilder));
+                  }
+                });
+      } catch (IOException | RuntimeException exception) {
+        appendErrorRemarks(remarksBuilder, exception.getMessage());
+        results[index] = ActivityWriteResult.notWritten(withRemarks(floody, remarksBuilder));
+      }
+    }
+
+    executeBatch(batchRequest);
+
+    for (int index = 0; index < preparedWrites.size(); index++) {
+      if (results[index] == null) {
+        var preparedWrite = preparedWrites.get(index);
+        appendErrorRemarks(preparedWrite.remarksBuilder, "no response from DCM");
+        results[index] =
+            ActivityWriteResult.notWritten(
+                withRemarks(preparedWrite.floody, preparedWrite.remarksBuilder));
+      }
+    }
+
+    // Report the outcomes of the activities marked for update as soon as their batch completes.
+    for (var result : results) {
+      if (result.isWritten() || result.floody().isToBeUpdated()) {
+        progressListener.onActivity(result.floody(), result.isWritten(), /*audience=*/ false);
+      }
+    }
+
+    return ImmutableList.copyOf(results);
+  }
+
+  private ImmutableList<ActivityWriteResult> createAudiencesBatch(
+      List<ActivityWriteResult> writeResults) {
+    var results = new ActivityWriteResult[writeResults.size()];
+    var created = new boolean[writeResults.size()];
+    var batchRequest = dcmService.batch();
+    var audienceService = new DcmAudienceService(dcmService, profileId);
+
+    for (int index = 0; index < writeResults.size(); index++) {
+      var writeResult = writeResults.get(index);
+      var floody = writeResult.floody();
+      results[index] = writeResult;
+
+      if (!writeResult.isWritten() || !floody.isAutoCreateAudience()) {
+        continue;
+      }
+
+      final int resultIndex = index;
+      var remarksBuilder = new StringBuilder(nullToEmpty(floody.getRemarks()));
+
+      try {
+        audienceService
+            .buildAudienceListInsertRequest(writeResult.activity(), floody.getAudienceLifespan())
+            .queue(
+                batchRequest,
+                new JsonBatchCallback<RemarketingList>() {
+                  @Override
+                  public void onSuccess(
+                      RemarketingList remarketingList, HttpHeaders responseHeaders) {
+                    appendAudienceRemarks(remarksBuilder, remarketingList);
+                    created[resultIndex] = true;
+                    results[resultIndex] =
+                        ActivityWriteResult.create(
+                            withRemarks(floody, remarksBuilder), writeResult.activity());
+                  }
+
+                  @Override
+                  public void onFailure(GoogleJsonError error, HttpHeaders responseHeaders) {
+                    logger.atSevere().log(
+                        "error creating audience for activity (%s)\n%s", floody.getId(), error);
+                    appendErrorRemarks(remarksBuilder, error.getMessage());
+                    results[resultIndex] =
+                        ActivityWriteResult.create(
+                            withRemarks(floody, remarksBuilder), writeResult.activity());
+                  }
+                });
+      } catch (IOException ioexception) {
+        appendErrorRemarks(remarksBuilder, ioexception.getMessage());
+        results[index] =
+            ActivityWriteResult.create(
+                withRemarks(floody, remarksBuilder), writeResult.activity());
+      }
+    }
+
+    executeBatch(batchRequest);
+
+    for (int index = 0; index < writeResults.size(); index++) {
+      if (writeResults.get(index).isWritten() && results[index].floody().isAutoCreateAudience()) {
+        progressListener.onActivity(results[index].floody(), created[index], /*audience=*/ true);
+      }
+    }
+
+    return ImmutableList.copyOf(results);
+  }
+
+  private static void executeBatch(BatchRequest batchRequest) {
+    try {
+      if (batchRequest.size() > 0) {
+        batchRequest.execute();
+      }
+    } catch (IOException ioexception) {
+      logger.atSevere().withCause(ioexception).log(
+          "error executing batch of (%s) requests", batchRequest.size());
+    }
+  }
+
+  private DfareportingRequest<FloodlightActivity> buildWriteRequest(
+      SheetFloody floody, FloodlightActivity activity) throws IOException {
+    if (floody.getId() == null) {
+      // Create New Floodlight Activity
+      return dcmService.floodlightActivities().insert(profileId, activity);
+    }
+
+    // Update activity
+    return dcmService.floodlightActivities().patch(profileId, floody.getId(), activity);
+  }
+
+  /** Updates the SheetFloody with current information from DCM. */
+  private static void applyWrittenActivity(
+      SheetFloody.Builder floodyBuilder,
+      StringBuilder remarksBuilder,
+      FloodlightActivity updatedActivity) {
+    floodyBuilder
+        .setId(updatedActivity.getId())
+        .setToBeUpdated(false) // Flip to false if successfully updated DCM
+        .setAccountId(updatedActivity.getAccountId())
+        .setFloodlightConfigurationId(updatedActivity.getFloodlightConfigurationId())
+        .setGroupName(updatedActivity.getFloodlightActivityGroupName())
+        .setGroupTagString(updatedActivity.getFloodlightActivityGroupTagString())
+        .setTagString(updatedActivity.getTagString());
+
+    // Update remarks
+    remarksBuilder
+        .append("updated by Floody on ")
+        .append(ZonedDateTime.now(ZoneOffset.UTC).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+  }
+
+  private static void appendAudienceRemarks(
+      StringBuilder remarksBuilder, RemarketingList remarketingList) {
+    remarksBuilder
+        .append("\nAudience List created (")
+        .append(remarketingList.getId())
+        .append(", membership: ")
+        .append(remarketingList.getLifeSpan())
+        .append(" days")
+        .append(")\n");
+  }
+
+  private static void appendErrorRemarks(StringBuilder remarksBuilder, String errorMessage) {
+    remarksBuilder.append("\nActivity Writing had an error: ").append(errorMessage);
+  }
+
+  private static SheetFloody withRemarks(SheetFloody floody, StringBuilder remarksBuilder) {
+    return floody.toBuilder().setRemarks(remarksBuilder.toString()).build();
+  }
+
+  /** A floody transformed and validated for writing, or its result if it is not to be written. */
+  private static final class PreparedWrite {
+
+    private final SheetFloody floody;
+    @Nullable private final FloodlightActivity activity;
+    private final StringBuilder remarksBuilder;
+    @Nullable private final ActivityWriteResult result;
+
+    private PreparedWrite(
+        SheetFloody floody,
+        @Nullable FloodlightActivity activity,
+        StringBuilder remarksBuilder,
+        @Nullable ActivityWriteResult result) {
+      this.floody = floody;
+      this.activity = activity;
+      this.remarksBuilder = remarksBuilder;
+      this.result = result;
+    }
+
+    static PreparedWrite toWrite(
+        SheetFloody floody, FloodlightActivity activity, StringBuilder remarksBuilder) {
+      return new PreparedWrite(floody, activity, remarksBuilder, null);
+    }
+
+    static PreparedWrite done(ActivityWriteResult result) {
+      return new PreparedWrite(result.floody(), null, new StringBuilder(), result);
+    }
+  }
 }
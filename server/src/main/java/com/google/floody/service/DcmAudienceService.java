@@ -64,6 +64,19 @@ public class DcmAudienceService {
    */
   public RemarketingList createAudienceListForActivity(FloodlightActivity activity, Period lifespan)
       throws IOException {
+    return buildAudienceListInsertRequest(activity, lifespan).execute();
+  }
+
+  /**
+   * Builds the request to create a new Remarketing List for the provided Activity, the request can
+   * be executed directly or queued in a batch request.
+   *
+   * @param activity the floodlight Activity for which to create an audience list.
+   * @param lifespan the membership lifespan for the given activity.
+   * @throws IOException when there is an issue in building the request.
+   */
+  Dfareporting.RemarketingLists.Insert buildAudienceListInsertRequest(
+      FloodlightActivity activity, Period lifespan) throws IOException {
 
     RemarketingList activityBasedAudienceList = new RemarketingList();
     String currentTimestampString = DATE_TIME_FORMATTER.format(ZonedDateTime.now(clock));
@@ -80,6 +93,6 @@ public class DcmAudienceService {
                 .replaceAll("\\{timestamp\\}", currentTimestampString))
         .setListPopulationRule(new ListPopulationRule().setFloodlightActivityId(activity.getId()));
 
-    return dcmService.remarketingLists().insert(profileId, activityBasedAudienceList).execute();
+    return dcmService.remarketingLists().insert(profileId, activityBasedAudienceList);
   }
 }
@@ -21,6 +21,7 @@ import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
 import com.google.api.services.dfareporting.Dfareporting;
 import com.google.api.services.dfareporting.model.FloodlightActivityGroupsListResponse;
+import com.google.api.services.dfareporting.model.FloodlightConfiguration;
 import com.google.api.services.dfareporting.model.UserDefinedVariableConfiguration;
 import com.google.common.collect.ImmutableSet;
 import com.google.floody.model.FloodyGroup;
@@ -86,18 +87,32 @@ public final class DcmFloodlightConfigurationReaderService {
    * @throws IOException if error in fetching results from DCM API
    */
   public ImmutableSet<SheetCustomVariable> retrieveAllCustomVariables() throws IOException {
+    return extractCustomVariables(retrieveFloodlightConfiguration());
+  }
+
+  /**
+   * Retrieves the Floodlight configuration's account, advertiser and user defined variables
+   * information.
+   *
+   * @throws IOException if error in fetching results from DCM API
+   */
+  public FloodlightConfiguration retrieveFloodlightConfiguration() throws IOException {
     checkArgument(
         floodlightConfigurationId != null && floodlightConfigurationId > 0,
         "floodlightConfigurationId is invalid");
 
+    return service
+        .floodlightConfigurations()
+        .get(profileId, floodlightConfigurationId)
+        .setFields("id,accountId,advertiserId,userDefinedVariableConfigurations")
+        .execute();
+  }
+
+  /** Returns the custom variables' names defined in the given Floodlight configuration. */
+  public static ImmutableSet<SheetCustomVariable> extractCustomVariables(
+      FloodlightConfiguration floodlightConfiguration) {
     Optional<List<UserDefinedVariableConfiguration>> userDefinedVariableConfigurations =
-        Optional.ofNullable(
-            service
-                .floodlightConfigurations()
-                .get(profileId, floodlightConfigurationId)
-                .setFields("userDefinedVariableConfigurations")
-                .execute()
-                .getUserDefinedVariableConfigurations());
+        Optional.ofNullable(floodlightConfiguration.getUserDefinedVariableConfigurations());
 
     return userDefinedVariableConfigurations
         .map(
@@ -19,10 +19,18 @@ package com.google.floody.service;
 import com.google.api.services.dfareporting.Dfareporting;
 import com.google.api.services.dfareporting.model.FloodlightActivitiesListResponse;
 import com.google.api.services.dfareporting.model.FloodlightActivity;
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableList;
+import com.google.floody.model.DefaultTag;
 import com.google.floody.model.FloodyBundle;
+import com.google.floody.model.SheetDefaultTag;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.model.SheetPublisherTag;
+import com.google.floody.transforms.ActivityToFloodyTransformer;
+import com.google.floody.transforms.FloodlightActivityPublisherDynamicTagToPublisherTagAdapter;
 import com.google.floody.transforms.FloodlightActivityToBundleTransformer;
+import com.google.floody.transforms.TagIdAssigner;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Floodlight Activity service to build {@link FloodyBundle} from all {@link FloodlightActivity} of
@@ -54,11 +62,75 @@ public final class DcmFloodyReader {
    * @throws IOException when there is DCM API errors
    */
   public FloodyBundleManager loadFor(long dcmProfileId) throws IOException {
-    ImmutableSet.Builder<FloodlightActivity> allFloodiesBuilder = ImmutableSet.builder();
+    // Load the reference data concurrently with the paged activities.
+    var referenceSnapshotFuture =
+        FloodyExecutors.supplyAsync(
+            () ->
+                DcmReferenceSnapshot.load(dfaService, dcmProfileId, dcmFloodlightConfigurationId));
+
+    // Transform each page as it arrives, the raw activities are not retained.
+    var bundleTransformer = new FloodlightActivityToBundleTransformer();
+
+    DcmReferenceSnapshot referenceSnapshot;
+    try {
+      String nextPageToken = null;
+      do {
+        // Extract all Floodlight activities by iterating over next page tokens
+        FloodlightActivitiesListResponse response =
+            dfaService
+                .floodlightActivities()
+                .list(dcmProfileId)
+                .setFloodlightConfigurationId(dcmFloodlightConfigurationId)
+                .setPageToken(nextPageToken)
+                .execute();
+
+        nextPageToken = response.getNextPageToken();
+
+        bundleTransformer.add(
+            Optional.ofNullable(response.getFloodlightActivities()).orElseGet(ImmutableList::of));
+      } while (nextPageToken != null);
+
+      referenceSnapshot = FloodyExecutors.join(referenceSnapshotFuture);
+    } catch (IOException | RuntimeException exception) {
+      // Don't leave the spilled activities of the pages read so far on disk.
+      bundleTransformer.discard();
+      throw exception;
+    }
+
+    FloodyBundle allFloodiesBundle =
+        bundleTransformer
+            .getBundleBuilder()
+            .setCustomVariables(referenceSnapshot.getCustomVariables())
+            .setFloodyGroups(referenceSnapshot.getGroups())
+            .build();
+
+    return FloodyBundleManager.builder()
+        .setBundle(allFloodiesBundle)
+        .setProfileId(dcmProfileId)
+        .setFloodlightConfigurationId(dcmFloodlightConfigurationId)
+        .build();
+  }
+
+  /**
+   * Streams all {@link FloodlightActivity} items of the floodlightConfiguration page by page,
+   * without building a bundle in memory.
+   *
+   * <p>The Default and Publisher tags are de-duplicated as they are encountered and passed to the
+   * consumer before the first activity using them. The tag ids are the same as the ones assigned by
+   * {@link #loadFor(long)}.
+   *
+   * @param dcmProfileId the DCM user profile to use for reading
+   * @param consumer the receiver of the tags and the activities
+   * @throws IOException when there is DCM API errors or the consumer fails
+   */
+  public void streamFor(long dcmProfileId, FloodyStreamConsumer consumer) throws IOException {
+    var defaultTagIds = TagIdAssigner.forDefaultTags();
+    var publisherTagIds = TagIdAssigner.forPublisherTags();
+    var floodyTransformer =
+        new ActivityToFloodyTransformer(defaultTagIds.asMap(), publisherTagIds.asMap());
 
     String nextPageToken = null;
     do {
-      // Extract all Floodlight activities by iterating over next page tokens
       FloodlightActivitiesListResponse response =
           dfaService
               .floodlightActivities()
@@ -69,24 +141,49 @@ public final class DcmFloodyReader {
 
       nextPageToken = response.getNextPageToken();
 
-      allFloodiesBuilder.addAll(response.getFloodlightActivities());
+      for (FloodlightActivity activity :
+          Optional.ofNullable(response.getFloodlightActivities()).orElseGet(ImmutableList::of)) {
+
+        for (var dynamicTag :
+            Optional.ofNullable(activity.getDefaultTags()).orElseGet(ImmutableList::of)) {
+          var defaultTag = DefaultTag.fromDynamicTag(dynamicTag);
+          Long tagId = defaultTagIds.assignIfAbsent(defaultTag);
+          if (tagId != null) {
+            consumer.acceptDefaultTag(SheetDefaultTag.fromDefaultTagWithId(tagId, defaultTag));
+          }
+        }
+
+        for (var dynamicTag :
+            Optional.ofNullable(activity.getPublisherTags()).orElseGet(ImmutableList::of)) {
+          var publisherTag =
+              FloodlightActivityPublisherDynamicTagToPublisherTagAdapter.transform(dynamicTag);
+          Long tagId = publisherTagIds.assignIfAbsent(publisherTag);
+          if (tagId != null) {
+            consumer.acceptPublisherTag(
+                SheetPublisherTag.fromPublisherTagWithId(tagId, publisherTag));
+          }
+        }
+
+        SheetFloody floody = floodyTransformer.buildFloodyFromActivity(activity);
+        if (floody != null) {
+          consumer.acceptFloody(floody);
+        }
+      }
+
+      consumer.endOfPage();
     } while (nextPageToken != null);
+  }
 
-    var floodlightConfigReader =
-        new DcmFloodlightConfigurationReaderService(
-            dfaService, dcmProfileId, dcmFloodlightConfigurationId);
+  /** Receiver of the streamed tags and activities, called in the order of the DCM pages. */
+  public interface FloodyStreamConsumer {
 
-    FloodyBundle allFloodiesBundle =
-        new FloodlightActivityToBundleTransformer(allFloodiesBuilder.build())
-            .getBundleBuilder()
-            .setCustomVariables(floodlightConfigReader.retrieveAllCustomVariables())
-            .setFloodyGroups(floodlightConfigReader.retrieveAllActivityGroupsMap())
-            .build();
+    void acceptDefaultTag(SheetDefaultTag defaultTag) throws IOException;
 
-    return FloodyBundleManager.builder()
-        .setBundle(allFloodiesBundle)
-        .setProfileId(dcmProfileId)
-        .setFloodlightConfigurationId(dcmFloodlightConfigurationId)
-        .build();
+    void acceptPublisherTag(SheetPublisherTag publisherTag) throws IOException;
+
+    void acceptFloody(SheetFloody floody) throws IOException;
+
+    /** Called after all the items of a DCM page are passed, e.g. to flush the output. */
+    default void endOfPage() throws IOException {}
   }
 }
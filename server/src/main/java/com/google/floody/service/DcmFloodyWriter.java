@@ -19,93 +19,121 @@ package com.google.floody.service;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
 import com.google.api.services.dfareporting.Dfareporting;
-import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.floody.model.FloodyBundle;
-import com.google.floody.model.FloodyGroup;
-import com.google.floody.model.FloodyGroupMap;
+import com.google.floody.model.SheetActivityKey;
 import com.google.floody.model.SheetFloody;
-import com.google.floody.transforms.BundleToFloodlightActivityTransformer;
-import java.io.IOException;
+import com.google.floody.transforms.FloodyBundleValidator;
+import java.util.Collection;
 
 public final class DcmFloodyWriter {
 
   private final FloodyBundle bundle;
   private final Dfareporting dcmService;
+  private final DcmReferenceSnapshot referenceSnapshot;
   private final long floodlightConfigurationId;
   private final long dcmProfileId;
-
+  private ImmutableList<SheetActivityKey> otherSheetActivities = ImmutableList.of();
+  private ExportProgressListener progressListener = ExportProgressListener.NO_OP;
+
+  /**
+   * Builds a writer to sync the bundle's activities to DCM.
+   *
+   * @param bundle the activities and tags to write to DCM
+   * @param dcmService the DCM service to use
+   * @param referenceSnapshot the job's DCM reference data, it gets updated with created groups
+   */
   public DcmFloodyWriter(
-      long floodlightConfigurationId,
-      long dcmProfileId,
-      FloodyBundle bundle,
-      Dfareporting dcmService) {
-    this.floodlightConfigurationId = floodlightConfigurationId;
-    this.dcmProfileId = dcmProfileId;
+      FloodyBundle bundle, Dfareporting dcmService, DcmReferenceSnapshot referenceSnapshot) {
     this.bundle = bundle;
     this.dcmService = dcmService;
+    this.referenceSnapshot = referenceSnapshot;
+    this.floodlightConfigurationId = referenceSnapshot.getFloodlightConfigurationId();
+    this.dcmProfileId = referenceSnapshot.getProfileId();
+  }
+
+  /**
+   * Validates the bundle's activities against the spreadsheet's other rows too, for bundles read
+   * with {@link SheetsFloodyReader#loadFlagged()}.
+   */
+  public DcmFloodyWriter withOtherSheetActivities(
+      Collection<SheetActivityKey> otherSheetActivities) {
+    this.otherSheetActivities = ImmutableList.copyOf(otherSheetActivities);
+    return this;
   }
 
-  public FloodyBundleManager sync() throws IOException {
+  /** Reports the outcome of every activity write to the listener as its batch completes. */
+  public DcmFloodyWriter withProgressListener(ExportProgressListener progressListener) {
+    this.progressListener = progressListener;
+    return this;
+  }
 
-    var processor = new FloodiesProcessor(dcmProfileId);
+  /**
+   * Plans the DCM writes required to sync the bundle, without executing them.
+   *
+   * @return the operations with their dependencies.
+   */
+  public DcmWritePlan plan() {
+    return planFor(new FloodyBundleValidator(bundle, otherSheetActivities).validate());
+  }
 
-    var updatedGroups = processor.createMissingAndCombineExistingGroups();
-    var updatedFloodies = processor.processFloodies(updatedGroups);
+  /**
+   * Executes the planned writes in batched waves: activities of existing groups are written while
+   * the missing groups are being created, the remaining activities and audiences follow in later
+   * waves.
+   */
+  public FloodyBundleManager sync() {
+    // Activities failing the pre-flight validation are not written and remain marked for update.
+    ImmutableListMultimap<SheetFloody, String> problems =
+        new FloodyBundleValidator(bundle, otherSheetActivities).validate();
+
+    FloodyBundle writtenBundle =
+        new DcmWriteScheduler(
+                bundle,
+                dcmService,
+                referenceSnapshot,
+                FloodyExecutors.apiCallExecutor(),
+                progressListener)
+            .run(planFor(problems));
+
+    FloodyBundle updatedBundle =
+        writtenBundle.withFloodies(
+            writtenBundle.getFloodies().stream()
+                .map(floody -> withValidationRemarks(floody, problems.get(floody)))
+                .collect(toImmutableSet()));
+
+    updatedBundle.getFloodies().stream()
+        .filter(problems::containsKey)
+        .forEach(
+            floody -> progressListener.onActivity(floody, /*written=*/ false, /*audience=*/ false));
 
-    // TODO(anantd) - Export clears custom variables - Retrieve Custom FL Variables and pass on
     return FloodyBundleManager.builder()
         .setProfileId(dcmProfileId)
         .setFloodlightConfigurationId(floodlightConfigurationId)
-        .setBundle(bundle.withFloodies(updatedFloodies).withFloodyGroups(updatedGroups))
+        .setBundle(updatedBundle.withCustomVariables(referenceSnapshot.getCustomVariables()))
         .build();
   }
 
-  private class FloodiesProcessor {
-
-    final long profileId;
-
-    public FloodiesProcessor(long profileId) {
-      this.profileId = profileId;
-    }
-
-    private FloodyGroupMap createMissingAndCombineExistingGroups() throws IOException {
-      ImmutableSet<FloodyGroup> existingGroups = retrieveExistingGroupsFromDcm();
-
-      return FloodyGroupMap.buildFor(
-          Sets.union(existingGroups, createMissingActivityGroups(existingGroups)).immutableCopy());
-    }
-
-    private ImmutableSet<SheetFloody> processFloodies(FloodyGroupMap allGroups) {
-      DcmActivityWriter activityProcessor =
-          new DcmActivityWriter(
-              profileId,
-              dcmService,
-              BundleToFloodlightActivityTransformer.forBundle(bundle.withFloodyGroups(allGroups))
-                  .buildActivityTransformer());
+  /** Plans the writes of the activities without validation problems. */
+  private DcmWritePlan planFor(ImmutableListMultimap<SheetFloody, String> problems) {
+    FloodyBundle validBundle =
+        bundle.withFloodies(
+            bundle.getFloodies().stream()
+                .filter(floody -> !problems.containsKey(floody))
+                .collect(toImmutableSet()));
 
-      return bundle.getFloodies().stream().map(activityProcessor::update).collect(toImmutableSet());
-    }
+    return new DcmWritePlanner(validBundle).plan(referenceSnapshot.getGroups());
+  }
 
-    private ImmutableSet<FloodyGroup> retrieveExistingGroupsFromDcm() throws IOException {
-      return new DcmFloodlightConfigurationReaderService(
-              dcmService, profileId, floodlightConfigurationId)
-          .retrieveAllActivityGroups();
+  private static SheetFloody withValidationRemarks(
+      SheetFloody floody, ImmutableList<String> problems) {
+    if (problems.isEmpty()) {
+      return floody;
     }
 
-    private ImmutableSet<FloodyGroup> createMissingActivityGroups(
-        ImmutableSet<FloodyGroup> existingGroups) throws IOException {
-      ImmutableSet<FloodyGroup> missingGroups =
-          BundleToFloodlightActivityTransformer.forBundle(bundle)
-              .missingActivityGroupBuilder(existingGroups)
-              .getMissingGroups();
-
-      return DcmActivityGroupWriter.builder()
-          .setDcmService(dcmService)
-          .setProfileId(profileId)
-          .setFloodlightConfigurationId(floodlightConfigurationId)
-          .build()
-          .createBulkActivityGroups(missingGroups);
-    }
+    return floody.toBuilder()
+        .setRemarks("pre-flight validation failed:\n" + String.join("\n", problems))
+        .build();
   }
 }
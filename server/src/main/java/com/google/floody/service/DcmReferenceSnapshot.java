@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.api.services.dfareporting.Dfareporting;
+import com.google.api.services.dfareporting.model.FloodlightConfiguration;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.flogger.GoogleLogger;
+import com.google.floody.model.FloodyGroup;
+import com.google.floody.model.FloodyGroupMap;
+import com.google.floody.model.SheetCustomVariable;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Per-job snapshot of the DCM reference data of a Floodlight configuration: the configuration's
+ * information, its custom variables and the activity groups.
+ *
+ * <p>The snapshot is loaded once at the start of a job and shared by all the readers and writers
+ * of the job. The groups are updated as new groups are created by the job, so that the groups are
+ * never re-read from DCM.
+ */
+public final class DcmReferenceSnapshot {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private final long profileId;
+  private final long floodlightConfigurationId;
+  private final FloodlightConfiguration floodlightConfiguration;
+  private final ImmutableSet<SheetCustomVariable> customVariables;
+
+  private volatile FloodyGroupMap groups;
+
+  private DcmReferenceSnapshot(
+      long profileId,
+      long floodlightConfigurationId,
+      FloodlightConfiguration floodlightConfiguration,
+      ImmutableSet<FloodyGroup> groups) {
+    this.profileId = profileId;
+    this.floodlightConfigurationId = floodlightConfigurationId;
+    this.floodlightConfiguration = checkNotNull(floodlightConfiguration);
+    this.customVariables =
+        DcmFloodlightConfigurationReaderService.extractCustomVariables(floodlightConfiguration);
+    this.groups = FloodyGroupMap.buildFor(groups);
+  }
+
+  /**
+   * Loads the Floodlight configuration and all its activity groups from DCM. Both the reads are
+   * executed concurrently.
+   *
+   * @param dcmService the DCM service to use for reading
+   * @param profileId the DCM user profile to use for reading
+   * @param floodlightConfigurationId the Floodlight configuration to load
+   * @throws IOException in case of DCM API errors
+   */
+  public static DcmReferenceSnapshot load(
+      Dfareporting dcmService, long profileId, long floodlightConfigurationId) throws IOException {
+    checkArgument(
+        floodlightConfigurationId > 0,
+        "floodlightConfigurationId (%s) should be a positive number",
+        floodlightConfigurationId);
+
+    var configReader =
+        new DcmFloodlightConfigurationReaderService(
+            dcmService, profileId, floodlightConfigurationId);
+
+    var configurationFuture =
+        FloodyExecutors.supplyAsync(configReader::retrieveFloodlightConfiguration);
+    var groupsFuture = FloodyExecutors.supplyAsync(configReader::retrieveAllActivityGroups);
+
+    var snapshot =
+        new DcmReferenceSnapshot(
+            profileId,
+            floodlightConfigurationId,
+            FloodyExecutors.join(configurationFuture),
+            FloodyExecutors.join(groupsFuture));
+
+    logger.atInfo().log(
+        "loaded DCM snapshot (floodlightConfigurationId: %s) groups (%s), customVariables (%s)",
+        floodlightConfigurationId,
+        snapshot.getGroups().values().size(),
+        snapshot.getCustomVariables().size());
+
+    return snapshot;
+  }
+
+  public long getProfileId() {
+    return profileId;
+  }
+
+  public long getFloodlightConfigurationId() {
+    return floodlightConfigurationId;
+  }
+
+  /** Returns the Floodlight configuration with account, advertiser and user variables. */
+  public FloodlightConfiguration getFloodlightConfiguration() {
+    return floodlightConfiguration;
+  }
+
+  public ImmutableSet<SheetCustomVariable> getCustomVariables() {
+    return customVariables;
+  }
+
+  /** Returns all the activity groups, including the ones created by the job. */
+  public FloodyGroupMap getGroups() {
+    return groups;
+  }
+
+  /**
+   * Adds the newly created groups to the snapshot, the groups without DCM id (failed creation) are
+   * ignored.
+   *
+   * @param createdGroups the groups created in DCM
+   * @return the updated group map
+   */
+  public synchronized FloodyGroupMap addCreatedGroups(Collection<FloodyGroup> createdGroups) {
+    ImmutableSet<FloodyGroup> validGroups =
+        createdGroups.stream().filter(group -> group.id() != null).collect(toImmutableSet());
+
+    if (!validGroups.isEmpty()) {
+      groups =
+          FloodyGroupMap.buildFor(
+              Sets.union(ImmutableSet.copyOf(groups.values()), validGroups).immutableCopy());
+    }
+
+    return groups;
+  }
+}
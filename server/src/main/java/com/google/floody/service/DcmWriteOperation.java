@@ -0,0 +1,72 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+import com.google.floody.model.FloodyGroup;
+import com.google.floody.model.SheetFloody;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/** A single DCM write in a {@link DcmWritePlan} along with the operations it depends on. */
+@AutoValue
+public abstract class DcmWriteOperation {
+
+  /** The kind of DCM write. */
+  public enum Type {
+    GROUP_INSERT,
+    ACTIVITY_INSERT,
+    ACTIVITY_PATCH,
+    AUDIENCE_INSERT
+  }
+
+  /** The position of the operation in the plan, used as the operation's identifier. */
+  public abstract int index();
+
+  public abstract Type type();
+
+  /** Indexes of the operations which need to complete before this operation. */
+  public abstract ImmutableSet<Integer> dependencies();
+
+  /** The group to create for {@code GROUP_INSERT} operations. */
+  @Nullable
+  public abstract FloodyGroup group();
+
+  /** The floody to write for activity and audience operations. */
+  @Nullable
+  public abstract SheetFloody floody();
+
+  static DcmWriteOperation groupInsert(int index, FloodyGroup group) {
+    return new AutoValue_DcmWriteOperation(
+        index, Type.GROUP_INSERT, ImmutableSet.of(), group, /* floody= */ null);
+  }
+
+  static DcmWriteOperation activityWrite(
+      int index, SheetFloody floody, ImmutableSet<Integer> dependencies) {
+    return new AutoValue_DcmWriteOperation(
+        index,
+        (floody.getId() == null) ? Type.ACTIVITY_INSERT : Type.ACTIVITY_PATCH,
+        dependencies,
+        null,
+        floody);
+  }
+
+  static DcmWriteOperation audienceInsert(int index, SheetFloody floody, int activityWriteIndex) {
+    return new AutoValue_DcmWriteOperation(
+        index, Type.AUDIENCE_INSERT, ImmutableSet.of(activityWriteIndex), null, floody);
+  }
+}
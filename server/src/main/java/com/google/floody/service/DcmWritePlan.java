@@ -0,0 +1,95 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.floody.protobuf.DcmOperations.DcmWritePlanSummary;
+import com.google.floody.service.DcmWriteOperation.Type;
+
+/**
+ * Ordered list of DCM write operations for an export. The operations are grouped into waves, all
+ * operations in a wave only depend on operations of earlier waves and can be executed in parallel.
+ */
+public final class DcmWritePlan {
+
+  private final ImmutableList<DcmWriteOperation> operations;
+  private final ImmutableList<ImmutableList<DcmWriteOperation>> waves;
+
+  DcmWritePlan(ImmutableList<DcmWriteOperation> operations) {
+    this.operations = operations;
+    this.waves = buildWaves(operations);
+  }
+
+  public ImmutableList<DcmWriteOperation> getOperations() {
+    return operations;
+  }
+
+  /** Returns the operations grouped by their execution order. */
+  public ImmutableList<ImmutableList<DcmWriteOperation>> getWaves() {
+    return waves;
+  }
+
+  /** Returns the number of operations of the given type. */
+  public int count(Type type) {
+    return (int) operations.stream().filter(operation -> operation.type().equals(type)).count();
+  }
+
+  public DcmWritePlanSummary toSummary() {
+    return DcmWritePlanSummary.newBuilder()
+        .setGroupInserts(count(Type.GROUP_INSERT))
+        .setActivityInserts(count(Type.ACTIVITY_INSERT))
+        .setActivityPatches(count(Type.ACTIVITY_PATCH))
+        .setAudienceInserts(count(Type.AUDIENCE_INSERT))
+        .setWaves(waves.size())
+        .build();
+  }
+
+  /**
+   * Assigns each operation to the wave after the latest wave of its dependencies. Operations only
+   * depend on operations with lower index, so a single pass is sufficient.
+   */
+  private static ImmutableList<ImmutableList<DcmWriteOperation>> buildWaves(
+      ImmutableList<DcmWriteOperation> operations) {
+    var operationWave = new int[operations.size()];
+
+    for (DcmWriteOperation operation : operations) {
+      int wave = 0;
+      for (int dependency : operation.dependencies()) {
+        checkArgument(
+            dependency < operation.index(),
+            "operation (%s) depends on later operation (%s)",
+            operation.index(),
+            dependency);
+        wave = Math.max(wave, operationWave[dependency] + 1);
+      }
+      operationWave[operation.index()] = wave;
+    }
+
+    ImmutableListMultimap<Integer, DcmWriteOperation> operationsByWave =
+        Multimaps.index(operations, operation -> operationWave[operation.index()]);
+
+    return operationsByWave.keySet().stream()
+        .sorted()
+        .map(operationsByWave::get)
+        .collect(toImmutableList());
+  }
+}
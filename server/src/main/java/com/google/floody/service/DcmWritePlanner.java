@@ -0,0 +1,83 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.floody.model.FloodyBundle;
+import com.google.floody.model.FloodyGroup;
+import com.google.floody.model.FloodyGroupMap;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.transforms.BundleToFloodlightActivityTransformer;
+import com.google.floody.transforms.MissingActivityGroupBuilder;
+import com.google.floody.transforms.SheetFloodyToFloodyGroupTransformer;
+import java.util.HashMap;
+
+/**
+ * Builds the {@link DcmWritePlan} for a bundle: group inserts for the missing groups, an insert or
+ * patch for each floody marked for update and an audience insert for floodies requesting one.
+ */
+final class DcmWritePlanner {
+
+  private final FloodyBundle bundle;
+
+  DcmWritePlanner(FloodyBundle bundle) {
+    this.bundle = bundle;
+  }
+
+  /**
+   * Plans the DCM writes for the bundle against the existing groups in DCM.
+   *
+   * @param existingGroups the activity groups already present in the Floodlight configuration
+   */
+  DcmWritePlan plan(FloodyGroupMap existingGroups) {
+    var operations = ImmutableList.<DcmWriteOperation>builder();
+    var groupOperationIndexes = new HashMap<FloodyGroup, Integer>();
+    int nextIndex = 0;
+
+    MissingActivityGroupBuilder missingGroupBuilder =
+        BundleToFloodlightActivityTransformer.forBundle(bundle)
+            .missingActivityGroupBuilder(ImmutableSet.copyOf(existingGroups.values()));
+
+    for (FloodyGroup missingGroup : missingGroupBuilder.getMissingGroups()) {
+      groupOperationIndexes.put(missingGroup, nextIndex);
+      operations.add(DcmWriteOperation.groupInsert(nextIndex++, missingGroup));
+    }
+
+    for (SheetFloody floody : bundle.getFloodies()) {
+      if (!floody.isToBeUpdated()) {
+        continue;
+      }
+
+      ImmutableSet<Integer> groupDependency =
+          missingGroupBuilder.isFloodyFromMissingGroup(floody)
+              ? ImmutableSet.of(
+                  groupOperationIndexes.get(
+                      SheetFloodyToFloodyGroupTransformer.forSheetFloody(floody)))
+              : ImmutableSet.of();
+
+      int activityIndex = nextIndex++;
+      operations.add(DcmWriteOperation.activityWrite(activityIndex, floody, groupDependency));
+
+      if (floody.isAutoCreateAudience()) {
+        operations.add(DcmWriteOperation.audienceInsert(nextIndex++, floody, activityIndex));
+      }
+    }
+
+    return new DcmWritePlan(operations.build());
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.api.services.dfareporting.Dfareporting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.flogger.GoogleLogger;
+import com.google.floody.model.FloodyBundle;
+import com.google.floody.model.FloodyGroup;
+import com.google.floody.model.FloodyGroupMap;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.service.DcmWriteOperation.Type;
+import com.google.floody.transforms.BundleToFloodlightActivityTransformer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Executes a {@link DcmWritePlan} wave by wave. Within a wave, the group inserts, activity writes
+ * and audience inserts are sent as concurrent batch requests.
+ */
+final class DcmWriteScheduler {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private final FloodyBundle bundle;
+  private final Dfareporting dcmService;
+  private final DcmReferenceSnapshot referenceSnapshot;
+  private final Executor executor;
+  private final ExportProgressListener progressListener;
+
+  /** Results of the executed activity writes, keyed by the operation index. */
+  private final Map<Integer, ActivityWriteResult> activityResults;
+
+  /** The groups processed by the executed group inserts, including failed ones. */
+  private final ImmutableSet.Builder<FloodyGroup> processedGroups;
+
+  DcmWriteScheduler(
+      FloodyBundle bundle,
+      Dfareporting dcmService,
+      DcmReferenceSnapshot referenceSnapshot,
+      Executor executor,
+      ExportProgressListener progressListener) {
+    this.bundle = bundle;
+    this.dcmService = dcmService;
+    this.referenceSnapshot = referenceSnapshot;
+    this.executor = executor;
+    this.progressListener = progressListener;
+    this.activityResults = new HashMap<>();
+    this.processedGroups = ImmutableSet.builder();
+  }
+
+  /**
+   * Runs all the operations of the plan.
+   *
+   * @return the bundle with updated floodies (in the original order) and all the groups.
+   */
+  FloodyBundle run(DcmWritePlan plan) {
+    ImmutableSet<FloodyGroup> existingGroups =
+        ImmutableSet.copyOf(referenceSnapshot.getGroups().values());
+
+    ImmutableList<ImmutableList<DcmWriteOperation>> waves = plan.getWaves();
+    for (int waveIndex = 0; waveIndex < waves.size(); waveIndex++) {
+      ImmutableList<DcmWriteOperation> wave = waves.get(waveIndex);
+      logger.atInfo().log("executing wave of (%s) operations", wave.size());
+      progressListener.onWave(waveIndex + 1, waves.size(), wave.size());
+      runWave(wave);
+    }
+
+    var floodyResults = new HashMap<SheetFloody, SheetFloody>();
+    plan.getOperations().stream()
+        .filter(operation -> activityResults.containsKey(operation.index()))
+        .forEach(
+            operation ->
+                floodyResults.put(
+                    operation.floody(), activityResults.get(operation.index()).floody()));
+
+    ImmutableSet<SheetFloody> updatedFloodies =
+        bundle.getFloodies().stream()
+            .map(floody -> floodyResults.getOrDefault(floody, floody))
+            .collect(toImmutableSet());
+
+    return bundle
+        .withFloodies(updatedFloodies)
+        .withFloodyGroups(
+            FloodyGroupMap.buildFor(
+                Sets.union(existingGroups, processedGroups.build()).immutableCopy()));
+  }
+
+  private void runWave(ImmutableList<DcmWriteOperation> wave) {
+    ImmutableList<DcmWriteOperation> groupOperations = filter(wave, Type.GROUP_INSERT);
+    ImmutableList<DcmWriteOperation> activityOperations =
+        filter(wave, Type.ACTIVITY_INSERT, Type.ACTIVITY_PATCH);
+    ImmutableList<DcmWriteOperation> audienceOperations = filter(wave, Type.AUDIENCE_INSERT);
+
+    var groupsFuture =
+        DcmActivityGroupWriter.builder()
+            .setDcmService(dcmService)
+            .setProfileId(referenceSnapshot.getProfileId())
+            .setFloodlightConfigurationId(referenceSnapshot.getFloodlightConfigurationId())
+            .build()
+            .createBulkActivityGroupsAsync(
+                groupOperations.stream().map(DcmWriteOperation::group).collect(toImmutableSet()),
+                executor);
+
+    // Activities in the wave depend only on groups created in earlier waves.
+    DcmActivityWriter activityWriter = buildActivityWriter(referenceSnapshot.getGroups());
+
+    var activitiesFuture =
+        activityWriter.writeAllAsync(
+            activityOperations.stream().map(DcmWriteOperation::floody).collect(toImmutableList()),
+            executor);
+
+    ImmutableList<Integer> audienceActivityIndexes =
+        audienceOperations.stream()
+            .map(operation -> operation.dependencies().iterator().next())
+            .collect(toImmutableList());
+
+    var audiencesFuture =
+        activityWriter.createAudiencesAsync(
+            audienceActivityIndexes.stream().map(activityResults::get).collect(toImmutableList()),
+            executor);
+
+    ImmutableSet<FloodyGroup> createdGroups = groupsFuture.join();
+    processedGroups.addAll(createdGroups);
+    referenceSnapshot.addCreatedGroups(createdGroups);
+
+    record(
+        activityOperations.stream().map(DcmWriteOperation::index).collect(toImmutableList()),
+        activitiesFuture);
+    // Audience results replace the results of their activity writes.
+    record(audienceActivityIndexes, audiencesFuture);
+  }
+
+  private void record(
+      ImmutableList<Integer> activityIndexes,
+      CompletableFuture<ImmutableList<ActivityWriteResult>> resultsFuture) {
+    ImmutableList<ActivityWriteResult> results = resultsFuture.join();
+
+    for (int position = 0; position < results.size(); position++) {
+      activityResults.put(activityIndexes.get(position), results.get(position));
+    }
+  }
+
+  private DcmActivityWriter buildActivityWriter(FloodyGroupMap groups) {
+    return new DcmActivityWriter(
+        referenceSnapshot.getProfileId(),
+        dcmService,
+        BundleToFloodlightActivityTransformer.forBundle(bundle.withFloodyGroups(groups))
+            .buildActivityTransformer(),
+        progressListener);
+  }
+
+  private static ImmutableList<DcmWriteOperation> filter(
+      ImmutableList<DcmWriteOperation> operations, Type... types) {
+    ImmutableSet<Type> selectedTypes = ImmutableSet.copyOf(types);
+    return operations.stream()
+        .filter(operation -> selectedTypes.contains(operation.type()))
+        .collect(toImmutableList());
+  }
+}
@@ -20,11 +20,13 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
 import com.google.api.services.dfareporting.Dfareporting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.floody.model.FloodyBundle;
-import com.google.floody.model.FloodyGroupMap;
+import com.google.floody.model.SheetActivityKey;
 import com.google.floody.model.SheetFloody;
 import java.io.IOException;
+import java.util.Collection;
 
 public final class DcmWriterGenerator {
 
@@ -37,21 +39,12 @@ public final class DcmWriterGenerator {
     this.dcmService = dcmService;
   }
 
-  private DcmFloodyWriter buildDcmFloodyWriter(long dcmProfileId, long floodlightConfigurationId)
-      throws IOException {
-
-    var floodlightConfigReader =
-        new DcmFloodlightConfigurationReaderService(
-            dcmService, dcmProfileId, floodlightConfigurationId);
-
-    FloodyGroupMap existingGroupMap =
-        FloodyGroupMap.buildFor(floodlightConfigReader.retrieveAllActivityGroups());
-
+  private DcmFloodyWriter buildDcmFloodyWriter(
+      DcmReferenceSnapshot referenceSnapshot,
+      ImmutableList<SheetActivityKey> otherSheetActivities) {
     return new DcmFloodyWriter(
-        floodlightConfigurationId,
-        dcmProfileId,
-        bundle.withFloodyGroups(existingGroupMap),
-        dcmService);
+            bundle.withFloodyGroups(referenceSnapshot.getGroups()), dcmService, referenceSnapshot)
+        .withOtherSheetActivities(otherSheetActivities);
   }
 
   public static class Builder {
@@ -59,6 +52,8 @@ public final class DcmWriterGenerator {
     private final Dfareporting dcmService;
     private final FloodyBundle bundle;
     private long floodlightConfigurationId;
+    private DcmReferenceSnapshot referenceSnapshot;
+    private ImmutableList<SheetActivityKey> otherSheetActivities = ImmutableList.of();
 
     Builder(FloodyBundle bundle, Dfareporting dcmService) {
       this.bundle = bundle;
@@ -70,6 +65,21 @@ public final class DcmWriterGenerator {
       return this;
     }
 
+    /**
+     * Sets the DCM reference data snapshot to use for the job, the snapshot is loaded from DCM if
+     * not provided.
+     */
+    public Builder withReferenceSnapshot(DcmReferenceSnapshot referenceSnapshot) {
+      this.referenceSnapshot = referenceSnapshot;
+      return this;
+    }
+
+    /** Sets the keys of the spreadsheet rows not in the bundle, for the uniqueness checks. */
+    public Builder withOtherSheetActivities(Collection<SheetActivityKey> otherSheetActivities) {
+      this.otherSheetActivities = ImmutableList.copyOf(otherSheetActivities);
+      return this;
+    }
+
     public DcmFloodyWriter buildDcmWriter(long dcmProfileId) throws IOException {
       checkArgument(
           floodlightConfigurationId > 0,
@@ -78,7 +88,22 @@ public final class DcmWriterGenerator {
 
       return new DcmWriterGenerator(
               bundle.withFloodies(getAllFloodiesWithFloodlightConfigurationId()), dcmService)
-          .buildDcmFloodyWriter(dcmProfileId, floodlightConfigurationId);
+          .buildDcmFloodyWriter(loadReferenceSnapshot(dcmProfileId), otherSheetActivities);
+    }
+
+    private DcmReferenceSnapshot loadReferenceSnapshot(long dcmProfileId) throws IOException {
+      if (referenceSnapshot == null) {
+        return DcmReferenceSnapshot.load(dcmService, dcmProfileId, floodlightConfigurationId);
+      }
+
+      checkArgument(
+          referenceSnapshot.getProfileId() == dcmProfileId
+              && referenceSnapshot.getFloodlightConfigurationId() == floodlightConfigurationId,
+          "referenceSnapshot (profile: %s, floodlightConfiguration: %s) does not match the job",
+          referenceSnapshot.getProfileId(),
+          referenceSnapshot.getFloodlightConfigurationId());
+
+      return referenceSnapshot;
     }
 
     /** Returns transformed activities with given floodlight configurationId. */
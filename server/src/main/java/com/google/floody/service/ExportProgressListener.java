@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.base.Strings.nullToEmpty;
+
+import com.google.floody.model.SheetFloody;
+import com.google.floody.protobuf.DcmOperations.ActivityOutcome;
+import com.google.floody.protobuf.DcmOperations.ExportPhase;
+import com.google.floody.protobuf.DcmOperations.ExportPhase.Phase;
+import com.google.floody.protobuf.DcmOperations.ExportProgressEvent;
+import com.google.floody.protobuf.DcmOperations.SheetRowsWritten;
+import java.util.Optional;
+
+/**
+ * Receives the progress of an export as the writers produce it. The writers call it from
+ * concurrent batch threads, so implementations must be thread-safe and should not block.
+ */
+@FunctionalInterface
+public interface ExportProgressListener {
+
+  /** Listener discarding all the progress. */
+  ExportProgressListener NO_OP = event -> {};
+
+  void onProgress(ExportProgressEvent event);
+
+  default void onPhase(Phase phase, int activities) {
+    onProgress(
+        ExportProgressEvent.newBuilder()
+            .setPhase(ExportPhase.newBuilder().setPhase(phase).setActivities(activities))
+            .build());
+  }
+
+  default void onWave(int wave, int waves, int operations) {
+    onProgress(
+        ExportProgressEvent.newBuilder()
+            .setPhase(
+                ExportPhase.newBuilder()
+                    .setPhase(Phase.WRITING_DCM)
+                    .setActivities(operations)
+                    .setWave(wave)
+                    .setWaves(waves))
+            .build());
+  }
+
+  default void onFailure(Throwable failure) {
+    onProgress(
+        ExportProgressEvent.newBuilder()
+            .setPhase(
+                ExportPhase.newBuilder()
+                    .setPhase(Phase.FAILED)
+                    .setMessage(nullToEmpty(failure.getMessage())))
+            .build());
+  }
+
+  /**
+   * Reports the outcome of an activity or audience write.
+   *
+   * @param floody the activity with the DCM id and remarks of the write
+   * @param written the activity or audience was written to DCM
+   * @param audience the outcome is of the audience list creation
+   */
+  default void onActivity(SheetFloody floody, boolean written, boolean audience) {
+    var outcome =
+        ActivityOutcome.newBuilder()
+            .setActivityName(nullToEmpty(floody.getName()))
+            .setWritten(written)
+            .setAudience(audience)
+            .setRemarks(nullToEmpty(floody.getRemarks()));
+    Optional.ofNullable(floody.getId()).ifPresent(outcome::setActivityId);
+    Optional.ofNullable(floody.getSheetLocation())
+        .ifPresent(
+            location ->
+                outcome
+                    .setSheetName(location.getSheetName())
+                    .setRowNumber(location.getRowNumber()));
+
+    onProgress(ExportProgressEvent.newBuilder().setActivity(outcome).build());
+  }
+
+  default void onSheetRows(String sheetName, int rows) {
+    onProgress(
+        ExportProgressEvent.newBuilder()
+            .setSheetRows(SheetRowsWritten.newBuilder().setSheetName(sheetName).setRows(rows))
+            .build());
+  }
+}
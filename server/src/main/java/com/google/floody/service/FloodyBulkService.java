@@ -0,0 +1,288 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.api.services.dfareporting.Dfareporting;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.GoogleLogger;
+import com.google.floody.model.FloodyBundle;
+import com.google.floody.model.SheetDefaultTag;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.model.SheetPublisherTag;
+import com.google.floody.service.BulkRecord.Type;
+import com.google.floody.service.DcmFloodyReader.FloodyStreamConsumer;
+import com.google.floody.transforms.FloodyToSpreadSheetRowTransformer;
+import com.google.floody.transforms.PublisherTagToSpreadSheetRowTransformer;
+import com.google.floody.transforms.SheetDefaultTagToSpreadSheetRowTransformer;
+import java.io.IOException;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Streams Floodlight activities between DCM and NDJSON/CSV bulk streams without going through a
+ * spreadsheet. The rows use the same cells as the spreadsheet tabs and are converted with the
+ * sheet row transformers.
+ */
+public final class FloodyBulkService {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private final FloodyToSpreadSheetRowTransformer floodyTransformer;
+  private final SheetDefaultTagToSpreadSheetRowTransformer defaultTagTransformer;
+  private final PublisherTagToSpreadSheetRowTransformer publisherTagTransformer;
+  private final int uploadChunkSize;
+
+  /**
+   * Builds the bulk service.
+   *
+   * @param defaultAudienceLifespan the audience lifespan for rows without one
+   * @param uploadChunkSize the number of uploaded activity rows to write to DCM together
+   */
+  public FloodyBulkService(Period defaultAudienceLifespan, int uploadChunkSize) {
+    checkArgument(uploadChunkSize > 0, "uploadChunkSize (%s) should be positive", uploadChunkSize);
+    this.floodyTransformer = new FloodyToSpreadSheetRowTransformer(defaultAudienceLifespan);
+    this.defaultTagTransformer = new SheetDefaultTagToSpreadSheetRowTransformer();
+    this.publisherTagTransformer = new PublisherTagToSpreadSheetRowTransformer();
+    this.uploadChunkSize = uploadChunkSize;
+  }
+
+  /**
+   * Writes all the activities and tags of the reader's Floodlight configuration to the writer as
+   * they are read from DCM, the writer is flushed after every DCM page.
+   *
+   * @param reader the DCM reader of the Floodlight configuration
+   * @param dcmProfileId the User's DCM profile to read with
+   * @param writer the destination of the rows
+   * @throws IOException in case of DCM API errors or errors writing the rows
+   */
+  public void export(DcmFloodyReader reader, long dcmProfileId, BulkRecordWriter writer)
+      throws IOException {
+    reader.streamFor(
+        dcmProfileId,
+        new FloodyStreamConsumer() {
+          @Override
+          public void acceptDefaultTag(SheetDefaultTag defaultTag) throws IOException {
+            writer.write(
+                BulkRecord.create(
+                    Type.DEFAULT_TAG, defaultTagTransformer.transformToSheetRow(defaultTag)));
+          }
+
+          @Override
+          public void acceptPublisherTag(SheetPublisherTag publisherTag) throws IOException {
+            writer.write(
+                BulkRecord.create(
+                    Type.PUBLISHER_TAG, publisherTagTransformer.transformToSheetRow(publisherTag)));
+          }
+
+          @Override
+          public void acceptFloody(SheetFloody floody) throws IOException {
+            writer.write(
+                BulkRecord.create(Type.ACTIVITY, floodyTransformer.transformToSheetRow(floody)));
+          }
+
+          @Override
+          public void endOfPage() throws IOException {
+            writer.flush();
+          }
+        });
+  }
+
+  /**
+   * Reads the uploaded rows and writes the activities to DCM in chunks, using the same validations
+   * and write path as the spreadsheet export. Only the activity rows flagged for update are
+   * written; the tag rows must precede the activities using them.
+   *
+   * <p>Every activity row is answered with a result row carrying its line number, the DCM id and
+   * the remarks; the tag rows are answered only when they are invalid. The results are flushed
+   * after each chunk.
+   *
+   * @param reader the uploaded rows
+   * @param dcmService the DCM service to write with
+   * @param referenceSnapshot the DCM reference data, it gets updated with the created groups
+   * @param results the destination of the result rows
+   * @throws IOException in case of errors reading the rows or writing the results
+   */
+  public void upload(
+      BulkRecordReader reader,
+      Dfareporting dcmService,
+      DcmReferenceSnapshot referenceSnapshot,
+      BulkRecordWriter results)
+      throws IOException {
+    var defaultTags = new LinkedHashMap<Long, SheetDefaultTag>();
+    var publisherTags = new LinkedHashMap<Long, SheetPublisherTag>();
+    var chunk = new ArrayList<UploadedRow>(uploadChunkSize);
+    long rowCount = 0;
+    long errorCount = 0;
+
+    while (true) {
+      BulkRecord record;
+      try {
+        record = reader.next();
+      } catch (IllegalArgumentException malformedRowException) {
+        results.write(
+            BulkRecord.rowError(reader.currentLine(), malformedRowException.getMessage()));
+        errorCount++;
+        continue;
+      }
+
+      if (record == null) {
+        break;
+      }
+
+      rowCount++;
+
+      switch (record.type()) {
+        case DEFAULT_TAG:
+          SheetDefaultTag defaultTag =
+              transformOrNull(defaultTagTransformer::transformFromSheetRow, record);
+          if (defaultTag == null) {
+            results.write(BulkRecord.rowError(record.line(), "invalid default tag row"));
+            errorCount++;
+          } else {
+            defaultTags.put(defaultTag.getId(), defaultTag);
+          }
+          break;
+
+        case PUBLISHER_TAG:
+          SheetPublisherTag publisherTag =
+              transformOrNull(publisherTagTransformer::transformFromSheetRow, record);
+          if (publisherTag == null) {
+            results.write(BulkRecord.rowError(record.line(), "invalid publisher tag row"));
+            errorCount++;
+          } else {
+            publisherTags.put(publisherTag.getId(), publisherTag);
+          }
+          break;
+
+        case ACTIVITY:
+          SheetFloody floody = floodyTransformer.transformFromSheetRow(record.cells());
+          if (floody == null) {
+            results.write(BulkRecord.rowError(record.line(), "invalid activity row"));
+            errorCount++;
+            break;
+          }
+
+          chunk.add(
+              UploadedRow.create(
+                  record.line(),
+                  floody.withFloodlightConfigurationId(
+                      referenceSnapshot.getFloodlightConfigurationId())));
+
+          if (chunk.size() >= uploadChunkSize) {
+            writeChunk(chunk, defaultTags, publisherTags, dcmService, referenceSnapshot, results);
+            chunk.clear();
+          }
+          break;
+      }
+    }
+
+    if (!chunk.isEmpty()) {
+      writeChunk(chunk, defaultTags, publisherTags, dcmService, referenceSnapshot, results);
+    }
+
+    results.flush();
+
+    logger.atInfo().log(
+        "bulk upload (floodlightConfigurationId: %s) rows (%s), invalid rows (%s)",
+        referenceSnapshot.getFloodlightConfigurationId(), rowCount, errorCount);
+  }
+
+  /** Writes the chunk's activities to DCM and streams back a result row for each of them. */
+  private void writeChunk(
+      List<UploadedRow> chunk,
+      Map<Long, SheetDefaultTag> defaultTags,
+      Map<Long, SheetPublisherTag> publisherTags,
+      Dfareporting dcmService,
+      DcmReferenceSnapshot referenceSnapshot,
+      BulkRecordWriter results)
+      throws IOException {
+    ImmutableSet<SheetFloody> floodies =
+        chunk.stream().map(UploadedRow::floody).collect(toImmutableSet());
+
+    var chunkBundle =
+        FloodyBundle.builder()
+            .setFloodies(floodies)
+            .setDefaultTags(ImmutableSet.copyOf(defaultTags.values()))
+            .setPublisherTags(ImmutableSet.copyOf(publisherTags.values()))
+            .setCustomVariables(referenceSnapshot.getCustomVariables())
+            .setFloodyGroups(referenceSnapshot.getGroups())
+            .build();
+
+    // The writer returns the updated floodies in the order of the chunk's floodies.
+    List<SheetFloody> updatedFloodies =
+        new DcmFloodyWriter(chunkBundle, dcmService, referenceSnapshot)
+            .sync()
+            .getBundle()
+            .getFloodies();
+    checkState(
+        updatedFloodies.size() == floodies.size(),
+        "written floodies (%s) do not match the chunk (%s)",
+        updatedFloodies.size(),
+        floodies.size());
+
+    var updatedByFloody = new HashMap<SheetFloody, SheetFloody>();
+    for (int index = 0; index < updatedFloodies.size(); index++) {
+      updatedByFloody.put(floodies.asList().get(index), updatedFloodies.get(index));
+    }
+
+    for (UploadedRow row : chunk) {
+      results.write(
+          BulkRecord.create(
+              Type.ACTIVITY,
+              floodyTransformer.transformToSheetRow(updatedByFloody.get(row.floody())),
+              row.line()));
+    }
+
+    results.flush();
+  }
+
+  /** Applies the sheet row transformer, treating the errors of incomplete rows as invalid rows. */
+  @Nullable
+  private static <T> T transformOrNull(
+      Function<List<Object>, T> transformer, BulkRecord record) {
+    try {
+      return transformer.apply(record.cells());
+    } catch (RuntimeException runtimeException) {
+      logger.atWarning().withCause(runtimeException).log("invalid %s row", record.type().key());
+      return null;
+    }
+  }
+
+  /** An uploaded activity with its line number in the stream. */
+  @AutoValue
+  abstract static class UploadedRow {
+
+    abstract long line();
+
+    abstract SheetFloody floody();
+
+    static UploadedRow create(long line, SheetFloody floody) {
+      return new AutoValue_FloodyBulkService_UploadedRow(line, floody);
+    }
+  }
+}
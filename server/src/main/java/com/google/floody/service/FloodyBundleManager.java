@@ -20,16 +20,22 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.api.services.dfareporting.Dfareporting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.GoogleLogger;
 import com.google.floody.model.FloodyBundle;
 import com.google.floody.model.GtmExport;
+import com.google.floody.model.SheetActivityKey;
+import com.google.floody.protobuf.DcmOperations.BundleValidationReport;
 import com.google.floody.spreadsheet.GoogleSpreadsheetService;
+import com.google.floody.transforms.FloodyBundleValidator;
 import java.time.Period;
+import java.util.Collection;
 
 public final class FloodyBundleManager {
 
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
   private final FloodyBundle bundle;
+  private final ImmutableList<SheetActivityKey> otherSheetActivities;
   private final long floodlightConfigurationId;
   private final Period defaultAudienceLifespan;
 
@@ -39,6 +45,7 @@ public final class FloodyBundleManager {
 
   private FloodyBundleManager(
       FloodyBundle bundle,
+      ImmutableList<SheetActivityKey> otherSheetActivities,
       long profileId,
       long floodlightConfigurationId,
       Period defaultAudienceLifespan) {
@@ -48,6 +55,7 @@ public final class FloodyBundleManager {
         floodlightConfigurationId);
 
     this.bundle = checkNotNull(bundle, "bundle should not be null");
+    this.otherSheetActivities = otherSheetActivities;
     this.floodlightConfigurationId = floodlightConfigurationId;
     this.defaultAudienceLifespan = defaultAudienceLifespan;
 
@@ -66,6 +74,22 @@ public final class FloodyBundleManager {
     return bundle;
   }
 
+  public long getFloodlightConfigurationId() {
+    return floodlightConfigurationId;
+  }
+
+  /** Returns the keys of the spreadsheet rows not in the bundle, e.g. the rows not flagged. */
+  public ImmutableList<SheetActivityKey> getOtherSheetActivities() {
+    return otherSheetActivities;
+  }
+
+  /**
+   * Validates the activities marked for update against the whole bundle, without writing to DCM.
+   */
+  public BundleValidationReport validate() {
+    return new FloodyBundleValidator(bundle, otherSheetActivities).report();
+  }
+
   public GtmRequestWriter.Builder toGtmRequestWriter(
       ObjectifySaverService<GtmExport> saverService) {
     return GtmRequestWriter.builder()
@@ -78,20 +102,37 @@ public final class FloodyBundleManager {
    * Returns a service to write floodlight bundle to a spreadsheet.
    *
    * @param spreadsheetService the service to build connection to the spreadsheet
+   * @param activitySheetSharding the policy to split activities across multiple sheets
    */
-  public SheetsFloodyWriter toSheets(GoogleSpreadsheetService spreadsheetService) {
-    return new SheetsFloodyWriter(bundle, spreadsheetService, defaultAudienceLifespan);
+  public SheetsFloodyWriter toSheets(
+      GoogleSpreadsheetService spreadsheetService, ActivitySheetSharding activitySheetSharding) {
+    return new SheetsFloodyWriter(
+        bundle, spreadsheetService, defaultAudienceLifespan, activitySheetSharding);
   }
 
   public DcmWriterGenerator.Builder toDcm(Dfareporting dfareportingService) {
     return new DcmWriterGenerator.Builder(bundle, dfareportingService)
-        .forFloodlightConfiguration(floodlightConfigurationId);
+        .forFloodlightConfiguration(floodlightConfigurationId)
+        .withOtherSheetActivities(otherSheetActivities);
+  }
+
+  /**
+   * Returns a builder for DCM writer which uses the provided job's DCM reference data instead of
+   * reading it again from DCM.
+   *
+   * @param dfareportingService the DCM service to use for writing
+   * @param referenceSnapshot the job's snapshot of groups and custom variables
+   */
+  public DcmWriterGenerator.Builder toDcm(
+      Dfareporting dfareportingService, DcmReferenceSnapshot referenceSnapshot) {
+    return toDcm(dfareportingService).withReferenceSnapshot(referenceSnapshot);
   }
 
   /** Convenience Bundle class. */
   public static final class FloodyBundleManagerBuilder {
 
     private FloodyBundle bundle;
+    private ImmutableList<SheetActivityKey> otherSheetActivities = ImmutableList.of();
     private long profileId;
     private long floodlightConfigurationId;
     private Period defaultAudienceLifespan;
@@ -101,6 +142,13 @@ public final class FloodyBundleManager {
       return this;
     }
 
+    /** Sets the keys of the spreadsheet rows not in the bundle, for the uniqueness checks. */
+    public FloodyBundleManagerBuilder setOtherSheetActivities(
+        Collection<SheetActivityKey> otherSheetActivities) {
+      this.otherSheetActivities = ImmutableList.copyOf(otherSheetActivities);
+      return this;
+    }
+
     public FloodyBundleManagerBuilder setProfileId(long profileId) {
       this.profileId = profileId;
       return this;
@@ -123,7 +171,11 @@ public final class FloodyBundleManager {
 
     public FloodyBundleManager build() {
       return new FloodyBundleManager(
-          bundle, profileId, floodlightConfigurationId, defaultAudienceLifespan);
+          bundle,
+          otherSheetActivities,
+          profileId,
+          floodlightConfigurationId,
+          defaultAudienceLifespan);
     }
   }
 }
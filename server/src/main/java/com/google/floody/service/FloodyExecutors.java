@@ -0,0 +1,131 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import com.google.common.flogger.GoogleLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared executors for running independent Google API calls concurrently within a single Floody
+ * job. The threads are daemon threads, so the pool never blocks the application shutdown.
+ *
+ * <p>When running on a JVM with virtual threads (Java 21+) and {@link #setUseVirtualThreads} is
+ * enabled, every API call gets its own virtual thread instead of a pooled platform thread.
+ */
+public final class FloodyExecutors {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private static final ExecutorService PLATFORM_THREAD_EXECUTOR =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("floody-api-%d").build());
+
+  private static volatile ExecutorService apiCallExecutor = PLATFORM_THREAD_EXECUTOR;
+
+  /** Returns the executor to use for blocking Google API calls. */
+  public static ExecutorService apiCallExecutor() {
+    return apiCallExecutor;
+  }
+
+  /**
+   * Switches the API calls to virtual threads, if the JVM supports them.
+   *
+   * @return {@code true} if the API calls now run on virtual threads
+   */
+  public static synchronized boolean setUseVirtualThreads(boolean useVirtualThreads) {
+    if (!useVirtualThreads) {
+      apiCallExecutor = PLATFORM_THREAD_EXECUTOR;
+      return false;
+    }
+
+    if (apiCallExecutor == PLATFORM_THREAD_EXECUTOR) {
+      newVirtualThreadPerTaskExecutor().ifPresent(executor -> apiCallExecutor = executor);
+    }
+
+    return apiCallExecutor != PLATFORM_THREAD_EXECUTOR;
+  }
+
+  /**
+   * Returns an executor that starts a new virtual thread for each task, or empty when the JVM
+   * predates virtual threads.
+   */
+  public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+    // Looked up reflectively as the sources still target Java 11.
+    try {
+      var factoryMethod =
+          MethodHandles.publicLookup()
+              .findStatic(
+                  Executors.class,
+                  "newVirtualThreadPerTaskExecutor",
+                  MethodType.methodType(ExecutorService.class));
+      return Optional.of((ExecutorService) factoryMethod.invoke());
+    } catch (NoSuchMethodException | IllegalAccessException unsupported) {
+      logger.atInfo().log("virtual threads not supported by Java %s", Runtime.version());
+      return Optional.empty();
+    } catch (Throwable throwable) {
+      logger.atWarning().withCause(throwable).log("error creating virtual thread executor");
+      return Optional.empty();
+    }
+  }
+
+  /** Starts the given API call on the {@link #apiCallExecutor()}. */
+  public static <T> CompletableFuture<T> supplyAsync(ApiCall<T> apiCall) {
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return apiCall.call();
+          } catch (IOException ioexception) {
+            throw new UncheckedIOException(ioexception);
+          }
+        },
+        apiCallExecutor);
+  }
+
+  /**
+   * Waits for the API call to complete and returns the result.
+   *
+   * @throws IOException the original exception thrown by the API call
+   */
+  public static <T> T join(CompletableFuture<T> future) throws IOException {
+    try {
+      return future.join();
+    } catch (CompletionException completionException) {
+      if (completionException.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) completionException.getCause()).getCause();
+      }
+
+      throw completionException;
+    }
+  }
+
+  /** A blocking Google API call. */
+  @FunctionalInterface
+  public interface ApiCall<T> {
+    T call() throws IOException;
+  }
+
+  private FloodyExecutors() {}
+}
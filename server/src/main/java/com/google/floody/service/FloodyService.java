@@ -19,6 +19,7 @@ package com.google.floody.service;
 import com.google.floody.model.FloodyProperties;
 import com.google.floody.spreadsheet.GoogleSpreadsheetFactory;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Defines the contract of services to be offered by FloodyService to provide a sync capability
@@ -60,13 +61,41 @@ public final class FloodyService {
     public DcmFloodyReader forFloodlightConfiguration(long floodlightConfigId) throws IOException {
       return new DcmFloodyReader(dcmReportingFactory.buildDcmService(), floodlightConfigId);
     }
+  }
 
-    private DcmSpreadsheetMetaReader buildDcmSpreadsheetMetaReader(String spreadSheetId)
-        throws IOException {
-      return new DcmSpreadsheetMetaReader(
-          spreadsheetServiceFactory.forSpreadsheet(spreadSheetId).metaReader(),
-          floodyProperties.getSheetMetadataFloodlightConfigurationIdKey(),
-          floodyProperties.getSheetMetadataAccountIdKey());
-    }
+  /**
+   * Returns the bundle of the spreadsheet's Floodlight configuration as of its last sync, read from
+   * the stored snapshot instead of DCM.
+   *
+   * @param spreadsheetId the spreadsheet linked to the Floodlight configuration
+   * @param snapshotService the service storing the bundle snapshots
+   * @return the snapshot's bundle, or empty if the configuration has no snapshot
+   * @throws IOException when there is error reading the spreadsheet metadata or the snapshot
+   */
+  public Optional<FloodyBundleManager> readFromSnapshot(
+      String spreadsheetId, BundleSnapshotService snapshotService) throws IOException {
+    long floodlightConfigurationId =
+        buildDcmSpreadsheetMetaReader(spreadsheetId)
+            .readDcmInformation()
+            .getFloodlightConfigurationId();
+
+    return snapshotService
+        .load(floodlightConfigurationId)
+        .map(
+            bundle ->
+                FloodyBundleManager.builder()
+                    .setBundle(bundle)
+                    .setFloodlightConfigurationId(floodlightConfigurationId)
+                    .setDefaultAudienceLifespanDays(
+                        floodyProperties.getDefaultAudienceMembershipDurationDays())
+                    .build());
+  }
+
+  private DcmSpreadsheetMetaReader buildDcmSpreadsheetMetaReader(String spreadSheetId)
+      throws IOException {
+    return new DcmSpreadsheetMetaReader(
+        spreadsheetServiceFactory.forSpreadsheet(spreadSheetId).metaReader(),
+        floodyProperties.getSheetMetadataFloodlightConfigurationIdKey(),
+        floodyProperties.getSheetMetadataAccountIdKey());
   }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.floody.service.DatastoreService.ofy;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.flogger.GoogleLogger;
+import com.google.floody.model.GtmExport;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross-request cache of {@link GtmExport} entities, saves through the cache update both Datastore
+ * and the cached entity. Each instance has its own cache, so the entries expire after a bounded
+ * time to pick up the changes saved by other instances.
+ */
+public final class GtmExportCache {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private static volatile Cache<Long, GtmExport> cache = buildCache(0, Duration.ZERO);
+
+  /**
+   * Replaces the cache with an empty one of the given bounds.
+   *
+   * @param maximumSize the number of entities to keep, {@code 0} disables the cache
+   * @param ttl the time after which a cached entity is read again from Datastore
+   */
+  public static synchronized void configure(long maximumSize, Duration ttl) {
+    checkArgument(maximumSize >= 0, "maximumSize (%s) should not be negative", maximumSize);
+    checkArgument(!ttl.isNegative(), "ttl (%s) should not be negative", ttl);
+
+    cache = buildCache(maximumSize, ttl);
+  }
+
+  /**
+   * Returns the entity, from the cache if present.
+   *
+   * @throws com.googlecode.objectify.NotFoundException if there is no such entity
+   */
+  public static GtmExport load(long requestId) {
+    var gtmExport = cache.getIfPresent(requestId);
+
+    if (gtmExport == null) {
+      gtmExport = loadFresh(requestId);
+    }
+
+    logger.atInfo().atMostEvery(10, TimeUnit.MINUTES).log("GtmExport cache: %s", stats());
+    return gtmExport;
+  }
+
+  /**
+   * Returns the entity as stored in Datastore, updating the cache. Used before changing the entity,
+   * as other instances may have changed it since it was cached.
+   *
+   * @throws com.googlecode.objectify.NotFoundException if there is no such entity
+   */
+  public static GtmExport loadFresh(long requestId) {
+    var gtmExport = ofy().load().type(GtmExport.class).id(requestId).safe();
+    cache.put(requestId, gtmExport);
+    return gtmExport;
+  }
+
+  /** Writes the entity to Datastore and to the cache. */
+  public static void save(GtmExport gtmExport) {
+    ofy().save().entity(gtmExport).now();
+    put(gtmExport);
+  }
+
+  /** Caches an entity already saved to Datastore. */
+  public static void put(GtmExport gtmExport) {
+    cache.put(checkNotNull(gtmExport.getId(), "gtmExport should be saved"), gtmExport);
+  }
+
+  /** Returns the hit and miss counts of the current cache. */
+  public static CacheStats stats() {
+    return cache.stats();
+  }
+
+  private static Cache<Long, GtmExport> buildCache(long maximumSize, Duration ttl) {
+    return CacheBuilder.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)
+        .recordStats()
+        .build();
+  }
+
+  private GtmExportCache() {}
+}
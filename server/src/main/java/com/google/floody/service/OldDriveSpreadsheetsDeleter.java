@@ -38,7 +38,17 @@ import java.time.format.DateTimeFormatter;
 public final class OldDriveSpreadsheetsDeleter {
 
   private static final String DRIVE_LAST_MODIFIED_QUERY =
-      "('me' in owners) and (modifiedTime < '{lastModifiedDateTime}') and (trashed = false)";
+      "('me' in owners) and (modifiedTime < '{lastModifiedDateTime}') and (trashed = false)"
+          + " and not (appProperties has { key='"
+          + SpreadsheetTemplateProvider.FLOODY_ROLE_PROPERTY
+          + "' and value='"
+          + SpreadsheetTemplateProvider.TEMPLATE_ROLE
+          + "' })"
+          + " and not (appProperties has { key='"
+          + SpreadsheetTemplateProvider.FLOODY_ROLE_PROPERTY
+          + "' and value='"
+          + SpreadsheetTemplateProvider.POOLED_ROLE
+          + "' })";
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
 
   private final Drive driveService;
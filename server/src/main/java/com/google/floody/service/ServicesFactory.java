@@ -20,6 +20,7 @@ import static com.google.api.services.tagmanager.TagManagerScopes.TAGMANAGER_EDI
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.floody.auth.CredentialServiceFactory.buildSystemCredentialService;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 
 import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.api.client.json.gson.GsonFactory;
@@ -35,6 +36,9 @@ import com.google.floody.spreadsheet.GoogleSpreadsheetService;
 import com.google.floody.spreadsheet.SharingService;
 import com.google.floody.spreadsheet.SharingServiceFactory;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Period;
+import org.joda.time.Duration;
 
 /** Factory for generating any Services for the provided credentials. */
 public class ServicesFactory {
@@ -71,7 +75,11 @@ public class ServicesFactory {
 
   public SpreadsheetCreator buildSpreadsheetCreator() throws IOException {
     return SpreadsheetCreator.create(
-        buildSpreadsheetFactory(), buildSharingService(), floodyProperties);
+        buildSpreadsheetFactory(), buildSharingService(), buildDriveService(), floodyProperties);
+  }
+
+  public SpreadsheetPool buildSpreadsheetPool() throws IOException {
+    return buildSpreadsheetCreator().spreadsheetPool();
   }
 
   public UserFloodySheetsListService buildSheetListService() throws IOException {
@@ -125,6 +133,83 @@ public class ServicesFactory {
         floodyProperties);
   }
 
+  public FloodyBulkService buildFloodyBulkService() {
+    return new FloodyBulkService(
+        Period.ofDays(floodyProperties.getDefaultAudienceMembershipDurationDays()),
+        floodyProperties.getBulkUploadChunkSize());
+  }
+
+  public SheetLeaseManager buildSheetLeaseManager() {
+    return new SheetLeaseManager(
+        spreadsheetServiceFactory,
+        Duration.standardMinutes(floodyProperties.getSheetLeaseDurationMinutes()));
+  }
+
+  public SheetWatchService buildSheetWatchService() throws IOException {
+    var webhookUrl = floodyProperties.getSheetWatchWebhookUrl();
+
+    WatchChannelRegistrar channelRegistrar =
+        (isBlank(webhookUrl) || "local".equals(floodyProperties.getExecutionEnvironment()))
+            ? new WatchChannelRegistrar.LocalWatchChannelRegistrar()
+            : new WatchChannelRegistrar.DriveWatchChannelRegistrar(buildDriveService(), webhookUrl);
+
+    return new SheetWatchService(
+        channelRegistrar,
+        spreadsheetServiceFactory,
+        buildActivitySheetSharding(),
+        Period.ofDays(floodyProperties.getDefaultAudienceMembershipDurationDays()),
+        Duration.standardSeconds(floodyProperties.getSheetWatchDebounceSeconds()),
+        Duration.standardHours(floodyProperties.getSheetWatchChannelTtlHours()),
+        Duration.standardDays(floodyProperties.getSheetWatchInactiveDays()));
+  }
+
+  /**
+   * Returns the service storing bundle snapshots in Datastore, or in the local snapshot directory
+   * for local runs.
+   */
+  public BundleSnapshotService buildBundleSnapshotService() {
+    if (!"local".equals(floodyProperties.getExecutionEnvironment())) {
+      return new BundleSnapshotService(new BundleSnapshotStore.DatastoreBundleSnapshotStore());
+    }
+
+    var snapshotDirectory =
+        isBlank(floodyProperties.getBundleSnapshotDirectory())
+            ? Paths.get(System.getProperty("java.io.tmpdir"), "floody-snapshots")
+            : Paths.get(floodyProperties.getBundleSnapshotDirectory());
+
+    return new BundleSnapshotService(
+        new BundleSnapshotStore.LocalBundleSnapshotStore(snapshotDirectory));
+  }
+
+  /**
+   * Returns a reconciler of the spreadsheet and DCM bundles, against the configuration's stored
+   * snapshot.
+   */
+  public BundleReconciler buildBundleReconciler(
+      FloodyBundleManager sheetBundle,
+      FloodyBundleManager dcmBundle,
+      GoogleSpreadsheetService spreadsheetService,
+      Dfareporting dcmService,
+      long dcmProfileId)
+      throws IOException {
+    var snapshotService = buildBundleSnapshotService();
+
+    return new BundleReconciler(
+        sheetBundle,
+        dcmBundle,
+        snapshotService.load(dcmBundle.getFloodlightConfigurationId()),
+        spreadsheetService,
+        buildActivitySheetSharding(),
+        dcmService,
+        dcmProfileId,
+        Period.ofDays(floodyProperties.getDefaultAudienceMembershipDurationDays()),
+        snapshotService);
+  }
+
+  public ActivitySheetSharding buildActivitySheetSharding() {
+    return ActivitySheetSharding.fromProperties(floodyProperties);
+  }
+
   public UiUserAuthService buildUiUserAuthService(
       String spreadsheetId, ServicesFactory userServiceFactory) throws IOException {
     return new UiUserAuthService(
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.floody.service.DatastoreService.ofy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.GoogleLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.floody.exceptions.SpreadsheetLockedException;
+import com.google.floody.model.SheetLease;
+import com.google.floody.spreadsheet.GoogleSpreadsheetFactory;
+import com.googlecode.objectify.ObjectifyService;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+
+/**
+ * Grants exclusive, expiring leases on a spreadsheet's sheets to sync operations.
+ *
+ * <p>The lease is claimed in a Datastore transaction, so only one instance syncs a spreadsheet at a
+ * time, and the sheets are protected for the duration of the lease. The lease is renewed in the
+ * background while it is held, so syncs running longer than the lease duration keep it. Leases of
+ * instances that died before releasing them are removed along with their protections by {@link
+ * #releaseExpired()}.
+ */
+public final class SheetLeaseManager {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private static final ScheduledExecutorService RENEWAL_EXECUTOR =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder().setDaemon(true).setNameFormat("floody-lease-%d").build());
+
+  /** The renewals of the leases held by this instance, keyed by the lease owner. */
+  private static final ConcurrentMap<String, ScheduledFuture<?>> RENEWALS =
+      new ConcurrentHashMap<>();
+
+  private final GoogleSpreadsheetFactory spreadsheetFactory;
+  private final Duration leaseDuration;
+
+  public SheetLeaseManager(GoogleSpreadsheetFactory spreadsheetFactory, Duration leaseDuration) {
+    this.spreadsheetFactory = spreadsheetFactory;
+    this.leaseDuration = leaseDuration;
+  }
+
+  /**
+   * Claims the spreadsheet's lease and protects the sheets.
+   *
+   * @param spreadsheetId the spreadsheet to lease
+   * @param operation the name of the operation holding the lease, for reporting
+   * @param sheetNames the sheets to protect for the duration of the lease
+   * @return the lease to release after the operation
+   * @throws SpreadsheetLockedException when another operation holds an unexpired lease
+   * @throws IOException when there is error in protecting the sheets
+   */
+  public SheetLease acquire(String spreadsheetId, String operation, String... sheetNames)
+      throws IOException {
+    var owner = UUID.randomUUID().toString();
+    var now = DateTime.now(DateTimeZone.UTC);
+
+    SheetLease expiredLease =
+        ofy()
+            .transact(
+                () -> {
+                  var currentLease = ofy().load().type(SheetLease.class).id(spreadsheetId).now();
+
+                  if (currentLease != null && !currentLease.isExpired(now)) {
+                    throw new SpreadsheetLockedException(
+                        spreadsheetId,
+                        currentLease.getOperation(),
+                        currentLease.getExpiresAt().toString());
+                  }
+
+                  ofy()
+                      .save()
+                      .entity(
+                          new SheetLease(spreadsheetId, owner, operation, now.plus(leaseDuration)))
+                      .now();
+
+                  return currentLease;
+                });
+
+    if (expiredLease != null) {
+      logger.atWarning().log("taking over expired lease %s", expiredLease);
+      removeProtections(expiredLease);
+    }
+
+    try {
+      var protectedRangeIds =
+          ImmutableList.copyOf(
+              spreadsheetFactory.forSpreadsheet(spreadsheetId).lockSheets(sheetNames).values());
+
+      SheetLease lease =
+          ofy()
+              .transact(
+                  () -> {
+                    var currentLease =
+                        ofy().load().type(SheetLease.class).id(spreadsheetId).now();
+
+                    if (currentLease == null || !currentLease.getOwner().equals(owner)) {
+                      throw new SpreadsheetLockedException(
+                          spreadsheetId, operation, "lease lost while protecting sheets");
+                    }
+
+                    currentLease.setProtectedRangeIds(protectedRangeIds);
+                    ofy().save().entity(currentLease).now();
+                    return currentLease;
+                  });
+
+      scheduleRenewal(spreadsheetId, owner);
+      return lease;
+    } catch (IOException | RuntimeException exception) {
+      deleteLease(spreadsheetId, owner);
+      throw exception;
+    }
+  }
+
+  /**
+   * Stops renewing the lease and removes the sheet protections and the lease, if still owned by
+   * the given lease. The lease is kept when the protections cannot be removed, so that {@link
+   * #releaseExpired()} removes them once it expires.
+   *
+   * @param lease the lease returned by {@link #acquire}
+   * @throws IOException when there is error in removing the sheet protections
+   */
+  public void release(SheetLease lease) throws IOException {
+    cancelRenewal(lease.getOwner());
+
+    if (!lease.getProtectedRangeIds().isEmpty()) {
+      spreadsheetFactory
+          .forSpreadsheet(lease.getSpreadsheetId())
+          .unlockSheets(lease.getProtectedRangeIds());
+    }
+
+    deleteLease(lease.getSpreadsheetId(), lease.getOwner());
+  }
+
+  /**
+   * Deletes all expired leases and removes their sheet protections.
+   *
+   * @return the number of expired leases released
+   */
+  public int releaseExpired() {
+    var now = DateTime.now(DateTimeZone.UTC);
+
+    var expiredLeases = ofy().load().type(SheetLease.class).filter("expiresAt <", now).list();
+
+    int released = 0;
+    for (var expiredLease : expiredLeases) {
+      if (!deleteLease(expiredLease.getSpreadsheetId(), expiredLease.getOwner())) {
+        continue;
+      }
+
+      removeProtections(expiredLease);
+      released++;
+    }
+
+    logger.atInfo().log("released %s expired leases", released);
+    return released;
+  }
+
+  /** Extends the lease every third of the lease duration, until released or lost. */
+  private void scheduleRenewal(String spreadsheetId, String owner) {
+    long renewalPeriodMillis = Math.max(leaseDuration.getMillis() / 3, 1_000);
+
+    RENEWALS.put(
+        owner,
+        RENEWAL_EXECUTOR.scheduleAtFixedRate(
+            () -> renew(spreadsheetId, owner),
+            renewalPeriodMillis,
+            renewalPeriodMillis,
+            TimeUnit.MILLISECONDS));
+  }
+
+  private static void cancelRenewal(String owner) {
+    var renewal = RENEWALS.remove(owner);
+
+    if (renewal != null) {
+      renewal.cancel(false);
+    }
+  }
+
+  /** Extends the lease if it is still held by the owner, errors are logged to retry next time. */
+  private void renew(String spreadsheetId, String owner) {
+    try {
+      boolean renewed =
+          ObjectifyService.run(
+              () ->
+                  ofy()
+                      .transact(
+                          () -> {
+                            var lease =
+                                ofy().load().type(SheetLease.class).id(spreadsheetId).now();
+
+                            if (lease == null || !lease.getOwner().equals(owner)) {
+                              return false;
+                            }
+
+                            lease.setExpiresAt(DateTime.now(DateTimeZone.UTC).plus(leaseDuration));
+                            ofy().save().entity(lease).now();
+                            return true;
+                          }));
+
+      if (!renewed) {
+        logger.atWarning().log("lease of %s lost, stopped renewing", spreadsheetId);
+        cancelRenewal(owner);
+      }
+    } catch (RuntimeException exception) {
+      logger.atWarning().withCause(exception).log("error renewing lease of %s", spreadsheetId);
+    }
+  }
+
+  /** Deletes the lease if it is still held by the owner, returns {@code true} if deleted. */
+  private boolean deleteLease(String spreadsheetId, String owner) {
+    return ofy()
+        .transact(
+            () -> {
+              var lease = ofy().load().type(SheetLease.class).id(spreadsheetId).now();
+
+              if (lease == null || !lease.getOwner().equals(owner)) {
+                return false;
+              }
+
+              ofy().delete().entity(lease).now();
+              return true;
+            });
+  }
+
+  /** Removes a lease's protections, failures are logged as the ranges may already be removed. */
+  private void removeProtections(SheetLease lease) {
+    if (lease.getProtectedRangeIds().isEmpty()) {
+      return;
+    }
+
+    try {
+      spreadsheetFactory
+          .forSpreadsheet(lease.getSpreadsheetId())
+          .unlockSheets(lease.getProtectedRangeIds());
+    } catch (IOException | RuntimeException exception) {
+      logger.atWarning().withCause(exception).log("error removing protections of lease %s", lease);
+    }
+  }
+}
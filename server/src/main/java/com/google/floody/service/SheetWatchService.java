@@ -0,0 +1,608 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_RANGE;
+import static com.google.floody.model.ActivitySheetHeaderInformation.REMARKS_COLUMN;
+import static com.google.floody.service.DatastoreService.ofy;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.GoogleLogger;
+import com.google.common.hash.Hashing;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.model.SheetWatch;
+import com.google.floody.model.SheetWatchChunk;
+import com.google.floody.protobuf.SheetObjects.SheetRowFingerprints;
+import com.google.floody.protobuf.SheetObjects.StagedSheetChanges;
+import com.google.floody.spreadsheet.GoogleSpreadsheetFactory;
+import com.google.floody.transforms.FloodyToSpreadSheetRowTransformer;
+import com.google.protobuf.util.Timestamps;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+
+/**
+ * Watches Floody spreadsheets for edits through Drive push notifications and stages the activity
+ * rows changed since the last sync.
+ *
+ * <p>Notifications only mark the watch as pending. Once no notification has arrived for the
+ * debounce period, {@link #stageChanges()} reads the activity sheets once and stages the
+ * fingerprints of the rows that differ from the rows written by the last sync. An export can then
+ * use the staged changes, as long as the spreadsheet has not been edited since.
+ */
+public final class SheetWatchService {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  /** Resource state of the first message of a channel, sent when the channel is created. */
+  private static final String SYNC_RESOURCE_STATE = "sync";
+
+  /** Leaves room for the key and property names within the 1MiB entity limit. */
+  private static final int MAX_CHUNK_BYTES = 1000 * 1000;
+
+  private final WatchChannelRegistrar channelRegistrar;
+  private final GoogleSpreadsheetFactory spreadsheetFactory;
+  private final ActivitySheetSharding activitySheetSharding;
+  private final Period defaultAudienceLifespan;
+  private final Duration debounce;
+  private final Duration channelTtl;
+  private final Duration inactivityTimeout;
+
+  public SheetWatchService(
+      WatchChannelRegistrar channelRegistrar,
+      GoogleSpreadsheetFactory spreadsheetFactory,
+      ActivitySheetSharding activitySheetSharding,
+      Period defaultAudienceLifespan,
+      Duration debounce,
+      Duration channelTtl,
+      Duration inactivityTimeout) {
+    this.channelRegistrar = channelRegistrar;
+    this.spreadsheetFactory = spreadsheetFactory;
+    this.activitySheetSharding = activitySheetSharding;
+    this.defaultAudienceLifespan = defaultAudienceLifespan;
+    this.debounce = debounce;
+    this.channelTtl = channelTtl;
+    this.inactivityTimeout = inactivityTimeout;
+  }
+
+  /**
+   * Records the activities written to the spreadsheet by a sync as the baseline for change
+   * detection, and starts watching the spreadsheet if not already watched. Failures to start the
+   * channel are logged, as watching is an optimization for later exports.
+   *
+   * @param spreadsheetId the synced spreadsheet
+   * @param floodies the activities written to the spreadsheet
+   * @throws IOException if the baseline can't be stored, the previous baseline is dropped
+   */
+  public void recordSync(String spreadsheetId, Collection<SheetFloody> floodies)
+      throws IOException {
+    int markedForUpdateCount = (int) floodies.stream().filter(SheetFloody::isToBeUpdated).count();
+
+    var watch =
+        storeBaseline(
+            spreadsheetId,
+            /* expectedGeneration= */ null,
+            () ->
+                SheetRowFingerprints.newBuilder()
+                    .setRevision(channelRegistrar.currentRevision(spreadsheetId))
+                    .addAllFingerprints(fingerprints(floodies))
+                    .setMarkedForUpdateCount(markedForUpdateCount)
+                    .build());
+
+    if (!watch.hasChannel()) {
+      try {
+        startChannel(watch);
+      } catch (IOException | RuntimeException exception) {
+        logger.atWarning().withCause(exception).log("error watching %s", spreadsheetId);
+      }
+    }
+  }
+
+  /**
+   * Updates the baseline for the rows re-written in place by a selective sync: the fingerprints of
+   * the rows as read are replaced by the fingerprints of the written rows. Spreadsheets without a
+   * baseline are left unwatched until a complete sync.
+   *
+   * @param spreadsheetId the synced spreadsheet
+   * @param readFloodies all the activities flagged for update, as read from the spreadsheet
+   * @param writtenFloodies the activities written back to the same rows
+   * @throws IOException if the baseline can't be updated, the previous baseline is dropped
+   */
+  public void recordRowsSync(
+      String spreadsheetId,
+      Collection<SheetFloody> readFloodies,
+      Collection<SheetFloody> writtenFloodies)
+      throws IOException {
+    var watch = ofy().load().type(SheetWatch.class).id(spreadsheetId).now();
+
+    if (watch == null || !watch.hasBaseline()) {
+      logger.atInfo().log("no baseline to update for %s", spreadsheetId);
+      return;
+    }
+
+    storeBaseline(
+        spreadsheetId,
+        watch.getBaselineGeneration(),
+        () -> {
+          long revision = channelRegistrar.currentRevision(spreadsheetId);
+          var baseline =
+              readBaseline(watch)
+                  .orElseThrow(
+                      () -> new IOException("missing baseline chunks of " + spreadsheetId));
+
+          var fingerprints = new LinkedHashSet<>(baseline.getFingerprintsList());
+          fingerprints.removeAll(fingerprints(readFloodies));
+          fingerprints.addAll(fingerprints(writtenFloodies));
+
+          return SheetRowFingerprints.newBuilder()
+              .setRevision(revision)
+              .addAllFingerprints(fingerprints)
+              // All the flagged rows were read, only the failed writes remain flagged.
+              .setMarkedForUpdateCount(
+                  (int) writtenFloodies.stream().filter(SheetFloody::isToBeUpdated).count())
+              .build();
+        });
+  }
+
+  /**
+   * Writes the chunks of a new baseline and switches the watch to them, before deleting the chunks
+   * of the previous baseline and staged changes. On failure the previous baseline is dropped, as it
+   * no longer matches the synced spreadsheet.
+   *
+   * @param expectedGeneration the baseline generation the new baseline is derived from, or {@code
+   *     null} to replace any baseline, creating the watch if needed
+   */
+  private SheetWatch storeBaseline(
+      String spreadsheetId, @Nullable Long expectedGeneration, BaselineSupplier baselineSupplier)
+      throws IOException {
+    long generation = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+    var chunkIds = ImmutableList.<String>of();
+
+    try {
+      var baseline = baselineSupplier.get();
+      chunkIds = writeChunks(spreadsheetId, generation, baseline.toByteArray());
+      int chunkCount = chunkIds.size();
+      var now = DateTime.now(DateTimeZone.UTC);
+
+      var previousChunkIds = new ArrayList<String>();
+      SheetWatch watch =
+          ofy()
+              .transact(
+                  () -> {
+                    previousChunkIds.clear();
+                    var sheetWatch = ofy().load().type(SheetWatch.class).id(spreadsheetId).now();
+
+                    if (expectedGeneration == null && sheetWatch == null) {
+                      sheetWatch = new SheetWatch(spreadsheetId);
+                    } else if (sheetWatch == null
+                        || !Objects.equals(
+                            sheetWatch.getBaselineGeneration(), expectedGeneration)) {
+                      return null;
+                    }
+
+                    previousChunkIds.addAll(sheetWatch.baselineChunkIds());
+                    previousChunkIds.addAll(sheetWatch.stagedChangesChunkIds());
+                    sheetWatch.setBaseline(
+                        generation, chunkCount, baseline.getMarkedForUpdateCount(), now);
+                    ofy().save().entity(sheetWatch).now();
+                    return sheetWatch;
+                  });
+
+      if (watch == null) {
+        throw new IOException("baseline of " + spreadsheetId + " changed while recording sync");
+      }
+
+      deleteChunks(previousChunkIds);
+      return watch;
+    } catch (IOException | RuntimeException exception) {
+      try {
+        deleteChunks(chunkIds);
+        clearBaseline(spreadsheetId);
+      } catch (RuntimeException clearException) {
+        exception.addSuppressed(clearException);
+      }
+
+      throw new IOException("error storing sync baseline of " + spreadsheetId, exception);
+    }
+  }
+
+  /** Drops the baseline and staged changes of the spreadsheet, disabling change detection. */
+  private void clearBaseline(String spreadsheetId) {
+    var previousChunkIds = new ArrayList<String>();
+    ofy()
+        .transact(
+            () -> {
+              previousChunkIds.clear();
+              var sheetWatch = ofy().load().type(SheetWatch.class).id(spreadsheetId).now();
+
+              if (sheetWatch != null && sheetWatch.hasBaseline()) {
+                previousChunkIds.addAll(sheetWatch.baselineChunkIds());
+                previousChunkIds.addAll(sheetWatch.stagedChangesChunkIds());
+                ofy().save().entity(sheetWatch.clearBaseline()).now();
+              }
+            });
+
+    deleteChunks(previousChunkIds);
+  }
+
+  /**
+   * Marks the watched spreadsheet as having pending changes. Notifications of unknown channels are
+   * stopped.
+   *
+   * @param channelId the channel id from the {@code X-Goog-Channel-ID} header
+   * @param channelToken the token from the {@code X-Goog-Channel-Token} header
+   * @param resourceId the watched resource from the {@code X-Goog-Resource-ID} header
+   * @param resourceState the event type from the {@code X-Goog-Resource-State} header
+   * @return {@code true} if the notification belongs to a known channel
+   */
+  public boolean onNotification(
+      String channelId, String channelToken, String resourceId, String resourceState) {
+    var watch = ofy().load().type(SheetWatch.class).filter("channelId", channelId).first().now();
+
+    if (watch == null || !Objects.equals(watch.getChannelToken(), channelToken)) {
+      logger.atWarning().log("notification for unknown channel %s", channelId);
+      stopChannel(channelId, resourceId);
+      return false;
+    }
+
+    if (SYNC_RESOURCE_STATE.equals(resourceState)) {
+      return true;
+    }
+
+    var now = DateTime.now(DateTimeZone.UTC);
+    ofy()
+        .transact(
+            () -> {
+              var sheetWatch =
+                  ofy().load().type(SheetWatch.class).id(watch.getSpreadsheetId()).now();
+
+              if (sheetWatch != null) {
+                ofy().save().entity(sheetWatch.markPending(now)).now();
+              }
+            });
+
+    return true;
+  }
+
+  /**
+   * Stages the changed activity rows of the spreadsheets without notifications in the debounce
+   * period.
+   *
+   * @return the number of spreadsheets staged
+   */
+  public int stageChanges() {
+    var quietSince = DateTime.now(DateTimeZone.UTC).minus(debounce);
+
+    int staged = 0;
+    for (var watch : ofy().load().type(SheetWatch.class).filter("pending", true).list()) {
+      var lastNotificationAt = watch.getLastNotificationAt();
+
+      if (lastNotificationAt != null && lastNotificationAt.isAfter(quietSince)) {
+        continue;
+      }
+
+      try {
+        stageChanges(watch);
+        staged++;
+      } catch (IOException | RuntimeException exception) {
+        logger.atWarning().withCause(exception).log("error staging changes of %s", watch);
+      }
+    }
+
+    return staged;
+  }
+
+  private void stageChanges(SheetWatch watch) throws IOException {
+    var spreadsheetId = watch.getSpreadsheetId();
+    var baseline = readBaseline(watch);
+
+    long generation = ThreadLocalRandom.current().nextLong(Long.MAX_VALUE);
+    var chunkIds = ImmutableList.<String>of();
+
+    if (baseline.isPresent()) {
+      // Read the revision first, so that the changes are never newer than the revision.
+      long revision = channelRegistrar.currentRevision(spreadsheetId);
+      var baselineFingerprints = new HashSet<>(baseline.get().getFingerprintsList());
+      var currentFingerprints = fingerprints(readActivities(spreadsheetId));
+
+      var stagedChangesBuilder =
+          StagedSheetChanges.newBuilder()
+              .setRevision(revision)
+              .setRowCount(currentFingerprints.size())
+              .setStagedAt(Timestamps.fromMillis(System.currentTimeMillis()));
+
+      currentFingerprints.stream()
+          .filter(fingerprint -> !baselineFingerprints.contains(fingerprint))
+          .forEach(stagedChangesBuilder::addChangedRowFingerprints);
+
+      chunkIds = writeChunks(spreadsheetId, generation, stagedChangesBuilder.build().toByteArray());
+    }
+
+    int chunkCount = chunkIds.size();
+    boolean staged = baseline.isPresent();
+    var unusedChunkIds = new ArrayList<String>();
+    boolean switched =
+        ofy()
+            .transact(
+                () -> {
+                  unusedChunkIds.clear();
+                  var sheetWatch = ofy().load().type(SheetWatch.class).id(spreadsheetId).now();
+
+                  if (sheetWatch == null) {
+                    return false;
+                  }
+
+                  // Changes against a replaced baseline are discarded.
+                  boolean switchChanges =
+                      staged
+                          && Objects.equals(
+                              sheetWatch.getBaselineGeneration(), watch.getBaselineGeneration());
+                  if (switchChanges) {
+                    unusedChunkIds.addAll(sheetWatch.stagedChangesChunkIds());
+                    sheetWatch.setStagedChanges(generation, chunkCount);
+                  }
+
+                  // Keep pending when notified while reading the rows.
+                  if (Objects.equals(
+                      sheetWatch.getLastNotificationAt(), watch.getLastNotificationAt())) {
+                    sheetWatch.clearPending();
+                  }
+
+                  ofy().save().entity(sheetWatch).now();
+                  return switchChanges;
+                });
+
+    if (!switched) {
+      unusedChunkIds.addAll(chunkIds);
+    }
+    deleteChunks(unusedChunkIds);
+  }
+
+  /**
+   * Returns the changes staged since the last sync, if no edits were made to the spreadsheet after
+   * staging.
+   *
+   * @param spreadsheetId the spreadsheet to get the staged changes for
+   */
+  public Optional<StagedSheetChanges> currentChanges(String spreadsheetId) {
+    try {
+      var watch = ofy().load().type(SheetWatch.class).id(spreadsheetId).now();
+
+      if (watch == null || watch.isPending() || !watch.hasStagedChanges()) {
+        return Optional.empty();
+      }
+
+      var stagedChanges = readChunks(watch.stagedChangesChunkIds());
+      if (stagedChanges.isEmpty()) {
+        return Optional.empty();
+      }
+
+      var changes = StagedSheetChanges.parseFrom(stagedChanges.get());
+      return (changes.getRevision() == channelRegistrar.currentRevision(spreadsheetId))
+          ? Optional.of(changes)
+          : Optional.empty();
+    } catch (IOException | RuntimeException exception) {
+      logger.atWarning().withCause(exception).log("error reading changes of %s", spreadsheetId);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Returns {@code true} if the staged changes are current and show no activity edits since the
+   * last sync, which left no activities marked for update. Exporting such a spreadsheet to DCM
+   * would not write anything.
+   *
+   * @param spreadsheetId the spreadsheet to check
+   */
+  public boolean isUnchangedSinceSync(String spreadsheetId) {
+    var stagedChanges = currentChanges(spreadsheetId);
+
+    if (stagedChanges.isEmpty() || stagedChanges.get().getChangedRowFingerprintsCount() > 0) {
+      return false;
+    }
+
+    var watch = ofy().load().type(SheetWatch.class).id(spreadsheetId).now();
+    return watch != null && watch.hasBaseline() && watch.getMarkedForUpdateCount() == 0;
+  }
+
+  /**
+   * Renews the channels expiring before the next renewal and stops watching spreadsheets not
+   * synced within the inactivity timeout.
+   *
+   * @param renewalWindow the time until the next renewal
+   * @return the number of renewed channels
+   */
+  public int renewChannels(Duration renewalWindow) {
+    var now = DateTime.now(DateTimeZone.UTC);
+    var inactiveBefore = now.minus(inactivityTimeout);
+
+    var expiringWatches =
+        ofy()
+            .load()
+            .type(SheetWatch.class)
+            .filter("channelExpiration <", now.plus(renewalWindow))
+            .list();
+
+    int renewed = 0;
+    for (var watch : expiringWatches) {
+      stopChannel(watch.getChannelId(), watch.getResourceId());
+
+      if (watch.getLastSyncAt() == null || watch.getLastSyncAt().isBefore(inactiveBefore)) {
+        ofy().delete().entity(watch).now();
+        deleteChunks(
+            ImmutableList.<String>builder()
+                .addAll(watch.baselineChunkIds())
+                .addAll(watch.stagedChangesChunkIds())
+                .build());
+        continue;
+      }
+
+      try {
+        startChannel(watch);
+        renewed++;
+      } catch (IOException | RuntimeException exception) {
+        logger.atWarning().withCause(exception).log("error renewing channel of %s", watch);
+        ofy().save().entity(watch.clearChannel()).now();
+      }
+    }
+
+    return renewed;
+  }
+
+  private void startChannel(SheetWatch watch) throws IOException {
+    var channel =
+        channelRegistrar.watch(
+            watch.getSpreadsheetId(),
+            UUID.randomUUID().toString(),
+            UUID.randomUUID().toString(),
+            DateTime.now(DateTimeZone.UTC).plus(channelTtl));
+
+    ofy()
+        .save()
+        .entity(
+            watch.setChannel(
+                channel.getId(),
+                channel.getResourceId(),
+                channel.getToken(),
+                new DateTime(channel.getExpiration(), DateTimeZone.UTC)))
+        .now();
+  }
+
+  private void stopChannel(String channelId, String resourceId) {
+    if (channelId == null || resourceId == null) {
+      return;
+    }
+
+    try {
+      channelRegistrar.stop(channelId, resourceId);
+    } catch (IOException ioException) {
+      logger.atWarning().withCause(ioException).log("error stopping channel %s", channelId);
+    }
+  }
+
+  private static Optional<SheetRowFingerprints> readBaseline(SheetWatch watch)
+      throws IOException {
+    if (!watch.hasBaseline()) {
+      return Optional.empty();
+    }
+
+    var baseline = readChunks(watch.baselineChunkIds());
+    return baseline.isPresent()
+        ? Optional.of(SheetRowFingerprints.parseFrom(baseline.get()))
+        : Optional.empty();
+  }
+
+  /** Returns the joined data of the chunks, empty if a chunk was deleted by a concurrent write. */
+  private static Optional<byte[]> readChunks(ImmutableList<String> chunkIds) {
+    var chunks = ofy().load().type(SheetWatchChunk.class).ids(chunkIds);
+
+    var data = new ByteArrayOutputStream();
+    for (var chunkId : chunkIds) {
+      var chunk = chunks.get(chunkId);
+
+      if (chunk == null) {
+        logger.atWarning().log("missing sheet watch chunk %s", chunkId);
+        return Optional.empty();
+      }
+
+      data.writeBytes(chunk.getData());
+    }
+
+    return Optional.of(data.toByteArray());
+  }
+
+  /** Saves the data in chunks within the entity size limit and returns the ids of the chunks. */
+  private static ImmutableList<String> writeChunks(
+      String spreadsheetId, long generation, byte[] data) {
+    var chunks = new ArrayList<SheetWatchChunk>();
+    for (int offset = 0; offset < data.length; offset += MAX_CHUNK_BYTES) {
+      chunks.add(
+          new SheetWatchChunk(
+              spreadsheetId,
+              generation,
+              chunks.size(),
+              Arrays.copyOfRange(data, offset, Math.min(data.length, offset + MAX_CHUNK_BYTES))));
+    }
+    ofy().save().entities(chunks).now();
+
+    return chunks.stream().map(SheetWatchChunk::getId).collect(toImmutableList());
+  }
+
+  private static void deleteChunks(Collection<String> chunkIds) {
+    if (!chunkIds.isEmpty()) {
+      ofy().delete().type(SheetWatchChunk.class).ids(chunkIds).now();
+    }
+  }
+
+  private ImmutableSet<SheetFloody> readActivities(String spreadsheetId) throws IOException {
+    var spreadsheetService = spreadsheetFactory.forSpreadsheet(spreadsheetId);
+    var transformer = new FloodyToSpreadSheetRowTransformer(defaultAudienceLifespan);
+
+    var floodies = ImmutableSet.<SheetFloody>builder();
+    for (var sheetName :
+        activitySheetSharding.readShardSheetNames(spreadsheetService.metaReader())) {
+      floodies.addAll(spreadsheetService.retrieveData(sheetName, ACTIVITY_RANGE, transformer));
+    }
+
+    return floodies.build();
+  }
+
+  /**
+   * Returns the fingerprints of the activities' sheet rows, the system response column is ignored
+   * as it is only written by Floody.
+   */
+  private ImmutableSet<Long> fingerprints(Collection<SheetFloody> floodies) {
+    var transformer = new FloodyToSpreadSheetRowTransformer(defaultAudienceLifespan);
+
+    return floodies.stream()
+        .map(transformer::transformToSheetRow)
+        .map(
+            row -> {
+              var hasher = Hashing.farmHashFingerprint64().newHasher();
+              for (int column = 0; column < row.size(); column++) {
+                if (column != REMARKS_COLUMN) {
+                  hasher.putString(String.valueOf(row.get(column)), UTF_8).putByte((byte) 0);
+                }
+              }
+              return hasher.hash().asLong();
+            })
+        .collect(toImmutableSet());
+  }
+
+  /** Computes a new baseline, possibly reading the spreadsheet revision or the old baseline. */
+  @FunctionalInterface
+  private interface BaselineSupplier {
+    SheetRowFingerprints get() throws IOException;
+  }
+}
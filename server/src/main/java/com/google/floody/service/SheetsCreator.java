@@ -25,7 +25,6 @@ import static java.lang.Integer.parseInt;
 
 import com.google.api.services.sheets.v4.model.AddProtectedRangeRequest;
 import com.google.api.services.sheets.v4.model.AutoResizeDimensionsRequest;
-import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetRequest;
 import com.google.api.services.sheets.v4.model.CellData;
 import com.google.api.services.sheets.v4.model.CellFormat;
 import com.google.api.services.sheets.v4.model.Color;
@@ -53,6 +52,7 @@ import com.google.floody.model.PublisherTagSheetHeaderInformation;
 import com.google.floody.model.TagFormat;
 import com.google.floody.model.TagType;
 import com.google.floody.spreadsheet.GoogleSpreadsheetService;
+import com.google.floody.spreadsheet.SheetLayoutBuilder;
 import java.io.IOException;
 import java.util.Arrays;
 import org.apache.commons.lang3.StringUtils;
@@ -69,29 +69,21 @@ abstract class SheetsCreator {
     return new AutoValue_SheetsCreator(spreadsheetService, floodyAdminEmails);
   }
 
+  /**
+   * Creates all Floody sheets with headers, validations, protections and formatting, and removes
+   * the default sheet of the new spreadsheet, in a single batch update.
+   */
   public void createAllSheets() throws IOException {
-    var activityActions = createActivitySheet();
-    var defaultTagSheetActions = createDefaultTagSheet();
-    var publisherTagSheetActions = createPublisherTagSheet();
-    var userDefinedVariablesSheetActions = createUserDefinedVariablesSheet();
-    var activityGroupSheetActions = createActivityGroupSheet();
-
-    var allBatchRequests =
-        ImmutableList.<Request>builder()
-            .addAll(activityActions)
-            .addAll(defaultTagSheetActions)
-            .addAll(publisherTagSheetActions)
-            .addAll(userDefinedVariablesSheetActions)
-            .addAll(activityGroupSheetActions)
-            .build();
+    var layout = new SheetLayoutBuilder();
 
-    spreadsheetService()
-        .getSheetsService()
-        .spreadsheets()
-        .batchUpdate(
-            spreadsheetService().getSpreadsheetId(),
-            new BatchUpdateSpreadsheetRequest().setRequests(allBatchRequests))
-        .execute();
+    layout
+        .addRequests(createActivitySheet(layout))
+        .addRequests(createDefaultTagSheet(layout))
+        .addRequests(createPublisherTagSheet(layout))
+        .addRequests(createUserDefinedVariablesSheet(layout))
+        .addRequests(createActivityGroupSheet(layout))
+        .removeSheet(SheetLayoutBuilder.DEFAULT_SHEET_ID)
+        .applyTo(spreadsheetService());
   }
 
   /**
@@ -137,12 +129,11 @@ abstract class SheetsCreator {
   }
 
   /** Creates a new sheet for Floodlight Activities with all validations and headers. */
-  private ImmutableList<Request> createActivitySheet() throws IOException {
+  private ImmutableList<Request> createActivitySheet(SheetLayoutBuilder layout) {
     int activitySheetId =
-        spreadsheetService()
-            .createNewSheet(
-                ActivitySheetHeaderInformation.ACTIVITY_SHEET_NAME,
-                ActivitySheetHeaderInformation.ACTIVITY_SHEET_HEADERS);
+        layout.addSheet(
+            ActivitySheetHeaderInformation.ACTIVITY_SHEET_NAME,
+            ActivitySheetHeaderInformation.ACTIVITY_SHEET_HEADERS);
     ImmutableList.Builder<Request> batchUpdateRequestBuilder = ImmutableList.builder();
 
     batchUpdateRequestBuilder
@@ -413,23 +404,21 @@ abstract class SheetsCreator {
   }
 
   /** Creates a new sheet for Default Tags with correct headers. */
-  private ImmutableList<Request> createDefaultTagSheet() throws IOException {
+  private ImmutableList<Request> createDefaultTagSheet(SheetLayoutBuilder layout) {
     int defaultTagSheetId =
-        spreadsheetService()
-            .createNewSheet(
-                DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_NAME,
-                DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_HEADERS);
+        layout.addSheet(
+            DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_NAME,
+            DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_HEADERS);
 
     return ImmutableList.copyOf(buildHeaderRowFormatRequest(defaultTagSheetId));
   }
 
   /** Creates a new sheet for Publisher Tags with correct headers. */
-  private ImmutableList<Request> createPublisherTagSheet() throws IOException {
+  private ImmutableList<Request> createPublisherTagSheet(SheetLayoutBuilder layout) {
     int publisherTagSheetId =
-        spreadsheetService()
-            .createNewSheet(
-                PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_NAME,
-                PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_HEADERS);
+        layout.addSheet(
+            PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_NAME,
+            PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_HEADERS);
 
     return ImmutableList.<Request>builder()
         .addAll(
@@ -444,12 +433,11 @@ abstract class SheetsCreator {
   }
 
   /** Creates a new sheet for Custom Variables/ User Defined Variables with correct headers. */
-  private ImmutableList<Request> createUserDefinedVariablesSheet() throws IOException {
+  private ImmutableList<Request> createUserDefinedVariablesSheet(SheetLayoutBuilder layout) {
     int sheetId =
-        spreadsheetService()
-            .createNewSheet(
-                CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_NAME,
-                CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_HEADERS);
+        layout.addSheet(
+            CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_NAME,
+            CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_HEADERS);
 
     return ImmutableList.<Request>builder()
         .add(
@@ -466,12 +454,11 @@ abstract class SheetsCreator {
   }
 
   /** Creates a new (user read-only) sheet for Floodlight Activity Groups with correct headers. */
-  private ImmutableList<Request> createActivityGroupSheet() throws IOException {
+  private ImmutableList<Request> createActivityGroupSheet(SheetLayoutBuilder layout) {
     int activityGroupSheetId =
-        spreadsheetService()
-            .createNewSheet(
-                ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_NAME,
-                ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_HEADERS);
+        layout.addSheet(
+            ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_NAME,
+            ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_HEADERS);
 
     return ImmutableList.<Request>builder()
         .addAll(buildHeaderRowFormatRequest(activityGroupSheetId))
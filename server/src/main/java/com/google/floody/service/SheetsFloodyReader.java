@@ -16,11 +16,28 @@
 
 package com.google.floody.service;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_GROUP_NAME_COLUMN;
+import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_NAME_COLUMN;
 import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_RANGE;
-import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_SHEET_NAME;
+import static com.google.floody.model.ActivitySheetHeaderInformation.ACTIVITY_TAG_CAT_STRING_COLUMN;
+import static com.google.floody.model.ActivitySheetHeaderInformation.FLAG_TO_UPDATE_COLUMN;
+import static com.google.floody.model.ActivitySheetHeaderInformation.FLOODLIGHT_ID_COLUMN;
+import static com.google.floody.model.ActivitySheetHeaderInformation.GROUP_TAG_TYPE_STRING_COLUMN;
+import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_ID_COLUMN;
+import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_NAME;
+import static com.google.floody.model.PublisherTagSheetHeaderInformation.PUBLISHER_TAG_ID_COLUMN;
+import static com.google.floody.model.PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_NAME;
+import static com.google.floody.spreadsheet.SheetUtils.toLongOrNull;
+import static com.google.floody.spreadsheet.SheetUtils.toStringOrNull;
 import static java.lang.Long.parseLong;
+import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
 import com.google.floody.model.ActivityGroupSheetHeaderInformation;
 import com.google.floody.model.CustomVariablesSheetHeaderInformation;
 import com.google.floody.model.DefaultTagSheetHeaderInformation;
@@ -28,10 +45,13 @@ import com.google.floody.model.FloodyBundle;
 import com.google.floody.model.FloodyGroupMap;
 import com.google.floody.model.FloodyProperties;
 import com.google.floody.model.PublisherTagSheetHeaderInformation;
+import com.google.floody.model.SheetActivityKey;
 import com.google.floody.model.SheetCustomVariable;
 import com.google.floody.model.SheetDefaultTag;
 import com.google.floody.model.SheetFloody;
 import com.google.floody.model.SheetPublisherTag;
+import com.google.floody.model.SheetRowLocation;
+import com.google.floody.service.ApiCallScope.Subtask;
 import com.google.floody.spreadsheet.GoogleSpreadsheetService;
 import com.google.floody.transforms.ActivityGroupToSpreadsheetRowTransformer;
 import com.google.floody.transforms.CustomVariableToSpreadsheetRowTransformer;
@@ -40,9 +60,28 @@ import com.google.floody.transforms.FloodyToSpreadSheetRowTransformer;
 import com.google.floody.transforms.PublisherTagToSpreadSheetRowTransformer;
 import java.io.IOException;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 public final class SheetsFloodyReader {
 
+  /** The activity columns which must be unique across the spreadsheet, or within a group. */
+  private static final ImmutableList<Integer> UNIQUE_ACTIVITY_COLUMNS =
+      ImmutableList.of(
+          FLOODLIGHT_ID_COLUMN,
+          ACTIVITY_NAME_COLUMN,
+          ACTIVITY_TAG_CAT_STRING_COLUMN,
+          ACTIVITY_GROUP_NAME_COLUMN,
+          GROUP_TAG_TYPE_STRING_COLUMN);
+
   private final GoogleSpreadsheetService spreadsheetService;
   private final FloodyProperties floodyProperties;
 
@@ -53,28 +92,288 @@ public final class SheetsFloodyReader {
   }
 
   public FloodyBundleManager load() throws IOException {
-    var floodlightConfigurationId =
-        parseLong(
-            spreadsheetService
-                .metaReader()
-                .readMetadata(floodyProperties.getSheetMetadataFloodlightConfigurationIdKey())
-                .get(0));
+    var spreadsheetLayout = readSpreadsheetLayout();
+    var sectionReaders = new SheetSectionReaders(spreadsheetLayout.floodlightConfigurationId);
 
-    var sectionReaders = new SheetSectionReaders(floodlightConfigurationId);
+    return FloodyBundleManager.builder()
+        .setBundle(
+            FloodyBundle.builder()
+                .setFloodies(sectionReaders.readFloodies(spreadsheetLayout.activitySheetNames))
+                .setDefaultTags(sectionReaders.readDefaultTags())
+                .setPublisherTags(sectionReaders.readPublisherTags())
+                .setCustomVariables(sectionReaders.readCustomVariables())
+                .setFloodyGroups(sectionReaders.readFloodyGroupMap())
+                .build())
+        .setFloodlightConfigurationId(spreadsheetLayout.floodlightConfigurationId)
+        .build();
+  }
+
+  /**
+   * Loads all the sheets like {@link #load()}, with each activity carrying the {@link
+   * SheetRowLocation} it was read from so that individual rows can be written back in place.
+   */
+  public FloodyBundleManager loadLocated() throws IOException {
+    var spreadsheetLayout = readSpreadsheetLayout();
+    var sectionReaders = new SheetSectionReaders(spreadsheetLayout.floodlightConfigurationId);
 
     return FloodyBundleManager.builder()
         .setBundle(
             FloodyBundle.builder()
-                .setFloodies(sectionReaders.readFloodies())
+                .setFloodies(
+                    sectionReaders.readLocatedFloodies(spreadsheetLayout.activitySheetNames))
                 .setDefaultTags(sectionReaders.readDefaultTags())
                 .setPublisherTags(sectionReaders.readPublisherTags())
                 .setCustomVariables(sectionReaders.readCustomVariables())
                 .setFloodyGroups(sectionReaders.readFloodyGroupMap())
                 .build())
-        .setFloodlightConfigurationId(floodlightConfigurationId)
+        .setFloodlightConfigurationId(spreadsheetLayout.floodlightConfigurationId)
+        .build();
+  }
+
+  /**
+   * Loads only the activities flagged for update and the default and publisher tags they refer to,
+   * so that the read scales with the number of edited rows instead of the size of the sheets.
+   *
+   * <p>The flag column of the activity sheets and the id columns of the tag sheets are read first,
+   * then only the flagged activity rows and finally only the referenced tag rows. Each floody
+   * carries its {@link SheetRowLocation} to be written back in place. The id, name and tag string
+   * columns of the other rows are read along with the flagged rows, so that the flagged activities
+   * are still validated against the whole sheet. The custom variables and the groups are not read,
+   * the DCM writes use the groups of the {@link DcmReferenceSnapshot}.
+   */
+  public FloodyBundleManager loadFlagged() throws IOException {
+    var spreadsheetLayout = readSpreadsheetLayout();
+    var floodyTransformer =
+        new FloodyToSpreadSheetRowTransformer(
+            Period.ofDays(floodyProperties.getDefaultAudienceMembershipDurationDays()));
+    var defaultTagTransformer = new DefaultTagToSpreadSheetRowTransformer();
+    var publisherTagTransformer = new PublisherTagToSpreadSheetRowTransformer();
+
+    // Phase 1: the header rows, then the flag and tag id columns, in one request each.
+    var headersBySheetName =
+        ImmutableMap.<String, ImmutableList<String>>builder()
+            .put(DEFAULT_TAG_SHEET_NAME, defaultTagTransformer.columnHeaders())
+            .put(PUBLISHER_TAG_SHEET_NAME, publisherTagTransformer.columnHeaders());
+    spreadsheetLayout.activitySheetNames.forEach(
+        sheetName -> headersBySheetName.put(sheetName, floodyTransformer.columnHeaders()));
+    spreadsheetService.resolveColumnMappings(headersBySheetName.build());
+
+    var keyColumns = new HashMap<String, Integer>();
+    for (var sheetName : spreadsheetLayout.activitySheetNames) {
+      putIfPresent(
+          keyColumns,
+          sheetName,
+          spreadsheetService.findPhysicalColumn(
+              sheetName, floodyTransformer.columnHeaders(), FLAG_TO_UPDATE_COLUMN));
+    }
+    putIfPresent(
+        keyColumns,
+        DEFAULT_TAG_SHEET_NAME,
+        spreadsheetService.findPhysicalColumn(
+            DEFAULT_TAG_SHEET_NAME, defaultTagTransformer.columnHeaders(), DEFAULT_TAG_ID_COLUMN));
+    putIfPresent(
+        keyColumns,
+        PUBLISHER_TAG_SHEET_NAME,
+        spreadsheetService.findPhysicalColumn(
+            PUBLISHER_TAG_SHEET_NAME,
+            publisherTagTransformer.columnHeaders(),
+            PUBLISHER_TAG_ID_COLUMN));
+
+    var keyColumnValues = spreadsheetService.retrieveColumnValues(keyColumns);
+
+    // Phase 2: the flagged activity rows of all the shards and the unique columns, concurrently.
+    var shardReads = new LinkedHashMap<String, Subtask<ImmutableSortedMap<Integer, SheetFloody>>>();
+    var uniqueColumnReads =
+        new HashMap<Integer, Subtask<ImmutableMap<String, ImmutableList<Object>>>>();
+    try (var scope = new ApiCallScope()) {
+      for (var sheetName : spreadsheetLayout.activitySheetNames) {
+        var flaggedRows =
+            selectRowNumbers(
+                keyColumnValues.get(sheetName), flag -> "Y".equals(toStringOrNull(flag)));
+
+        shardReads.put(
+            sheetName,
+            scope.fork(
+                () -> spreadsheetService.retrieveRows(sheetName, floodyTransformer, flaggedRows)));
+      }
+
+      for (int uniqueColumn : UNIQUE_ACTIVITY_COLUMNS) {
+        var columns = new HashMap<String, Integer>();
+        for (var sheetName : spreadsheetLayout.activitySheetNames) {
+          putIfPresent(
+              columns,
+              sheetName,
+              spreadsheetService.findPhysicalColumn(
+                  sheetName, floodyTransformer.columnHeaders(), uniqueColumn));
+        }
+
+        uniqueColumnReads.put(
+            uniqueColumn, scope.fork(() -> spreadsheetService.retrieveColumnValues(columns)));
+      }
+      scope.join();
+    }
+
+    var floodies = ImmutableSet.<SheetFloody>builder();
+    var defaultTagIds = new HashSet<Long>();
+    var publisherTagIds = new HashSet<Long>();
+    for (var shardRead : shardReads.entrySet()) {
+      for (var row : shardRead.getValue().get().entrySet()) {
+        var floody = row.getValue();
+        Optional.ofNullable(floody.getDefaultTagIds()).ifPresent(defaultTagIds::addAll);
+        Optional.ofNullable(floody.getPublisherTagIds()).ifPresent(publisherTagIds::addAll);
+
+        floodies.add(
+            floody.toBuilder()
+                .setSheetLocation(SheetRowLocation.create(shardRead.getKey(), row.getKey()))
+                .build());
+      }
+    }
+
+    // Phase 3: only the tag rows referred by the flagged activities.
+    Subtask<ImmutableSortedMap<Integer, SheetDefaultTag>> defaultTagsRead;
+    Subtask<ImmutableSortedMap<Integer, SheetPublisherTag>> publisherTagsRead;
+    try (var scope = new ApiCallScope()) {
+      defaultTagsRead =
+          scope.fork(
+              () ->
+                  spreadsheetService.retrieveRows(
+                      DEFAULT_TAG_SHEET_NAME,
+                      defaultTagTransformer,
+                      selectRowNumbers(
+                          keyColumnValues.get(DEFAULT_TAG_SHEET_NAME),
+                          id -> defaultTagIds.contains(toLongOrNull(id)))));
+      publisherTagsRead =
+          scope.fork(
+              () ->
+                  spreadsheetService.retrieveRows(
+                      PUBLISHER_TAG_SHEET_NAME,
+                      publisherTagTransformer,
+                      selectRowNumbers(
+                          keyColumnValues.get(PUBLISHER_TAG_SHEET_NAME),
+                          id -> publisherTagIds.contains(toLongOrNull(id)))));
+      scope.join();
+    }
+
+    return FloodyBundleManager.builder()
+        .setBundle(
+            FloodyBundle.builder()
+                .setFloodies(floodies.build())
+                .setDefaultTags(ImmutableSet.copyOf(defaultTagsRead.get().values()))
+                .setPublisherTags(ImmutableSet.copyOf(publisherTagsRead.get().values()))
+                .setFloodyGroups(FloodyGroupMap.buildFor(ImmutableSet.of()))
+                .build())
+        .setOtherSheetActivities(
+            readOtherSheetActivities(
+                spreadsheetLayout.activitySheetNames, keyColumnValues, uniqueColumnReads))
+        .setFloodlightConfigurationId(spreadsheetLayout.floodlightConfigurationId)
         .build();
   }
 
+  /** Returns the keys of the activity rows not flagged for update, from the unique columns. */
+  private static ImmutableList<SheetActivityKey> readOtherSheetActivities(
+      ImmutableList<String> activitySheetNames,
+      ImmutableMap<String, ImmutableList<Object>> flagColumnValues,
+      Map<Integer, Subtask<ImmutableMap<String, ImmutableList<Object>>>> uniqueColumnReads) {
+    var activities = ImmutableList.<SheetActivityKey>builder();
+
+    for (var sheetName : activitySheetNames) {
+      var flags = flagColumnValues.get(sheetName);
+      var ids = uniqueColumnReads.get(FLOODLIGHT_ID_COLUMN).get().get(sheetName);
+      var names = uniqueColumnReads.get(ACTIVITY_NAME_COLUMN).get().get(sheetName);
+      var tagStrings = uniqueColumnReads.get(ACTIVITY_TAG_CAT_STRING_COLUMN).get().get(sheetName);
+      var groupNames = uniqueColumnReads.get(ACTIVITY_GROUP_NAME_COLUMN).get().get(sheetName);
+      var groupTagStrings =
+          uniqueColumnReads.get(GROUP_TAG_TYPE_STRING_COLUMN).get().get(sheetName);
+
+      int rowCount = IntStream.of(size(ids), size(names), size(tagStrings)).max().orElse(0);
+      for (int index = 0; index < rowCount; index++) {
+        if ("Y".equals(toStringOrNull(cell(flags, index)))) {
+          continue;
+        }
+
+        var activity =
+            SheetActivityKey.create(
+                toLongOrNull(cell(ids, index)),
+                toStringOrNull(cell(names, index)),
+                toStringOrNull(cell(tagStrings, index)),
+                toStringOrNull(cell(groupNames, index)),
+                toStringOrNull(cell(groupTagStrings, index)));
+
+        if (activity.getId() != null
+            || !isBlank(activity.getName())
+            || !isBlank(activity.getTagString())) {
+          activities.add(activity);
+        }
+      }
+    }
+
+    return activities.build();
+  }
+
+  private static int size(@Nullable ImmutableList<Object> columnValues) {
+    return (columnValues == null) ? 0 : columnValues.size();
+  }
+
+  /** Returns the cell at the index below the header, or null past the trailing empty cells. */
+  @Nullable
+  private static Object cell(@Nullable ImmutableList<Object> columnValues, int index) {
+    return (index < size(columnValues)) ? columnValues.get(index) : null;
+  }
+
+  /** Returns the 1-based row numbers of the column cells matching the predicate. */
+  private static ImmutableList<Integer> selectRowNumbers(
+      @Nullable ImmutableList<Object> columnValues, Predicate<Object> selector) {
+    if (columnValues == null) {
+      return ImmutableList.of();
+    }
+
+    // The column values start from the row below the header.
+    return IntStream.range(0, columnValues.size())
+        .filter(index -> selector.test(columnValues.get(index)))
+        .mapToObj(index -> index + 2)
+        .collect(toImmutableList());
+  }
+
+  private static void putIfPresent(Map<String, Integer> columns, String sheetName, int column) {
+    if (column >= 0) {
+      columns.put(sheetName, column);
+    }
+  }
+
+  /** Reads the Floodlight configuration id and the activity shard names in one search. */
+  private SpreadsheetLayout readSpreadsheetLayout() throws IOException {
+    var activitySheetSharding = ActivitySheetSharding.fromProperties(floodyProperties);
+    // the shard map can change, read it fresh along with the config id in one search.
+    var metadata =
+        spreadsheetService
+            .metaReader()
+            .uncached()
+            .readMetadata(
+                floodyProperties.getSheetMetadataFloodlightConfigurationIdKey(),
+                activitySheetSharding.shardMapMetadataKey());
+
+    return new SpreadsheetLayout(
+        parseLong(
+            metadata
+                .get(floodyProperties.getSheetMetadataFloodlightConfigurationIdKey())
+                .asList()
+                .get(0)),
+        ActivitySheetSharding.parseShardMap(
+            metadata.get(activitySheetSharding.shardMapMetadataKey())));
+  }
+
+  private static final class SpreadsheetLayout {
+
+    private final long floodlightConfigurationId;
+    private final ImmutableList<String> activitySheetNames;
+
+    private SpreadsheetLayout(
+        long floodlightConfigurationId, ImmutableList<String> activitySheetNames) {
+      this.floodlightConfigurationId = floodlightConfigurationId;
+      this.activitySheetNames = activitySheetNames;
+    }
+  }
+
   private class SheetSectionReaders {
 
     private final long floodlightConfigurationId;
@@ -83,15 +382,84 @@ public final class SheetsFloodyReader {
       this.floodlightConfigurationId = floodlightConfigurationId;
     }
 
-    private ImmutableSet<SheetFloody> readFloodies() throws IOException {
-      var sheetFloodies =
-          spreadsheetService.retrieveData(
-              ACTIVITY_SHEET_NAME,
-              ACTIVITY_RANGE,
-              new FloodyToSpreadSheetRowTransformer(
-                  Period.ofDays(floodyProperties.getDefaultAudienceMembershipDurationDays())));
+    /** Reads all activity shard sheets concurrently and merges the activities. */
+    private ImmutableSet<SheetFloody> readFloodies(ImmutableList<String> activitySheetNames)
+        throws IOException {
+      var transformer =
+          new FloodyToSpreadSheetRowTransformer(
+              Period.ofDays(floodyProperties.getDefaultAudienceMembershipDurationDays()));
+
+      var shardReads = new ArrayList<Subtask<List<SheetFloody>>>();
+      try (var scope = new ApiCallScope()) {
+        for (var sheetName : activitySheetNames) {
+          shardReads.add(
+              scope.fork(
+                  () -> spreadsheetService.retrieveData(sheetName, ACTIVITY_RANGE, transformer)));
+        }
+        scope.join();
+      }
+
+      var sheetFloodies = ImmutableSet.<SheetFloody>builder();
+      for (var shardRead : shardReads) {
+        sheetFloodies.addAll(shardRead.get());
+      }
+
+      return sheetFloodies.build();
+    }
+
+    /**
+     * Reads the rows with an activity name of all activity shard sheets concurrently, locating each
+     * activity by its sheet and row number.
+     */
+    private ImmutableList<SheetFloody> readLocatedFloodies(
+        ImmutableList<String> activitySheetNames) throws IOException {
+      var transformer =
+          new FloodyToSpreadSheetRowTransformer(
+              Period.ofDays(floodyProperties.getDefaultAudienceMembershipDurationDays()));
+
+      spreadsheetService.resolveColumnMappings(
+          activitySheetNames.stream()
+              .collect(
+                  toImmutableMap(
+                      sheetName -> sheetName, sheetName -> transformer.columnHeaders())));
+
+      var nameColumns = new HashMap<String, Integer>();
+      for (var sheetName : activitySheetNames) {
+        putIfPresent(
+            nameColumns,
+            sheetName,
+            spreadsheetService.findPhysicalColumn(
+                sheetName, transformer.columnHeaders(), ACTIVITY_NAME_COLUMN));
+      }
+      var nameColumnValues = spreadsheetService.retrieveColumnValues(nameColumns);
+
+      var shardReads =
+          new LinkedHashMap<String, Subtask<ImmutableSortedMap<Integer, SheetFloody>>>();
+      try (var scope = new ApiCallScope()) {
+        for (var sheetName : activitySheetNames) {
+          var activityRows =
+              selectRowNumbers(
+                  nameColumnValues.get(sheetName), name -> !isBlank(toStringOrNull(name)));
+
+          shardReads.put(
+              sheetName,
+              scope.fork(
+                  () -> spreadsheetService.retrieveRows(sheetName, transformer, activityRows)));
+        }
+        scope.join();
+      }
+
+      var floodies = ImmutableList.<SheetFloody>builder();
+      for (var shardRead : shardReads.entrySet()) {
+        for (var row : shardRead.getValue().get().entrySet()) {
+          floodies.add(
+              row.getValue().toBuilder()
+                  .setSheetLocation(SheetRowLocation.create(shardRead.getKey(), row.getKey()))
+                  .build());
+        }
+      }
 
-      return ImmutableSet.copyOf(sheetFloodies);
+      return floodies.build();
     }
 
     private ImmutableSet<SheetDefaultTag> readDefaultTags() throws IOException {
@@ -16,15 +16,24 @@
 
 package com.google.floody.service;
 
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_RANGE;
+import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_HEADERS;
 import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_NAME;
+import static java.util.function.Predicate.not;
 
 import com.google.api.services.dfareporting.model.FloodlightActivity;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableTable;
 import com.google.floody.model.ActivityGroupSheetHeaderInformation;
 import com.google.floody.model.ActivitySheetHeaderInformation;
 import com.google.floody.model.CustomVariablesSheetHeaderInformation;
 import com.google.floody.model.FloodyBundle;
 import com.google.floody.model.PublisherTagSheetHeaderInformation;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.model.SheetRowLocation;
 import com.google.floody.spreadsheet.GoogleSpreadsheetService;
 import com.google.floody.transforms.ActivityGroupToSpreadsheetRowTransformer;
 import com.google.floody.transforms.CustomVariableToSpreadsheetRowTransformer;
@@ -33,6 +42,9 @@ import com.google.floody.transforms.FloodyToSpreadSheetRowTransformer;
 import com.google.floody.transforms.PublisherTagToSpreadSheetRowTransformer;
 import java.io.IOException;
 import java.time.Period;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 /**
  * Service to update spreadsheets with {@link FloodlightActivity} information based on the given
@@ -43,20 +55,31 @@ public final class SheetsFloodyWriter {
   private final GoogleSpreadsheetService spreadsheetService;
   private final FloodyBundle bundle;
   private final Period defaultAudienceLifespan;
+  private final ActivitySheetSharding activitySheetSharding;
+  private ExportProgressListener progressListener = ExportProgressListener.NO_OP;
 
   /**
    * Parameterized constructor for instantiating the writer.
    *
    * @param bundle representing the DCM FloodlightActivities of the given DCM account.
    * @param spreadsheetService the service to use for
+   * @param activitySheetSharding the policy to split activities across multiple sheets
    */
   SheetsFloodyWriter(
       FloodyBundle bundle,
       GoogleSpreadsheetService spreadsheetService,
-      Period defaultAudienceLifespan) {
+      Period defaultAudienceLifespan,
+      ActivitySheetSharding activitySheetSharding) {
     this.bundle = bundle;
     this.spreadsheetService = spreadsheetService;
     this.defaultAudienceLifespan = defaultAudienceLifespan;
+    this.activitySheetSharding = activitySheetSharding;
+  }
+
+  /** Reports the activity rows written to each sheet to the listener. */
+  public SheetsFloodyWriter withProgressListener(ExportProgressListener progressListener) {
+    this.progressListener = progressListener;
+    return this;
   }
 
   /**
@@ -66,24 +89,154 @@ public final class SheetsFloodyWriter {
    * @throws IOException when there is an exception in spreadsheet writing.
    */
   public void sync() throws IOException {
-    // Initialize spreadsheet service to use the given spreadsheetId
+    var existingActivitySheetNames =
+        activitySheetSharding.readShardSheetNames(spreadsheetService.metaReader());
+
+    // Read all header rows in one request, the exports re-use the compiled column mappings.
+    var sheetHeaders =
+        ImmutableMap.<String, ImmutableList<String>>builder()
+            .put(DEFAULT_TAG_SHEET_NAME, DEFAULT_TAG_SHEET_HEADERS)
+            .put(
+                PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_NAME,
+                PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_HEADERS)
+            .put(
+                CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_NAME,
+                CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_HEADERS)
+            .put(
+                ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_NAME,
+                ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_HEADERS);
+
+    existingActivitySheetNames.forEach(
+        sheetName ->
+            sheetHeaders.put(sheetName, ActivitySheetHeaderInformation.ACTIVITY_SHEET_HEADERS));
+
+    spreadsheetService.resolveColumnMappings(sheetHeaders.build());
+
     exportDefaultTagsToSheet();
     exportPublisherTagsToSheet();
-    exportFloodiesToSheet();
+    exportFloodiesToSheet(existingActivitySheetNames);
     exportCustomVariables();
     exportActivityGroups();
   }
 
-  /** */
-  private void exportFloodiesToSheet() throws IOException {
-    spreadsheetService.clearData(
-        ActivitySheetHeaderInformation.ACTIVITY_SHEET_NAME,
-        ActivitySheetHeaderInformation.ACTIVITY_RANGE);
+  /**
+   * Writes the bundle's activities back to the sheet rows they were read from, leaving all the
+   * other rows and sheets as-is. Used with the bundles read by {@link
+   * SheetsFloodyReader#loadFlagged()}.
+   *
+   * @throws IllegalStateException when an activity has no sheet location
+   * @throws IOException when there is an exception in spreadsheet writing.
+   */
+  public void syncActivityRows() throws IOException {
+    ImmutableTable.Builder<String, Integer, SheetFloody> rows = ImmutableTable.builder();
 
-    spreadsheetService.storeDataWithTransform(
+    for (SheetFloody floody : bundle.getFloodies()) {
+      SheetRowLocation location = floody.getSheetLocation();
+      checkState(location != null, "floody (%s) has no sheet location", floody.getName());
+      rows.put(location.getSheetName(), location.getRowNumber(), floody);
+    }
+
+    var sheetRows = rows.build();
+    spreadsheetService.updateRows(
+        new FloodyToSpreadSheetRowTransformer(defaultAudienceLifespan), sheetRows);
+
+    sheetRows
+        .rowMap()
+        .forEach(
+            (sheetName, sheetFloodies) ->
+                progressListener.onSheetRows(sheetName, sheetFloodies.size()));
+  }
+
+  /**
+   * Writes the default and publisher tag sheets, e.g. when activity rows written in place refer to
+   * tags missing from them.
+   *
+   * @throws IOException when there is an exception in spreadsheet writing.
+   */
+  public void syncTagSheets() throws IOException {
+    exportDefaultTagsToSheet();
+    exportPublisherTagsToSheet();
+  }
+
+  /**
+   * Writes the custom variables and the activity groups sheets, which are read from DCM with the
+   * {@link DcmReferenceSnapshot} and complete even when the activities are partial.
+   *
+   * @throws IOException when there is an exception in spreadsheet writing.
+   */
+  public void syncReferenceSheets() throws IOException {
+    spreadsheetService.resolveColumnMappings(
+        ImmutableMap.of(
+            CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_NAME,
+            CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_HEADERS,
+            ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_NAME,
+            ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_HEADERS));
+
+    exportCustomVariables();
+    exportActivityGroups();
+  }
+
+  /**
+   * Writes the activities to the shard sheets, creating or deleting shard sheets to match the
+   * required number of shards and records the new shards in the spreadsheet's metadata. Each shard
+   * is resized to its rows, so that the copies do not carry the source sheet's empty grid.
+   */
+  private void exportFloodiesToSheet(ImmutableList<String> existingShardNames)
+      throws IOException {
+    var shards = activitySheetSharding.partition(bundle.getFloodies());
+    var shardNames =
+        IntStream.range(0, shards.size())
+            .mapToObj(ActivitySheetSharding::shardSheetName)
+            .collect(toImmutableList());
+
+    for (var sheetName : existingShardNames) {
+      spreadsheetService.clearData(sheetName, ActivitySheetHeaderInformation.ACTIVITY_RANGE);
+    }
+
+    // New shards are copied from the cleared Activities sheet to retain validations and format.
+    spreadsheetService.duplicateSheet(
         ActivitySheetHeaderInformation.ACTIVITY_SHEET_NAME,
-        new FloodyToSpreadSheetRowTransformer(defaultAudienceLifespan),
-        bundle.getFloodies());
+        shardNames.stream()
+            .filter(not(existingShardNames::contains))
+            .collect(toImmutableList()));
+
+    existingShardNames.stream()
+        .filter(not(shardNames::contains))
+        .filter(not(ActivitySheetHeaderInformation.ACTIVITY_SHEET_NAME::equals))
+        .forEach(spreadsheetService::deleteSheet);
+
+    if (!shardNames.equals(existingShardNames)) {
+      spreadsheetService
+          .metaWriter()
+          .replaceMetadata(
+              activitySheetSharding.shardMapMetadataKey(),
+              ActivitySheetSharding.toShardMap(shardNames));
+    }
+
+    // The shards share the spreadsheet's cell limit, trim each to its rows after the copy.
+    var shardRowCounts = ImmutableMap.<String, Integer>builder();
+    for (int index = 0; index < shards.size(); index++) {
+      shardRowCounts.put(shardNames.get(index), Math.max(shards.get(index).size(), 1) + 1);
+    }
+    spreadsheetService.resizeSheetRows(shardRowCounts.build());
+
+    var transformer = new FloodyToSpreadSheetRowTransformer(defaultAudienceLifespan);
+    var shardWrites = new ArrayList<CompletableFuture<Integer>>();
+    for (int index = 0; index < shards.size(); index++) {
+      var sheetName = shardNames.get(index);
+      var shardFloodies = shards.get(index);
+
+      shardWrites.add(
+          FloodyExecutors.supplyAsync(
+              () ->
+                  spreadsheetService.storeDataWithTransform(
+                      sheetName, transformer, shardFloodies)));
+    }
+
+    for (int index = 0; index < shardWrites.size(); index++) {
+      FloodyExecutors.join(shardWrites.get(index));
+      progressListener.onSheetRows(shardNames.get(index), shards.get(index).size());
+    }
   }
 
   /** */
@@ -18,14 +18,17 @@ package com.google.floody.service;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
+import com.google.api.services.drive.Drive;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.GoogleLogger;
 import com.google.floody.model.FloodyProperties;
 import com.google.floody.protobuf.SheetObjects.FloodySheet;
 import com.google.floody.spreadsheet.GoogleSpreadsheetFactory;
+import com.google.floody.spreadsheet.GoogleSpreadsheetService;
 import com.google.floody.spreadsheet.SharingService;
 import java.io.IOException;
+import java.util.Objects;
 
 /** Micro service to create a floody spreadsheet. */
 @AutoValue
@@ -43,9 +46,14 @@ public abstract class SpreadsheetCreator {
 
   abstract ImmutableList<String> floodyAdminEmails();
 
+  abstract SpreadsheetTemplateProvider templateProvider();
+
+  abstract SpreadsheetPool spreadsheetPool();
+
   public static SpreadsheetCreator create(
       GoogleSpreadsheetFactory spreadsheetServiceFactory,
       SharingService sharingService,
+      Drive driveService,
       FloodyProperties floodyProperties) {
 
     var adminEmails =
@@ -53,8 +61,19 @@ public abstract class SpreadsheetCreator {
             ? ImmutableList.copyOf(floodyProperties.getAdminGroupEmails())
             : ImmutableList.<String>of();
 
+    var templateProvider =
+        new SpreadsheetTemplateProvider(driveService, spreadsheetServiceFactory, adminEmails);
+
     return new AutoValue_SpreadsheetCreator(
-        spreadsheetServiceFactory, sharingService, floodyProperties, adminEmails);
+        spreadsheetServiceFactory,
+        sharingService,
+        floodyProperties,
+        adminEmails,
+        templateProvider,
+        new SpreadsheetPool(
+            driveService,
+            templateProvider,
+            Objects.requireNonNullElse(floodyProperties.getSpreadsheetPoolSize(), 0)));
   }
 
   /**
@@ -84,6 +103,10 @@ public abstract class SpreadsheetCreator {
             .replace("{accountId}", String.valueOf(accountId))
             .replace("{floodlightConfigId}", String.valueOf(floodlightConfigurationId));
 
+    if (Boolean.TRUE.equals(floodyProperties().getSpreadsheetTemplateProvisioning())) {
+      return createFromTemplate(accountId, floodlightConfigurationId, userEmail, spreadsheetTile);
+    }
+
     var spreadsheetService = spreadsheetServiceFactory().forNewSpreadsheet(spreadsheetTile);
 
     var spreadsheetId = spreadsheetService.getSpreadsheetId();
@@ -91,25 +114,16 @@ public abstract class SpreadsheetCreator {
     // log spreadsheetId
     logger.atInfo().log("spreadsheetId: %s", spreadsheetId);
 
+    // creates all sheets and deletes the default sheet in one batch update
     SheetsCreator.create(spreadsheetService, floodyAdminEmails()).createAllSheets();
 
-    // delete the default sheet
-    spreadsheetService.deleteSheet(0);
-
     // update Developer Metadata
-    DcmSpreadsheetMetaWriter.builder()
-        .setSpreadsheetMetaWriter(spreadsheetService.metaWriter())
-        .setAccountId(accountId)
-        .setFloodlightConfigurationId(floodlightConfigurationId)
-        .setSheetMetadataFloodlightConfigurationIdKey(
-            floodyProperties().getSheetMetadataFloodlightConfigurationIdKey())
-        .setSheetMetadataAccountIdKey(floodyProperties().getSheetMetadataAccountIdKey())
-        .build()
+    buildDcmMetaWriter(spreadsheetService, accountId, floodlightConfigurationId)
         .writeDcmInformation();
 
     // share the spreadsheet to floody group & requesting User
-    sharingService().addGroupsToFileAsEditors(spreadsheetId, floodyAdminEmails());
-    sharingService().addUsersToFileAsEditors(spreadsheetId, ImmutableList.of(userEmail));
+    sharingService()
+        .addEditorsToFile(spreadsheetId, ImmutableList.of(userEmail), floodyAdminEmails());
 
     return FloodySheet.newBuilder()
         .setId(spreadsheetId)
@@ -117,4 +131,64 @@ public abstract class SpreadsheetCreator {
         .setLink(spreadsheetService.getSpreadsheet().getSpreadsheetUrl())
         .build();
   }
+
+  /**
+   * Claims a spreadsheet from the warm pool or creates it as a copy of the pre-formatted template,
+   * then writes the DCM metadata and shares the spreadsheet concurrently.
+   */
+  private FloodySheet createFromTemplate(
+      long accountId, long floodlightConfigurationId, String userEmail, String spreadsheetTile)
+      throws IOException {
+    var spreadsheetFile = spreadsheetPool().claim(spreadsheetTile).orElse(null);
+
+    if (spreadsheetFile == null) {
+      spreadsheetFile = templateProvider().copyTemplate(spreadsheetTile);
+    }
+
+    spreadsheetPool().refillAsync();
+
+    var spreadsheetId = spreadsheetFile.getId();
+
+    logger.atInfo().log(
+        "spreadsheetId: %s (template %s)",
+        spreadsheetId, SpreadsheetTemplateProvider.templateVersion());
+
+    var spreadsheetService = spreadsheetServiceFactory().forSpreadsheet(spreadsheetId);
+
+    var metadataWrite =
+        FloodyExecutors.supplyAsync(
+            () ->
+                buildDcmMetaWriter(spreadsheetService, accountId, floodlightConfigurationId)
+                    .writeDcmInformation());
+
+    var sharing =
+        FloodyExecutors.supplyAsync(
+            () -> {
+              sharingService()
+                  .addEditorsToFile(
+                      spreadsheetId, ImmutableList.of(userEmail), floodyAdminEmails());
+              return spreadsheetId;
+            });
+
+    FloodyExecutors.join(metadataWrite);
+    FloodyExecutors.join(sharing);
+
+    return FloodySheet.newBuilder()
+        .setId(spreadsheetId)
+        .setName(spreadsheetFile.getName())
+        .setLink(spreadsheetFile.getWebViewLink())
+        .build();
+  }
+
+  private DcmSpreadsheetMetaWriter buildDcmMetaWriter(
+      GoogleSpreadsheetService spreadsheetService, long accountId, long floodlightConfigurationId) {
+    return DcmSpreadsheetMetaWriter.builder()
+        .setSpreadsheetMetaWriter(spreadsheetService.metaWriter())
+        .setAccountId(accountId)
+        .setFloodlightConfigurationId(floodlightConfigurationId)
+        .setSheetMetadataFloodlightConfigurationIdKey(
+            floodyProperties().getSheetMetadataFloodlightConfigurationIdKey())
+        .setSheetMetadataAccountIdKey(floodyProperties().getSheetMetadataAccountIdKey())
+        .build();
+  }
 }
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.floody.service.DatastoreService.ofy;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.GoogleLogger;
+import com.google.floody.model.PooledSpreadsheet;
+import com.googlecode.objectify.Key;
+import com.googlecode.objectify.ObjectifyService;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Keeps a pool of ready, unassigned Floody spreadsheets copied from the current template, so that
+ * initializing a new Floody spreadsheet only needs to rename, stamp and share a pooled one.
+ *
+ * <p>The pooled spreadsheets are tracked in Datastore and claimed in a transaction, so concurrent
+ * requests never receive the same spreadsheet.
+ */
+public final class SpreadsheetPool {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private static final String POOLED_SPREADSHEET_TITLE = "Floody - unassigned";
+
+  /** Number of pool entries to try when other requests claim the same entries concurrently. */
+  private static final int CLAIM_CANDIDATES = 5;
+
+  /** Prevents concurrent refills from the same instance. */
+  private static final AtomicBoolean REFILL_RUNNING = new AtomicBoolean();
+
+  private final Drive driveService;
+  private final SpreadsheetTemplateProvider templateProvider;
+  private final int targetSize;
+
+  public SpreadsheetPool(
+      Drive driveService, SpreadsheetTemplateProvider templateProvider, int targetSize) {
+    this.driveService = driveService;
+    this.templateProvider = templateProvider;
+    this.targetSize = targetSize;
+  }
+
+  public boolean isEnabled() {
+    return targetSize > 0;
+  }
+
+  /**
+   * Claims a pooled spreadsheet of the current template version and renames it.
+   *
+   * @param title the title to set for the claimed spreadsheet
+   * @return the claimed spreadsheet or empty if the pool is exhausted
+   * @throws IOException when there is error in renaming the spreadsheet
+   */
+  public Optional<File> claim(String title) throws IOException {
+    if (!isEnabled()) {
+      return Optional.empty();
+    }
+
+    List<Key<PooledSpreadsheet>> candidates =
+        ofy()
+            .load()
+            .type(PooledSpreadsheet.class)
+            .filter("templateVersion", SpreadsheetTemplateProvider.templateVersion())
+            .limit(CLAIM_CANDIDATES)
+            .keys()
+            .list();
+
+    for (var candidate : candidates) {
+      PooledSpreadsheet claimed =
+          ofy()
+              .transact(
+                  () -> {
+                    var pooledSpreadsheet = ofy().load().key(candidate).now();
+
+                    if (pooledSpreadsheet != null) {
+                      ofy().delete().entity(pooledSpreadsheet).now();
+                    }
+
+                    return pooledSpreadsheet;
+                  });
+
+      if (claimed == null) {
+        continue;
+      }
+
+      try {
+        return Optional.of(rename(claimed.getSpreadsheetId(), title));
+      } catch (GoogleJsonResponseException responseException) {
+        if (responseException.getStatusCode() != 404) {
+          returnToPool(claimed);
+          throw responseException;
+        }
+
+        logger.atWarning().log("pooled spreadsheet %s not found", claimed.getSpreadsheetId());
+      } catch (IOException | RuntimeException exception) {
+        returnToPool(claimed);
+        throw exception;
+      }
+    }
+
+    return Optional.empty();
+  }
+
+  /**
+   * Saves a claimed spreadsheet back to the pool after a failed rename, as the pooled role keeps it
+   * out of the old spreadsheets cleanup and it would otherwise never be used or deleted.
+   */
+  private static void returnToPool(PooledSpreadsheet claimed) {
+    try {
+      ofy().save().entity(claimed).now();
+    } catch (RuntimeException exception) {
+      logger.atWarning().withCause(exception).log(
+          "error returning spreadsheet %s to pool", claimed.getSpreadsheetId());
+    }
+  }
+
+  /** Sets the title and marks the spreadsheet as assigned, in a single Drive update. */
+  private File rename(String spreadsheetId, String title) throws IOException {
+    return driveService
+        .files()
+        .update(
+            spreadsheetId,
+            new File()
+                .setName(title)
+                .setAppProperties(
+                    ImmutableMap.of(
+                        SpreadsheetTemplateProvider.FLOODY_ROLE_PROPERTY,
+                        SpreadsheetTemplateProvider.SPREADSHEET_ROLE)))
+        .setFields("id,name,webViewLink")
+        .execute();
+  }
+
+  /**
+   * Removes pooled spreadsheets of older template versions and copies new spreadsheets to reach
+   * the target pool size.
+   *
+   * @return the number of spreadsheets added to the pool
+   * @throws IOException when there is error in copying the template
+   */
+  public int refill() throws IOException {
+    if (!isEnabled()) {
+      return 0;
+    }
+
+    removeOutdated();
+
+    int available =
+        ofy()
+            .load()
+            .type(PooledSpreadsheet.class)
+            .filter("templateVersion", SpreadsheetTemplateProvider.templateVersion())
+            .count();
+
+    int required = targetSize - available;
+
+    if (required <= 0) {
+      return 0;
+    }
+
+    var copies = new ArrayList<CompletableFuture<File>>();
+    for (int index = 0; index < required; index++) {
+      copies.add(
+          FloodyExecutors.supplyAsync(
+              () ->
+                  templateProvider.copyTemplate(
+                      POOLED_SPREADSHEET_TITLE, SpreadsheetTemplateProvider.POOLED_ROLE)));
+    }
+
+    var pooledSpreadsheets = ImmutableList.<PooledSpreadsheet>builder();
+    for (var copy : copies) {
+      var file = FloodyExecutors.join(copy);
+      pooledSpreadsheets.add(
+          new PooledSpreadsheet(
+              file.getId(),
+              file.getWebViewLink(),
+              SpreadsheetTemplateProvider.templateVersion(),
+              DateTime.now(DateTimeZone.UTC)));
+    }
+
+    ofy().save().entities(pooledSpreadsheets.build()).now();
+
+    logger.atInfo().log("added %s spreadsheets to pool", required);
+    return required;
+  }
+
+  /** Refills the pool in the background, skipped if a refill is already running. */
+  public void refillAsync() {
+    if (!isEnabled() || !REFILL_RUNNING.compareAndSet(false, true)) {
+      return;
+    }
+
+    FloodyExecutors.apiCallExecutor()
+        .execute(
+            () -> {
+              try {
+                ObjectifyService.run(this::refillOrLog);
+              } finally {
+                REFILL_RUNNING.set(false);
+              }
+            });
+  }
+
+  private int refillOrLog() {
+    try {
+      return refill();
+    } catch (IOException | RuntimeException exception) {
+      logger.atWarning().withCause(exception).log("pool refill failed");
+      return 0;
+    }
+  }
+
+  private void removeOutdated() {
+    var outdated =
+        ofy().load().type(PooledSpreadsheet.class).list().stream()
+            .filter(
+                pooledSpreadsheet ->
+                    !SpreadsheetTemplateProvider.templateVersion()
+                        .equals(pooledSpreadsheet.getTemplateVersion()))
+            .collect(toImmutableList());
+
+    for (var pooledSpreadsheet : outdated) {
+      try {
+        driveService.files().delete(pooledSpreadsheet.getSpreadsheetId()).execute();
+      } catch (IOException ioException) {
+        logger.atWarning().withCause(ioException).log(
+            "error deleting outdated pooled spreadsheet %s", pooledSpreadsheet.getSpreadsheetId());
+      }
+    }
+
+    ofy().delete().entities(outdated).now();
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.flogger.GoogleLogger;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.floody.model.ActivityGroupSheetHeaderInformation;
+import com.google.floody.model.ActivitySheetHeaderInformation;
+import com.google.floody.model.CustomVariablesSheetHeaderInformation;
+import com.google.floody.model.DefaultTagSheetHeaderInformation;
+import com.google.floody.model.PublisherTagSheetHeaderInformation;
+import com.google.floody.spreadsheet.GoogleSpreadsheetFactory;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maintains a pre-formatted Floody template spreadsheet and creates new Floody spreadsheets as
+ * Drive copies of it, replacing the dozen Sheets API calls for building the sheets with one copy.
+ *
+ * <p>The template is identified by a version computed from the sheet names and headers, so a
+ * change in the sheet definitions builds a new template on first use. Templates are tagged with
+ * Drive app properties, which also exclude them from the old files clean-up.
+ */
+public final class SpreadsheetTemplateProvider {
+
+  static final String FLOODY_ROLE_PROPERTY = "floodyRole";
+  static final String TEMPLATE_ROLE = "template";
+  static final String SPREADSHEET_ROLE = "spreadsheet";
+  static final String POOLED_ROLE = "pooled";
+  static final String TEMPLATE_VERSION_PROPERTY = "floodyTemplateVersion";
+
+  /** Increment when the formatting or validations in {@link SheetsCreator} change. */
+  private static final int TEMPLATE_FORMAT_REVISION = 1;
+
+  /** Matches only the template, the spreadsheets copied from it carry the same version. */
+  private static final String TEMPLATE_QUERY =
+      "('me' in owners) and (trashed = false) and appProperties has { key='"
+          + FLOODY_ROLE_PROPERTY
+          + "' and value='"
+          + TEMPLATE_ROLE
+          + "' } and appProperties has { key='"
+          + TEMPLATE_VERSION_PROPERTY
+          + "' and value='{version}' }";
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  /** Template spreadsheet ids by version, shared by all requests of the instance. */
+  private static final ConcurrentMap<String, String> TEMPLATE_IDS = new ConcurrentHashMap<>();
+
+  private static final String TEMPLATE_VERSION = computeTemplateVersion();
+
+  private final Drive driveService;
+  private final GoogleSpreadsheetFactory spreadsheetServiceFactory;
+  private final ImmutableList<String> floodyAdminEmails;
+
+  public SpreadsheetTemplateProvider(
+      Drive driveService,
+      GoogleSpreadsheetFactory spreadsheetServiceFactory,
+      ImmutableList<String> floodyAdminEmails) {
+    this.driveService = driveService;
+    this.spreadsheetServiceFactory = spreadsheetServiceFactory;
+    this.floodyAdminEmails = floodyAdminEmails;
+  }
+
+  /** Returns the version of the template for the current sheet definitions. */
+  public static String templateVersion() {
+    return TEMPLATE_VERSION;
+  }
+
+  /**
+   * Creates a new spreadsheet by copying the current template, building the template first if it
+   * doesn't exist.
+   *
+   * @param title the title of the new spreadsheet
+   * @return the Drive file with id, name and link of the new spreadsheet
+   * @throws IOException when there is error in copying or building the template
+   */
+  public File copyTemplate(String title) throws IOException {
+    return copyTemplate(title, SPREADSHEET_ROLE);
+  }
+
+  /**
+   * Creates a new spreadsheet by copying the current template and tags it with the given role.
+   *
+   * @param title the title of the new spreadsheet
+   * @param floodyRole the value of the Floody role app property of the new spreadsheet
+   */
+  File copyTemplate(String title, String floodyRole) throws IOException {
+    var templateId = templateId();
+
+    try {
+      return copyFile(templateId, title, floodyRole);
+    } catch (GoogleJsonResponseException responseException) {
+      if (responseException.getStatusCode() != 404) {
+        throw responseException;
+      }
+
+      logger.atWarning().log("template (%s) not found, rebuilding", templateId);
+      TEMPLATE_IDS.remove(TEMPLATE_VERSION, templateId);
+      return copyFile(templateId(), title, floodyRole);
+    }
+  }
+
+  private File copyFile(String templateId, String title, String floodyRole) throws IOException {
+    return driveService
+        .files()
+        .copy(
+            templateId,
+            new File()
+                .setName(title)
+                .setAppProperties(
+                    ImmutableMap.of(
+                        FLOODY_ROLE_PROPERTY,
+                        floodyRole,
+                        TEMPLATE_VERSION_PROPERTY,
+                        TEMPLATE_VERSION)))
+        .setFields("id,name,webViewLink")
+        .execute();
+  }
+
+  /** Returns the cached template id or looks up Drive, building the template when not found. */
+  private String templateId() throws IOException {
+    var templateId = TEMPLATE_IDS.get(TEMPLATE_VERSION);
+
+    if (templateId != null) {
+      return templateId;
+    }
+
+    synchronized (TEMPLATE_IDS) {
+      templateId = TEMPLATE_IDS.get(TEMPLATE_VERSION);
+
+      if (templateId == null) {
+        templateId = findTemplate();
+      }
+
+      if (templateId == null) {
+        templateId = buildTemplate();
+      }
+
+      TEMPLATE_IDS.put(TEMPLATE_VERSION, templateId);
+      return templateId;
+    }
+  }
+
+  private String findTemplate() throws IOException {
+    List<File> templates =
+        driveService
+            .files()
+            .list()
+            .setQ(TEMPLATE_QUERY.replace("{version}", TEMPLATE_VERSION))
+            .setPageSize(1)
+            .setFields("files(id)")
+            .execute()
+            .getFiles();
+
+    return (templates == null || templates.isEmpty()) ? null : templates.get(0).getId();
+  }
+
+  /** Builds a new template spreadsheet with all sheets, formatting and validations. */
+  private String buildTemplate() throws IOException {
+    var spreadsheetService =
+        spreadsheetServiceFactory.forNewSpreadsheet("Floody Template " + TEMPLATE_VERSION);
+    var templateId = spreadsheetService.getSpreadsheetId();
+
+    SheetsCreator.create(spreadsheetService, floodyAdminEmails).createAllSheets();
+
+    driveService
+        .files()
+        .update(
+            templateId,
+            new File()
+                .setAppProperties(
+                    ImmutableMap.of(
+                        FLOODY_ROLE_PROPERTY,
+                        TEMPLATE_ROLE,
+                        TEMPLATE_VERSION_PROPERTY,
+                        TEMPLATE_VERSION)))
+        .execute();
+
+    logger.atInfo().log("built template (%s) version %s", templateId, TEMPLATE_VERSION);
+    return templateId;
+  }
+
+  private static String computeTemplateVersion() {
+    Hasher hasher = Hashing.sha256().newHasher().putInt(TEMPLATE_FORMAT_REVISION);
+
+    putSheet(
+        hasher,
+        ActivitySheetHeaderInformation.ACTIVITY_SHEET_NAME,
+        ActivitySheetHeaderInformation.ACTIVITY_SHEET_HEADERS);
+    putSheet(
+        hasher,
+        DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_NAME,
+        DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_HEADERS);
+    putSheet(
+        hasher,
+        PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_NAME,
+        PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_HEADERS);
+    putSheet(
+        hasher,
+        CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_NAME,
+        CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_HEADERS);
+    putSheet(
+        hasher,
+        ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_NAME,
+        ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_HEADERS);
+
+    return hasher.hash().toString().substring(0, 16);
+  }
+
+  private static void putSheet(Hasher hasher, String sheetName, List<String> headers) {
+    hasher.putString(sheetName, UTF_8).putInt(headers.size());
+    headers.forEach(header -> hasher.putString(header, UTF_8).putChar('\0'));
+  }
+}
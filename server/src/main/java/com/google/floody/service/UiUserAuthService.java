@@ -56,34 +56,27 @@ public class UiUserAuthService {
 
     var responseBuilder = UiSpreadsheetAuthResponse.newBuilder();
 
-    try {
+    // The Drive permission check is independent of the DCM checks, run them concurrently.
+    try (var scope = new ApiCallScope()) {
+      var spreadsheetTitle = scope.fork(spreadsheetService::getSpreadsheetTitle);
+      var dcmAccess = scope.fork(this::readUserDcmAccess);
+      var userSpreadsheetAccess =
+          scope.fork(() -> userSpreadsheetRoleChecker.isUserAccess(spreadsheetId));
+      scope.join();
+
       responseBuilder.setSpreadsheetInformation(
-          FloodySheet.newBuilder()
-              .setId(spreadsheetId)
-              .setName(spreadsheetService.getSpreadsheetTitle()));
-
-      SpreadsheetDcmInformation dcmInfo =
-          new DcmSpreadsheetMetaReader(
-                  spreadsheetService.metaReader(),
-                  floodyProperties.getSheetMetadataFloodlightConfigurationIdKey(),
-                  floodyProperties.getSheetMetadataAccountIdKey())
-              .readDcmInformation();
-
-      if (dcmInfo.getAccountId() == 0) {
+          FloodySheet.newBuilder().setId(spreadsheetId).setName(spreadsheetTitle.get()));
+
+      if (dcmAccess.get().getDcmInformation().getAccountId() == 0) {
         return responseBuilder.setStatus(UiSpreadsheetAuthStatus.NO_AUTH).build();
       }
 
-      var userProfilesForAccount =
-          dcmUserAccessService.listUserProfilesForAccount(dcmInfo.getAccountId()).getItemsList();
-
       responseBuilder
-          .setDcmInformation(dcmInfo)
-          .addAllUserDcmProfiles(userProfilesForAccount)
+          .mergeFrom(dcmAccess.get())
           .setStatus(
               buildUserAuthStatus(
-                  /*userDcmAccess=*/ !userProfilesForAccount.isEmpty(),
-                  /*userSpreadsheetAccess=*/ userSpreadsheetRoleChecker.isUserAccess(
-                      spreadsheetId)))
+                  /*userDcmAccess=*/ dcmAccess.get().getUserDcmProfilesCount() > 0,
+                  /*userSpreadsheetAccess=*/ userSpreadsheetAccess.get()))
           .build();
     } catch (IOException ioexp) {
       responseBuilder.setStatus(UiSpreadsheetAuthStatus.NO_AUTH);
@@ -92,6 +85,28 @@ public class UiUserAuthService {
     return responseBuilder.build();
   }
 
+  /**
+   * Reads the spreadsheet's DCM account and the user's profiles for that account, without profiles
+   * when the spreadsheet is not linked to a DCM account.
+   */
+  private UiSpreadsheetAuthResponse readUserDcmAccess() throws IOException {
+    SpreadsheetDcmInformation dcmInfo =
+        new DcmSpreadsheetMetaReader(
+                spreadsheetService.metaReader(),
+                floodyProperties.getSheetMetadataFloodlightConfigurationIdKey(),
+                floodyProperties.getSheetMetadataAccountIdKey())
+            .readDcmInformation();
+
+    var dcmAccess = UiSpreadsheetAuthResponse.newBuilder().setDcmInformation(dcmInfo);
+
+    if (dcmInfo.getAccountId() != 0) {
+      dcmAccess.addAllUserDcmProfiles(
+          dcmUserAccessService.listUserProfilesForAccount(dcmInfo.getAccountId()).getItemsList());
+    }
+
+    return dcmAccess.build();
+  }
+
   /** Returns the User's auth status based on user's access to DCM and Spreadsheet. */
   private static UiSpreadsheetAuthStatus buildUserAuthStatus(
       boolean userDcmAccess, boolean userSpreadsheetAccess) {
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.service;
+
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.Channel;
+import java.io.IOException;
+import org.joda.time.DateTime;
+
+/** Registers and stops push notification channels for changes to a Drive file. */
+public interface WatchChannelRegistrar {
+
+  /**
+   * Starts a channel delivering the file's change notifications to the webhook.
+   *
+   * @param fileId the Drive file to watch
+   * @param channelId the unique id of the new channel
+   * @param channelToken the secret sent back with each notification
+   * @param expiration the requested expiry of the channel
+   * @return the registered channel, with Drive's resource id and actual expiration
+   * @throws IOException when there is error in registering the channel
+   */
+  Channel watch(String fileId, String channelId, String channelToken, DateTime expiration)
+      throws IOException;
+
+  /** Stops a registered channel. */
+  void stop(String channelId, String resourceId) throws IOException;
+
+  /** Returns the current version of the file, which increases with every change. */
+  long currentRevision(String fileId) throws IOException;
+
+  /** Registrar using Drive's {@code files.watch} with an HTTPS webhook. */
+  final class DriveWatchChannelRegistrar implements WatchChannelRegistrar {
+
+    private static final String WEBHOOK_CHANNEL_TYPE = "web_hook";
+
+    private final Drive driveService;
+    private final String webhookUrl;
+
+    public DriveWatchChannelRegistrar(Drive driveService, String webhookUrl) {
+      this.driveService = driveService;
+      this.webhookUrl = webhookUrl;
+    }
+
+    @Override
+    public Channel watch(
+        String fileId, String channelId, String channelToken, DateTime expiration)
+        throws IOException {
+      return driveService
+          .files()
+          .watch(
+              fileId,
+              new Channel()
+                  .setId(channelId)
+                  .setType(WEBHOOK_CHANNEL_TYPE)
+                  .setAddress(webhookUrl)
+                  .setToken(channelToken)
+                  .setExpiration(expiration.getMillis()))
+          .execute();
+    }
+
+    @Override
+    public void stop(String channelId, String resourceId) throws IOException {
+      driveService
+          .channels()
+          .stop(new Channel().setId(channelId).setResourceId(resourceId))
+          .execute();
+    }
+
+    @Override
+    public long currentRevision(String fileId) throws IOException {
+      return driveService.files().get(fileId).setFields("version").execute().getVersion();
+    }
+  }
+
+  /**
+   * Stand-in for local runs and tests, where Drive can't reach the webhook. Channels are only
+   * recorded, notifications can be posted to the webhook directly using the recorded channel id
+   * and token. The revision always advances, so that the staged changes are never treated as
+   * current.
+   */
+  final class LocalWatchChannelRegistrar implements WatchChannelRegistrar {
+
+    @Override
+    public Channel watch(
+        String fileId, String channelId, String channelToken, DateTime expiration) {
+      return new Channel()
+          .setId(channelId)
+          .setResourceId("local-" + fileId)
+          .setToken(channelToken)
+          .setExpiration(expiration.getMillis());
+    }
+
+    @Override
+    public void stop(String channelId, String resourceId) {}
+
+    @Override
+    public long currentRevision(String fileId) {
+      return System.nanoTime();
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.spreadsheet;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+
+/**
+ * A row transformer that can decode the sheet's rows from typed columns, used for large sheets to
+ * avoid converting each cell to an Object and parsing it back from its String value.
+ */
+public interface ColumnarRowTransformer<T> extends SpreadsheetRowTransformer<T> {
+
+  /**
+   * Returns the type of each column, in the order of {@link #columnHeaders()}.
+   *
+   * @return the column types, with one type per column header
+   */
+  ImmutableList<SheetColumnType> columnTypes();
+
+  /**
+   * Transforms all the rows of the typed columns. Rows with errors or mismatched values are
+   * skipped.
+   *
+   * @param columns the decoded data rows of the sheet, with columns in header order
+   * @return the transformed objects, in the order of the rows
+   */
+  List<T> transformFromColumns(SheetColumns columns);
+}
@@ -26,6 +26,7 @@ import com.google.api.client.googleapis.json.GoogleJsonError;
 import com.google.api.client.http.HttpHeaders;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.model.Permission;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.GoogleLogger;
 import java.io.IOException;
@@ -46,58 +47,56 @@ public final class GoogleDriveSharingService implements SharingService {
   @Override
   public void addGroupsToFileAsEditors(String fileId, Iterable<String> groups)
       throws SharingException {
-    addEditorPermissions(fileId, GoogleDrivePermissionType.GROUP, groups);
+    checkNotNull(groups, "emails is null");
+    checkArgument(groups.iterator().hasNext(), "emails is empty");
+    addEditorPermissions(fileId, ImmutableList.of(), groups);
   }
 
   @Override
   public void addUsersToFileAsEditors(String fileId, Iterable<String> users)
       throws SharingException {
-    addEditorPermissions(fileId, GoogleDrivePermissionType.USER, users);
+    checkNotNull(users, "emails is null");
+    checkArgument(users.iterator().hasNext(), "emails is empty");
+    addEditorPermissions(fileId, users, ImmutableList.of());
+  }
+
+  @Override
+  public void addEditorsToFile(String fileId, Iterable<String> users, Iterable<String> groups)
+      throws SharingException {
+    checkNotNull(users, "users is null");
+    checkNotNull(groups, "groups is null");
+    checkArgument(
+        users.iterator().hasNext() || groups.iterator().hasNext(), "users and groups are empty");
+    addEditorPermissions(fileId, users, groups);
   }
 
   /**
-   * Add user/group as editors to a file on Google Drive.
+   * Add users and groups as editors to a file on Google Drive using a single batch request.
    *
    * @param fileId the GoogleDrive id of the file to set permissions for
-   * @param type define how to treat the email address as {@code GROUP} or {@code USER}
-   * @param emails the list of email addresses to grant writer permission
+   * @param users the email addresses to grant writer permission as {@code USER}
+   * @param groups the email addresses to grant writer permission as {@code GROUP}
    * @throws SharingException when there is error in setting the permissions, can be due to multiple
    *     reasons like the user does not have permission to grant further permissions OR the file
    *     doesn't exist
    */
   private void addEditorPermissions(
-      String fileId, GoogleDrivePermissionType type, Iterable<String> emails)
-      throws SharingException {
+      String fileId, Iterable<String> users, Iterable<String> groups) throws SharingException {
     checkArgument(!isBlank(fileId), "'%s' fileId is invalid", fileId);
-    checkNotNull(emails, "emails is null");
-    checkArgument(emails.iterator().hasNext(), "emails is empty");
 
     ImmutableSet.Builder<ImmutablePair<String, String>> failResultsBuilder = ImmutableSet.builder();
 
     try {
       BatchRequest batchRequest = service.batch();
 
-      for (String email : emails) {
-        service
-            .permissions()
-            .create(
-                fileId,
-                new Permission()
-                    .setType(type.getDrivePermissionTypeValue())
-                    .setRole("writer")
-                    .setEmailAddress(email))
-            .setSendNotificationEmail(false)
-            .queue(
-                batchRequest,
-                new JsonBatchCallback<Permission>() {
-                  @Override
-                  public void onFailure(GoogleJsonError e, HttpHeaders responseHeaders) {
-                    failResultsBuilder.add(ImmutablePair.of(email, e.getMessage()));
-                  }
-
-                  @Override
-                  public void onSuccess(Permission permission, HttpHeaders responseHeaders) {}
-                });
+      for (String email : users) {
+        queueEditorPermission(
+            batchRequest, fileId, GoogleDrivePermissionType.USER, email, failResultsBuilder);
+      }
+
+      for (String email : groups) {
+        queueEditorPermission(
+            batchRequest, fileId, GoogleDrivePermissionType.GROUP, email, failResultsBuilder);
       }
 
       batchRequest.execute();
@@ -112,4 +111,33 @@ public final class GoogleDriveSharingService implements SharingService {
       throw new SharingException("Failed to share with " + failResults.toString());
     }
   }
+
+  private void queueEditorPermission(
+      BatchRequest batchRequest,
+      String fileId,
+      GoogleDrivePermissionType type,
+      String email,
+      ImmutableSet.Builder<ImmutablePair<String, String>> failResultsBuilder)
+      throws IOException {
+    service
+        .permissions()
+        .create(
+            fileId,
+            new Permission()
+                .setType(type.getDrivePermissionTypeValue())
+                .setRole("writer")
+                .setEmailAddress(email))
+        .setSendNotificationEmail(false)
+        .queue(
+            batchRequest,
+            new JsonBatchCallback<Permission>() {
+              @Override
+              public void onFailure(GoogleJsonError e, HttpHeaders responseHeaders) {
+                failResultsBuilder.add(ImmutablePair.of(email, e.getMessage()));
+              }
+
+              @Override
+              public void onSuccess(Permission permission, HttpHeaders responseHeaders) {}
+            });
+  }
 }
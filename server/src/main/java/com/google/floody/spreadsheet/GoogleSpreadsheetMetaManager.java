@@ -19,26 +19,64 @@ package com.google.floody.spreadsheet;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableListMultimap.toImmutableListMultimap;
 import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildAddDeveloperMetadataRequest;
-import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildSearchMetadataRequest;
+import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildReplaceDeveloperMetadataRequest;
+import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildSearchSpreadsheetMetadataRequest;
 
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.model.CreateDeveloperMetadataResponse;
 import com.google.api.services.sheets.v4.model.DeveloperMetadata;
 import com.google.api.services.sheets.v4.model.MatchedDeveloperMetadata;
 import com.google.api.services.sheets.v4.model.Response;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
 
+/**
+ * Reads and writes spreadsheet level developer metadata.
+ *
+ * <p>All of a spreadsheet's metadata is read with a single search and cached per spreadsheet, as
+ * Floody's metadata is written once at initialization. Writes through this class invalidate the
+ * spreadsheet's cached metadata.
+ */
 public class GoogleSpreadsheetMetaManager implements SpreadsheetMetaReader, SpreadsheetMetaWriter {
 
+  private static final Duration METADATA_CACHE_TTL = Duration.ofHours(6);
+
+  private static final int METADATA_CACHE_SIZE = 10_000;
+
+  /** All spreadsheet level metadata, by spreadsheet id. */
+  private static final Cache<String, ImmutableListMultimap<String, String>> metadataCache =
+      CacheBuilder.newBuilder()
+          .expireAfterWrite(METADATA_CACHE_TTL)
+          .maximumSize(METADATA_CACHE_SIZE)
+          .build();
+
   private final GoogleSpreadsheetService spreadsheetService;
   private final Sheets sheetsService;
+  private final boolean cached;
 
   public GoogleSpreadsheetMetaManager(GoogleSpreadsheetService spreadsheetService) {
+    this(spreadsheetService, /*cached=*/ true);
+  }
+
+  private GoogleSpreadsheetMetaManager(
+      GoogleSpreadsheetService spreadsheetService, boolean cached) {
     this.spreadsheetService = spreadsheetService;
     this.sheetsService = spreadsheetService.getSheetsService();
+    this.cached = cached;
+  }
+
+  /** Returns a manager that searches the metadata on every read and refreshes the cache. */
+  @Override
+  public GoogleSpreadsheetMetaManager uncached() {
+    return new GoogleSpreadsheetMetaManager(spreadsheetService, /*cached=*/ false);
   }
 
   @Override
@@ -67,20 +105,58 @@ public class GoogleSpreadsheetMetaManager implements SpreadsheetMetaReader, Spre
    * @param keys the metadata-keys to read from spreadsheet
    */
   private ImmutableMultimap<String, String> readAllMetaData(String... keys) throws IOException {
+    var requestedKeys = ImmutableSet.copyOf(keys);
+
+    return readSpreadsheetMetadata().entries().stream()
+        .filter(entry -> requestedKeys.contains(entry.getKey()))
+        .collect(toImmutableListMultimap(entry -> entry.getKey(), entry -> entry.getValue()));
+  }
+
+  /** Returns all spreadsheet level metadata, from the cache if allowed. */
+  private ImmutableListMultimap<String, String> readSpreadsheetMetadata() throws IOException {
+    var spreadsheetId = spreadsheetService.getSpreadsheetId();
+
+    if (!cached) {
+      var metadata = searchSpreadsheetMetadata();
+      metadataCache.put(spreadsheetId, metadata);
+      return metadata;
+    }
+
+    try {
+      return metadataCache.get(spreadsheetId, this::searchSpreadsheetMetadata);
+    } catch (ExecutionException executionException) {
+      if (executionException.getCause() instanceof IOException) {
+        throw (IOException) executionException.getCause();
+      }
+      throw new IOException(executionException.getCause());
+    }
+  }
+
+  private ImmutableListMultimap<String, String> searchSpreadsheetMetadata() throws IOException {
+    var matchedMetadata =
+        sheetsService
+            .spreadsheets()
+            .developerMetadata()
+            .search(spreadsheetService.getSpreadsheetId(), buildSearchSpreadsheetMetadataRequest())
+            .execute()
+            .getMatchedDeveloperMetadata();
 
-    return sheetsService
-        .spreadsheets()
-        .developerMetadata()
-        .search(spreadsheetService.getSpreadsheetId(), buildSearchMetadataRequest(keys))
-        .execute()
-        .getMatchedDeveloperMetadata()
-        .stream()
+    if (matchedMetadata == null) {
+      return ImmutableListMultimap.of();
+    }
+
+    return matchedMetadata.stream()
         .map(MatchedDeveloperMetadata::getDeveloperMetadata)
         .collect(
             toImmutableListMultimap(
                 meta -> meta.getMetadataKey(), meta -> meta.getMetadataValue()));
   }
 
+  /** Drops the spreadsheet's cached metadata, the next read searches the spreadsheet. */
+  private void invalidateCache() {
+    metadataCache.invalidate(spreadsheetService.getSpreadsheetId());
+  }
+
   @Override
   public DeveloperMetadata addMetadata(String key, String value) throws IOException {
     return addMetadata(ImmutableMap.of(key, value)).get(0);
@@ -89,16 +165,34 @@ public class GoogleSpreadsheetMetaManager implements SpreadsheetMetaReader, Spre
   @Override
   public ImmutableList<DeveloperMetadata> addMetadata(ImmutableMap<String, String> metaDataValues)
       throws IOException {
+    try {
+      return sheetsService
+          .spreadsheets()
+          .batchUpdate(
+              spreadsheetService.getSpreadsheetId(),
+              buildAddDeveloperMetadataRequest(metaDataValues))
+          .execute()
+          .getReplies()
+          .stream()
+          .map(Response::getCreateDeveloperMetadata)
+          .map(CreateDeveloperMetadataResponse::getDeveloperMetadata)
+          .collect(toImmutableList());
+    } finally {
+      invalidateCache();
+    }
+  }
 
-    return sheetsService
-        .spreadsheets()
-        .batchUpdate(
-            spreadsheetService.getSpreadsheetId(), buildAddDeveloperMetadataRequest(metaDataValues))
-        .execute()
-        .getReplies()
-        .stream()
-        .map(Response::getCreateDeveloperMetadata)
-        .map(CreateDeveloperMetadataResponse::getDeveloperMetadata)
-        .collect(toImmutableList());
+  @Override
+  public void replaceMetadata(String key, String value) throws IOException {
+    try {
+      sheetsService
+          .spreadsheets()
+          .batchUpdate(
+              spreadsheetService.getSpreadsheetId(),
+              buildReplaceDeveloperMetadataRequest(key, value))
+          .execute();
+    } finally {
+      invalidateCache();
+    }
   }
 }
@@ -35,13 +35,16 @@ import com.google.api.services.sheets.v4.model.ConditionValue;
 import com.google.api.services.sheets.v4.model.CreateDeveloperMetadataRequest;
 import com.google.api.services.sheets.v4.model.DataFilter;
 import com.google.api.services.sheets.v4.model.DataValidationRule;
+import com.google.api.services.sheets.v4.model.DeleteDeveloperMetadataRequest;
 import com.google.api.services.sheets.v4.model.DeleteProtectedRangeRequest;
 import com.google.api.services.sheets.v4.model.DeleteSheetRequest;
 import com.google.api.services.sheets.v4.model.DeveloperMetadata;
 import com.google.api.services.sheets.v4.model.DeveloperMetadataLocation;
 import com.google.api.services.sheets.v4.model.DeveloperMetadataLookup;
 import com.google.api.services.sheets.v4.model.DimensionRange;
+import com.google.api.services.sheets.v4.model.DuplicateSheetRequest;
 import com.google.api.services.sheets.v4.model.Editors;
+import com.google.api.services.sheets.v4.model.GridProperties;
 import com.google.api.services.sheets.v4.model.GridRange;
 import com.google.api.services.sheets.v4.model.InsertDimensionRequest;
 import com.google.api.services.sheets.v4.model.ProtectedRange;
@@ -50,6 +53,7 @@ import com.google.api.services.sheets.v4.model.SearchDeveloperMetadataRequest;
 import com.google.api.services.sheets.v4.model.SetDataValidationRequest;
 import com.google.api.services.sheets.v4.model.SheetProperties;
 import com.google.api.services.sheets.v4.model.SpreadsheetProperties;
+import com.google.api.services.sheets.v4.model.UpdateSheetPropertiesRequest;
 import com.google.api.services.sheets.v4.model.UpdateSpreadsheetPropertiesRequest;
 import com.google.api.services.sheets.v4.model.ValueRange;
 import com.google.common.collect.ImmutableList;
@@ -254,6 +258,33 @@ public final class GoogleSpreadsheetRequestBuilder {
                 .collect(toList()));
   }
 
+  /**
+   * Build a Request to replace all spreadsheet's DeveloperMetadata entries of the key with a single
+   * entry having the given value.
+   *
+   * @param key the metadata key to replace.
+   * @param value the new value for the metadata key.
+   * @return a Request object to delete existing and add new DeveloperMetadata.
+   */
+  public static BatchUpdateSpreadsheetRequest buildReplaceDeveloperMetadataRequest(
+      String key, String value) {
+    checkArgument(!isBlank(key), "metadata key can't be empty or null");
+
+    return new BatchUpdateSpreadsheetRequest()
+        .setRequests(
+            ImmutableList.<Request>builder()
+                .add(
+                    new Request()
+                        .setDeleteDeveloperMetadata(
+                            new DeleteDeveloperMetadataRequest()
+                                .setDataFilter(
+                                    new DataFilter()
+                                        .setDeveloperMetadataLookup(
+                                            new DeveloperMetadataLookup().setMetadataKey(key)))))
+                .addAll(buildAddDeveloperMetadataRequest(ImmutableMap.of(key, value)).getRequests())
+                .build());
+  }
+
   /**
    * Build a Request to search DeveloperMetadata stored in the spreadsheet, for the given keys.
    *
@@ -274,6 +305,23 @@ public final class GoogleSpreadsheetRequestBuilder {
                 .collect(toList()));
   }
 
+  /**
+   * Build a Request to search all the DeveloperMetadata stored at the spreadsheet level, which
+   * includes all the keys written by Floody.
+   *
+   * @return a Request object to search all spreadsheet level DeveloperMetadata.
+   */
+  public static SearchDeveloperMetadataRequest buildSearchSpreadsheetMetadataRequest() {
+    return new SearchDeveloperMetadataRequest()
+        .setDataFilters(
+            ImmutableList.of(
+                new DataFilter()
+                    .setDeveloperMetadataLookup(
+                        new DeveloperMetadataLookup()
+                            .setLocationType("SPREADSHEET")
+                            .setVisibility("DOCUMENT"))));
+  }
+
   public static Request buildAddRowsRequest(int sheetId, int lastRowIndex, int numRows) {
     return new Request()
         .setInsertDimension(
@@ -287,6 +335,25 @@ public final class GoogleSpreadsheetRequestBuilder {
                         .setEndIndex(lastRowIndex + numRows)));
   }
 
+  /**
+   * Builds a Request to set the number of rows of a sheet, rows past the count are deleted.
+   *
+   * @param sheetId the id of the sheet to resize
+   * @param rowCount the new number of rows, including the header
+   */
+  public static Request buildResizeRowsRequest(int sheetId, int rowCount) {
+    checkArgument(rowCount > 0, "invalid rowCount (%s)", rowCount);
+
+    return new Request()
+        .setUpdateSheetProperties(
+            new UpdateSheetPropertiesRequest()
+                .setProperties(
+                    new SheetProperties()
+                        .setSheetId(sheetId)
+                        .setGridProperties(new GridProperties().setRowCount(rowCount)))
+                .setFields("gridProperties.rowCount"));
+  }
+
   public static Request setSpreadsheetTitleRequest(String newTitle) {
     return new Request()
         .setUpdateSpreadsheetProperties(
@@ -294,6 +361,25 @@ public final class GoogleSpreadsheetRequestBuilder {
                 .setProperties(new SpreadsheetProperties().setTitle(newTitle)));
   }
 
+  /**
+   * Builds a Request to copy a sheet, including its formatting, validations and protected ranges.
+   *
+   * @param sourceSheetId the id of the sheet to copy
+   * @param insertSheetIndex the zero-based position of the new sheet
+   * @param newSheetName the title of the new sheet
+   */
+  public static Request buildDuplicateSheetRequest(
+      int sourceSheetId, int insertSheetIndex, String newSheetName) {
+    checkArgument(!isBlank(newSheetName), "newSheetName is empty or null");
+
+    return new Request()
+        .setDuplicateSheet(
+            new DuplicateSheetRequest()
+                .setSourceSheetId(sourceSheetId)
+                .setInsertSheetIndex(insertSheetIndex)
+                .setNewSheetName(newSheetName));
+  }
+
   public static Request buildProtectSheetRequest(int sheetId) {
     return new Request()
         .setAddProtectedRange(
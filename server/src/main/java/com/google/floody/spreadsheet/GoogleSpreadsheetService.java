@@ -23,14 +23,18 @@ import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildAddRowsRequest;
 import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildDataValidationRequest;
 import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildDeleteSheetRequest;
+import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildDuplicateSheetRequest;
 import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildNewSheetRequest;
 import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildProtectedRangeRequest;
+import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildResizeRowsRequest;
 import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.buildStoreDataRequest;
 import static com.google.floody.spreadsheet.GoogleSpreadsheetRequestBuilder.setSpreadsheetTitleRequest;
 import static com.google.floody.spreadsheet.SheetUtils.buildRangeA1NotationForRectangle;
 import static com.google.floody.spreadsheet.SheetUtils.buildRangeA1NotationWithSheetName;
+import static com.google.floody.spreadsheet.SheetUtils.getColumnA1Notation;
 import static com.google.floody.spreadsheet.SheetUtils.isValidData;
 import static com.google.floody.spreadsheet.SheetUtils.transformListToStringObjectList;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.collectingAndThen;
@@ -40,22 +44,35 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.model.BatchClearValuesRequest;
+import com.google.api.services.sheets.v4.model.BatchGetValuesByDataFilterRequest;
 import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetRequest;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesRequest;
+import com.google.api.services.sheets.v4.model.DataFilter;
 import com.google.api.services.sheets.v4.model.GridRange;
+import com.google.api.services.sheets.v4.model.MatchedValueRange;
 import com.google.api.services.sheets.v4.model.ProtectedRange;
 import com.google.api.services.sheets.v4.model.Request;
 import com.google.api.services.sheets.v4.model.Response;
 import com.google.api.services.sheets.v4.model.Sheet;
 import com.google.api.services.sheets.v4.model.Spreadsheet;
+import com.google.api.services.sheets.v4.model.ValueRange;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.Table;
 import com.google.common.flogger.GoogleLogger;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import org.apache.commons.lang3.StringUtils;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
@@ -63,6 +80,15 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 public class GoogleSpreadsheetService implements SpreadsheetService {
 
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  private static final String HEADER_ROW_RANGE = "1:1";
+
+  /** The maximum number of rows in a Google Spreadsheet. */
+  private static final int MAX_ROWS = 10_000_000;
+
+  /** The largest gap between selected rows which are still read as a single range. */
+  private static final int MAX_MERGED_ROW_GAP = 5;
+
   /** Credential for making Spreadsheet API calls. */
   private final Sheets sheetsService;
   /** GoogleSpreadsheetId to operate on after being initialized. */
@@ -74,6 +100,9 @@ public class GoogleSpreadsheetService implements SpreadsheetService {
   /** Determines how input data should be interpreted. */
   private ValueInputOption valueInputOption;
 
+  /** Column mappings compiled from the header rows, keyed by the sheet name. */
+  private final Map<String, SheetColumnMapping> columnMappings;
+
   /**
    * Instantiates the service with defaults for MajorDimension.ROW, ValueInputOption.RAW and
    * ValueRenderOption.UNFORMATTED_VALUE
@@ -88,6 +117,7 @@ public class GoogleSpreadsheetService implements SpreadsheetService {
     this.valueRenderOption = ValueRenderOption.UNFORMATTED_VALUE;
     this.valueInputOption = ValueInputOption.RAW;
     this.spreadsheetId = spreadsheetId;
+    this.columnMappings = new ConcurrentHashMap<>();
   }
 
   /** Returns the underlying Sheets service object to be used directly. */
@@ -205,6 +235,65 @@ public class GoogleSpreadsheetService implements SpreadsheetService {
     return sheetId.orElse(null);
   }
 
+  @Override
+  public ImmutableList<Integer> duplicateSheet(String sourceSheetName, List<String> newSheetNames)
+      throws IOException {
+    if (newSheetNames.isEmpty()) {
+      return ImmutableList.of();
+    }
+
+    var sourceSheetProperties =
+        sheetsService.spreadsheets().get(spreadsheetId).execute().getSheets().stream()
+            .map(Sheet::getProperties)
+            .filter(properties -> sourceSheetName.equals(properties.getTitle()))
+            .findFirst()
+            .orElseThrow(
+                () -> new IllegalArgumentException("sheet not found: " + sourceSheetName));
+
+    var duplicateRequests = ImmutableList.<Request>builder();
+    for (int index = 0; index < newSheetNames.size(); index++) {
+      duplicateRequests.add(
+          buildDuplicateSheetRequest(
+              sourceSheetProperties.getSheetId(),
+              sourceSheetProperties.getIndex() + index + 1,
+              newSheetNames.get(index)));
+    }
+
+    ImmutableList<Integer> newSheetIds =
+        sheetsService
+            .spreadsheets()
+            .batchUpdate(
+                spreadsheetId,
+                new BatchUpdateSpreadsheetRequest().setRequests(duplicateRequests.build()))
+            .execute()
+            .getReplies()
+            .stream()
+            .map(reply -> reply.getDuplicateSheet().getProperties().getSheetId())
+            .collect(toImmutableList());
+
+    // The copies inherit the lock of a sheet under processing, remove it from the new sheets.
+    ImmutableSet<Integer> copiedSheetLocks =
+        sheetsService
+            .spreadsheets()
+            .get(spreadsheetId)
+            .setFields("sheets(properties.sheetId,protectedRanges)")
+            .execute()
+            .getSheets()
+            .stream()
+            .filter(sheet -> newSheetIds.contains(sheet.getProperties().getSheetId()))
+            .filter(sheet -> sheet.getProtectedRanges() != null)
+            .flatMap(sheet -> sheet.getProtectedRanges().stream())
+            .filter(GoogleSpreadsheetService::isEntireSheetProtected)
+            .map(ProtectedRange::getProtectedRangeId)
+            .collect(toImmutableSet());
+
+    if (!copiedSheetLocks.isEmpty()) {
+      unlockSheets(copiedSheetLocks);
+    }
+
+    return newSheetIds;
+  }
+
   @Override
   public void deleteSheet(Integer sheetId) {
     checkNotNull(sheetId, "null sheetId");
@@ -273,12 +362,303 @@ public class GoogleSpreadsheetService implements SpreadsheetService {
     checkArgument(!isBlank(sheetName), "sheetName can't be null or empty");
     checkNotNull(range, "Range can't be null");
 
+    if (transformer instanceof ColumnarRowTransformer) {
+      return retrieveColumnarData(sheetName, (ColumnarRowTransformer<T>) transformer);
+    }
+
+    if (!transformer.columnHeaders().isEmpty()) {
+      return retrieveMappedData(sheetName, transformer);
+    }
+
     return loadGridData(sheetName, range).stream()
         .map(transformer::transformFromSheetRow)
         .filter(Objects::nonNull)
         .collect(toList());
   }
 
+  /**
+   * Reads the complete sheet and uses the first row to compile the transformer's column mapping,
+   * the remaining rows are decoded through the mapping.
+   */
+  private <T> List<T> retrieveMappedData(String sheetName, SpreadsheetRowTransformer<T> transformer)
+      throws IOException {
+    List<List<Object>> sheetRows = loadGridData(sheetName, "1:" + MAX_ROWS);
+
+    var columnMapping =
+        SheetColumnMapping.compile(
+            transformer.columnHeaders(), sheetRows.isEmpty() ? null : sheetRows.get(0));
+    columnMappings.put(sheetName, columnMapping);
+
+    return sheetRows.stream()
+        .skip(1)
+        .filter(row -> !row.isEmpty())
+        .map(columnMapping::toLogicalRow)
+        .map(transformer::transformFromSheetRow)
+        .filter(Objects::nonNull)
+        .collect(toList());
+  }
+
+  /**
+   * Reads the complete sheet by streaming the response into typed columns, the first row is used
+   * to compile the transformer's column mapping.
+   */
+  private <T> List<T> retrieveColumnarData(
+      String sheetName, ColumnarRowTransformer<T> transformer) throws IOException {
+    var request =
+        sheetsService
+            .spreadsheets()
+            .values()
+            .get(spreadsheetId, buildRangeA1NotationWithSheetName(sheetName, "1:" + MAX_ROWS))
+            .setMajorDimension("ROWS")
+            .setValueRenderOption(valueRenderOption.toString());
+
+    SheetColumns columns;
+    try (var parser =
+        sheetsService.getJsonFactory().createJsonParser(request.executeAsInputStream(), UTF_8)) {
+      columns =
+          new SheetColumnsDecoder(transformer.columnHeaders(), transformer.columnTypes())
+              .decode(parser);
+    }
+
+    columnMappings.put(sheetName, columns.getColumnMapping());
+    return transformer.transformFromColumns(columns);
+  }
+
+  @Override
+  public void resolveColumnMappings(Map<String, ImmutableList<String>> headersBySheetName)
+      throws IOException {
+    ImmutableList<String> sheetNames = ImmutableList.copyOf(headersBySheetName.keySet());
+
+    if (sheetNames.isEmpty()) {
+      return;
+    }
+
+    List<ValueRange> headerRows =
+        sheetsService
+            .spreadsheets()
+            .values()
+            .batchGet(spreadsheetId)
+            .setRanges(
+                sheetNames.stream()
+                    .map(name -> buildRangeA1NotationWithSheetName(name, HEADER_ROW_RANGE))
+                    .collect(toImmutableList()))
+            .setMajorDimension("ROWS")
+            .setValueRenderOption(valueRenderOption.toString())
+            .execute()
+            .getValueRanges();
+
+    for (int index = 0; index < sheetNames.size(); index++) {
+      List<List<Object>> values = headerRows.get(index).getValues();
+      var sheetName = sheetNames.get(index);
+
+      columnMappings.put(
+          sheetName,
+          SheetColumnMapping.compile(
+              headersBySheetName.get(sheetName),
+              (values == null || values.isEmpty()) ? null : values.get(0)));
+    }
+  }
+
+  @Override
+  public int findPhysicalColumn(String sheetName, ImmutableList<String> headers, int logicalColumn)
+      throws IOException {
+    return headers.isEmpty()
+        ? logicalColumn
+        : getColumnMapping(sheetName, headers).getPhysicalColumn(logicalColumn);
+  }
+
+  @Override
+  public ImmutableMap<String, ImmutableList<Object>> retrieveColumnValues(
+      Map<String, Integer> physicalColumnBySheetName) throws IOException {
+    ImmutableList<String> sheetNames = ImmutableList.copyOf(physicalColumnBySheetName.keySet());
+
+    if (sheetNames.isEmpty()) {
+      return ImmutableMap.of();
+    }
+
+    List<ValueRange> columns =
+        sheetsService
+            .spreadsheets()
+            .values()
+            .batchGet(spreadsheetId)
+            .setRanges(
+                sheetNames.stream()
+                    .map(
+                        name ->
+                            buildRangeA1NotationWithSheetName(
+                                name,
+                                buildColumnRangeBelowHeader(physicalColumnBySheetName.get(name))))
+                    .collect(toImmutableList()))
+            .setMajorDimension("COLUMNS")
+            .setValueRenderOption(valueRenderOption.toString())
+            .execute()
+            .getValueRanges();
+
+    var valuesBySheetName = ImmutableMap.<String, ImmutableList<Object>>builder();
+    for (int index = 0; index < sheetNames.size(); index++) {
+      List<List<Object>> values = columns.get(index).getValues();
+
+      valuesBySheetName.put(
+          sheetNames.get(index),
+          (values == null || values.isEmpty())
+              ? ImmutableList.of()
+              : ImmutableList.copyOf(values.get(0)));
+    }
+
+    return valuesBySheetName.build();
+  }
+
+  @Override
+  public int findLastRowNumber(String sheetName) throws IOException {
+    // The values are trimmed after the last non-empty row, so their count is its row number.
+    return loadGridData(sheetName, "1:" + MAX_ROWS).size();
+  }
+
+  /** Returns the A1 notation of a complete column, starting from the second row. */
+  private static String buildColumnRangeBelowHeader(int physicalColumn) {
+    String column = getColumnA1Notation(physicalColumn);
+    return column + "2:" + column;
+  }
+
+  @Override
+  public <T> ImmutableSortedMap<Integer, T> retrieveRows(
+      String sheetName, SpreadsheetRowTransformer<T> transformer, Collection<Integer> rowNumbers)
+      throws IOException {
+    ImmutableSet<Integer> selectedRows = ImmutableSet.copyOf(rowNumbers);
+
+    if (selectedRows.isEmpty()) {
+      return ImmutableSortedMap.of();
+    }
+
+    Function<List<Object>, List<Object>> rowDecoder = Function.identity();
+    if (!transformer.columnHeaders().isEmpty()) {
+      rowDecoder = getColumnMapping(sheetName, transformer.columnHeaders())::toLogicalRow;
+    }
+
+    // The matched ranges are identified by their filter, mapping back to the first row number.
+    var firstRowByA1Range = new HashMap<String, Integer>();
+    for (Range<Integer> rowRange : mergeRowRanges(selectedRows)) {
+      firstRowByA1Range.put(
+          buildRangeA1NotationWithSheetName(
+              sheetName, rowRange.lowerEndpoint() + ":" + rowRange.upperEndpoint()),
+          rowRange.lowerEndpoint());
+    }
+
+    List<MatchedValueRange> matchedRanges =
+        sheetsService
+            .spreadsheets()
+            .values()
+            .batchGetByDataFilter(
+                spreadsheetId,
+                new BatchGetValuesByDataFilterRequest()
+                    .setDataFilters(
+                        firstRowByA1Range.keySet().stream()
+                            .map(a1Range -> new DataFilter().setA1Range(a1Range))
+                            .collect(toImmutableList()))
+                    .setMajorDimension("ROWS")
+                    .setValueRenderOption(valueRenderOption.toString()))
+            .execute()
+            .getValueRanges();
+
+    var rowsByNumber = ImmutableSortedMap.<Integer, T>naturalOrder();
+    for (MatchedValueRange matchedRange :
+        Optional.ofNullable(matchedRanges).orElseGet(ImmutableList::of)) {
+      int firstRow = firstRowByA1Range.get(matchedRange.getDataFilters().get(0).getA1Range());
+      List<List<Object>> rows =
+          Optional.ofNullable(matchedRange.getValueRange().getValues())
+              .orElseGet(ImmutableList::of);
+
+      for (int offset = 0; offset < rows.size(); offset++) {
+        int rowNumber = firstRow + offset;
+        List<Object> row = rows.get(offset);
+
+        if (!selectedRows.contains(rowNumber) || row.isEmpty()) {
+          continue;
+        }
+
+        T entity = transformer.transformFromSheetRow(rowDecoder.apply(row));
+        if (entity != null) {
+          rowsByNumber.put(rowNumber, entity);
+        }
+      }
+    }
+
+    return rowsByNumber.build();
+  }
+
+  /**
+   * Merges the row numbers into ranges, rows separated by less than {@link #MAX_MERGED_ROW_GAP}
+   * rows are read as one range to keep the number of ranges low.
+   */
+  private static ImmutableList<Range<Integer>> mergeRowRanges(Collection<Integer> rowNumbers) {
+    var rowRanges = ImmutableList.<Range<Integer>>builder();
+    var sortedRows = ImmutableSortedSet.copyOf(rowNumbers).asList();
+
+    int start = sortedRows.get(0);
+    int end = start;
+    for (int row : sortedRows.subList(1, sortedRows.size())) {
+      if (row - end > MAX_MERGED_ROW_GAP) {
+        rowRanges.add(Range.closed(start, end));
+        start = row;
+      }
+      end = row;
+    }
+    rowRanges.add(Range.closed(start, end));
+
+    return rowRanges.build();
+  }
+
+  @Override
+  public <T> int updateRows(
+      SpreadsheetRowTransformer<T> transformer, Table<String, Integer, T> rows) throws IOException {
+    if (rows.isEmpty()) {
+      return 0;
+    }
+
+    var data = ImmutableList.<ValueRange>builder();
+    for (String sheetName : rows.rowKeySet()) {
+      Function<T, List<Object>> rowEncoder = transformer::transformToSheetRow;
+
+      if (!transformer.columnHeaders().isEmpty()) {
+        var columnMapping = getColumnMapping(sheetName, transformer.columnHeaders());
+        rowEncoder = rowEncoder.andThen(columnMapping::toPhysicalRow);
+      }
+
+      for (Map.Entry<Integer, T> row : rows.row(sheetName).entrySet()) {
+        data.add(
+            new ValueRange()
+                .setRange(buildRangeA1NotationWithSheetName(sheetName, "A" + row.getKey()))
+                .setMajorDimension("ROWS")
+                .setValues(ImmutableList.of(rowEncoder.apply(row.getValue()))));
+      }
+    }
+
+    return sheetsService
+        .spreadsheets()
+        .values()
+        .batchUpdate(
+            spreadsheetId,
+            new BatchUpdateValuesRequest()
+                .setValueInputOption(valueInputOption.toString())
+                .setIncludeValuesInResponse(false)
+                .setData(data.build()))
+        .execute()
+        .getTotalUpdatedRows();
+  }
+
+  /** Returns the cached column mapping for the sheet or reads the header row to compile one. */
+  private SheetColumnMapping getColumnMapping(String sheetName, ImmutableList<String> headers)
+      throws IOException {
+    var columnMapping = columnMappings.get(sheetName);
+
+    if (columnMapping == null || !columnMapping.getHeaders().equals(headers)) {
+      resolveColumnMappings(ImmutableMap.of(sheetName, headers));
+      columnMapping = columnMappings.get(sheetName);
+    }
+
+    return columnMapping;
+  }
+
   private List<List<Object>> loadGridData(String sheetName, String range) throws IOException {
     return Optional.ofNullable(
             sheetsService
@@ -298,8 +678,14 @@ public class GoogleSpreadsheetService implements SpreadsheetService {
   public <T> int storeDataWithTransform(
       String sheetName, SpreadsheetRowTransformer<T> transformer, Collection<T> data)
       throws IOException {
-    List<List<Object>> transformedData =
-        data.stream().map(transformer::transformToSheetRow).collect(toList());
+    Function<T, List<Object>> rowEncoder = transformer::transformToSheetRow;
+
+    if (!transformer.columnHeaders().isEmpty()) {
+      var columnMapping = getColumnMapping(sheetName, transformer.columnHeaders());
+      rowEncoder = rowEncoder.andThen(columnMapping::toPhysicalRow);
+    }
+
+    List<List<Object>> transformedData = data.stream().map(rowEncoder).collect(toList());
 
     return storeData(sheetName, transformedData, false);
   }
@@ -366,6 +752,34 @@ public class GoogleSpreadsheetService implements SpreadsheetService {
         .getTotalUpdatedRows();
   }
 
+  @Override
+  public void resizeSheetRows(Map<String, Integer> rowCountBySheetName) throws IOException {
+    if (rowCountBySheetName.isEmpty()) {
+      return;
+    }
+
+    ImmutableList<Request> resizeRequests =
+        sheetsService
+            .spreadsheets()
+            .get(spreadsheetId)
+            .setFields("sheets.properties(sheetId,title)")
+            .execute()
+            .getSheets()
+            .stream()
+            .map(Sheet::getProperties)
+            .filter(properties -> rowCountBySheetName.containsKey(properties.getTitle()))
+            .map(
+                properties ->
+                    buildResizeRowsRequest(
+                        properties.getSheetId(), rowCountBySheetName.get(properties.getTitle())))
+            .collect(toImmutableList());
+
+    sheetsService
+        .spreadsheets()
+        .batchUpdate(spreadsheetId, new BatchUpdateSpreadsheetRequest().setRequests(resizeRequests))
+        .execute();
+  }
+
   @Override
   public void addMoreRows(String sheetName, int numRows) throws IOException {
     Optional<Sheet> sheetToUpdate =
@@ -413,7 +827,14 @@ public class GoogleSpreadsheetService implements SpreadsheetService {
   public ImmutableMap<Integer, Integer> lockSheets(String... lockSheetNames) throws IOException {
     ImmutableSet<String> sheetNames = ImmutableSet.copyOf(lockSheetNames);
 
-    List<Sheet> sheets = sheetsService.spreadsheets().get(spreadsheetId).execute().getSheets();
+    // Only the sheet ids and titles are needed to build the protections.
+    List<Sheet> sheets =
+        sheetsService
+            .spreadsheets()
+            .get(spreadsheetId)
+            .setFields("sheets.properties(sheetId,title)")
+            .execute()
+            .getSheets();
 
     List<Request> sheetProtectRequests =
         sheets.stream()
@@ -451,12 +872,32 @@ public class GoogleSpreadsheetService implements SpreadsheetService {
 
   @Override
   public void unlockSheets(Collection<Integer> protectedRangeIds) throws IOException {
+    ImmutableSet<Integer> existingRangeIds =
+        sheetsService
+            .spreadsheets()
+            .get(spreadsheetId)
+            .setFields("sheets.protectedRanges.protectedRangeId")
+            .execute()
+            .getSheets()
+            .stream()
+            .map(Sheet::getProtectedRanges)
+            .filter(Objects::nonNull)
+            .flatMap(List::stream)
+            .map(ProtectedRange::getProtectedRangeId)
+            .collect(toImmutableSet());
+
+    // Ranges removed earlier, e.g. by a failed release, would fail the whole batch.
     ImmutableList<Request> deleteProtectedRangeRequests =
         protectedRangeIds.stream()
             .distinct()
+            .filter(existingRangeIds::contains)
             .map(GoogleSpreadsheetRequestBuilder::buildDeleteProtectedRangeRequest)
             .collect(toImmutableList());
 
+    if (deleteProtectedRangeRequests.isEmpty()) {
+      return;
+    }
+
     sheetsService
         .spreadsheets()
         .batchUpdate(
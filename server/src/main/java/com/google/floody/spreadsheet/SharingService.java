@@ -40,4 +40,15 @@ public interface SharingService {
    * @throws IOException when there is an error in setting permissions
    */
   void addUsersToFileAsEditors(String fileId, Iterable<String> users) throws IOException;
+
+  /**
+   * Add the given users and groups as editors to the specified file in a single batch.
+   *
+   * @param fileId the file Identifier of the intended file
+   * @param users the users to grant editor permissions
+   * @param groups the groups to grant editor permissions
+   * @throws IOException when there is an error in setting permissions
+   */
+  void addEditorsToFile(String fileId, Iterable<String> users, Iterable<String> groups)
+      throws IOException;
 }
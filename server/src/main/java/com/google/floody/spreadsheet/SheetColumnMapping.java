@@ -0,0 +1,163 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.spreadsheet;
+
+import static com.google.common.base.MoreObjects.firstNonNull;
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.GoogleLogger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Compiled mapping between the logical columns of a row transformer and the physical columns of a
+ * sheet, resolved once by matching the sheet's header row against the expected headers.
+ *
+ * <p>Rows are translated through a pre-computed index array, so the transformers can read cells
+ * using their logical column constants even after users have re-ordered the sheet's columns.
+ */
+public final class SheetColumnMapping {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  /** Marker for a logical column not present in the sheet. */
+  private static final int ABSENT_COLUMN = -1;
+
+  private final ImmutableList<String> headers;
+
+  /** Physical column index for each logical column. */
+  private final int[] physicalColumns;
+
+  /** Number of cells in a physical row. */
+  private final int physicalWidth;
+
+  private SheetColumnMapping(ImmutableList<String> headers, int[] physicalColumns, int width) {
+    this.headers = headers;
+    this.physicalColumns = physicalColumns;
+    this.physicalWidth = width;
+  }
+
+  /** Returns a mapping where logical and physical columns are the same. */
+  public static SheetColumnMapping identity(List<String> headers) {
+    var physicalColumns = new int[headers.size()];
+    Arrays.setAll(physicalColumns, column -> column);
+    return new SheetColumnMapping(ImmutableList.copyOf(headers), physicalColumns, headers.size());
+  }
+
+  /**
+   * Compiles the mapping by locating each expected header in the sheet's header row. Headers are
+   * matched ignoring case and surrounding whitespace. Falls back to the identity mapping when the
+   * sheet has no header row.
+   *
+   * @param headers the logical column headers, in the order used by the row transformer
+   * @param headerRow the first row of the sheet
+   */
+  public static SheetColumnMapping compile(List<String> headers, @Nullable List<Object> headerRow) {
+    checkArgument(!headers.isEmpty(), "headers can't be empty");
+
+    if (headerRow == null || headerRow.isEmpty()) {
+      return identity(headers);
+    }
+
+    var physicalColumnByHeader = new HashMap<String, Integer>();
+    for (int column = headerRow.size() - 1; column >= 0; column--) {
+      physicalColumnByHeader.put(normalize(headerRow.get(column)), column);
+    }
+
+    var physicalColumns = new int[headers.size()];
+    int width = headerRow.size();
+    for (int column = 0; column < headers.size(); column++) {
+      physicalColumns[column] =
+          physicalColumnByHeader.getOrDefault(normalize(headers.get(column)), ABSENT_COLUMN);
+
+      if (physicalColumns[column] == ABSENT_COLUMN) {
+        logger.atWarning().log("column (%s) not found in header row", headers.get(column));
+      }
+      width = Math.max(width, physicalColumns[column] + 1);
+    }
+
+    return new SheetColumnMapping(ImmutableList.copyOf(headers), physicalColumns, width);
+  }
+
+  public ImmutableList<String> getHeaders() {
+    return headers;
+  }
+
+  /** Returns the sheet's column index for the logical column or {@code -1} if absent. */
+  public int getPhysicalColumn(int logicalColumn) {
+    return physicalColumns[logicalColumn];
+  }
+
+  /** Returns the logical column for each sheet column, {@code -1} for the unmapped columns. */
+  int[] toLogicalColumns() {
+    var logicalColumns = new int[physicalWidth];
+    Arrays.fill(logicalColumns, ABSENT_COLUMN);
+
+    for (int column = 0; column < physicalColumns.length; column++) {
+      if (physicalColumns[column] != ABSENT_COLUMN) {
+        logicalColumns[physicalColumns[column]] = column;
+      }
+    }
+
+    return logicalColumns;
+  }
+
+  /**
+   * Re-orders a sheet row into logical columns. The returned row always has one cell per header,
+   * absent and trailing empty cells are {@code null}.
+   */
+  public List<Object> toLogicalRow(List<Object> physicalRow) {
+    var cells = new Object[physicalColumns.length];
+    int rowWidth = physicalRow.size();
+
+    for (int column = 0; column < physicalColumns.length; column++) {
+      int physicalColumn = physicalColumns[column];
+      cells[column] =
+          (physicalColumn >= 0 && physicalColumn < rowWidth)
+              ? physicalRow.get(physicalColumn)
+              : null;
+    }
+
+    return Collections.unmodifiableList(Arrays.asList(cells));
+  }
+
+  /**
+   * Places the logical cells at their sheet columns, the unmapped sheet columns are left empty.
+   */
+  public List<Object> toPhysicalRow(List<Object> logicalRow) {
+    var cells = new Object[physicalWidth];
+    Arrays.fill(cells, SheetUtils.EMPTY_STRING);
+
+    for (int column = 0; column < logicalRow.size() && column < physicalColumns.length; column++) {
+      if (physicalColumns[column] != ABSENT_COLUMN) {
+        cells[physicalColumns[column]] =
+            firstNonNull(logicalRow.get(column), SheetUtils.EMPTY_STRING);
+      }
+    }
+
+    return ImmutableList.copyOf(cells);
+  }
+
+  private static String normalize(@Nullable Object header) {
+    return (header == null) ? "" : header.toString().trim().toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.spreadsheet;
+
+/** The decoded representation of a sheet column's cells in {@link SheetColumns}. */
+public enum SheetColumnType {
+
+  /** Non-negative whole numbers, cells with any other value are treated as empty. */
+  LONG,
+
+  /** Comma separated non-negative whole numbers, e.g. tag ids. */
+  LONG_LIST,
+
+  /** Free text with mostly distinct values, e.g. names or URLs. */
+  STRING,
+
+  /**
+   * Text from a small set of repeating values, e.g. enum names or flags. Each distinct value is
+   * stored once and rows refer to it by code.
+   */
+  SYMBOL
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.spreadsheet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Column oriented, typed values of a sheet's data rows. Each logical column is kept in a buffer of
+ * its {@link SheetColumnType}, so whole numbers are held as primitives and repeating values are
+ * stored once per column, instead of one boxed object per cell.
+ *
+ * <p>Only non-empty sheet rows are kept, {@link #getSheetRowNumber(int)} returns the row's
+ * position in the sheet.
+ */
+public final class SheetColumns {
+
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final SheetColumnMapping columnMapping;
+  private final ImmutableList<SheetColumnType> columnTypes;
+  private final Column[] columns;
+  private int[] sheetRowNumbers;
+  private int rowCount;
+
+  SheetColumns(SheetColumnMapping columnMapping, List<SheetColumnType> columnTypes) {
+    checkArgument(
+        columnMapping.getHeaders().size() == columnTypes.size(),
+        "columnTypes (%s) should have one type per header (%s)",
+        columnTypes.size(),
+        columnMapping.getHeaders().size());
+
+    this.columnMapping = columnMapping;
+    this.columnTypes = ImmutableList.copyOf(columnTypes);
+    this.columns = columnTypes.stream().map(SheetColumns::createColumn).toArray(Column[]::new);
+    this.sheetRowNumbers = new int[INITIAL_CAPACITY];
+    this.rowCount = 0;
+  }
+
+  public SheetColumnMapping getColumnMapping() {
+    return columnMapping;
+  }
+
+  public ImmutableList<SheetColumnType> getColumnTypes() {
+    return columnTypes;
+  }
+
+  public int rowCount() {
+    return rowCount;
+  }
+
+  /** Returns the 1-based row number in the sheet of the given data row. */
+  public int getSheetRowNumber(int row) {
+    return sheetRowNumbers[row];
+  }
+
+  /** Returns {@code true} if the cell has a value valid for the column's type. */
+  public boolean hasValue(int column, int row) {
+    return columns[column].hasValue(row);
+  }
+
+  /** Returns the value of a {@link SheetColumnType#LONG} cell or {@code null} if empty. */
+  public @Nullable Long getLong(int column, int row) {
+    var longColumn = (LongColumn) columns[column];
+    return longColumn.hasValue(row) ? longColumn.values[row] : null;
+  }
+
+  /**
+   * Returns the values of a {@link SheetColumnType#LONG_LIST} cell, empty if the cell is empty.
+   *
+   * @throws NumberFormatException if the cell has an item that is not a whole number
+   */
+  public long[] getLongs(int column, int row) {
+    return ((LongListColumn) columns[column]).get(row);
+  }
+
+  /** Returns the text of a {@link SheetColumnType#STRING} or {@code SYMBOL} cell, or null. */
+  public @Nullable String getString(int column, int row) {
+    return columns[column].getString(row);
+  }
+
+  /**
+   * Returns the code of a {@link SheetColumnType#SYMBOL} cell, {@code 0} represents an empty cell.
+   * Use with {@link #mapSymbols(int, Function)} to convert a repeating value once per column.
+   */
+  public int getSymbolCode(int column, int row) {
+    return ((SymbolColumn) columns[column]).codes[row];
+  }
+
+  /**
+   * Converts each distinct value of a {@link SheetColumnType#SYMBOL} column, the returned list is
+   * indexed by symbol code with the conversion of {@code null} at index 0.
+   */
+  public <V> List<V> mapSymbols(int column, Function<@Nullable String, V> mapper) {
+    var symbols = ((SymbolColumn) columns[column]).symbols;
+    var mapped = new ArrayList<V>(symbols.size());
+    symbols.forEach(symbol -> mapped.add(mapper.apply(symbol)));
+    return mapped;
+  }
+
+  /** Starts a new data row, the cells of the row are empty until set. */
+  void addRow(int sheetRowNumber) {
+    if (rowCount == sheetRowNumbers.length) {
+      int capacity = rowCount * 2;
+      sheetRowNumbers = Arrays.copyOf(sheetRowNumbers, capacity);
+      for (Column column : columns) {
+        column.ensureCapacity(capacity);
+      }
+    }
+
+    sheetRowNumbers[rowCount++] = sheetRowNumber;
+  }
+
+  /** Sets a cell of the last added row from the text of its value. */
+  void set(int column, String text) {
+    columns[column].set(rowCount - 1, text);
+  }
+
+  private static Column createColumn(SheetColumnType columnType) {
+    switch (columnType) {
+      case LONG:
+        return new LongColumn();
+      case LONG_LIST:
+        return new LongListColumn();
+      case STRING:
+        return new StringColumn();
+      case SYMBOL:
+        return new SymbolColumn();
+    }
+
+    throw new IllegalArgumentException("unsupported column type: " + columnType);
+  }
+
+  /**
+   * Parses a non-negative whole number without creating intermediate objects.
+   *
+   * @return the number or {@code -1} if the text is not a non-negative whole number
+   */
+  private static long parseUnsignedLong(CharSequence text, int start, int end) {
+    if (start >= end || end - start > 18) {
+      return -1;
+    }
+
+    long value = 0;
+    for (int index = start; index < end; index++) {
+      char digit = text.charAt(index);
+      if (digit < '0' || digit > '9') {
+        return -1;
+      }
+      value = value * 10 + (digit - '0');
+    }
+
+    return value;
+  }
+
+  private abstract static class Column {
+
+    abstract boolean hasValue(int row);
+
+    abstract void set(int row, String text);
+
+    abstract void ensureCapacity(int capacity);
+
+    @Nullable String getString(int row) {
+      throw new IllegalStateException("column is not a text column");
+    }
+  }
+
+  private static final class LongColumn extends Column {
+    private long[] values = new long[INITIAL_CAPACITY];
+    private final BitSet present = new BitSet();
+
+    @Override
+    boolean hasValue(int row) {
+      return present.get(row);
+    }
+
+    @Override
+    void set(int row, String text) {
+      long value = parseUnsignedLong(text, 0, text.length());
+      if (value >= 0) {
+        values[row] = value;
+        present.set(row);
+      }
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  private static final class LongListColumn extends Column {
+    private static final long[] EMPTY = new long[0];
+
+    private long[][] values = new long[INITIAL_CAPACITY][];
+
+    /** The raw text of cells with items that are not whole numbers, reported when read. */
+    private final Map<Integer, String> malformed = new HashMap<>();
+
+    @Override
+    boolean hasValue(int row) {
+      return values[row] != null || malformed.containsKey(row);
+    }
+
+    long[] get(int row) {
+      var invalidText = malformed.get(row);
+      if (invalidText != null) {
+        throw new NumberFormatException("not a list of numbers: " + invalidText);
+      }
+
+      return (values[row] == null) ? EMPTY : values[row];
+    }
+
+    @Override
+    void set(int row, String text) {
+      var items = new long[8];
+      int count = 0;
+      int start = 0;
+
+      while (start <= text.length()) {
+        int end = text.indexOf(',', start);
+        if (end < 0) {
+          end = text.length();
+        }
+
+        int itemStart = start;
+        int itemEnd = end;
+        while (itemStart < itemEnd && Character.isWhitespace(text.charAt(itemStart))) {
+          itemStart++;
+        }
+        while (itemEnd > itemStart && Character.isWhitespace(text.charAt(itemEnd - 1))) {
+          itemEnd--;
+        }
+
+        if (itemStart < itemEnd) {
+          long item = parseUnsignedLong(text, itemStart, itemEnd);
+          if (item < 0) {
+            malformed.put(row, text);
+            return;
+          }
+
+          if (count == items.length) {
+            items = Arrays.copyOf(items, count * 2);
+          }
+          items[count++] = item;
+        }
+
+        start = end + 1;
+      }
+
+      values[row] = Arrays.copyOf(items, count);
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  private static final class StringColumn extends Column {
+    private String[] values = new String[INITIAL_CAPACITY];
+
+    @Override
+    boolean hasValue(int row) {
+      return values[row] != null;
+    }
+
+    @Override
+    @Nullable String getString(int row) {
+      return values[row];
+    }
+
+    @Override
+    void set(int row, String text) {
+      values[row] = text;
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      values = Arrays.copyOf(values, capacity);
+    }
+  }
+
+  private static final class SymbolColumn extends Column {
+    private int[] codes = new int[INITIAL_CAPACITY];
+    private final List<@Nullable String> symbols = new ArrayList<>(Arrays.asList((String) null));
+    private final Map<String, Integer> codesBySymbol = new HashMap<>();
+
+    @Override
+    boolean hasValue(int row) {
+      return codes[row] != 0;
+    }
+
+    @Override
+    @Nullable String getString(int row) {
+      return symbols.get(codes[row]);
+    }
+
+    @Override
+    void set(int row, String text) {
+      // Sheets returns "" for empty cells before the row's last value, keep them empty.
+      if (text.isEmpty()) {
+        codes[row] = 0;
+        return;
+      }
+
+      codes[row] =
+          codesBySymbol.computeIfAbsent(
+              text,
+              symbol -> {
+                symbols.add(symbol);
+                return symbols.size() - 1;
+              });
+    }
+
+    @Override
+    void ensureCapacity(int capacity) {
+      codes = Arrays.copyOf(codes, capacity);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.spreadsheet;
+
+import com.google.api.client.json.JsonParser;
+import com.google.api.client.json.JsonToken;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a {@code spreadsheets.values.get} JSON response into {@link SheetColumns} while
+ * streaming, without building the intermediate {@code List<List<Object>>} of the response. The
+ * first row is treated as the header row and used to compile the {@link SheetColumnMapping}.
+ */
+final class SheetColumnsDecoder {
+
+  private static final String VALUES_FIELD = "values";
+
+  private final ImmutableList<String> headers;
+  private final ImmutableList<SheetColumnType> columnTypes;
+
+  SheetColumnsDecoder(List<String> headers, List<SheetColumnType> columnTypes) {
+    this.headers = ImmutableList.copyOf(headers);
+    this.columnTypes = ImmutableList.copyOf(columnTypes);
+  }
+
+  /**
+   * Reads the ValueRange object from the parser, the parser is not closed.
+   *
+   * @param parser the parser positioned before the ValueRange object
+   * @throws IOException when the response can't be read or is not a ValueRange
+   */
+  SheetColumns decode(JsonParser parser) throws IOException {
+    expect(parser.nextToken(), JsonToken.START_OBJECT);
+
+    SheetColumns columns = null;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      var fieldName = parser.getCurrentName();
+      var fieldToken = parser.nextToken();
+
+      if (VALUES_FIELD.equals(fieldName) && fieldToken == JsonToken.START_ARRAY) {
+        columns = decodeRows(parser);
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    // the values field is omitted when the range is empty
+    return (columns == null)
+        ? new SheetColumns(SheetColumnMapping.compile(headers, null), columnTypes)
+        : columns;
+  }
+
+  private SheetColumns decodeRows(JsonParser parser) throws IOException {
+    if (parser.nextToken() != JsonToken.START_ARRAY) {
+      return new SheetColumns(SheetColumnMapping.compile(headers, null), columnTypes);
+    }
+
+    var columnMapping = SheetColumnMapping.compile(headers, readHeaderRow(parser));
+    var columns = new SheetColumns(columnMapping, columnTypes);
+    int[] logicalColumns = columnMapping.toLogicalColumns();
+
+    int sheetRowNumber = 1;
+    while (parser.nextToken() == JsonToken.START_ARRAY) {
+      sheetRowNumber++;
+      decodeRow(parser, columns, logicalColumns, sheetRowNumber);
+    }
+
+    return columns;
+  }
+
+  private static List<Object> readHeaderRow(JsonParser parser) throws IOException {
+    var headerRow = new ArrayList<Object>();
+
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      headerRow.add(isScalar(token) ? parser.getText() : null);
+      parser.skipChildren();
+    }
+
+    return headerRow;
+  }
+
+  private static void decodeRow(
+      JsonParser parser, SheetColumns columns, int[] logicalColumns, int sheetRowNumber)
+      throws IOException {
+    var token = parser.nextToken();
+
+    // Sheets returns [] for empty rows within the range.
+    if (token == JsonToken.END_ARRAY) {
+      return;
+    }
+
+    columns.addRow(sheetRowNumber);
+
+    for (int physicalColumn = 0; token != JsonToken.END_ARRAY; physicalColumn++) {
+      int logicalColumn =
+          (physicalColumn < logicalColumns.length) ? logicalColumns[physicalColumn] : -1;
+
+      if (logicalColumn >= 0 && isScalar(token)) {
+        columns.set(logicalColumn, parser.getText());
+      } else {
+        parser.skipChildren();
+      }
+
+      token = parser.nextToken();
+    }
+  }
+
+  private static boolean isScalar(JsonToken token) {
+    switch (token) {
+      case VALUE_STRING:
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+      case VALUE_TRUE:
+      case VALUE_FALSE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+    if (actual != expected) {
+      throw new IOException(
+          String.format("unexpected token %s in ValueRange, expected %s", actual, expected));
+    }
+  }
+}
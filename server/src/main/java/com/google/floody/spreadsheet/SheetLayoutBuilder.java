@@ -0,0 +1,157 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.spreadsheet;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import com.google.api.services.sheets.v4.model.AddSheetRequest;
+import com.google.api.services.sheets.v4.model.BatchUpdateSpreadsheetRequest;
+import com.google.api.services.sheets.v4.model.CellData;
+import com.google.api.services.sheets.v4.model.DeleteSheetRequest;
+import com.google.api.services.sheets.v4.model.ExtendedValue;
+import com.google.api.services.sheets.v4.model.GridCoordinate;
+import com.google.api.services.sheets.v4.model.Request;
+import com.google.api.services.sheets.v4.model.RowData;
+import com.google.api.services.sheets.v4.model.SheetProperties;
+import com.google.api.services.sheets.v4.model.UpdateCellsRequest;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Declarative layout of new sheets for a spreadsheet. Sheet ids are assigned client-side, so the
+ * new sheets, their header rows and all the formatting, validation and protection requests
+ * referring to them are sent in a single {@code spreadsheets.batchUpdate}.
+ */
+public final class SheetLayoutBuilder {
+
+  /** The id of the sheet created by default in a new spreadsheet. */
+  public static final int DEFAULT_SHEET_ID = 0;
+
+  private final List<Request> addSheetRequests;
+  private final List<Request> headerRequests;
+  private final List<Request> sheetRequests;
+  private final Set<Integer> removedSheetIds;
+  private int nextSheetId;
+
+  public SheetLayoutBuilder() {
+    this.addSheetRequests = new ArrayList<>();
+    this.headerRequests = new ArrayList<>();
+    this.sheetRequests = new ArrayList<>();
+    this.removedSheetIds = new LinkedHashSet<>();
+    this.nextSheetId = DEFAULT_SHEET_ID + 1;
+  }
+
+  /**
+   * Adds a new sheet with the given headers in the first row.
+   *
+   * @param sheetName the title of the new sheet
+   * @param headers the values of the header row, can be empty
+   * @return the id assigned to the new sheet
+   */
+  public int addSheet(String sheetName, List<String> headers) {
+    checkArgument(!isBlank(sheetName), "sheetName can't be empty or null");
+
+    int sheetId = nextSheetId++;
+
+    addSheetRequests.add(
+        new Request()
+            .setAddSheet(
+                new AddSheetRequest()
+                    .setProperties(
+                        new SheetProperties()
+                            .setSheetId(sheetId)
+                            .setTitle(sheetName)
+                            .setIndex(addSheetRequests.size()))));
+
+    if (!headers.isEmpty()) {
+      headerRequests.add(
+          new Request()
+              .setUpdateCells(
+                  new UpdateCellsRequest()
+                      .setStart(
+                          new GridCoordinate()
+                              .setSheetId(sheetId)
+                              .setRowIndex(0)
+                              .setColumnIndex(0))
+                      .setRows(
+                          ImmutableList.of(
+                              new RowData()
+                                  .setValues(
+                                      headers.stream()
+                                          .map(
+                                              header ->
+                                                  new CellData()
+                                                      .setUserEnteredValue(
+                                                          new ExtendedValue()
+                                                              .setStringValue(header)))
+                                          .collect(toImmutableList()))))
+                      .setFields("userEnteredValue")));
+    }
+
+    return sheetId;
+  }
+
+  /** Adds requests to run after the sheets are created, e.g. formatting or validations. */
+  public SheetLayoutBuilder addRequests(Collection<Request> requests) {
+    sheetRequests.addAll(requests);
+    return this;
+  }
+
+  /** Deletes an existing sheet after the new sheets are created. */
+  public SheetLayoutBuilder removeSheet(int sheetId) {
+    removedSheetIds.add(sheetId);
+    return this;
+  }
+
+  /** Returns all the requests in the order to apply: add sheets, headers, requests, deletes. */
+  public ImmutableList<Request> buildRequests() {
+    return ImmutableList.<Request>builder()
+        .addAll(addSheetRequests)
+        .addAll(headerRequests)
+        .addAll(sheetRequests)
+        .addAll(
+            removedSheetIds.stream()
+                .map(
+                    sheetId ->
+                        new Request().setDeleteSheet(new DeleteSheetRequest().setSheetId(sheetId)))
+                .collect(toImmutableList()))
+        .build();
+  }
+
+  /**
+   * Applies the layout to the spreadsheet in a single batch update.
+   *
+   * @param spreadsheetService the service connected to the spreadsheet to update
+   * @throws IOException when there is error in updating the spreadsheet
+   */
+  public void applyTo(GoogleSpreadsheetService spreadsheetService) throws IOException {
+    spreadsheetService
+        .getSheetsService()
+        .spreadsheets()
+        .batchUpdate(
+            spreadsheetService.getSpreadsheetId(),
+            new BatchUpdateSpreadsheetRequest().setRequests(buildRequests()))
+        .execute();
+  }
+}
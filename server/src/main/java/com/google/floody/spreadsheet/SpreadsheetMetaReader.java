@@ -48,4 +48,12 @@ public interface SpreadsheetMetaReader {
    * @throws IOException in case of spreadsheet exception
    */
   ImmutableMultimap<String, String> readMetadata(String key1, String... keys) throws IOException;
+
+  /**
+   * Returns a reader that always reads the spreadsheet's current metadata, for values that can
+   * change after the spreadsheet is initialized (e.g. the activity shard map).
+   */
+  default SpreadsheetMetaReader uncached() {
+    return this;
+  }
 }
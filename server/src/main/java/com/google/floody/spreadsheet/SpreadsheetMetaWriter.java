@@ -47,4 +47,13 @@ public interface SpreadsheetMetaWriter {
    */
   ImmutableList<DeveloperMetadata> addMetadata(ImmutableMap<String, String> metaDataValues)
       throws IOException;
+
+  /**
+   * Replaces all DeveloperMetadata entries of the key with a single entry at "SPREADSHEET" level.
+   *
+   * @param key the metadata key to replace.
+   * @param value the new value of the metadata entry.
+   * @throws IOException in case of spreadsheet exception
+   */
+  void replaceMetadata(String key, String value) throws IOException;
 }
@@ -16,6 +16,7 @@
 
 package com.google.floody.spreadsheet;
 
+import com.google.common.collect.ImmutableList;
 import java.util.List;
 
 /**
@@ -42,4 +43,15 @@ public interface SpreadsheetRowTransformer<T> {
    * @return A sequence of Strings representing column data derived from the Object.
    */
   List<Object> transformToSheetRow(T entity);
+
+  /**
+   * Returns the headers of the columns used by the transformer, in the order of the cells in the
+   * transformed rows. When provided, the rows are re-ordered according to the sheet's header row
+   * before decoding and after encoding, allowing users to move the columns around.
+   *
+   * @return the column headers or an empty list if the transformer works on sheet positions.
+   */
+  default ImmutableList<String> columnHeaders() {
+    return ImmutableList.of();
+  }
 }
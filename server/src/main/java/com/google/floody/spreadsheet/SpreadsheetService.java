@@ -16,10 +16,14 @@
 
 package com.google.floody.spreadsheet;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Table;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Methods to abstract Spreadsheet operations for reading and writing data to spreadsheets */
@@ -63,6 +67,18 @@ public interface SpreadsheetService {
    */
   int createNewSheet(String sheetName, @Nullable List<String> headers) throws IOException;
 
+  /**
+   * Creates copies of an existing sheet, retaining its headers, formatting, data validations and
+   * column protections. Sheet level locks of the source sheet are not retained on the copies.
+   *
+   * @param sourceSheetName the name of the sheet to copy
+   * @param newSheetNames the names of the copies, inserted after the source sheet in this order
+   * @return the ids of the new sheets, in the order of the names
+   * @throws IOException when there is error in creating the sheets
+   */
+  ImmutableList<Integer> duplicateSheet(String sourceSheetName, List<String> newSheetNames)
+      throws IOException;
+
   /**
    * Deletes the sheet in the initialized spreadsheet.
    *
@@ -131,6 +147,75 @@ public interface SpreadsheetService {
   <T> List<T> retrieveData(String sheetName, String range, SpreadsheetRowTransformer<T> transformer)
       throws IOException;
 
+  /**
+   * Reads the header rows of the given sheets in a single request and compiles the column mappings
+   * used for transformers declaring {@link SpreadsheetRowTransformer#columnHeaders()}.
+   *
+   * @param headersBySheetName the expected column headers keyed by the sheet name
+   * @throws IOException when there is error in reading from the spreadsheet
+   */
+  void resolveColumnMappings(Map<String, ImmutableList<String>> headersBySheetName)
+      throws IOException;
+
+  /**
+   * Returns the sheet's column index for the logical column of the headers, using the cached
+   * column mapping or reading the header row.
+   *
+   * @param sheetName name of the sheet
+   * @param headers the expected column headers, empty for positional columns
+   * @param logicalColumn the column index in the headers
+   * @return the column index in the sheet or {@code -1} if the header is absent
+   * @throws IOException when there is error in reading from the spreadsheet
+   */
+  int findPhysicalColumn(String sheetName, ImmutableList<String> headers, int logicalColumn)
+      throws IOException;
+
+  /**
+   * Reads a single column of each of the given sheets, below the header row, in a single request.
+   *
+   * @param physicalColumnBySheetName the column index to read keyed by the sheet name
+   * @return the column cells keyed by sheet name, the cell at index {@code i} is on row {@code i +
+   *     2}; the trailing empty cells are omitted
+   * @throws IOException when there is error in reading from the spreadsheet
+   */
+  ImmutableMap<String, ImmutableList<Object>> retrieveColumnValues(
+      Map<String, Integer> physicalColumnBySheetName) throws IOException;
+
+  /**
+   * Returns the number of the sheet's last row with any value, including rows which do not parse.
+   *
+   * @param sheetName the name of the sheet to read
+   * @return the one-based number of the last non-empty row, {@code 0} for an empty sheet
+   * @throws IOException when there is error in reading from the spreadsheet
+   */
+  int findLastRowNumber(String sheetName) throws IOException;
+
+  /**
+   * Reads only the given rows of a sheet in a single request and transforms them. Nearby rows are
+   * read as one range, the rows which are not requested are dropped.
+   *
+   * @param sheetName name of the sheet to read from
+   * @param transformer the transformer to decode the rows with
+   * @param rowNumbers the 1-based sheet row numbers to read
+   * @return the transformed rows keyed by the row number, rows that fail to transform are omitted
+   * @throws IOException when there is error in reading from the spreadsheet
+   */
+  <T> ImmutableSortedMap<Integer, T> retrieveRows(
+      String sheetName, SpreadsheetRowTransformer<T> transformer, Collection<Integer> rowNumbers)
+      throws IOException;
+
+  /**
+   * Overwrites the given rows in place, across sheets, in a single request. The other rows of the
+   * sheets are left as-is.
+   *
+   * @param transformer the transformer to encode the rows with
+   * @param rows the objects to write keyed by the sheet name and the 1-based row number
+   * @return the number of rows updated
+   * @throws IOException when there is an error in writing values
+   */
+  <T> int updateRows(SpreadsheetRowTransformer<T> transformer, Table<String, Integer, T> rows)
+      throws IOException;
+
   /**
    * Writes the data objects to a spreadsheet as rows/columns based on set {@link MajorDimension} It
    * automatically chooses the Range from 2nd Row/Column onwards
@@ -159,6 +244,15 @@ public interface SpreadsheetService {
    */
   int storeData(String sheetName, String startCell, List<List<Object>> data) throws IOException;
 
+  /**
+   * Sets the number of rows of the sheets in a single request, deleting the rows past the count.
+   * Sheets add rows when values are written below their grid, so trimmed sheets still grow.
+   *
+   * @param rowCountBySheetName the number of rows, including the header, keyed by the sheet name
+   * @throws IOException when there is error in resizing the sheets
+   */
+  void resizeSheetRows(Map<String, Integer> rowCountBySheetName) throws IOException;
+
   /**
    * Adds new rows at the bottom of the spreadsheet.
    *
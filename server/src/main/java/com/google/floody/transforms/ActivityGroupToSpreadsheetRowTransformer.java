@@ -17,6 +17,10 @@
 package com.google.floody.transforms;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.floody.model.ActivityGroupSheetHeaderInformation.ACTIVITY_GROUP_SHEET_HEADERS;
+import static com.google.floody.model.ActivityGroupSheetHeaderInformation.NAME_COLUMN;
+import static com.google.floody.model.ActivityGroupSheetHeaderInformation.TAG_STRING_COLUMN;
+import static com.google.floody.model.ActivityGroupSheetHeaderInformation.TYPE_COLUMN;
 import static com.google.floody.spreadsheet.SheetUtils.toStringOrNull;
 
 import com.google.auto.value.AutoValue;
@@ -42,6 +46,11 @@ public abstract class ActivityGroupToSpreadsheetRowTransformer
     return new AutoValue_ActivityGroupToSpreadsheetRowTransformer(null);
   }
 
+  @Override
+  public ImmutableList<String> columnHeaders() {
+    return ACTIVITY_GROUP_SHEET_HEADERS;
+  }
+
   @Override
   public List<Object> transformToSheetRow(FloodyGroup entity) {
 
@@ -51,15 +60,15 @@ public abstract class ActivityGroupToSpreadsheetRowTransformer
   @Override
   public FloodyGroup transformFromSheetRow(List<Object> values) {
 
-    if (values == null || values.size() < 3) {
+    if (values == null || values.size() < 3 || values.get(TYPE_COLUMN) == null) {
       return null;
     }
 
     return FloodyGroup.builder()
         .floodlightConfigurationId(floodlightConfigurationId())
-        .name(toStringOrNull(values.get(0)))
-        .tagString(toStringOrNull(values.get(1)))
-        .type(GroupType.valueOf(toStringOrNull(values.get(2))))
+        .name(toStringOrNull(values.get(NAME_COLUMN)))
+        .tagString(toStringOrNull(values.get(TAG_STRING_COLUMN)))
+        .type(GroupType.valueOf(toStringOrNull(values.get(TYPE_COLUMN))))
         .build();
   }
 }
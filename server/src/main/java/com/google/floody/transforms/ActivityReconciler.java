@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.transforms;
+
+import static com.google.floody.model.ActivitySheetHeaderInformation.FLAG_TO_UPDATE_COLUMN;
+import static com.google.floody.model.ActivitySheetHeaderInformation.REMARKS_COLUMN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import com.google.floody.model.ReconciledActivity;
+import com.google.floody.model.ReconciledActivity.State;
+import com.google.floody.model.SheetFloody;
+import java.time.Period;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Classifies the activities of a spreadsheet and of DCM against the snapshot of their last sync,
+ * matching them by activity id.
+ *
+ * <p>The activities are compared by their spreadsheet row content, so that the values read from
+ * the sheet and from DCM compare alike. The update flag and the remarks are ignored as they don't
+ * describe the activity. An activity changed on one side only is changed on that side since the
+ * sync, while an activity changed on both sides to different values is a conflict. Without a
+ * snapshot every difference is a conflict.
+ */
+public final class ActivityReconciler {
+
+  private final FloodyToSpreadSheetRowTransformer rowTransformer;
+
+  public ActivityReconciler(Period defaultAudienceLifespan) {
+    this.rowTransformer = new FloodyToSpreadSheetRowTransformer(defaultAudienceLifespan);
+  }
+
+  /**
+   * Returns the reconciled activities, in the spreadsheet's order followed by the activities only
+   * present in DCM in DCM's order.
+   *
+   * @param baselineFloodies the activities of the last sync's snapshot, empty if there is none
+   * @param sheetFloodies the activities read from the spreadsheet
+   * @param dcmFloodies the activities read from DCM
+   */
+  public ImmutableList<ReconciledActivity> reconcile(
+      Collection<SheetFloody> baselineFloodies,
+      Collection<SheetFloody> sheetFloodies,
+      Collection<SheetFloody> dcmFloodies) {
+    var baselineById = indexById(baselineFloodies);
+    var unmatchedDcmById = indexById(dcmFloodies);
+    var reconciled = ImmutableList.<ReconciledActivity>builder();
+
+    var sheetIds = new HashMap<Long, SheetFloody>();
+    for (SheetFloody sheetFloody : sheetFloodies) {
+      Long id = sheetFloody.getId();
+
+      if (id == null) {
+        reconciled.add(ReconciledActivity.create(State.SHEET_ADDED, sheetFloody, null, null));
+        continue;
+      }
+
+      SheetFloody baselineFloody = baselineById.get(id);
+      if (sheetIds.putIfAbsent(id, sheetFloody) != null) {
+        // A copied row, only the first row of an id is kept in sync.
+        reconciled.add(
+            ReconciledActivity.create(State.CONFLICT, sheetFloody, null, baselineFloody));
+        continue;
+      }
+
+      SheetFloody dcmFloody = unmatchedDcmById.remove(id);
+      State state =
+          (dcmFloody == null)
+              ? State.DCM_REMOVED
+              : classify(sheetFloody, dcmFloody, baselineFloody);
+
+      reconciled.add(ReconciledActivity.create(state, sheetFloody, dcmFloody, baselineFloody));
+    }
+
+    for (SheetFloody dcmFloody : unmatchedDcmById.values()) {
+      SheetFloody baselineFloody = baselineById.get(dcmFloody.getId());
+      State state = (baselineFloody == null) ? State.DCM_ADDED : State.SHEET_REMOVED;
+
+      reconciled.add(ReconciledActivity.create(state, null, dcmFloody, baselineFloody));
+    }
+
+    return reconciled.build();
+  }
+
+  private State classify(
+      SheetFloody sheetFloody, SheetFloody dcmFloody, @Nullable SheetFloody baselineFloody) {
+    long sheetFingerprint = contentFingerprint(sheetFloody);
+    long dcmFingerprint = contentFingerprint(dcmFloody);
+
+    if (sheetFingerprint == dcmFingerprint) {
+      return State.UNCHANGED;
+    }
+
+    if (baselineFloody == null) {
+      return State.CONFLICT;
+    }
+
+    long baselineFingerprint = contentFingerprint(baselineFloody);
+    if (sheetFingerprint == baselineFingerprint) {
+      return State.DCM_MODIFIED;
+    }
+
+    return (dcmFingerprint == baselineFingerprint) ? State.SHEET_MODIFIED : State.CONFLICT;
+  }
+
+  /** Returns the fingerprint of the activity's sheet row without the flag and remarks. */
+  private long contentFingerprint(SheetFloody floody) {
+    var row = rowTransformer.transformToSheetRow(floody);
+    var hasher = Hashing.farmHashFingerprint64().newHasher();
+
+    for (int column = 0; column < row.size(); column++) {
+      if (column != FLAG_TO_UPDATE_COLUMN && column != REMARKS_COLUMN) {
+        hasher.putString(String.valueOf(row.get(column)), UTF_8).putByte((byte) 0);
+      }
+    }
+
+    return hasher.hash().asLong();
+  }
+
+  /** Returns the activities with an id by their id, keeping the first of duplicate ids. */
+  private static Map<Long, SheetFloody> indexById(Collection<SheetFloody> floodies) {
+    var floodiesById = new LinkedHashMap<Long, SheetFloody>();
+
+    for (SheetFloody floody : floodies) {
+      if (floody.getId() != null) {
+        floodiesById.putIfAbsent(floody.getId(), floody);
+      }
+    }
+
+    return floodiesById;
+  }
+}
@@ -20,7 +20,6 @@ import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
 import com.google.api.services.dfareporting.model.FloodlightActivity;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.GoogleLogger;
 import com.google.common.flogger.StackSize;
@@ -29,17 +28,21 @@ import com.google.floody.model.PublisherTag;
 import com.google.floody.model.SheetFloody;
 import com.google.floody.model.TagFormat;
 import com.google.floody.model.TagType;
+import java.util.Map;
 import java.util.Optional;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 public class ActivityToFloodyTransformer {
 
-  private final ImmutableMap<DefaultTag, Long> defaultTagMap;
-  private final ImmutableMap<PublisherTag, Long> publisherTagMap;
+  private final Map<DefaultTag, Long> defaultTagMap;
+  private final Map<PublisherTag, Long> publisherTagMap;
 
+  /**
+   * Builds a transformer using the given tag id lookups. The maps are read on each transformation,
+   * allowing a streaming reader to add the tags as they are encountered.
+   */
   public ActivityToFloodyTransformer(
-      ImmutableMap<DefaultTag, Long> defaultTagMap,
-      ImmutableMap<PublisherTag, Long> publisherTagMap) {
+      Map<DefaultTag, Long> defaultTagMap, Map<PublisherTag, Long> publisherTagMap) {
     this.defaultTagMap = defaultTagMap;
     this.publisherTagMap = publisherTagMap;
   }
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.transforms;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hashing;
+import com.google.floody.model.CacheBustingType;
+import com.google.floody.model.FloodlightActivityStatus;
+import com.google.floody.model.FloodyBundle;
+import com.google.floody.model.FloodyCountingMethod;
+import com.google.floody.model.FloodyGroup;
+import com.google.floody.model.FloodyGroup.GroupType;
+import com.google.floody.model.FloodyGroupMap;
+import com.google.floody.model.FloodyList;
+import com.google.floody.model.PublisherTagConversionType;
+import com.google.floody.model.SheetCustomVariable;
+import com.google.floody.model.SheetDefaultTag;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.model.SheetPublisherTag;
+import com.google.floody.model.TagFormat;
+import com.google.floody.model.TagType;
+import com.google.floody.protobuf.BundleSnapshots.ActivityGroupSnapshot;
+import com.google.floody.protobuf.BundleSnapshots.ActivitySnapshot;
+import com.google.floody.protobuf.BundleSnapshots.BundleSnapshot;
+import com.google.floody.protobuf.BundleSnapshots.CustomVariableSnapshot;
+import com.google.floody.protobuf.BundleSnapshots.DefaultTagSnapshot;
+import com.google.floody.protobuf.BundleSnapshots.PublisherTagSnapshot;
+import com.google.floody.protobuf.BundleSnapshots.TagIdList;
+import com.google.protobuf.Int64Value;
+import com.google.protobuf.StringValue;
+import java.time.Period;
+
+/**
+ * Transforms a {@link FloodyBundle} to the {@link BundleSnapshot} stored after a sync and back.
+ * The activities' sheet locations are not part of the snapshot.
+ */
+public final class BundleSnapshotTransformer {
+
+  /** Returns the snapshot of the bundle, with its content fingerprint but no creation time. */
+  public static BundleSnapshot toSnapshot(long floodlightConfigurationId, FloodyBundle bundle) {
+    var snapshot =
+        BundleSnapshot.newBuilder()
+            .setFloodlightConfigurationId(floodlightConfigurationId)
+            .addAllDefaultTags(
+                bundle.getDefaultTags().stream()
+                    .map(BundleSnapshotTransformer::toSnapshot)
+                    .collect(toImmutableList()))
+            .addAllPublisherTags(
+                bundle.getPublisherTags().stream()
+                    .map(BundleSnapshotTransformer::toSnapshot)
+                    .collect(toImmutableList()))
+            .addAllCustomVariables(
+                bundle.getCustomVariables().stream()
+                    .map(BundleSnapshotTransformer::toSnapshot)
+                    .collect(toImmutableList()))
+            .addAllActivityGroups(
+                bundle.getFloodyGroups().values().stream()
+                    .map(BundleSnapshotTransformer::toSnapshot)
+                    .collect(toImmutableList()));
+
+    for (SheetFloody floody : bundle.getFloodies()) {
+      snapshot.addActivities(toSnapshot(floody));
+    }
+
+    return withContentFingerprint(snapshot.build());
+  }
+
+  /** Returns the snapshot with the fingerprint of its current content. */
+  public static BundleSnapshot withContentFingerprint(BundleSnapshot snapshot) {
+    var content = snapshot.toBuilder().clearCreatedAt().clearContentFingerprint().build();
+    long fingerprint = Hashing.farmHashFingerprint64().hashBytes(content.toByteArray()).asLong();
+
+    return snapshot.toBuilder().setContentFingerprint(fingerprint).build();
+  }
+
+  /** Returns the bundle stored in the snapshot, large bundles follow the spill policy. */
+  public static FloodyBundle toBundle(BundleSnapshot snapshot) {
+    var floodies = FloodyList.builder();
+    try {
+      snapshot.getActivitiesList().stream()
+          .map(BundleSnapshotTransformer::toFloody)
+          .forEach(floodies::add);
+    } catch (RuntimeException runtimeException) {
+      floodies.discard();
+      throw runtimeException;
+    }
+
+    return FloodyBundle.builder()
+        .setFloodies(floodies.build())
+        .setDefaultTags(
+            snapshot.getDefaultTagsList().stream()
+                .map(BundleSnapshotTransformer::toDefaultTag)
+                .collect(toImmutableSet()))
+        .setPublisherTags(
+            snapshot.getPublisherTagsList().stream()
+                .map(BundleSnapshotTransformer::toPublisherTag)
+                .collect(toImmutableSet()))
+        .setCustomVariables(
+            snapshot.getCustomVariablesList().stream()
+                .map(BundleSnapshotTransformer::toCustomVariable)
+                .collect(toImmutableSet()))
+        .setFloodyGroups(
+            FloodyGroupMap.buildFor(
+                snapshot.getActivityGroupsList().stream()
+                    .map(BundleSnapshotTransformer::toGroup)
+                    .collect(toImmutableList())))
+        .build();
+  }
+
+  private static ActivitySnapshot toSnapshot(SheetFloody floody) {
+    var activity =
+        ActivitySnapshot.newBuilder()
+            .setToBeUpdated(floody.isToBeUpdated())
+            .setGroupTagString(floody.getGroupTagString())
+            .setName(floody.getName())
+            .setCountingMethod(floody.getCountingMethod().name())
+            .setCacheBustingMethod(floody.getCacheBustingMethod().name())
+            .setTagFormat(floody.getTagFormat().name())
+            .setTagType(floody.getTagType().name())
+            .setAutoCreateAudience(floody.isAutoCreateAudience())
+            .addAllCustomFloodlightVariables(floody.getCustomFloodlightVariables())
+            .setStatus(floody.getStatus().name());
+
+    if (floody.getAccountId() != null) {
+      activity.setAccountId(Int64Value.of(floody.getAccountId()));
+    }
+    if (floody.getFloodlightConfigurationId() != null) {
+      activity.setFloodlightConfigurationId(Int64Value.of(floody.getFloodlightConfigurationId()));
+    }
+    if (floody.getId() != null) {
+      activity.setId(Int64Value.of(floody.getId()));
+    }
+    if (floody.getGroupName() != null) {
+      activity.setGroupName(StringValue.of(floody.getGroupName()));
+    }
+    if (floody.getTagString() != null) {
+      activity.setTagString(StringValue.of(floody.getTagString()));
+    }
+    if (floody.getExpectedUrl() != null) {
+      activity.setExpectedUrl(StringValue.of(floody.getExpectedUrl()));
+    }
+    if (floody.getRemarks() != null) {
+      activity.setRemarks(StringValue.of(floody.getRemarks()));
+    }
+    if (floody.getAudienceLifespan() != null) {
+      activity.setAudienceLifespan(StringValue.of(floody.getAudienceLifespan().toString()));
+    }
+    if (floody.getDefaultTagIds() != null) {
+      activity.setDefaultTagIds(TagIdList.newBuilder().addAllIds(floody.getDefaultTagIds()));
+    }
+    if (floody.getPublisherTagIds() != null) {
+      activity.setPublisherTagIds(TagIdList.newBuilder().addAllIds(floody.getPublisherTagIds()));
+    }
+
+    return activity.build();
+  }
+
+  private static SheetFloody toFloody(ActivitySnapshot activity) {
+    return SheetFloody.builder()
+        .setAccountId(activity.hasAccountId() ? activity.getAccountId().getValue() : null)
+        .setFloodlightConfigurationId(
+            activity.hasFloodlightConfigurationId()
+                ? activity.getFloodlightConfigurationId().getValue()
+                : null)
+        .setToBeUpdated(activity.getToBeUpdated())
+        .setGroupName(activity.hasGroupName() ? activity.getGroupName().getValue() : null)
+        .setGroupTagString(activity.getGroupTagString())
+        .setTagString(activity.hasTagString() ? activity.getTagString().getValue() : null)
+        .setId(activity.hasId() ? activity.getId().getValue() : null)
+        .setName(activity.getName())
+        .setCountingMethod(FloodyCountingMethod.valueOf(activity.getCountingMethod()))
+        .setExpectedUrl(activity.hasExpectedUrl() ? activity.getExpectedUrl().getValue() : null)
+        .setCacheBustingMethod(CacheBustingType.valueOf(activity.getCacheBustingMethod()))
+        .setTagFormat(TagFormat.valueOf(activity.getTagFormat()))
+        .setTagType(TagType.valueOf(activity.getTagType()))
+        .setRemarks(activity.hasRemarks() ? activity.getRemarks().getValue() : null)
+        .setAutoCreateAudience(activity.getAutoCreateAudience())
+        .setAudienceLifespan(
+            activity.hasAudienceLifespan()
+                ? Period.parse(activity.getAudienceLifespan().getValue())
+                : null)
+        .setCustomFloodlightVariables(
+            ImmutableSet.copyOf(activity.getCustomFloodlightVariablesList()))
+        .setDefaultTagIds(
+            activity.hasDefaultTagIds() ? toTagIds(activity.getDefaultTagIds()) : null)
+        .setPublisherTagIds(
+            activity.hasPublisherTagIds() ? toTagIds(activity.getPublisherTagIds()) : null)
+        .setStatus(FloodlightActivityStatus.valueOf(activity.getStatus()))
+        .build();
+  }
+
+  private static ImmutableSet<Long> toTagIds(TagIdList tagIds) {
+    return ImmutableSet.copyOf(tagIds.getIdsList());
+  }
+
+  private static DefaultTagSnapshot toSnapshot(SheetDefaultTag defaultTag) {
+    var snapshot =
+        DefaultTagSnapshot.newBuilder().setId(defaultTag.getId()).setTag(defaultTag.getTag());
+
+    if (defaultTag.getName() != null) {
+      snapshot.setName(StringValue.of(defaultTag.getName()));
+    }
+
+    return snapshot.build();
+  }
+
+  private static SheetDefaultTag toDefaultTag(DefaultTagSnapshot snapshot) {
+    return SheetDefaultTag.builder()
+        .setId(snapshot.getId())
+        .setName(snapshot.hasName() ? snapshot.getName().getValue() : null)
+        .setTag(snapshot.getTag())
+        .build();
+  }
+
+  private static PublisherTagSnapshot toSnapshot(SheetPublisherTag publisherTag) {
+    var snapshot =
+        PublisherTagSnapshot.newBuilder()
+            .setId(publisherTag.getId())
+            .setConversionType(publisherTag.getConversionType().name())
+            .setTag(publisherTag.getTag());
+
+    if (publisherTag.getSiteId() != null) {
+      snapshot.setSiteId(Int64Value.of(publisherTag.getSiteId()));
+    }
+
+    return snapshot.build();
+  }
+
+  private static SheetPublisherTag toPublisherTag(PublisherTagSnapshot snapshot) {
+    return SheetPublisherTag.builder()
+        .setId(snapshot.getId())
+        .setSiteId(snapshot.hasSiteId() ? snapshot.getSiteId().getValue() : null)
+        .setConversionType(PublisherTagConversionType.valueOf(snapshot.getConversionType()))
+        .setTag(snapshot.getTag())
+        .build();
+  }
+
+  private static CustomVariableSnapshot toSnapshot(SheetCustomVariable customVariable) {
+    var snapshot =
+        CustomVariableSnapshot.newBuilder()
+            .setNumber(customVariable.getNumber())
+            .setType(customVariable.getType());
+
+    if (customVariable.getName() != null) {
+      snapshot.setName(StringValue.of(customVariable.getName()));
+    }
+
+    return snapshot.build();
+  }
+
+  private static SheetCustomVariable toCustomVariable(CustomVariableSnapshot snapshot) {
+    return SheetCustomVariable.builder()
+        .setNumber(snapshot.getNumber())
+        .setType(snapshot.getType())
+        .setName(snapshot.hasName() ? snapshot.getName().getValue() : null)
+        .build();
+  }
+
+  private static ActivityGroupSnapshot toSnapshot(FloodyGroup group) {
+    var snapshot =
+        ActivityGroupSnapshot.newBuilder()
+            .setName(group.name())
+            .setTagString(group.tagString())
+            .setType(group.type().name())
+            .setFloodlightConfigurationId(group.floodlightConfigurationId());
+
+    if (group.id() != null) {
+      snapshot.setId(Int64Value.of(group.id()));
+    }
+    if (group.creationRemarks() != null) {
+      snapshot.setCreationRemarks(StringValue.of(group.creationRemarks()));
+    }
+
+    return snapshot.build();
+  }
+
+  private static FloodyGroup toGroup(ActivityGroupSnapshot snapshot) {
+    return FloodyGroup.builder()
+        .id(snapshot.hasId() ? snapshot.getId().getValue() : null)
+        .name(snapshot.getName())
+        .tagString(snapshot.getTagString())
+        .type(GroupType.valueOf(snapshot.getType()))
+        .floodlightConfigurationId(snapshot.getFloodlightConfigurationId())
+        .creationRemarks(
+            snapshot.hasCreationRemarks() ? snapshot.getCreationRemarks().getValue() : null)
+        .build();
+  }
+
+  private BundleSnapshotTransformer() {}
+}
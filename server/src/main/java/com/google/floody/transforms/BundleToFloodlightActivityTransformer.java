@@ -43,6 +43,11 @@ public final class BundleToFloodlightActivityTransformer {
         buildDefaultTagMapFromSet(), buildPublisherTagMapFromSet(), bundle.getFloodyGroups());
   }
 
+  public FloodlightActivityValidator buildActivityValidator() {
+    return new FloodlightActivityValidator(
+        buildDefaultTagMapFromSet(), buildPublisherTagMapFromSet(), bundle.getFloodyGroups());
+  }
+
   public MissingActivityGroupBuilder missingActivityGroupBuilder(
       ImmutableSet<FloodyGroup> existingGroups) {
     return new MissingActivityGroupBuilder(existingGroups, bundle.getFloodies());
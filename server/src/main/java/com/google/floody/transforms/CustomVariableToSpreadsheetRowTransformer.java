@@ -16,9 +16,14 @@
 
 package com.google.floody.transforms;
 
+import static com.google.floody.model.CustomVariablesSheetHeaderInformation.CUSTOM_VARIABLE_SHEET_HEADERS;
+import static com.google.floody.model.CustomVariablesSheetHeaderInformation.NAME_COLUMN;
+import static com.google.floody.model.CustomVariablesSheetHeaderInformation.TYPE_COLUMN;
+import static com.google.floody.model.CustomVariablesSheetHeaderInformation.UVARIABLE_COLUMN;
 import static com.google.floody.spreadsheet.SheetUtils.buildAsStringList;
 import static com.google.floody.spreadsheet.SheetUtils.toStringOrNull;
 
+import com.google.common.collect.ImmutableList;
 import com.google.floody.model.SheetCustomVariable;
 import com.google.floody.spreadsheet.SpreadsheetRowTransformer;
 import java.util.List;
@@ -26,17 +31,22 @@ import java.util.List;
 public final class CustomVariableToSpreadsheetRowTransformer
     implements SpreadsheetRowTransformer<SheetCustomVariable> {
 
+  @Override
+  public ImmutableList<String> columnHeaders() {
+    return CUSTOM_VARIABLE_SHEET_HEADERS;
+  }
+
   @Override
   public SheetCustomVariable transformFromSheetRow(List<Object> values) {
 
-    if (values == null || values.size() < 3) {
+    if (values == null || values.size() < 3 || values.get(UVARIABLE_COLUMN) == null) {
       return null;
     }
 
     return SheetCustomVariable.builder()
-        .setNumber(toStringOrNull(values.get(0)))
-        .setName(toStringOrNull(values.get(1)))
-        .setType(toStringOrNull(values.get(2)))
+        .setNumber(toStringOrNull(values.get(UVARIABLE_COLUMN)))
+        .setName(toStringOrNull(values.get(NAME_COLUMN)))
+        .setType(toStringOrNull(values.get(TYPE_COLUMN)))
         .build();
   }
 
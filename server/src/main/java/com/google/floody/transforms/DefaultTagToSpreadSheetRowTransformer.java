@@ -19,10 +19,12 @@ package com.google.floody.transforms;
 import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_CODE_COLUMN;
 import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_ID_COLUMN;
 import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_NAME_COLUMN;
+import static com.google.floody.model.DefaultTagSheetHeaderInformation.DEFAULT_TAG_SHEET_HEADERS;
 import static com.google.floody.spreadsheet.SheetUtils.buildAsStringList;
 import static com.google.floody.spreadsheet.SheetUtils.toLongOrNull;
 import static com.google.floody.spreadsheet.SheetUtils.toStringOrNull;
 
+import com.google.common.collect.ImmutableList;
 import com.google.floody.model.SheetDefaultTag;
 import com.google.floody.spreadsheet.SpreadsheetRowTransformer;
 import java.util.List;
@@ -31,12 +33,17 @@ import java.util.List;
 public class DefaultTagToSpreadSheetRowTransformer
     implements SpreadsheetRowTransformer<SheetDefaultTag> {
 
+  @Override
+  public ImmutableList<String> columnHeaders() {
+    return DEFAULT_TAG_SHEET_HEADERS;
+  }
+
   @Override
   public SheetDefaultTag transformFromSheetRow(List<Object> values) {
 
-    // ensure the row has required number of columns
+    // ensure the row has required number of columns and the tag code
 
-    if (values.size() != 3) {
+    if (values.size() != 3 || values.get(DEFAULT_TAG_CODE_COLUMN) == null) {
       return null;
     }
 
@@ -16,86 +16,120 @@
 
 package com.google.floody.transforms;
 
-import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 
 import com.google.api.services.dfareporting.model.FloodlightActivity;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Streams;
 import com.google.floody.model.DefaultTag;
 import com.google.floody.model.FloodyBundle;
+import com.google.floody.model.FloodyList;
 import com.google.floody.model.PublisherTag;
 import com.google.floody.model.SheetDefaultTag;
-import com.google.floody.model.SheetFloody;
 import com.google.floody.model.SheetPublisherTag;
-import java.util.List;
-import java.util.Objects;
-import org.apache.commons.lang3.tuple.ImmutablePair;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
 
-/** Utility class to provide transform functions between FloodyBundle and Floody. */
+/**
+ * Utility class to provide transform functions between FloodyBundle and Floody.
+ *
+ * <p>The activities can be added page by page, each page is transformed as it is added so that
+ * only the bundle's activities are retained, which spill to disk for very large configurations.
+ */
 public final class FloodlightActivityToBundleTransformer {
 
-  private final ImmutableSet<FloodlightActivity> activities;
+  private final TagIdAssigner<DefaultTag> defaultTagIds;
+  private final TagIdAssigner<PublisherTag> publisherTagIds;
+  private final ActivityToFloodyTransformer floodyTransformer;
+  private final FloodyList.Builder floodies;
+
+  public FloodlightActivityToBundleTransformer() {
+    this.defaultTagIds = TagIdAssigner.forDefaultTags();
+    this.publisherTagIds = TagIdAssigner.forPublisherTags();
+    // The live id maps are only read by the transforms, after the ids of an added page's tags
+    // are assigned.
+    this.floodyTransformer =
+        new ActivityToFloodyTransformer(defaultTagIds.asMap(), publisherTagIds.asMap());
+    this.floodies = FloodyList.builder();
+  }
 
   public FloodlightActivityToBundleTransformer(ImmutableSet<FloodlightActivity> activities) {
-    this.activities = activities;
+    this();
+    add(activities);
   }
 
-  public FloodyBundle.Builder getBundleBuilder() {
-    ImmutableMap<PublisherTag, Long> publisherTagMap = deduplicatePublisherTags();
-    ImmutableMap<DefaultTag, Long> defaultTagMap = deduplicateDefaultTags();
+  /**
+   * Transforms the activities and appends them to the bundle's activities, the transformer is
+   * discarded when the activities can't be transformed.
+   */
+  public FloodlightActivityToBundleTransformer add(Collection<FloodlightActivity> activities) {
+    try {
+      transformAndAdd(activities);
+      return this;
+    } catch (RuntimeException runtimeException) {
+      discard();
+      throw runtimeException;
+    }
+  }
+
+  /** Abandons the transformed activities, deleting their spill file if any. */
+  public void discard() {
+    floodies.discard();
+  }
 
-    ActivityToFloodyTransformer floodyTransformer =
-        new ActivityToFloodyTransformer(defaultTagMap, publisherTagMap);
+  private void transformAndAdd(Collection<FloodlightActivity> activities) {
+    // Extract the tags in parallel and assign ids in the activities' order, as colliding ids
+    // are resolved in the assignment order.
+    ImmutableList<ImmutableList<DefaultTag>> activityDefaultTags =
+        ParallelTransforms.map(
+            activities, FloodlightActivityToBundleTransformer::extractDefaultTags);
+    ImmutableList<ImmutableList<PublisherTag>> activityPublisherTags =
+        ParallelTransforms.map(
+            activities, FloodlightActivityToBundleTransformer::extractPublisherTags);
 
-    ImmutableSet<SheetFloody> sheetFloodies =
-        activities.stream()
-            .map(floodyTransformer::buildFloodyFromActivity)
-            .filter(Objects::nonNull)
-            .collect(ImmutableSet.toImmutableSet());
+    activityDefaultTags.forEach(tags -> tags.forEach(defaultTagIds::assignIfAbsent));
+    activityPublisherTags.forEach(tags -> tags.forEach(publisherTagIds::assignIfAbsent));
+
+    ParallelTransforms.map(
+            activities,
+            activity -> Optional.ofNullable(floodyTransformer.buildFloodyFromActivity(activity)))
+        .forEach(floody -> floody.ifPresent(floodies::add));
+  }
 
+  public FloodyBundle.Builder getBundleBuilder() {
     return FloodyBundle.builder()
-        .setDefaultTags(buildSheetDefaultTags(defaultTagMap))
-        .setPublisherTags(buildSheetPublisherTags(publisherTagMap))
-        .setFloodies(sheetFloodies);
+        .setDefaultTags(buildSheetDefaultTags(defaultTagIds.asMap()))
+        .setPublisherTags(buildSheetPublisherTags(publisherTagIds.asMap()))
+        .setFloodies(floodies.build());
+  }
+
+  private static ImmutableList<DefaultTag> extractDefaultTags(FloodlightActivity activity) {
+    return Optional.ofNullable(activity.getDefaultTags()).orElseGet(ImmutableList::of).stream()
+        .map(DefaultTag::fromDynamicTag)
+        .collect(toImmutableList());
+  }
+
+  private static ImmutableList<PublisherTag> extractPublisherTags(FloodlightActivity activity) {
+    return Optional.ofNullable(activity.getPublisherTags()).orElseGet(ImmutableList::of).stream()
+        .map(FloodlightActivityPublisherDynamicTagToPublisherTagAdapter::transform)
+        .collect(toImmutableList());
   }
 
-  private ImmutableSet<SheetDefaultTag> buildSheetDefaultTags(
-      ImmutableMap<DefaultTag, Long> defaultTagMap) {
+  /** Returns the tags ordered by id, keeping their rows in the same order across exports. */
+  private ImmutableSet<SheetDefaultTag> buildSheetDefaultTags(Map<DefaultTag, Long> defaultTagMap) {
     return defaultTagMap.entrySet().stream()
+        .sorted(Map.Entry.comparingByValue())
         .map(entry -> SheetDefaultTag.fromDefaultTagWithId(entry.getValue(), entry.getKey()))
         .collect(toImmutableSet());
   }
 
   private ImmutableSet<SheetPublisherTag> buildSheetPublisherTags(
-      ImmutableMap<PublisherTag, Long> publisherTagMap) {
+      Map<PublisherTag, Long> publisherTagMap) {
     return publisherTagMap.entrySet().stream()
+        .sorted(Map.Entry.comparingByValue())
         .map(entry -> SheetPublisherTag.fromPublisherTagWithId(entry.getValue(), entry.getKey()))
         .collect(toImmutableSet());
   }
-
-  private ImmutableMap<DefaultTag, Long> deduplicateDefaultTags() {
-    return Streams.mapWithIndex(
-            activities.stream()
-                .map(FloodlightActivity::getDefaultTags)
-                .filter(Objects::nonNull)
-                .flatMap(List::stream)
-                .map(DefaultTag::fromDynamicTag)
-                .distinct(),
-            (activity, index) -> ImmutablePair.of(activity, index))
-        .collect(toImmutableMap(ImmutablePair::getKey, ImmutablePair::getValue));
-  }
-
-  private ImmutableMap<PublisherTag, Long> deduplicatePublisherTags() {
-    return Streams.mapWithIndex(
-            activities.stream()
-                .map(FloodlightActivity::getPublisherTags)
-                .filter(Objects::nonNull)
-                .flatMap(List::stream)
-                .map(FloodlightActivityPublisherDynamicTagToPublisherTagAdapter::transform)
-                .distinct(),
-            (pubTag, index) -> ImmutablePair.of(pubTag, index))
-        .collect(toImmutableMap(ImmutablePair::getKey, ImmutablePair::getValue));
-  }
 }
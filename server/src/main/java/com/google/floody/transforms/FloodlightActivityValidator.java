@@ -16,8 +16,10 @@
 
 package com.google.floody.transforms;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.floody.model.DefaultTag;
 import com.google.floody.model.FloodyGroup;
@@ -26,6 +28,7 @@ import com.google.floody.model.PublisherTag;
 import com.google.floody.model.SheetFloody;
 import com.google.floody.model.TagFormat;
 import com.google.floody.model.TagType;
+import java.util.Objects;
 
 public final class FloodlightActivityValidator {
 
@@ -76,6 +79,19 @@ public final class FloodlightActivityValidator {
       isValid = false;
     }
 
+    return isValidActivityFields(floody, remarksBuilder) && isValid;
+  }
+
+  /**
+   * Validates the activity's own fields and tag references, without checking its group.
+   *
+   * @param floody the activity to validate
+   * @param remarksBuilder the builder to append the problems to
+   * @return true if the fields of the activity are valid
+   */
+  public boolean isValidActivityFields(SheetFloody floody, StringBuilder remarksBuilder) {
+    boolean isValid = true;
+
     if (!isValidTagString(floody.getTagString())) {
       remarksBuilder
           .append("activityTagString(cat=) [")
@@ -138,12 +154,14 @@ public final class FloodlightActivityValidator {
       return true;
     }
 
-    return (floody.getDefaultTagIds().size()
-        == floody.getDefaultTagIds().stream()
+    // Unknown tag ids are reported separately.
+    ImmutableList<DefaultTag> tags =
+        floody.getDefaultTagIds().stream()
             .map(defaultTagMap::get)
-            .map(DefaultTag::tag)
-            .distinct()
-            .count());
+            .filter(Objects::nonNull)
+            .collect(toImmutableList());
+
+    return tags.size() == tags.stream().map(DefaultTag::tag).distinct().count();
   }
 
   /** Returns true if there is no duplicate tags in selected Publisher Tags. */
@@ -154,12 +172,14 @@ public final class FloodlightActivityValidator {
       return true;
     }
 
-    return (floody.getPublisherTagIds().size()
-        == floody.getPublisherTagIds().stream()
+    // Unknown tag ids are reported separately.
+    ImmutableList<PublisherTag> tags =
+        floody.getPublisherTagIds().stream()
             .map(publisherTagMap::get)
-            .map(PublisherTag::tag)
-            .distinct()
-            .count());
+            .filter(Objects::nonNull)
+            .collect(toImmutableList());
+
+    return tags.size() == tags.stream().map(PublisherTag::tag).distinct().count();
   }
 
   private boolean isValidTagString(String tagString) {
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.transforms;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.SetMultimap;
+import com.google.floody.model.FloodyBundle;
+import com.google.floody.model.FloodyGroup;
+import com.google.floody.model.FloodyGroup.GroupType;
+import com.google.floody.model.FloodyGroupMap;
+import com.google.floody.model.FloodyList;
+import com.google.floody.model.SheetActivityKey;
+import com.google.floody.model.SheetFloody;
+import com.google.floody.protobuf.DcmOperations.ActivityValidationError;
+import com.google.floody.protobuf.DcmOperations.BundleValidationReport;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Validates all the activities marked for update against the whole bundle, before any DCM write.
+ *
+ * <p>Besides the field checks of {@link FloodlightActivityValidator}, the activities are checked
+ * against each other using indexes built once for the bundle: activity ids must be unique, tag
+ * strings and names must be unique within a group, and the activities of a group must match its
+ * counting type. Activities of groups missing from the bundle are valid, as the group is created
+ * before writing them, provided they agree on the new group's type.
+ *
+ * <p>Bundles holding only the rows marked for update are validated along with the {@link
+ * SheetActivityKey keys} of the spreadsheet's other rows, so that the uniqueness checks still
+ * cover the whole sheet.
+ */
+public final class FloodyBundleValidator {
+
+  private static final Splitter REMARKS_SPLITTER =
+      Splitter.on('\n').trimResults().omitEmptyStrings();
+
+  private final FloodyBundle bundle;
+  private final ImmutableList<SheetActivityKey> otherActivities;
+  private final FloodyGroupMap groupsMap;
+  private final FloodlightActivityValidator activityValidator;
+
+  public FloodyBundleValidator(FloodyBundle bundle) {
+    this(bundle, ImmutableList.of());
+  }
+
+  /**
+   * @param bundle the activities to validate, along with the tags and groups they refer to
+   * @param otherActivities the spreadsheet's rows missing from the bundle, only used for the
+   *     uniqueness checks
+   */
+  public FloodyBundleValidator(FloodyBundle bundle, Collection<SheetActivityKey> otherActivities) {
+    this.bundle = bundle;
+    this.otherActivities = ImmutableList.copyOf(otherActivities);
+    this.groupsMap = bundle.getFloodyGroups();
+    this.activityValidator =
+        BundleToFloodlightActivityTransformer.forBundle(bundle).buildActivityValidator();
+  }
+
+  /**
+   * Validates the activities marked for update.
+   *
+   * @return the problems of the invalid activities, in the bundle's order
+   */
+  public ImmutableListMultimap<SheetFloody, String> validate() {
+    var indexes = new BundleIndexes();
+
+    // Select the rows by index, the activity views are only built while validating each row.
+    FloodyList floodies = bundle.getFloodies();
+    ImmutableList<Integer> rowsToUpdate =
+        IntStream.range(0, floodies.size())
+            .filter(floodies::isToBeUpdated)
+            .boxed()
+            .collect(toImmutableList());
+
+    ImmutableList<ImmutableList<String>> rowProblems =
+        ParallelTransforms.map(rowsToUpdate, row -> validateFloody(floodies.get(row), indexes));
+
+    var problems = ImmutableListMultimap.<SheetFloody, String>builder();
+    for (int index = 0; index < rowsToUpdate.size(); index++) {
+      if (!rowProblems.get(index).isEmpty()) {
+        problems.putAll(floodies.get(rowsToUpdate.get(index)), rowProblems.get(index));
+      }
+    }
+
+    return problems.build();
+  }
+
+  /** Validates the bundle and returns the problems with the location of each activity. */
+  public BundleValidationReport report() {
+    ImmutableListMultimap<SheetFloody, String> problems = validate();
+
+    var report =
+        BundleValidationReport.newBuilder()
+            .setValidatedActivities(bundle.getFloodies().countToBeUpdated())
+            .setInvalidActivities(problems.keySet().size());
+
+    problems.forEach((floody, message) -> report.addErrors(buildError(floody, message)));
+
+    return report.build();
+  }
+
+  private ImmutableList<String> validateFloody(SheetFloody floody, BundleIndexes indexes) {
+    var problems = ImmutableList.<String>builder();
+
+    var remarksBuilder = new StringBuilder();
+    if (!activityValidator.isValidActivityFields(floody, remarksBuilder)) {
+      problems.addAll(REMARKS_SPLITTER.split(remarksBuilder));
+    }
+
+    var groupRemarksBuilder = new StringBuilder();
+    FloodyGroup group = groupsMap.getForFloody(floody, groupRemarksBuilder);
+    problems.addAll(REMARKS_SPLITTER.split(groupRemarksBuilder));
+
+    GroupType activityGroupType =
+        FloodlightActivityCountingMethodFloodyCountingMethodAdapter.getGroupType(
+            floody.getCountingMethod());
+
+    if (group != null && !activityGroupType.equals(group.type())) {
+      problems.add(
+          String.format(
+              "Activity CountingType (%s) mismatch with Group (%s)",
+              floody.getCountingMethod().name(), group.type().name()));
+    }
+
+    String groupKey = indexes.groupKey(floody.getGroupName(), floody.getGroupTagString());
+    if (group == null && indexes.newGroupTypes.get(groupKey).size() > 1) {
+      problems.add(
+          String.format(
+              "new Group (%s) has activities of different counting types",
+              floody.getGroupName()));
+    }
+
+    if (floody.getId() != null && indexes.activityIds.count(floody.getId()) > 1) {
+      problems.add(String.format("Activity id (%s) is used by multiple rows", floody.getId()));
+    }
+
+    if (indexes.isSharedInGroup(indexes.groupTagStrings, groupKey, floody.getTagString())) {
+      problems.add(
+          String.format(
+              "activityTagString (%s) is used by multiple activities of the group",
+              floody.getTagString()));
+    }
+
+    if (indexes.isSharedInGroup(indexes.groupNames, groupKey, floody.getName())) {
+      problems.add(
+          String.format(
+              "Activity name (%s) is used by multiple activities of the group", floody.getName()));
+    }
+
+    return problems.build();
+  }
+
+  private static ActivityValidationError buildError(SheetFloody floody, String message) {
+    var error =
+        ActivityValidationError.newBuilder()
+            .setActivityName(Objects.toString(floody.getName(), ""))
+            .setGroupName(Objects.toString(floody.getGroupName(), ""))
+            .setMessage(message);
+
+    if (floody.getId() != null) {
+      error.setActivityId(floody.getId());
+    }
+
+    if (floody.getSheetLocation() != null) {
+      error
+          .setSheetName(floody.getSheetLocation().getSheetName())
+          .setRowNumber(floody.getSheetLocation().getRowNumber());
+    }
+
+    return error.build();
+  }
+
+  /**
+   * Counts of the keys of all the bundle's activities and the other rows, built once and only read
+   * by the validations. The activities are indexed in one pass over the list, so that only their
+   * keys are retained and not the activity views.
+   */
+  private final class BundleIndexes {
+
+    /** Identifies each group by tag string, or by name for new groups. */
+    private final Map<ImmutablePair<String, String>, String> groupKeys;
+
+    private final Multiset<Long> activityIds;
+    private final Multiset<ImmutablePair<String, String>> groupTagStrings;
+    private final Multiset<ImmutablePair<String, String>> groupNames;
+
+    /** The counting types requested for each group to be created. */
+    private final SetMultimap<String, GroupType> newGroupTypes;
+
+    private BundleIndexes() {
+      this.groupKeys = new ConcurrentHashMap<>();
+      this.activityIds = HashMultiset.create();
+      this.groupTagStrings = HashMultiset.create();
+      this.groupNames = HashMultiset.create();
+      this.newGroupTypes = HashMultimap.create();
+
+      for (SheetFloody floody : bundle.getFloodies()) {
+        String groupKey = index(SheetActivityKey.of(floody));
+
+        if (floody.isToBeUpdated()
+            && findGroup(floody.getGroupName(), floody.getGroupTagString()) == null) {
+          newGroupTypes.put(
+              groupKey,
+              FloodlightActivityCountingMethodFloodyCountingMethodAdapter.getGroupType(
+                  floody.getCountingMethod()));
+        }
+      }
+
+      otherActivities.forEach(this::index);
+    }
+
+    /** Counts the activity's keys and returns its group key. */
+    private String index(SheetActivityKey activity) {
+      String groupKey = groupKey(activity.getGroupName(), activity.getGroupTagString());
+
+      if (activity.getId() != null) {
+        activityIds.add(activity.getId());
+      }
+
+      if (!isBlank(activity.getTagString())) {
+        groupTagStrings.add(ImmutablePair.of(groupKey, activity.getTagString()));
+      }
+
+      if (!isBlank(activity.getName())) {
+        groupNames.add(ImmutablePair.of(groupKey, activity.getName()));
+      }
+
+      return groupKey;
+    }
+
+    /** Returns true if other activities of the group have the same non-blank value. */
+    private boolean isSharedInGroup(
+        Multiset<ImmutablePair<String, String>> index, String groupKey, @Nullable String value) {
+      return !isBlank(value) && index.count(ImmutablePair.of(groupKey, value)) > 1;
+    }
+
+    /** Returns the key of the group, all the bundle's groups are resolved while indexing. */
+    private String groupKey(@Nullable String groupName, @Nullable String groupTagString) {
+      return groupKeys.computeIfAbsent(
+          ImmutablePair.of(groupName, groupTagString),
+          group -> buildGroupKey(group.getLeft(), group.getRight()));
+    }
+
+    private String buildGroupKey(@Nullable String groupName, @Nullable String groupTagString) {
+      FloodyGroup group = findGroup(groupName, groupTagString);
+
+      if (group != null) {
+        return "tag:" + group.tagString();
+      }
+
+      return isBlank(groupTagString) ? "name:" + groupName : "tag:" + groupTagString;
+    }
+
+    @Nullable
+    private FloodyGroup findGroup(@Nullable String groupName, @Nullable String groupTagString) {
+      try {
+        return groupsMap.getForGroup(groupName, groupTagString);
+      } catch (RuntimeException exception) {
+        return null;
+      }
+    }
+  }
+}
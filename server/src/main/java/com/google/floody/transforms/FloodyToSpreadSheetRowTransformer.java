@@ -29,30 +29,235 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.GoogleLogger;
 import com.google.common.flogger.StackSize;
+import com.google.common.primitives.Longs;
 import com.google.floody.model.ActivitySheetHeaderInformation;
 import com.google.floody.model.CacheBustingType;
 import com.google.floody.model.FloodlightActivityStatus;
+import com.google.floody.model.FloodyCountingMethod;
 import com.google.floody.model.SheetFloody;
 import com.google.floody.model.TagFormat;
 import com.google.floody.model.TagType;
-import com.google.floody.spreadsheet.SpreadsheetRowTransformer;
+import com.google.floody.spreadsheet.ColumnarRowTransformer;
+import com.google.floody.spreadsheet.SheetColumnType;
+import com.google.floody.spreadsheet.SheetColumns;
 import java.time.Period;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 import org.apache.commons.lang3.StringUtils;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Map a SheetFloody to a Spreadsheet row and reverse. */
-public class FloodyToSpreadSheetRowTransformer implements SpreadsheetRowTransformer<SheetFloody> {
+public class FloodyToSpreadSheetRowTransformer implements ColumnarRowTransformer<SheetFloody> {
 
   private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
 
+  /** Column types in the order of {@link ActivitySheetHeaderInformation#ACTIVITY_SHEET_HEADERS}. */
+  private static final ImmutableList<SheetColumnType> ACTIVITY_SHEET_COLUMN_TYPES =
+      ImmutableList.of(
+          SheetColumnType.LONG, // Account ID
+          SheetColumnType.LONG, // Floodlight Config ID
+          SheetColumnType.LONG, // Floodlight Activity ID
+          SheetColumnType.SYMBOL, // Update
+          SheetColumnType.STRING, // Activity Name
+          SheetColumnType.STRING, // Activity Tag String
+          SheetColumnType.SYMBOL, // Activity Group Name
+          SheetColumnType.SYMBOL, // Group Tag String
+          SheetColumnType.SYMBOL, // Counting Methodology
+          SheetColumnType.STRING, // Expected URL
+          SheetColumnType.SYMBOL, // Cache Busting
+          SheetColumnType.SYMBOL, // Custom Floodlight Variables Selected
+          SheetColumnType.LONG_LIST, // Default Tags
+          SheetColumnType.LONG_LIST, // Publisher Tags
+          SheetColumnType.SYMBOL, // Tag Format
+          SheetColumnType.SYMBOL, // Tag Type
+          SheetColumnType.SYMBOL, // Status
+          SheetColumnType.SYMBOL, // Create Audience
+          SheetColumnType.SYMBOL, // Audience Lifespan
+          SheetColumnType.STRING // System response
+          );
+
   private final Period defaultRemarketingAudienceLifespan;
 
   public FloodyToSpreadSheetRowTransformer(Period defaultRemarketingAudienceLifespan) {
     this.defaultRemarketingAudienceLifespan = defaultRemarketingAudienceLifespan;
   }
 
+  @Override
+  public ImmutableList<String> columnHeaders() {
+    return ActivitySheetHeaderInformation.ACTIVITY_SHEET_HEADERS;
+  }
+
+  @Override
+  public ImmutableList<SheetColumnType> columnTypes() {
+    return ACTIVITY_SHEET_COLUMN_TYPES;
+  }
+
+  /**
+   * Builds the SheetFloody objects from the typed columns of the sheet. The repeating values, e.g.
+   * the enums, are decoded once per distinct value rather than once per row.
+   */
+  @Override
+  public List<SheetFloody> transformFromColumns(SheetColumns columns) {
+    var countingMethods =
+        decodeSymbols(
+            columns,
+            ActivitySheetHeaderInformation.COUNTING_METHODOLOGY_COLUMN,
+            FloodyCountingMethod::valueOf);
+    var cacheBustingTypes =
+        decodeSymbols(
+            columns,
+            ActivitySheetHeaderInformation.CACHE_BUSTING_COLUMN,
+            CacheBustingType::valueOfOrDefault);
+    var customVariables =
+        decodeSymbols(
+            columns,
+            ActivitySheetHeaderInformation.CUSTOM_FLOODLIGHT_VARIABLES_SELECTED_COLUMN,
+            variables ->
+                buildListOfStringBySplittingOnComma(variables).stream()
+                    .map(String::trim)
+                    .map(String::toUpperCase)
+                    .collect(toImmutableSet()));
+    var tagFormats =
+        decodeSymbols(
+            columns, ActivitySheetHeaderInformation.TAG_FORMAT_COLUMN, TagFormat::valueOfOrDefault);
+    var tagTypes =
+        decodeSymbols(
+            columns, ActivitySheetHeaderInformation.TAG_TYPE_COLUMN, TagType::valueOfOrDefault);
+    var statuses =
+        decodeSymbols(
+            columns,
+            ActivitySheetHeaderInformation.FLOODLIGHT_STATUS_COLUMN,
+            FloodyToSpreadSheetRowTransformer::parseStatus);
+    var audienceLifespans =
+        decodeSymbols(
+            columns,
+            ActivitySheetHeaderInformation.AUDIENCE_LIFESPAN_COLUMN,
+            this::parseAudienceLifespan);
+
+    var floodies = new ArrayList<SheetFloody>(columns.rowCount());
+
+    for (int row = 0; row < columns.rowCount(); row++) {
+      try {
+        var floodyBuilder =
+            SheetFloody.builder()
+                .setAccountId(
+                    columns.getLong(ActivitySheetHeaderInformation.ACCOUNT_ID_COLUMN, row))
+                .setFloodlightConfigurationId(
+                    columns.getLong(
+                        ActivitySheetHeaderInformation.FLOODLIGHT_CONFIG_ID_COLUMN, row))
+                .setToBeUpdated(
+                    columns.getString(ActivitySheetHeaderInformation.FLAG_TO_UPDATE_COLUMN, row))
+                .setId(columns.getLong(ActivitySheetHeaderInformation.FLOODLIGHT_ID_COLUMN, row))
+                .setGroupName(
+                    columns.getString(
+                        ActivitySheetHeaderInformation.ACTIVITY_GROUP_NAME_COLUMN, row))
+                .setGroupTagString(
+                    columns.getString(
+                        ActivitySheetHeaderInformation.GROUP_TAG_TYPE_STRING_COLUMN, row))
+                .setTagString(
+                    columns.getString(
+                        ActivitySheetHeaderInformation.ACTIVITY_TAG_CAT_STRING_COLUMN, row))
+                .setName(
+                    columns.getString(ActivitySheetHeaderInformation.ACTIVITY_NAME_COLUMN, row))
+                .setCountingMethod(
+                    symbolValue(
+                        countingMethods,
+                        columns,
+                        ActivitySheetHeaderInformation.COUNTING_METHODOLOGY_COLUMN,
+                        row))
+                .setExpectedUrl(
+                    columns.getString(ActivitySheetHeaderInformation.EXPECTED_URL_COLUMN, row))
+                .setCacheBustingMethod(
+                    symbolValue(
+                        cacheBustingTypes,
+                        columns,
+                        ActivitySheetHeaderInformation.CACHE_BUSTING_COLUMN,
+                        row))
+                .setCustomFloodlightVariables(
+                    symbolValue(
+                        customVariables,
+                        columns,
+                        ActivitySheetHeaderInformation.CUSTOM_FLOODLIGHT_VARIABLES_SELECTED_COLUMN,
+                        row))
+                .setDefaultTagIds(
+                    Longs.asList(
+                        columns.getLongs(ActivitySheetHeaderInformation.DEFAULT_TAGS_COLUMN, row)))
+                .setPublisherTagIds(
+                    Longs.asList(
+                        columns.getLongs(
+                            ActivitySheetHeaderInformation.PUBLISHER_TAGS_COLUMN, row)))
+                .setTagFormat(
+                    symbolValue(
+                        tagFormats, columns, ActivitySheetHeaderInformation.TAG_FORMAT_COLUMN, row))
+                .setTagType(
+                    symbolValue(
+                        tagTypes, columns, ActivitySheetHeaderInformation.TAG_TYPE_COLUMN, row))
+                .setAutoCreateAudience(
+                    columns.getString(ActivitySheetHeaderInformation.CREATE_AUDIENCE_COLUMN, row))
+                .setAudienceLifespan(
+                    symbolValue(
+                        audienceLifespans,
+                        columns,
+                        ActivitySheetHeaderInformation.AUDIENCE_LIFESPAN_COLUMN,
+                        row));
+
+        symbolValue(statuses, columns, ActivitySheetHeaderInformation.FLOODLIGHT_STATUS_COLUMN, row)
+            .ifPresent(floodyBuilder::setStatus);
+
+        floodies.add(floodyBuilder.build());
+      } catch (RuntimeException exp) {
+        logger.atWarning().withCause(exp).log(
+            "error transforming ActivityRow at sheet row %s", columns.getSheetRowNumber(row));
+      }
+    }
+
+    return floodies;
+  }
+
+  /**
+   * Decodes each distinct value of a symbol column once, values that can't be decoded are mapped
+   * to {@code null} and reported by {@link #symbolValue} for the rows using them.
+   */
+  private static <V> List<V> decodeSymbols(
+      SheetColumns columns, int column, Function<String, V> decoder) {
+    return columns.mapSymbols(
+        column,
+        symbol -> {
+          try {
+            return decoder.apply(symbol);
+          } catch (RuntimeException exp) {
+            return null;
+          }
+        });
+  }
+
+  private static <V> V symbolValue(
+      List<V> decodedSymbols, SheetColumns columns, int column, int row) {
+    var value = decodedSymbols.get(columns.getSymbolCode(column, row));
+
+    if (value == null) {
+      throw new IllegalArgumentException(
+          String.format(
+              "invalid value (%s) in column %s", columns.getString(column, row), column));
+    }
+
+    return value;
+  }
+
+  private static Optional<FloodlightActivityStatus> parseStatus(@Nullable String status) {
+    if (status == null || status.isEmpty()) {
+      return Optional.empty();
+    }
+
+    // Backward Compatibility
+    return Optional.of(
+        status.equals("Y")
+            ? FloodlightActivityStatus.ARCHIVED_AND_DISABLED
+            : FloodlightActivityStatus.valueOf(status));
+  }
+
   @Override
   public SheetFloody transformFromSheetRow(List<Object> values) {
 
@@ -155,13 +360,10 @@ public class FloodyToSpreadSheetRowTransformer implements SpreadsheetRowTransfor
 
       if (values.size() > ActivitySheetHeaderInformation.AUDIENCE_LIFESPAN_COLUMN) {
 
-        var audienceLifeSpan =
-            toStringOrNull(values.get(ActivitySheetHeaderInformation.AUDIENCE_LIFESPAN_COLUMN));
-
         floodyBuilder.setAudienceLifespan(
-            (audienceLifeSpan == null)
-                ? defaultRemarketingAudienceLifespan
-                : Period.ofDays(parseInt(audienceLifeSpan)));
+            parseAudienceLifespan(
+                toStringOrNull(
+                    values.get(ActivitySheetHeaderInformation.AUDIENCE_LIFESPAN_COLUMN))));
       }
 
       return floodyBuilder.build();
@@ -173,6 +375,13 @@ public class FloodyToSpreadSheetRowTransformer implements SpreadsheetRowTransfor
     return null;
   }
 
+  /** Returns the lifespan in days, or the default lifespan for an empty cell. */
+  private Period parseAudienceLifespan(@Nullable String lifespan) {
+    return (lifespan == null || lifespan.isEmpty())
+        ? defaultRemarketingAudienceLifespan
+        : Period.ofDays(parseInt(lifespan));
+  }
+
   private static ImmutableList<String> buildListOfStringBySplittingOnComma(@Nullable String value) {
     if (value == null) {
       return ImmutableList.of();
@@ -23,14 +23,15 @@ import com.google.common.collect.ImmutableSet;
 import com.google.floody.model.FloodyGroup;
 import com.google.floody.model.FloodyGroupMap;
 import com.google.floody.model.SheetFloody;
+import java.util.Collection;
 
 public final class MissingActivityGroupBuilder {
 
   private final FloodyGroupMap existingGroups;
-  private final ImmutableSet<SheetFloody> sheetFloodies;
+  private final Collection<SheetFloody> sheetFloodies;
 
   public MissingActivityGroupBuilder(
-      ImmutableCollection<FloodyGroup> existingGroups, ImmutableSet<SheetFloody> sheetFloodies) {
+      ImmutableCollection<FloodyGroup> existingGroups, Collection<SheetFloody> sheetFloodies) {
     this.existingGroups = FloodyGroupMap.buildFor(existingGroups);
     this.sheetFloodies = sheetFloodies;
   }
@@ -42,7 +43,8 @@ public final class MissingActivityGroupBuilder {
         .collect(toImmutableSet());
   }
 
-  private boolean isFloodyFromMissingGroup(SheetFloody floody) {
+  /** Returns true if the floody's group does not exist and needs to be created first. */
+  public boolean isFloodyFromMissingGroup(SheetFloody floody) {
     return !existingGroups.containsGroupName(floody.getGroupName())
         && !existingGroups.containsTagString(floody.getGroupTagString());
   }
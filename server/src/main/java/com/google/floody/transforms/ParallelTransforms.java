@@ -0,0 +1,102 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.transforms;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.GoogleLogger;
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Runs the CPU bound transformations and validations of large bundles on a shared fork-join pool.
+ *
+ * <p>The results are always in the order of the input, so the generated sheet contents do not
+ * depend on the scheduling. The functions must be free of side effects, the transformers and
+ * validators only read their immutable lookup maps. Transforms run sequentially until the pool is
+ * configured with a parallelism of more than one.
+ */
+public final class ParallelTransforms {
+
+  private static final GoogleLogger logger = GoogleLogger.forEnclosingClass();
+
+  /** Inputs smaller than this are transformed on the calling thread. */
+  private static final int MIN_PARALLEL_ITEMS = 256;
+
+  @Nullable private static volatile ForkJoinPool transformPool;
+
+  /**
+   * Sets the number of worker threads for transforms, replacing the current pool.
+   *
+   * @param parallelism the number of threads, {@code 0} for the number of available processors and
+   *     {@code 1} for sequential transforms
+   */
+  public static synchronized void setParallelism(int parallelism) {
+    checkArgument(parallelism >= 0, "parallelism (%s) should not be negative", parallelism);
+
+    int poolParallelism =
+        (parallelism == 0) ? Runtime.getRuntime().availableProcessors() : parallelism;
+
+    ForkJoinPool previousPool = transformPool;
+    transformPool = (poolParallelism > 1) ? buildPool(poolParallelism) : null;
+
+    if (previousPool != null) {
+      previousPool.shutdown();
+    }
+
+    logger.atInfo().log("transform parallelism (%s)", poolParallelism);
+  }
+
+  /**
+   * Applies the function to all items, in parallel for large inputs. The function should not return
+   * {@code null}.
+   *
+   * @return the results in the iteration order of the items
+   */
+  public static <T, R> ImmutableList<R> map(
+      Collection<? extends T> items, Function<? super T, ? extends R> function) {
+    ForkJoinPool pool = transformPool;
+
+    if (pool == null || items.size() < MIN_PARALLEL_ITEMS) {
+      return items.stream().map(function).collect(toImmutableList());
+    }
+
+    // Parallel streams started within a pool's task run on that pool instead of the common pool.
+    return pool.submit(() -> items.parallelStream().<R>map(function).collect(toImmutableList()))
+        .join();
+  }
+
+  private static ForkJoinPool buildPool(int parallelism) {
+    return new ForkJoinPool(
+        parallelism,
+        pool -> {
+          ForkJoinWorkerThread thread =
+              ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+          thread.setName("floody-transform-" + thread.getPoolIndex());
+          return thread;
+        },
+        /* handler= */ null,
+        /* asyncMode= */ false);
+  }
+
+  private ParallelTransforms() {}
+}
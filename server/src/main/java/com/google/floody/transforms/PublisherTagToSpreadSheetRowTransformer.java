@@ -19,11 +19,13 @@ package com.google.floody.transforms;
 import static com.google.floody.model.PublisherTagSheetHeaderInformation.PUBLISHER_TAG_CODE_COLUMN;
 import static com.google.floody.model.PublisherTagSheetHeaderInformation.PUBLISHER_TAG_CONVERSION_TYPE_COLUMN;
 import static com.google.floody.model.PublisherTagSheetHeaderInformation.PUBLISHER_TAG_ID_COLUMN;
+import static com.google.floody.model.PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SHEET_HEADERS;
 import static com.google.floody.model.PublisherTagSheetHeaderInformation.PUBLISHER_TAG_SITE_ID_COLUMN;
 import static com.google.floody.spreadsheet.SheetUtils.buildAsStringList;
 import static com.google.floody.spreadsheet.SheetUtils.toLongOrNull;
 import static com.google.floody.spreadsheet.SheetUtils.toStringOrNull;
 
+import com.google.common.collect.ImmutableList;
 import com.google.floody.model.PublisherTagConversionType;
 import com.google.floody.model.SheetPublisherTag;
 import com.google.floody.spreadsheet.SpreadsheetRowTransformer;
@@ -33,9 +35,17 @@ import java.util.List;
 public class PublisherTagToSpreadSheetRowTransformer
     implements SpreadsheetRowTransformer<SheetPublisherTag> {
 
+  @Override
+  public ImmutableList<String> columnHeaders() {
+    return PUBLISHER_TAG_SHEET_HEADERS;
+  }
+
   @Override
   public SheetPublisherTag transformFromSheetRow(List<Object> values) {
-    if ((values == null) || values.size() != 4) {
+    if ((values == null)
+        || values.size() != 4
+        || values.get(PUBLISHER_TAG_CONVERSION_TYPE_COLUMN) == null
+        || values.get(PUBLISHER_TAG_CODE_COLUMN) == null) {
       return null;
     }
 
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.floody.transforms;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.Funnel;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.PrimitiveSink;
+import com.google.floody.model.DefaultTag;
+import com.google.floody.model.PublisherTag;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * De-duplicates tags and assigns each distinct tag an id derived from its content, so the same tag
+ * keeps its id across exports.
+ *
+ * <p>The id is the 64-bit FarmHash fingerprint of the tag's fields, truncated to 53 bits to remain
+ * exact when stored as a spreadsheet number. A colliding id is probed linearly to the next free id,
+ * only the colliding tags then depend on the encounter order.
+ */
+public final class TagIdAssigner<T> {
+
+  /** Largest id, ids must be exactly representable as a double in the spreadsheet. */
+  static final long MAX_TAG_ID = (1L << 53) - 1;
+
+  private final Funnel<T> tagFunnel;
+  private final Map<T, Long> idByTag;
+  private final Set<Long> assignedIds;
+
+  private TagIdAssigner(Funnel<T> tagFunnel) {
+    this.tagFunnel = tagFunnel;
+    this.idByTag = new LinkedHashMap<>();
+    this.assignedIds = new HashSet<>();
+  }
+
+  public static TagIdAssigner<DefaultTag> forDefaultTags() {
+    return new TagIdAssigner<>(TagIdAssigner::funnelDefaultTag);
+  }
+
+  public static TagIdAssigner<PublisherTag> forPublisherTags() {
+    return new TagIdAssigner<>(TagIdAssigner::funnelPublisherTag);
+  }
+
+  /**
+   * Assigns an id to the tag if it was not seen before.
+   *
+   * @return the new id, or {@code null} if the tag already has an id
+   */
+  @Nullable
+  public Long assignIfAbsent(T tag) {
+    if (idByTag.containsKey(tag)) {
+      return null;
+    }
+
+    long tagId = Hashing.farmHashFingerprint64().hashObject(tag, tagFunnel).asLong() & MAX_TAG_ID;
+    while (!assignedIds.add(tagId)) {
+      tagId = (tagId + 1) & MAX_TAG_ID;
+    }
+
+    idByTag.put(tag, tagId);
+    return tagId;
+  }
+
+  /** Returns a read-only live view of the ids assigned so far, in the encounter order of tags. */
+  public Map<T, Long> asMap() {
+    return Collections.unmodifiableMap(idByTag);
+  }
+
+  private static void funnelDefaultTag(DefaultTag defaultTag, PrimitiveSink sink) {
+    putNullableString(defaultTag.name(), sink);
+    putNullableString(defaultTag.tag(), sink);
+  }
+
+  private static void funnelPublisherTag(PublisherTag publisherTag, PrimitiveSink sink) {
+    sink.putLong(publisherTag.siteId());
+    putNullableString(publisherTag.conversionType().name(), sink);
+    putNullableString(publisherTag.tag(), sink);
+  }
+
+  /** Writes the length before the value to keep the boundaries between fields unambiguous. */
+  private static void putNullableString(@Nullable String value, PrimitiveSink sink) {
+    if (value == null) {
+      sink.putInt(-1);
+      return;
+    }
+
+    sink.putInt(value.length()).putString(value, UTF_8);
+  }
+}
@@ -0,0 +1,101 @@
+#!/bin/sh
+#
+# Copyright 2021 Google LLC
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     https://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Unpacks the floodyapp fat-jar to a flat classpath and creates an AppCDS
+# archive of the classes loaded while Floody starts and serves its first
+# requests. Class data sharing skips the classes of the nested jars in a
+# Spring Boot fat-jar, hence the unpacking.
+#
+# An archive is only used by the JVM that created it, so run this script with
+# the JVM of the runtime image (see Dockerfile). Then start Floody from the
+# output directory with:
+#
+#   java -XX:SharedArchiveFile=floodyapp.jsa @classpath.args \
+#     com.google.floody.FloodyApplication
+#
+# Usage: create_cds_archive.sh <floodyapp.jar> <output-directory>
+
+set -eu
+
+if [ "$#" -ne 2 ]; then
+  echo "Usage: $0 <floodyapp.jar> <output-directory>" >&2
+  exit 1
+fi
+
+JAR="$(realpath "$1")"
+mkdir -p "$2"
+OUTPUT_DIR="$(realpath "$2")"
+PORT="${CDS_TRAINING_PORT:-8089}"
+# Requests exercising the controllers, Objectify and the Google API clients.
+TRAINING_PATHS="${CDS_TRAINING_PATHS:-/user/heart /floody/heart /user/profiles}"
+
+cd "${OUTPUT_DIR}"
+unzip -q -o "${JAR}"
+
+# The archive requires the same classpath at runtime, keep the fat-jar's order.
+if [ -f BOOT-INF/classpath.idx ]; then
+  LIBS="$(sed -e 's/^- "\(.*\)"$/\1/' BOOT-INF/classpath.idx)"
+else
+  LIBS="$(ls BOOT-INF/lib/*.jar | sort)"
+fi
+
+CLASSPATH_VALUE="${OUTPUT_DIR}/BOOT-INF/classes"
+for lib in ${LIBS}; do
+  CLASSPATH_VALUE="${CLASSPATH_VALUE}:${OUTPUT_DIR}/${lib}"
+done
+printf -- '-cp %s\n' "${CLASSPATH_VALUE}" > classpath.args
+
+# Training run, the Datastore client points to an (absent) emulator, so no
+# credentials are needed.
+rm -f floodyapp.jsa
+EXECUTION_ENVIRONMENT=local \
+DATASTORE_EMULATOR_HOST="localhost:8432" \
+DATASTORE_PROJECT_ID="floody-cds-training" \
+PORT="${PORT}" \
+  java -XX:ArchiveClassesAtExit=floodyapp.jsa @classpath.args \
+    com.google.floody.FloodyApplication &
+APP_PID=$!
+
+attempts=0
+until wget -q -T 5 -O /dev/null "http://localhost:${PORT}/user/heart"; do
+  attempts=$((attempts + 1))
+  if [ "${attempts}" -gt 120 ] || ! kill -0 "${APP_PID}" 2>/dev/null; then
+    echo "Floody did not start for the training run" >&2
+    kill "${APP_PID}" 2>/dev/null || true
+    exit 1
+  fi
+  sleep 1
+done
+
+for path in ${TRAINING_PATHS}; do
+  # Error responses are expected, the request paths are what matters.
+  wget -q -T 30 -O /dev/null \
+    --header "Authorization: Bearer cds-training" \
+    --header "profile: 1" \
+    "http://localhost:${PORT}${path}" || true
+done
+
+# The archive is written when the JVM exits.
+kill -TERM "${APP_PID}"
+wait "${APP_PID}" || true
+
+if [ ! -s floodyapp.jsa ]; then
+  echo "AppCDS archive was not created" >&2
+  exit 1
+fi
+
+echo "Created $(du -h floodyapp.jsa | cut -f1) AppCDS archive in ${OUTPUT_DIR}"
@@ -0,0 +1,80 @@
+#!/bin/bash
+#
+# Copyright 2021 Google LLC
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+#     https://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+#
+
+# Measures Floody's time-to-first-response, from the JVM launch to the first
+# successful response, for the fat-jar, the unpacked classpath and the
+# unpacked classpath with the AppCDS archive of create_cds_archive.sh.
+#
+# Usage: startup_benchmark.sh <floodyapp.jar> <cds-output-directory> [runs]
+#
+# BENCHMARK_PATH sets the request to measure, /user/heart by default.
+
+set -euo pipefail
+
+if [[ "$#" -lt 2 ]]; then
+  echo "Usage: $0 <floodyapp.jar> <cds-output-directory> [runs]" >&2
+  exit 1
+fi
+
+readonly JAR="$(realpath "$1")"
+readonly APP_DIR="$(realpath "$2")"
+readonly RUNS="${3:-5}"
+readonly PORT="${BENCHMARK_PORT:-8089}"
+readonly URL="http://localhost:${PORT}${BENCHMARK_PATH:-/user/heart}"
+
+# Starts Floody with the given java arguments and prints the milliseconds until
+# the first successful response.
+time_to_first_response() {
+  local start_nanos
+  start_nanos="$(date +%s%N)"
+
+  (cd "${APP_DIR}" && EXECUTION_ENVIRONMENT=local PORT="${PORT}" \
+    exec java "$@" >/dev/null 2>&1) &
+  local app_pid=$!
+
+  until curl -sf -o /dev/null "${URL}"; do
+    if ! kill -0 "${app_pid}" 2>/dev/null; then
+      echo "Floody exited before responding" >&2
+      return 1
+    fi
+    sleep 0.05
+  done
+
+  echo $(( ($(date +%s%N) - start_nanos) / 1000000 ))
+
+  kill -TERM "${app_pid}"
+  wait "${app_pid}" || true
+}
+
+benchmark() {
+  local name="$1"
+  shift
+
+  local total=0
+  local millis
+  for ((run = 1; run <= RUNS; run++)); do
+    millis="$(time_to_first_response "$@")"
+    total=$((total + millis))
+  done
+
+  printf '%-12s %6d ms (average of %d runs)\n' "${name}" $((total / RUNS)) "${RUNS}"
+}
+
+benchmark "fat-jar" -jar "${JAR}"
+benchmark "classpath" @classpath.args com.google.floody.FloodyApplication
+benchmark "appcds" -XX:SharedArchiveFile=floodyapp.jsa @classpath.args \
+  com.google.floody.FloodyApplication
@@ -465,6 +465,66 @@ function retrieveAndTrimText(elementId) {
   return (value) ? value.trim() : null;
 }
 
+/**
+ * Reads a Server-Sent Events stream from a fetch response, calling the handler
+ * for every event as soon as it arrives. Used instead of EventSource, which
+ * cannot send the Authorization and profile headers.
+ *
+ * @param {!Response} response the fetch response with a text/event-stream body.
+ * @param {function(string, !Object):void} onEvent called with the event name
+ *     and its parsed JSON data.
+ * @return {!Promise<void>} resolved when the stream ends.
+ */
+function readEventStream(response, onEvent) {
+  if (!response.ok || !response.body) {
+    return Promise.reject(`Error (${response.status}) reading progress`);
+  }
+
+  const reader = response.body.getReader();
+  const decoder = new TextDecoder();
+  let buffer = '';
+
+  /**
+   * Dispatches a complete event block of 'field: value' lines.
+   * @param {string} block the lines of a single event.
+   */
+  const dispatch = (block) => {
+    let name = 'message';
+    const data = [];
+    block.split('\n').forEach(line => {
+      if (line.startsWith('event:')) {
+        name = line.substring(6).trim();
+      } else if (line.startsWith('data:')) {
+        data.push(line.substring(5).trim());
+      }
+    });
+
+    if (data.length > 0) {
+      onEvent(name, JSON.parse(data.join('\n')));
+    }
+  };
+
+  const readChunk = () => reader.read().then(({done, value}) => {
+    if (done) {
+      if (buffer.trim()) {
+        dispatch(buffer);
+      }
+      return;
+    }
+
+    buffer += decoder.decode(value, {stream: true}).replace(/\r\n?/g, '\n');
+    let boundary;
+    while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+      dispatch(buffer.substring(0, boundary));
+      buffer = buffer.substring(boundary + 2);
+    }
+
+    return readChunk();
+  });
+
+  return readChunk();
+}
+
 exports = {
   Routes,
   STORE,
@@ -487,6 +547,7 @@ exports = {
   enableElements,
   disableElements,
   retrieveAndTrimText,
+  readEventStream,
 };
 
 /** Export symbols to prevent minification */
@@ -292,14 +292,85 @@ function exportToDcm() {
   }
 
   displaySnackbar('Exporting...');
+  const config = common.floodyGetConfig();
+  config.headers['Accept'] = 'text/event-stream';
+
+  const progress = {written: 0, failed: 0};
   fetch(
-      `${common.FLOODY_API_ENDPOINT}/floody/exportToDcm/${sheetId}`,
-      common.floodyGetConfig()
+      `${common.FLOODY_API_ENDPOINT}/floody/exportToDcm/${sheetId}/events`,
+      config
   )
-  .then(response => response.text())
+  .then(response => common.readEventStream(
+      response, (name, event) => renderExportProgress(progress, name, event)))
   .catch(error => renderError(error));
 }
 
+/**
+ * Shows the progress of an export to CM as its events arrive.
+ *
+ * @param {!Object} progress the running count of written and failed rows.
+ * @param {string} name the event name: phase, activity or sheet_rows.
+ * @param {!Object} event the ExportProgressEvent.
+ */
+function renderExportProgress(progress, name, event) {
+  switch (name) {
+    case 'activity': {
+      const activity = event['activity'];
+      if (activity['written']) {
+        // Audience outcomes follow the written activity, count it only once.
+        progress.written += activity['audience'] ? 0 : 1;
+      } else {
+        progress.failed++;
+        console.log(
+            `${activity['sheetName']}!${activity['rowNumber']}: ` +
+            `${activity['remarks']}`);
+      }
+      displaySnackbar(
+          `Exporting... ${progress.written} written, ${progress.failed} errors`);
+      return;
+    }
+
+    case 'sheet_rows':
+      displaySnackbar(
+          `Updated ${event['sheetRows']['rows']} rows in ` +
+          `${event['sheetRows']['sheetName']}`);
+      return;
+
+    case 'phase':
+      displaySnackbar(exportPhaseMessage(progress, event['phase']));
+      return;
+  }
+}
+
+/**
+ * Composes the message for an export phase transition.
+ *
+ * @param {!Object} progress the running count of written and failed rows.
+ * @param {!Object} phase the ExportPhase.
+ * @return {string} the message to show.
+ */
+function exportPhaseMessage(progress, phase) {
+  switch (phase['phase']) {
+    case 'READING_SHEET':
+      return 'Reading the rows marked for update...';
+    case 'WRITING_DCM':
+      return `Writing to CM (step ${phase['wave']} of ${phase['waves']})...`;
+    case 'WRITING_SHEET':
+      return 'Updating the spreadsheet...';
+    case 'RECORDING_SYNC':
+      return 'Recording the sync...';
+    case 'UNCHANGED':
+      return 'No changes to export since the last sync.';
+    case 'COMPLETED':
+      return `Export completed: ${progress.written} written, ` +
+          `${progress.failed} errors. See the remarks column for details.`;
+    case 'FAILED':
+      return `Export failed: ${phase['message'] || 'unknown error'}`;
+    default:
+      return 'Exporting...';
+  }
+}
+
 /** Import from CM */
 function importFromDcm() {
   console.log('ImportFromDcm');